@@ -0,0 +1,554 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An implementation of Graph with the same edge-list design as
+ * ConcreteEdgesGraph, but storing the edges column-wise in parallel int arrays
+ * instead of one Edge object per edge.
+ *
+ * <p>Each edge costs 12 bytes of array (source id, target id, weight), up to
+ * 18 while the arrays have room to grow, instead of an Edge object plus a
+ * list reference; weights are updated in place, and edges are removed by
+ * moving the last edge into the freed slot. An open-addressing table of edge
+ * indices, 2 to 4 slots of 4 bytes per edge, finds an edge from the ids of
+ * its source and target in O(1), so set() and weight() do not scan the
+ * edges: 20 to 34 bytes per edge in all, less than half of
+ * ConcreteEdgesGraph with its index. remove(), sources(), targets(), the
+ * degrees and the traversals scan every edge, the last three without
+ * allocating.
+ */
+public class ArrayEdgesGraph<L> implements Graph<L> {
+    
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private final Map<L, Integer> ids = new HashMap<>();
+    private final List<L> labels = new ArrayList<>();
+    private long[] labelHashes = new long[INITIAL_CAPACITY];
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+    private int freeCount = 0;
+    
+    private int[] sourceId = new int[INITIAL_CAPACITY];
+    private int[] targetId = new int[INITIAL_CAPACITY];
+    private int[] weight = new int[INITIAL_CAPACITY];
+    private int size = 0;
+    private long fingerprint = 0;
+    
+    private int[] slotEdges = new int[2 * INITIAL_CAPACITY];
+    
+    private final RepCheck repCheck;
+    private final int checkInterval;
+    private int mutations = 0;
+    
+    // Abstraction function:
+    //   Represent a Graph whose vertices are the keys of ids, and whose edges
+    //   are labels[sourceId[i]] -> labels[targetId[i]] with weight[i] for
+    //   each 0 <= i < size, with fingerprint fingerprint
+    // Representation invariant:
+    //   ids.get(labels[id]) == id for every id with labels[id] != null
+    //   labelHashes[id] == Fingerprint.label(labels[id]) for those ids
+    //   freeIds[0..freeCount) are exactly the ids with labels[id] == null
+    //   sourceId, targetId and weight have the same length >= size
+    //   for 0 <= i < size: labels[sourceId[i]] and labels[targetId[i]] are
+    //     not null, weight[i] > 0
+    //   no two edges in [0, size) have the same source and target
+    //   slotEdges.length is a power of two >= 2 * size; slotEdges[j] == 0
+    //     marks an empty slot
+    //   for 0 <= i < size: the slot where the edge from sourceId[i] to
+    //     targetId[i] is found by linear probing from its home slot has
+    //     slotEdges == i + 1, and exactly size slots are not empty
+    //   fingerprint == Fingerprint.of(this)
+    // Safety from rep exposure:
+    //   all fields are private; vertices(), sources(), targets() return new
+    //   collections; edgeSpliterator() hands out new immutable Edge objects
+    
+    /**
+     * Create an empty graph which checks its rep as selected by system
+     * properties, see {@link RepCheck}.
+     */
+    public ArrayEdgesGraph() {
+    	this(RepCheck.fromSystemProperty(), RepCheck.intervalFromSystemProperty());
+    }
+    
+    /**
+     * Create an empty graph which checks its rep in the given mode.
+     *
+     * @param repCheck when to check the rep after a mutation
+     * @param checkInterval number of mutations between checks in
+     *        {@link RepCheck#SAMPLED} mode, must be positive
+     */
+    public ArrayEdgesGraph(RepCheck repCheck, int checkInterval) {
+    	if (checkInterval <= 0) {
+    		throw new IllegalArgumentException(
+    				"checkInterval must be positive: " + checkInterval);
+    	}
+    	this.repCheck = repCheck;
+    	this.checkInterval = checkInterval;
+    }
+    
+    public void checkRep() {
+    	if (!RepCheck.ASSERTS) {
+    		return;
+    	}
+    	assert sourceId.length == targetId.length && targetId.length == weight.length;
+    	assert size <= weight.length;
+    	assert Integer.bitCount(slotEdges.length) == 1 && 2 * size <= slotEdges.length;
+    	int used = 0;
+    	for (int slotEdge : slotEdges) {
+    		if (slotEdge != 0) {
+    			used++;
+    		}
+    	}
+    	assert used == size;
+    	// each edge is found at its own index, so no two edges are the same
+    	for (int i = 0; i < size; i++) {
+    		checkRep(i);
+    		assert indexOf(sourceId[i], targetId[i]) == i;
+    	}
+    	int live = 0;
+    	for (int id = 0; id < labels.size(); id++) {
+    		if (labels.get(id) != null) {
+    			assert ids.get(labels.get(id)) == id;
+    			live++;
+    		}
+    	}
+    	assert live == ids.size();
+    	assert live + freeCount == labels.size();
+    	assert fingerprint == Fingerprint.of(this);
+    }
+    
+    /**
+     * Check the part of the rep an edge belongs to.
+     * @param i index of an edge, 0 <= i < size
+     */
+    private void checkRep(int i) {
+    	if (!RepCheck.ASSERTS) {
+    		return;
+    	}
+    	assert weight[i] > 0;
+    	assert labels.get(sourceId[i]) != null;
+    	assert labels.get(targetId[i]) != null;
+    }
+    
+    /**
+     * Check the rep after a mutation as selected by repCheck.
+     * @param touched index of the edge added or updated by the mutation, or
+     *        -1 if none
+     */
+    private void checkRepAfterMutation(int touched) {
+    	switch (repCheck) {
+    	case OFF:
+    		break;
+    	case SAMPLED:
+    		if (++mutations % checkInterval == 0) {
+    			checkRep();
+    		}
+    		break;
+    	case INCREMENTAL:
+    		if (touched >= 0) {
+    			checkRep(touched);
+    		}
+    		break;
+    	case FULL:
+    		checkRep();
+    		break;
+    	}
+    }
+    
+    @Override public boolean add(L vertex) {
+    	boolean result = !ids.containsKey(vertex);
+    	if (result) {
+    		idOrCreate(vertex);
+    	}
+    	checkRepAfterMutation(-1);
+    	return result;
+    }
+    
+    @Override public int set(L source, L target, int weight) {
+    	int s = idOrCreate(source);
+    	int t = idOrCreate(target);
+    	int i = indexOf(s, t);
+    	int result = 0;
+    	int touched = -1;
+    
+    	if (i >= 0) {
+    		result = this.weight[i];
+    		if (weight == 0) {
+    			removeEdge(i);
+    		} else {
+    			fingerprint += Fingerprint.edgeOfHashes(labelHashes[s], labelHashes[t], weight)
+    					- Fingerprint.edgeOfHashes(labelHashes[s], labelHashes[t], result);
+    			this.weight[i] = weight;
+    			touched = i;
+    		}
+    	} else if (weight > 0) {
+    		touched = appendEdge(s, t, weight);
+    		fingerprint += Fingerprint.edgeOfHashes(labelHashes[s], labelHashes[t], weight);
+    	}
+    	checkRepAfterMutation(touched);
+    	return result;
+    }
+    
+    @Override public boolean remove(L vertex) {
+    	Integer removed = ids.remove(vertex);
+    	if (removed == null) {
+    		return false;
+    	}
+    	int id = removed;
+    
+    	// walk backwards so an edge moved into a freed slot is already checked
+    	for (int i = size - 1; i >= 0; i--) {
+    		if (sourceId[i] == id || targetId[i] == id) {
+    			removeEdge(i);
+    		}
+    	}
+    	labels.set(id, null);
+    	fingerprint -= Fingerprint.vertexOfHash(labelHashes[id]);
+    	if (freeCount == freeIds.length) {
+    		freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+    	}
+    	freeIds[freeCount++] = id;
+    	checkRepAfterMutation(-1);
+    	return true;
+    }
+    
+    @Override public Set<L> vertices() {
+        return new HashSet<>(ids.keySet());
+    }
+    
+    @Override public Map<L, Integer> sources(L target) {
+    	Map<L, Integer> result = new HashMap<>();
+    	Integer t = ids.get(target);
+    	if (t == null) {
+    		return result;
+    	}
+    	for (int i = 0; i < size; i++) {
+    		if (targetId[i] == t) {
+    			result.put(labels.get(sourceId[i]), weight[i]);
+    		}
+    	}
+    	return result;
+    }
+    
+    @Override public Map<L, Integer> targets(L source) {
+    	Map<L, Integer> result = new HashMap<>();
+    	Integer s = ids.get(source);
+    	if (s == null) {
+    		return result;
+    	}
+    	for (int i = 0; i < size; i++) {
+    		if (sourceId[i] == s) {
+    			result.put(labels.get(targetId[i]), weight[i]);
+    		}
+    	}
+    	return result;
+    }
+    
+    @Override public int weight(L source, L target) {
+    	Integer s = ids.get(source);
+    	Integer t = ids.get(target);
+    	if (s == null || t == null) {
+    		return 0;
+    	}
+    	int i = indexOf(s, t);
+    	return i < 0 ? 0 : weight[i];
+    }
+    
+    @Override public boolean contains(L vertex) {
+    	return ids.containsKey(vertex);
+    }
+    
+    @Override public int outDegree(L source) {
+    	Integer s = ids.get(source);
+    	if (s == null) {
+    		return 0;
+    	}
+    	int degree = 0;
+    	for (int i = 0; i < size; i++) {
+    		if (sourceId[i] == s) {
+    			degree++;
+    		}
+    	}
+    	return degree;
+    }
+    
+    @Override public int inDegree(L target) {
+    	Integer t = ids.get(target);
+    	if (t == null) {
+    		return 0;
+    	}
+    	int degree = 0;
+    	for (int i = 0; i < size; i++) {
+    		if (targetId[i] == t) {
+    			degree++;
+    		}
+    	}
+    	return degree;
+    }
+    
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+    	Integer s = ids.get(source);
+    	if (s == null) {
+    		return;
+    	}
+    	for (int i = 0; i < size; i++) {
+    		if (sourceId[i] == s) {
+    			action.accept(labels.get(targetId[i]), weight[i]);
+    		}
+    	}
+    }
+    
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+    	Integer t = ids.get(target);
+    	if (t == null) {
+    		return;
+    	}
+    	for (int i = 0; i < size; i++) {
+    		if (targetId[i] == t) {
+    			action.accept(labels.get(sourceId[i]), weight[i]);
+    		}
+    	}
+    }
+    
+    @Override public void forEachEdge(EdgeConsumer<? super L> action) {
+    	for (int i = 0; i < size; i++) {
+    		action.accept(labels.get(sourceId[i]), labels.get(targetId[i]), weight[i]);
+    	}
+    }
+    
+    @Override public Spliterator<Edge<L>> edgeSpliterator() {
+    	return new EdgeSpliterator(0, size);
+    }
+    
+    @Override public long fingerprint() {
+    	return fingerprint;
+    }
+    
+    /**
+     * Spliterator over a range of edge indices, split by halving the range.
+     */
+    private class EdgeSpliterator implements Spliterator<Edge<L>> {
+    
+    	private int index;
+    	private final int fence;
+    
+    	// Abstraction function:
+    	//   the edges at indices [index, fence) of the enclosing graph
+    	// Representation invariant:
+    	//   0 <= index <= fence <= size
+    	// Safety from rep exposure:
+    	//   edges handed out are new immutable Edge objects
+    
+    	EdgeSpliterator(int index, int fence) {
+    		this.index = index;
+    		this.fence = fence;
+    	}
+    
+    	@Override public boolean tryAdvance(Consumer<? super Edge<L>> action) {
+    		if (index >= fence) {
+    			return false;
+    		}
+    		int i = index++;
+    		action.accept(new Edge<>(labels.get(sourceId[i]), labels.get(targetId[i]), weight[i]));
+    		return true;
+    	}
+    
+    	@Override public Spliterator<Edge<L>> trySplit() {
+    		int mid = (index + fence) >>> 1;
+    		if (mid <= index) {
+    			return null;
+    		}
+    		Spliterator<Edge<L>> prefix = new EdgeSpliterator(index, mid);
+    		index = mid;
+    		return prefix;
+    	}
+    
+    	@Override public long estimateSize() {
+    		return fence - index;
+    	}
+    
+    	@Override public int characteristics() {
+    		return NONNULL | DISTINCT | SIZED | SUBSIZED;
+    	}
+    }
+    
+    /**
+     * @param vertex label
+     * @return id of vertex, added to this graph if it was not already included
+     */
+    private int idOrCreate(L vertex) {
+    	Integer id = ids.get(vertex);
+    	if (id != null) {
+    		return id;
+    	}
+    	int created;
+    	if (freeCount > 0) {
+    		created = freeIds[--freeCount];
+    		labels.set(created, vertex);
+    	} else {
+    		created = labels.size();
+    		labels.add(vertex);
+    	}
+    	ids.put(vertex, created);
+    	if (created == labelHashes.length) {
+    		labelHashes = Arrays.copyOf(labelHashes, created * 2);
+    	}
+    	labelHashes[created] = Fingerprint.label(vertex);
+    	fingerprint += Fingerprint.vertexOfHash(labelHashes[created]);
+    	return created;
+    }
+    
+    /**
+     * @return key of the edge from s to t in the edge table
+     */
+    private static long key(int s, int t) {
+    	return (long) s << 32 | (t & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * @return home slot of key in a table of mask + 1 slots
+     */
+    private static int home(long key, int mask) {
+    	return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+    
+    /**
+     * @return home slot of the edge at index e in a table of mask + 1 slots
+     */
+    private int homeOf(int e, int mask) {
+    	return home(key(sourceId[e], targetId[e]), mask);
+    }
+    
+    /**
+     * @return slot holding the edge from s to t, or the empty slot where
+     *         probing for it ends
+     */
+    private int slotOf(int s, int t) {
+    	int mask = slotEdges.length - 1;
+    	int j = home(key(s, t), mask);
+    	for (int e = slotEdges[j] - 1; e >= 0; e = slotEdges[j] - 1) {
+    		if (sourceId[e] == s && targetId[e] == t) {
+    			break;
+    		}
+    		j = (j + 1) & mask;
+    	}
+    	return j;
+    }
+    
+    /**
+     * @return index of the edge from s to t, or -1 if there is no such edge
+     */
+    private int indexOf(int s, int t) {
+    	return slotEdges[slotOf(s, t)] - 1;
+    }
+    
+    /**
+     * Add an edge that is not already included.
+     * @return index of the new edge
+     */
+    private int appendEdge(int s, int t, int w) {
+    	if (size == weight.length) {
+    		int capacity = size + (size >> 1);
+    		sourceId = Arrays.copyOf(sourceId, capacity);
+    		targetId = Arrays.copyOf(targetId, capacity);
+    		weight = Arrays.copyOf(weight, capacity);
+    	}
+    	if (2 * (size + 1) > slotEdges.length) {
+    		rehash(2 * slotEdges.length);
+    	}
+    	sourceId[size] = s;
+    	targetId[size] = t;
+    	weight[size] = w;
+    	slotEdges[slotOf(s, t)] = size + 1;
+    	return size++;
+    }
+    
+    /**
+     * Rebuild the edge table with the given number of slots.
+     */
+    private void rehash(int slots) {
+    	slotEdges = new int[slots];
+    	for (int i = 0; i < size; i++) {
+    		slotEdges[slotOf(sourceId[i], targetId[i])] = i + 1;
+    	}
+    }
+    
+    /**
+     * Remove the edge at index i by moving the last edge into its slot.
+     */
+    private void removeEdge(int i) {
+    	fingerprint -= Fingerprint.edgeOfHashes(
+    			labelHashes[sourceId[i]], labelHashes[targetId[i]], weight[i]);
+    	unlink(slotOf(sourceId[i], targetId[i]));
+    	int last = --size;
+    	if (i != last) {
+    		// found through its old index, whose arrays still hold it
+    		slotEdges[slotOf(sourceId[last], targetId[last])] = i + 1;
+    		sourceId[i] = sourceId[last];
+    		targetId[i] = targetId[last];
+    		weight[i] = weight[last];
+    	}
+    }
+    
+    /**
+     * Empty a slot of the edge table, moving back the edges probed past it so
+     * that every edge stays reachable from its home slot.
+     */
+    private void unlink(int hole) {
+    	int mask = slotEdges.length - 1;
+    	slotEdges[hole] = 0;
+    	for (int j = (hole + 1) & mask; slotEdges[j] != 0; j = (j + 1) & mask) {
+    		// an edge may move back to the hole unless its home is past the hole
+    		if (((j - homeOf(slotEdges[j] - 1, mask)) & mask) >= ((j - hole) & mask)) {
+    			slotEdges[hole] = slotEdges[j];
+    			slotEdges[j] = 0;
+    			hole = j;
+    		}
+    	}
+    }
+    
+    /**
+     * @return a String represent the Graph.
+     * Graph will be represent in the same format as ConcreteEdgesGraph,
+     * edge will present first, then vertex:
+     *
+     * Vertex to vertex with weight aside represent a edge:
+     * 	"1" ---> "2" 1
+     *
+     *
+     * Vertex with no arrow represent a vertex with no edge:
+     * 	"1"
+     *
+     * Empty Graph will be represent by a blank line.
+     */
+    @Override
+    public String toString() {
+    	StringBuilder result = new StringBuilder();
+    	Set<L> vertices = vertices();
+    
+    	forEachEdge((source, target, weight) -> {
+    		result.append(new Edge<>(source, target, weight)).append('\n');
+    		vertices.remove(source);
+    		vertices.remove(target);
+    	});
+    
+    	for (L vertex : new TreeSet<>(vertices)) {
+    		result.append('"').append(vertex).append("\"\n");
+    	}
+    	return result.length() == 0 ? "\n" : result.toString();
+    }
+    
+}
@@ -9,70 +9,243 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.TreeSet;
+import java.util.function.ObjIntConsumer;
 
 /**
- * An implementation of Graph.
+ * An implementation of Graph as a set of vertices and a list of edges.
  * 
- * <p>PS2 instructions: you MUST use the provided rep.
+ * <p>An index from the source and target of each edge to its position in the
+ * edge list, and another from its target and source, find an edge in O(1)
+ * and the edges of a vertex in O(degree), so only vertices(), the walks over
+ * every edge, toString() and checkRep() scan the edges. Edges are removed by
+ * moving the last edge into the freed position.
  */
 public class ConcreteEdgesGraph<L> implements Graph<L> {
     
     private final Set<L> vertices = new HashSet<>();
     private final List<Edge<L>> edges = new ArrayList<>();
+    private final Map<L, Map<L, Integer>> positions = new HashMap<>();
+    private final Map<L, Map<L, Integer>> sourcePositions = new HashMap<>();
+    private final RepCheck repCheck;
+    private final int checkInterval;
+    private int mutations = 0;
+    private long fingerprint = 0;
+    private int fullChecks = 0;
+    private int edgeChecks = 0;
     
     // Abstraction function:
-    //   Represent a Graph with vertices and edges
+    //   Represent a Graph with vertices and edges, whose fingerprint is
+    //   fingerprint
     // Representation invariant:
     //   edges vertex all contain in vertices
     //	 no more than one edge in edges that source and target is the same
+    //   positions.get(source).get(target) == i and
+    //     sourcePositions.get(target).get(source) == i for each edges.get(i)
+    //     from source to target; neither has another entry or an empty map
+    //	 fingerprint == Fingerprint.of(this)
     // Safety from rep exposure:
     //   vertices() make defensive copies
     //	 sources(), targets() return Map only contain immutable object
     
-    public ConcreteEdgesGraph() {}
+    /**
+     * Create an empty graph which checks its rep as selected by system
+     * properties, see {@link RepCheck}.
+     */
+    public ConcreteEdgesGraph() {
+    	this(RepCheck.fromSystemProperty(), RepCheck.intervalFromSystemProperty());
+    }
+    
+    /**
+     * Create an empty graph which checks its rep in the given mode.
+     * 
+     * @param repCheck when to check the rep after a mutation
+     * @param checkInterval number of mutations between checks in
+     *        {@link RepCheck#SAMPLED} mode, must be positive
+     */
+    public ConcreteEdgesGraph(RepCheck repCheck, int checkInterval) {
+    	if (checkInterval <= 0) {
+    		throw new IllegalArgumentException(
+    				"checkInterval must be positive: " + checkInterval);
+    	}
+    	this.repCheck = repCheck;
+    	this.checkInterval = checkInterval;
+    }
     
     public void checkRep() {
-    	for (Edge<L> edge : edges) {
-			assert vertices.contains(edge.getSource());
-			assert vertices.contains(edge.getTarget());
+    	if (!RepCheck.ASSERTS) {
+    		return;
+    	}
+    	fullChecks++;
+    	// each edge is found at its own position, so no two edges are the same
+    	for (int i = 0; i < edges.size(); i++) {
+    		checkRep(i);
 		}
+    	int indexed = 0;
+    	for (Map<L, Integer> targets : positions.values()) {
+    		assert !targets.isEmpty();
+    		indexed += targets.size();
+    	}
+    	assert indexed == edges.size();
+    	indexed = 0;
+    	for (Map<L, Integer> sources : sourcePositions.values()) {
+    		assert !sources.isEmpty();
+    		indexed += sources.size();
+    	}
+    	assert indexed == edges.size();
+    	assert fingerprint == Fingerprint.of(this);
+    }
+    
+    /**
+     * Check the part of the rep an edge belongs to.
+     * @param i position of an edge in edges, 0 <= i < edges.size()
+     */
+    private void checkRep(int i) {
+    	if (!RepCheck.ASSERTS) {
+    		return;
+    	}
+    	edgeChecks++;
+    	Edge<L> edge = edges.get(i);
+    	edge.checkRep();
+    	assert vertices.contains(edge.getSource());
+    	assert vertices.contains(edge.getTarget());
+    	assert indexOf(edge.getSource(), edge.getTarget()) == i;
+    	assert sourcePositions.get(edge.getTarget()).get(edge.getSource()) == i;
+    }
+    
+    /**
+     * Check the rep after a mutation as selected by repCheck.
+     * @return true iff repCheck asks the mutation to check only the part of
+     *         the rep it touched instead; false if assertions are disabled
+     */
+    private boolean checkRepAfterMutation() {
+    	if (!RepCheck.ASSERTS) {
+    		return false;
+    	}
+    	switch (repCheck) {
+    	case SAMPLED:
+    		if (++mutations % checkInterval == 0) {
+    			checkRep();
+    		}
+    		return false;
+    	case INCREMENTAL:
+    		return true;
+    	case FULL:
+    		checkRep();
+    		return false;
+    	default:
+    		return false;
+    	}
+    }
+    
+    /** @return number of times the whole rep was checked, for tests */
+    int fullChecks() {
+    	return fullChecks;
+    }
+    
+    /** @return number of times the part of the rep of an edge was checked, for tests */
+    int edgeChecks() {
+    	return edgeChecks;
+    }
+    
+    /**
+     * @return position in edges of the edge from source to target, or -1 if
+     *         there is none
+     */
+    private int indexOf(L source, L target) {
+    	Map<L, Integer> targets = positions.get(source);
+    	if (targets == null) {
+    		return -1;
+    	}
+    	Integer i = targets.get(target);
+    	return i == null ? -1 : i;
+    }
+    
+    /**
+     * Record in both indices that the edge from source to target is at
+     * position i.
+     */
+    private void index(L source, L target, Integer i) {
+    	positions.computeIfAbsent(source, s -> new HashMap<>()).put(target, i);
+    	sourcePositions.computeIfAbsent(target, t -> new HashMap<>()).put(source, i);
+    }
+    
+    /**
+     * Remove the edge from source to target from both indices.
+     */
+    private void unindex(L source, L target) {
+    	Map<L, Integer> targets = positions.get(source);
+    	targets.remove(target);
+    	if (targets.isEmpty()) {
+    		positions.remove(source);
+    	}
+    	Map<L, Integer> sources = sourcePositions.get(target);
+    	sources.remove(source);
+    	if (sources.isEmpty()) {
+    		sourcePositions.remove(target);
+    	}
+    }
+    
+    /**
+     * Remove an edge by moving the last edge into its position.
+     * @param i position of the edge in edges
+     */
+    private void removeEdge(int i) {
+    	Edge<L> edge = edges.get(i);
+    	unindex(edge.getSource(), edge.getTarget());
+    	Edge<L> last = edges.remove(edges.size() - 1);
+    	if (i < edges.size()) {
+    		edges.set(i, last);
+    		index(last.getSource(), last.getTarget(), i);
+    	}
     }
     
     @Override public boolean add(L vertex) {
         boolean result = vertices.add(vertex);
-        checkRep();
+        if (result) {
+        	fingerprint += Fingerprint.vertex(vertex);
+        }
+        if (checkRepAfterMutation()) {
+        	assert vertices.contains(vertex);
+        }
         return result;
     }
     
     @Override public int set(L source, L target, int weight) {
-    	boolean finded = false;
     	int result = 0;    	
-    	vertices.addAll(List.of(source, target));
-    	
-    	int i = 0;
-    	while (i < edges.size()) {
-    		Edge<L> edge = edges.get(i);
-			if (edge.connected(source, target)) {
-				result = edge.getWeight();
-				finded = true;
-				
-				if (weight == 0) {
-					edges.remove(i);
-				} else {
-					edges.set(i, new Edge<>(source, target, weight));
-				}
-				
-				break;
-			}
-			
-			i++;
+    	if (vertices.add(source)) {
+    		fingerprint += Fingerprint.vertex(source);
+    	}
+    	if (vertices.add(target)) {
+    		fingerprint += Fingerprint.vertex(target);
     	}
     	
-    	if (weight > 0 && !finded) {
+    	// the edge set, or the one moved into the position of the edge removed
+    	int i = indexOf(source, target);
+    	if (i >= 0) {
+    		result = edges.get(i).getWeight();
+    		fingerprint -= Fingerprint.edge(source, target, result);
+    		if (weight == 0) {
+    			removeEdge(i);
+    		} else {
+    			edges.set(i, new Edge<>(source, target, weight));
+    			fingerprint += Fingerprint.edge(source, target, weight);
+    		}
+    	} else if (weight > 0) {
+    		i = edges.size();
     		edges.add(new Edge<L>(source, target, weight));
+    		index(source, target, i);
+    		fingerprint += Fingerprint.edge(source, target, weight);
+    	}
+    	
+    	if (checkRepAfterMutation()) {
+    		assert vertices.contains(source) && vertices.contains(target);
+    		assert (indexOf(source, target) >= 0) == (weight > 0);
+    		if (i >= 0 && i < edges.size()) {
+    			checkRep(i);
+    		}
     	}
-    	checkRep();
     	return result;
     }
     
@@ -81,16 +254,30 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     	if(!vertices.remove(vertex)) {
     		return false;
     	}
+    	fingerprint -= Fingerprint.vertex(vertex);
     	
-    	int i = 0;
-    	while (i < edges.size()) {
+    	// the edges from vertex, then those to it, until the indices have none
+    	List<Integer> freed = new ArrayList<>();
+    	Map<L, Integer> touching;
+    	while ((touching = positions.get(vertex)) != null
+    			|| (touching = sourcePositions.get(vertex)) != null) {
+    		int i = touching.values().iterator().next();
     		Edge<L> edge = edges.get(i);
-			if (edge.getSource().equals(vertex) || 
-					edge.getTarget().equals(vertex)) {
-				edges.remove(i);
-			} else {
-				i++;
-			}
+    		removeEdge(i);
+    		fingerprint -= Fingerprint.edge(
+    				edge.getSource(), edge.getTarget(), edge.getWeight());
+    		freed.add(i);
+    	}
+    	
+    	if (checkRepAfterMutation()) {
+    		assert !vertices.contains(vertex);
+    		assert !positions.containsKey(vertex) && !sourcePositions.containsKey(vertex);
+    		// the edges moved into the freed positions
+    		for (int i : freed) {
+    			if (i < edges.size()) {
+    				checkRep(i);
+    			}
+    		}
     	}
     	return true;
     }
@@ -105,11 +292,7 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
         }
         
         Map<L, Integer> result = new HashMap<>();
-        for (Edge<L> edge : edges) {
-			if (edge.getTarget().equals(target)) {
-				result.put(edge.getSource(), edge.getWeight());
-			}
-		}
+        forEachSource(target, result::put);
         return result;
     }
     
@@ -119,14 +302,65 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
         }
         
         Map<L, Integer> result = new HashMap<>();
-        for (Edge<L> edge : edges) {
-			if (edge.getSource().equals(source)) {
-				result.put(edge.getTarget(), edge.getWeight());
-			}
-		}
+        forEachTarget(source, result::put);
         return result;
     }
     
+    @Override public int weight(L source, L target) {
+        int i = indexOf(source, target);
+        return i < 0 ? 0 : edges.get(i).getWeight();
+    }
+    
+    @Override public boolean contains(L vertex) {
+        return vertices.contains(vertex);
+    }
+    
+    @Override public int outDegree(L source) {
+        Map<L, Integer> targets = positions.get(source);
+        return targets == null ? 0 : targets.size();
+    }
+    
+    @Override public int inDegree(L target) {
+        Map<L, Integer> sources = sourcePositions.get(target);
+        return sources == null ? 0 : sources.size();
+    }
+    
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        Map<L, Integer> targets = positions.get(source);
+        if (targets == null) {
+        	return;
+        }
+        for (Map.Entry<L, Integer> entry : targets.entrySet()) {
+        	action.accept(entry.getKey(), edges.get(entry.getValue()).getWeight());
+        }
+    }
+    
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        Map<L, Integer> sources = sourcePositions.get(target);
+        if (sources == null) {
+        	return;
+        }
+        for (Map.Entry<L, Integer> entry : sources.entrySet()) {
+        	action.accept(entry.getKey(), edges.get(entry.getValue()).getWeight());
+        }
+    }
+    
+    @Override public void forEachEdge(EdgeConsumer<? super L> action) {
+        for (int i = 0; i < edges.size(); i++) {
+        	Edge<L> edge = edges.get(i);
+        	action.accept(edge.getSource(), edge.getTarget(), edge.getWeight());
+        }
+    }
+    
+    @Override public Spliterator<Edge<L>> edgeSpliterator() {
+        // Edge is immutable, so the rep's own elements can be handed out
+        return edges.spliterator();
+    }
+    
+    @Override public long fingerprint() {
+        return fingerprint;
+    }
+    
     /**
      * @return a String represent the Graph.
      * Graph will be represent in the follow format, 
@@ -143,95 +377,19 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
      */
     @Override
     public String toString() {
-    	String result = "";
+    	StringBuilder result = new StringBuilder();
     	Set<L> vertices = vertices();
     	
         for (Edge<L> edge : edges) {
-        	result += edge + "\n";
-        	vertices.removeAll(List.of(edge.getSource(), 
-        			edge.getTarget()));
+        	result.append(edge).append('\n');
+        	vertices.remove(edge.getSource());
+        	vertices.remove(edge.getTarget());
 		}
         
         for (L vertex : new TreeSet<>(vertices)) {
-        	result += "\"%s\"".formatted(vertex) + "\n";
+        	result.append('"').append(vertex).append("\"\n");
 		}
-        return result.isEmpty() ? "\n" : result;
+        return result.length() == 0 ? "\n" : result.toString();
     }
     
 }
-
-/**
- * Represent a edge in ConcreteEdgesGraph from source 
- * to target with weight.
- * Immutable.
- * This class is internal to the rep of ConcreteEdgesGraph.
- * 
- * <p>PS2 instructions: the specification and implementation of this class is
- * up to you.
- */
-class Edge<L> {
-    
-	private final L source;
-	private final L target;
-	private final int weight;
-    
-    // Abstraction function:
-    //   represent a edge from source to target with weight
-    // Representation invariant:
-    //   weight > 0
-    // Safety from rep exposure:
-    //   all fields are private, final and immutable
-	//	 setWeight return a new Edge
-    
-	/**
-	 * Create a Edge from source to target with weight
-	 * @param source vertex edge goes from
-	 * @param target vertex edge goes to
-	 * @param weight Edge weight
-	 */
-	public Edge(L source, L target, int weight) {
-		this.source = source;
-		this.target = target;
-		this.weight = weight;
-	}
-    
-	public void checkRep() {
-        assert weight > 0;
-	}
-    
-	/**
-	 * @return Edge source vertex
-	 */
-	public L getSource() {
-        return source;
-	}
-	
-	/**
-	 * @return Edge target vertex
-	 */
-	public L getTarget() {
-        return target;
-	}
-	
-	/**
-	 * Check whether source and target vertex are connected
-	 * @param source vertex edge goes from
-	 * @param target vertex edge goes to
-	 * @return true if source and target are connected otherwise return false
-	 */
-	public boolean connected(L source, L target) {
-        return this.source.equals(source) && this.target.equals(target);
-	}
-	
-	/**
-	 * @return Edge weight
-	 */
-	public int getWeight() {
-        return weight;
-	}
-    
-	@Override public String toString() {
-        return "\"%s\" ---> \"%s\" %d".formatted(
-        		source, target, weight);
-    }
-}
@@ -4,11 +4,16 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 /**
  * An implementation of Graph.
@@ -18,15 +23,20 @@ import java.util.Set;
 public class ConcreteVerticesGraph<L> implements Graph<L> {
     
     private final List<Vertex<L>> vertices = new ArrayList<>();
+    private final Map<L, Vertex<L>> index = new HashMap<>();
+    private long fingerprint = 0;
     
     // Abstraction function:
-    //   Represent a graph with vertices
+    //   Represent a graph with vertices, whose fingerprint is fingerprint
     // Representation invariant:
     //   vertices has no same vertex
     //	 vertex in Vertex sources or targets must in vertices
+    //	 index maps the identity of each Vertex in vertices to that Vertex,
+    //	 and has no other entries
+    //	 fingerprint == Fingerprint.of(this)
     // Safety from rep exposure:
     //   vertices(), sources(), targets() make a defensive copy
-    //	 vertices is private and final
+    //	 vertices and index are private and final
     
     public ConcreteVerticesGraph() {}
     
@@ -36,12 +46,24 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
         if (find(vertex) != null) {
 			return false;
         }
-        vertices.add(new Vertex<L>(vertex));
+        Vertex<L> v = new Vertex<L>(vertex);
+        vertices.add(v);
+        index.put(vertex, v);
+        fingerprint += Fingerprint.vertexOfHash(v.labelHash());
         return true;
     }
     
     @Override public int set(L source, L target, int weight) {
-    	return findOrCreate(source).to(findOrCreate(target), weight);
+    	Vertex<L> s = findOrCreate(source);
+    	Vertex<L> t = findOrCreate(target);
+    	int result = s.to(t, weight);
+    	if (result != 0) {
+    		fingerprint -= Fingerprint.edgeOfHashes(s.labelHash(), t.labelHash(), result);
+    	}
+    	if (weight != 0) {
+    		fingerprint += Fingerprint.edgeOfHashes(s.labelHash(), t.labelHash(), weight);
+    	}
+    	return result;
     }
     
     @Override public boolean remove(L vertex) {
@@ -54,14 +76,16 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
         for (L source : v.sources().keySet()) {
         	Vertex<L> sv = find(source);
         	assert sv != null;
-        	sv.to(v, 0);
+        	fingerprint -= Fingerprint.edgeOfHashes(sv.labelHash(), v.labelHash(), sv.to(v, 0));
         }
         for (L target : v.targets().keySet()) {
         	Vertex<L> tv = find(target);
         	assert tv != null;
-        	v.to(tv, 0);
+        	fingerprint -= Fingerprint.edgeOfHashes(v.labelHash(), tv.labelHash(), v.to(tv, 0));
         }
         vertices.remove(i);
+        index.remove(vertex);
+        fingerprint -= Fingerprint.vertexOfHash(v.labelHash());
         return true;
     }
     
@@ -79,6 +103,114 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
         return vertex == null ? new HashMap<>() : vertex.targets();
     }
     
+    @Override public int weight(L source, L target) {
+        Vertex<L> vertex = find(source);
+        return vertex == null ? 0 : vertex.weightTo(target);
+    }
+    
+    @Override public boolean contains(L vertex) {
+        return find(vertex) != null;
+    }
+    
+    @Override public int outDegree(L source) {
+        Vertex<L> vertex = find(source);
+        return vertex == null ? 0 : vertex.outDegree();
+    }
+    
+    @Override public int inDegree(L target) {
+        Vertex<L> vertex = find(target);
+        return vertex == null ? 0 : vertex.inDegree();
+    }
+    
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        Vertex<L> vertex = find(source);
+        if (vertex != null) {
+        	vertex.forEachTarget(action);
+        }
+    }
+    
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        Vertex<L> vertex = find(target);
+        if (vertex != null) {
+        	vertex.forEachSource(action);
+        }
+    }
+    
+    @Override public void forEachEdge(EdgeConsumer<? super L> action) {
+        for (int i = 0; i < vertices.size(); i++) {
+        	vertices.get(i).forEachTarget(action);
+        }
+    }
+    
+    @Override public Spliterator<Edge<L>> edgeSpliterator() {
+        return new EdgeSpliterator<>(vertices, 0, vertices.size());
+    }
+    
+    @Override public long fingerprint() {
+    	return fingerprint;
+    }
+    
+    /**
+     * Spliterator over the edges out of a range of vertices, split by halving
+     * the range.
+     */
+    private static class EdgeSpliterator<L> implements Spliterator<Edge<L>> {
+    	
+    	private final List<Vertex<L>> vertices;
+    	private int index;
+    	private final int fence;
+    	private L source;
+    	private Iterator<Map.Entry<L, Integer>> targets;
+    	
+    	// Abstraction function:
+    	//   the edges out of vertices[index..fence), plus the remaining
+    	//   edges from source given by targets if targets is not null
+    	// Representation invariant:
+    	//   0 <= index <= fence <= vertices.size()
+    	// Safety from rep exposure:
+    	//   targets iterates an unmodifiable view, edges handed out are
+    	//   immutable Edge objects
+    	
+    	EdgeSpliterator(List<Vertex<L>> vertices, int index, int fence) {
+    		this.vertices = vertices;
+    		this.index = index;
+    		this.fence = fence;
+    	}
+    	
+    	@Override public boolean tryAdvance(Consumer<? super Edge<L>> action) {
+    		while (targets == null || !targets.hasNext()) {
+    			if (index >= fence) {
+    				return false;
+    			}
+    			Vertex<L> vertex = vertices.get(index++);
+    			source = vertex.identity();
+    			targets = vertex.targetEntries();
+    		}
+    		Map.Entry<L, Integer> entry = targets.next();
+    		action.accept(new Edge<>(source, entry.getKey(), entry.getValue()));
+    		return true;
+    	}
+    	
+    	@Override public Spliterator<Edge<L>> trySplit() {
+    		int mid = (index + fence) >>> 1;
+    		if (mid <= index) {
+    			return null;
+    		}
+    		Spliterator<Edge<L>> prefix = new EdgeSpliterator<>(vertices, index, mid);
+    		index = mid;
+    		return prefix;
+    	}
+    	
+    	@Override public long estimateSize() {
+    		// one edge per remaining vertex, the real count is not tracked
+    		return fence - index;
+    	}
+    	
+    	@Override public int characteristics() {
+    		return NONNULL | DISTINCT;
+    	}
+    }
+    
     private int index(L vertex) {
         for (int i = 0; i < vertices.size(); i++)
 			if (vertices.get(i).identity().equals(vertex))
@@ -87,10 +219,7 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
     }
     
     private Vertex<L> find(L vertex) {
-        for (int i = 0; i < vertices.size(); i++)
-			if (vertices.get(i).identity().equals(vertex))
-				return vertices.get(i);
-        return null;
+        return index.get(vertex);
     }
     
     private Vertex<L> findOrCreate(L vertex) {
@@ -100,6 +229,8 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
     	}
         nv = new Vertex<L>(vertex);
     	vertices.add(nv);
+    	index.put(vertex, nv);
+    	fingerprint += Fingerprint.vertexOfHash(nv.labelHash());
         return nv;
     }
     
@@ -118,18 +249,17 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
      * Empty Graph will be represent by a blank line.
      */
     @Override public String toString() {
-    	String result = "";
+    	StringBuilder result = new StringBuilder();
     	for (Vertex<L> vertex : vertices) {
-    		if (vertex.sources().size() == 0 && vertex.targets().size() == 0) {
-    			result += vertex + "\n";
+    		if (vertex.isolated()) {
+    			result.append(vertex).append('\n');
     		} else {
-    			for (Map.Entry<L, Integer> entry : vertex.targets().entrySet()) {
-    				result += "\"%s\" ---> \"%s\" %d\n".formatted(
-    						vertex.identity(), entry.getKey(), entry.getValue());
-    			}
+    			vertex.forEachTarget((source, target, weight) ->
+    					result.append('"').append(source).append("\" ---> \"")
+    					.append(target).append("\" ").append(weight).append('\n'));
     		}
     	}
-    	return result.isEmpty() ? "\n" : result;
+    	return result.length() == 0 ? "\n" : result.toString();
     }
 }
 
@@ -144,6 +274,7 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
 class Vertex<L> {
     
 	private final L id;
+	private final long labelHash;
 	private final Map<L, Integer> targets = new HashMap<>();
 	private final Map<L, Integer> sources = new HashMap<>();
     
@@ -151,6 +282,7 @@ class Vertex<L> {
     //   A vertex with source vertex point to it and from that vertex to the targets
     // Representation invariant:
     //   targets and sources weight always > 0
+    //   labelHash == Fingerprint.label(id)
     // Safety from rep exposure:
     //   id, targets, sources are private, final and immutable
 	//	 targets, sources map field are immutable
@@ -158,6 +290,7 @@ class Vertex<L> {
     
 	public Vertex(L id) {
 		this.id = id;
+		this.labelHash = Fingerprint.label(id);
 	}
     
     // TODO checkRep
@@ -166,6 +299,13 @@ class Vertex<L> {
 		return id;
 	}
 	
+	/**
+	 * @return hash of this vertex's label, for the graph's fingerprint
+	 */
+	long labelHash() {
+		return labelHash;
+	}
+	
 	/**
 	 * Add a edge from that vertex to target, remove edge if weight is zero else
 	 * update weight if edge exist.
@@ -195,6 +335,78 @@ class Vertex<L> {
 		return targets.containsKey(target.id);
 	}
 	
+	/**
+	 * @return true if no edge goes from or to this vertex
+	 */
+	public boolean isolated() {
+		return targets.isEmpty() && sources.isEmpty();
+	}
+	
+	/**
+	 * Perform an operation on every edge from this vertex without copying
+	 * the targets.
+	 * 
+	 * @param action operation to perform on each edge
+	 */
+	public void forEachTarget(EdgeConsumer<? super L> action) {
+		for (Map.Entry<L, Integer> entry : targets.entrySet()) {
+			action.accept(id, entry.getKey(), entry.getValue());
+		}
+	}
+	
+	/**
+	 * @param target label of a vertex
+	 * @return weight of the edge from this vertex to target, 0 if none
+	 */
+	public int weightTo(L target) {
+		return targets.getOrDefault(target, 0);
+	}
+    
+	/**
+	 * @return number of edges from this vertex
+	 */
+	public int outDegree() {
+		return targets.size();
+	}
+    
+	/**
+	 * @return number of edges to this vertex
+	 */
+	public int inDegree() {
+		return sources.size();
+	}
+    
+	/**
+	 * Perform an operation on every edge from this vertex without copying
+	 * the targets.
+	 * 
+	 * @param action operation given the target and weight of each edge
+	 */
+	public void forEachTarget(ObjIntConsumer<? super L> action) {
+		for (Map.Entry<L, Integer> entry : targets.entrySet()) {
+			action.accept(entry.getKey(), entry.getValue());
+		}
+	}
+    
+	/**
+	 * Perform an operation on every edge to this vertex without copying
+	 * the sources.
+	 * 
+	 * @param action operation given the source and weight of each edge
+	 */
+	public void forEachSource(ObjIntConsumer<? super L> action) {
+		for (Map.Entry<L, Integer> entry : sources.entrySet()) {
+			action.accept(entry.getKey(), entry.getValue());
+		}
+	}
+    
+	/**
+	 * @return an iterator over a read-only view of the edges from this vertex
+	 */
+	Iterator<Map.Entry<L, Integer>> targetEntries() {
+		return Collections.unmodifiableMap(targets).entrySet().iterator();
+	}
+	
 	/**
 	 * Get the target vertices with directed edges from a source vertex and the
      * weights of those edges.
@@ -0,0 +1,512 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An implementation of Graph whose edge weights decay over time, for graphs
+ * fed from a stream that must reflect recent input in bounded memory.
+ *
+ * <p>Time is read from a clock given at construction, in any unit: ticks of
+ * a token counter, nanoseconds, and so on. Every weight halves each
+ * halfLife units of time. An edge is in the graph while its decayed weight is
+ * at least a threshold; a vertex is in the graph while it has an edge, or
+ * while the weight it got when it was last added or given an edge, 1, has not
+ * decayed below the threshold. So a vertex disappears about
+ * halfLife * log2(1 / threshold) after it was last seen, unless it has edges.
+ * The weights this graph reports are decayed weights rounded to the nearest
+ * int, but never below 1.
+ *
+ * <p>Decay is lazy: each weight is stored with the time it was last set and
+ * is decayed when it is read, so time passing costs nothing. Edges and
+ * vertices that have decayed away are no longer observed, and are evicted
+ * when they are next set, or by a sweep of the whole graph that runs when
+ * the stored edges and vertices have doubled since the last sweep, so
+ * sweeping takes amortized constant time per mutation. If each unit of time
+ * adds at most a total weight of 1, as when one adjacency is counted per
+ * token, the live edges weigh at most halfLife / ln 2 in all and so number at
+ * most halfLife / (ln 2 * threshold); the live vertices are their endpoints
+ * and those added in the last halfLife * log2(1 / threshold); and at most
+ * twice as many edges and vertices as are live are stored: memory stays
+ * bounded however long the stream runs.
+ *
+ * <p>Mutable, not safe for use by more than one thread; observers do not
+ * modify the graph, so concurrent observers are safe if no thread mutates it.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class DecayingGraph<L> implements Graph<L> {
+    
+    private static final int MIN_SWEEP = 64;
+    
+    private final double halfLife;
+    private final double threshold;
+    private final LongSupplier clock;
+    private final Map<L, Node<L>> nodes = new HashMap<>();
+    private int edges = 0;
+    private int sweepAt = MIN_SWEEP;
+    
+    private final RepCheck repCheck;
+    private final int checkInterval;
+    private int mutations = 0;
+    
+    // Abstraction function:
+    //   Represent a Graph at time clock.getAsLong() whose vertices are the
+    //   keys of nodes whose node is live, and whose edges are s -> t with
+    //   weight max(1, round(decayed(w))) for each w == nodes.get(s).targets
+    //   .get(t) with decayed(w) >= threshold, where decayed(w) is
+    //   w.value * 2^-((now - w.stamp) / halfLife); a node is live if it has
+    //   such an edge or decayed(node) >= threshold
+    // Representation invariant:
+    //   halfLife > 0, 0 < threshold <= 1
+    //   for every s, t: nodes.get(s).targets.get(t) is the same object as
+    //     nodes.get(t).sources.get(s), or both are absent
+    //   every Weight has a finite value > 0
+    //   edges is the number of entries in all the targets maps
+    //   sweepAt >= MIN_SWEEP
+    // Safety from rep exposure:
+    //   all fields are private; vertices(), sources(), targets() return new
+    //   collections; forEach methods hand out labels and ints only
+    
+    /**
+     * A weight and the time it was last set, decaying from then on.
+     * Mutable.
+     */
+    private static class Weight {
+    
+    	double value;
+    	long stamp;
+    
+    	Weight(double value, long stamp) {
+    		this.value = value;
+    		this.stamp = stamp;
+    	}
+    }
+    
+    /**
+     * A vertex: its own weight, and its edges from and to other vertices.
+     * Mutable.
+     */
+    private static class Node<L> extends Weight {
+    
+    	final Map<L, Weight> targets = new HashMap<>();
+    	final Map<L, Weight> sources = new HashMap<>();
+    
+    	Node(long stamp) {
+    		super(1, stamp);
+    	}
+    }
+    
+    /**
+     * Create an empty graph which checks its rep as selected by system
+     * properties, see {@link RepCheck}.
+     *
+     * @param halfLife time for every weight to halve, in the clock's units,
+     *        positive
+     * @param threshold least decayed weight of an edge or vertex kept in the
+     *        graph, in (0, 1]
+     * @param clock current time, never decreasing; read by every operation
+     */
+    public DecayingGraph(double halfLife, double threshold, LongSupplier clock) {
+    	this(halfLife, threshold, clock, RepCheck.fromSystemProperty(),
+    			RepCheck.intervalFromSystemProperty());
+    }
+    
+    /**
+     * Create an empty graph which checks its rep in the given mode.
+     *
+     * @param halfLife time for every weight to halve, in the clock's units,
+     *        positive
+     * @param threshold least decayed weight of an edge or vertex kept in the
+     *        graph, in (0, 1]
+     * @param clock current time, never decreasing; read by every operation
+     * @param repCheck when to check the rep after a mutation
+     * @param checkInterval number of mutations between checks in
+     *        {@link RepCheck#SAMPLED} mode, must be positive
+     */
+    public DecayingGraph(double halfLife, double threshold, LongSupplier clock,
+    		RepCheck repCheck, int checkInterval) {
+    	if (!(halfLife > 0) || !(threshold > 0 && threshold <= 1)) {
+    		throw new IllegalArgumentException("halfLife must be positive and threshold in (0, 1]: "
+    				+ halfLife + ", " + threshold);
+    	}
+    	if (checkInterval <= 0) {
+    		throw new IllegalArgumentException(
+    				"checkInterval must be positive: " + checkInterval);
+    	}
+    	this.halfLife = halfLife;
+    	this.threshold = threshold;
+    	this.clock = clock;
+    	this.repCheck = repCheck;
+    	this.checkInterval = checkInterval;
+    }
+    
+    public void checkRep() {
+    	if (!RepCheck.ASSERTS) {
+    		return;
+    	}
+    	assert halfLife > 0 && threshold > 0 && threshold <= 1;
+    	assert sweepAt >= MIN_SWEEP;
+    	int count = 0;
+    	for (Map.Entry<L, Node<L>> entry : nodes.entrySet()) {
+    		checkRep(entry.getKey(), entry.getValue());
+    		count += entry.getValue().targets.size();
+    	}
+    	assert count == edges;
+    }
+    
+    /**
+     * Check the part of the rep a vertex belongs to: the vertex and its edges.
+     */
+    private void checkRep(L label, Node<L> node) {
+    	assert node.value > 0 && Double.isFinite(node.value);
+    	for (Map.Entry<L, Weight> edge : node.targets.entrySet()) {
+    		assert edge.getValue().value > 0 && Double.isFinite(edge.getValue().value);
+    		assert nodes.get(edge.getKey()).sources.get(label) == edge.getValue();
+    	}
+    	for (Map.Entry<L, Weight> edge : node.sources.entrySet()) {
+    		assert nodes.get(edge.getKey()).targets.get(label) == edge.getValue();
+    	}
+    }
+    
+    /**
+     * Check the rep after a mutation as selected by repCheck.
+     * @param touched label of the vertex whose edges the mutation changed, or
+     *        null if none
+     */
+    private void checkRepAfterMutation(L touched) {
+    	if (!RepCheck.ASSERTS) {
+    		return;
+    	}
+    	switch (repCheck) {
+    	case OFF:
+    		break;
+    	case SAMPLED:
+    		if (++mutations % checkInterval == 0) {
+    			checkRep();
+    		}
+    		break;
+    	case INCREMENTAL:
+    		if (touched != null && nodes.containsKey(touched)) {
+    			checkRep(touched, nodes.get(touched));
+    		}
+    		break;
+    	case FULL:
+    		checkRep();
+    		break;
+    	}
+    }
+    
+    /** @return w's value decayed to time now */
+    private double decayed(Weight w, long now) {
+    	return now <= w.stamp ? w.value : w.value * Math.pow(0.5, (now - w.stamp) / halfLife);
+    }
+    
+    private boolean isLive(Weight w, long now) {
+    	return decayed(w, now) >= threshold;
+    }
+    
+    /** @return true iff node is a vertex of this graph at time now */
+    private boolean isVertex(Node<L> node, long now) {
+    	if (isLive(node, now)) {
+    		return true;
+    	}
+    	for (Weight w : node.targets.values()) {
+    		if (isLive(w, now)) {
+    			return true;
+    		}
+    	}
+    	for (Weight w : node.sources.values()) {
+    		if (isLive(w, now)) {
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+    
+    /** @return the weight reported for an edge whose decayed weight is value */
+    private static int reported(double value) {
+    	return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.round(value)));
+    }
+    
+    /** @return live weight of the edge from source to target, or 0 if none */
+    private int weight(L source, L target, long now) {
+    	Node<L> node = nodes.get(source);
+    	Weight w = node == null ? null : node.targets.get(target);
+    	if (w == null) {
+    		return 0;
+    	}
+    	double value = decayed(w, now);
+    	return value >= threshold ? reported(value) : 0;
+    }
+    
+    /**
+     * @return the node of vertex, refreshed to weight 1 at time now, added if
+     *         it was not stored
+     */
+    private Node<L> touch(L vertex, long now) {
+    	Node<L> node = nodes.get(vertex);
+    	if (node == null) {
+    		node = new Node<>(now);
+    		nodes.put(vertex, node);
+    	} else {
+    		node.value = 1;
+    		node.stamp = now;
+    	}
+    	return node;
+    }
+    
+    private void removeEdge(L source, L target) {
+    	nodes.get(source).targets.remove(target);
+    	nodes.get(target).sources.remove(source);
+    	edges--;
+    }
+    
+    /**
+     * Evict every edge and vertex that has decayed away, if the stored edges
+     * and vertices have doubled since the last sweep.
+     */
+    private void sweepIfGrown(long now) {
+    	if (edges + nodes.size() < sweepAt) {
+    		return;
+    	}
+    	for (Node<L> node : nodes.values()) {
+    		Iterator<Weight> targets = node.targets.values().iterator();
+    		while (targets.hasNext()) {
+    			if (!isLive(targets.next(), now)) {
+    				targets.remove();
+    				edges--;
+    			}
+    		}
+    		node.sources.values().removeIf(w -> !isLive(w, now));
+    	}
+    	nodes.values().removeIf(node -> node.targets.isEmpty() && node.sources.isEmpty()
+    			&& !isLive(node, now));
+    	sweepAt = Math.max(MIN_SWEEP, 2 * (edges + nodes.size()));
+    }
+    
+    /**
+     * @return the current time on this graph's clock
+     */
+    public long now() {
+    	return clock.getAsLong();
+    }
+    
+    /**
+     * @return stored edges and vertices, including those that have decayed
+     *         away but are not evicted yet
+     */
+    public int storedSize() {
+    	return edges + nodes.size();
+    }
+    
+    @Override public boolean add(L vertex) {
+    	long now = clock.getAsLong();
+    	Node<L> node = nodes.get(vertex);
+    	if (node != null && isVertex(node, now)) {
+    		return false;
+    	}
+    	touch(vertex, now);
+    	sweepIfGrown(now);
+    	checkRepAfterMutation(vertex);
+    	return true;
+    }
+    
+    /**
+     * Add, change, or remove a weighted directed edge in this graph, as
+     * specified by {@link Graph#set(Object, Object, int)}. The weight set
+     * then decays; its source and target are added, or refreshed as if they
+     * were added again, even if weight is zero.
+     */
+    @Override public int set(L source, L target, int weight) {
+    	if (weight < 0) {
+    		throw new IllegalArgumentException("weight must be nonnegative: " + weight);
+    	}
+    	long now = clock.getAsLong();
+    	int result = weight(source, target, now);
+    	if (weight == 0) {
+    		touch(source, now);
+    		touch(target, now);
+    		if (nodes.get(source).targets.containsKey(target)) {
+    			removeEdge(source, target);
+    		}
+    	} else {
+    		put(source, target, weight, now);
+    	}
+    	sweepIfGrown(now);
+    	checkRepAfterMutation(source);
+    	return result;
+    }
+    
+    /**
+     * Add to the weight of an edge, adding the edge and its vertices if they
+     * are not in the graph: the edge's decayed weight becomes its decayed
+     * weight before plus amount, and then decays. Its source and target are
+     * refreshed as if they were added again. If the new weight is below the
+     * threshold, the edge is not in the graph.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param amount weight to add, positive and finite
+     * @return the weight of the edge after adding amount, or zero if it is
+     *         not in the graph
+     */
+    public int increment(L source, L target, double amount) {
+    	if (!(amount > 0) || Double.isInfinite(amount)) {
+    		throw new IllegalArgumentException("amount must be positive and finite: " + amount);
+    	}
+    	long now = clock.getAsLong();
+    	Node<L> node = nodes.get(source);
+    	Weight w = node == null ? null : node.targets.get(target);
+    	double value = (w == null ? 0 : decayed(w, now)) + amount;
+    	put(source, target, value, now);
+    	sweepIfGrown(now);
+    	checkRepAfterMutation(source);
+    	return value >= threshold ? reported(value) : 0;
+    }
+    
+    private void put(L source, L target, double value, long now) {
+    	Node<L> from = touch(source, now);
+    	Node<L> to = touch(target, now);
+    	Weight w = from.targets.get(target);
+    	if (w == null) {
+    		w = new Weight(value, now);
+    		from.targets.put(target, w);
+    		to.sources.put(source, w);
+    		edges++;
+    	} else {
+    		w.value = value;
+    		w.stamp = now;
+    	}
+    }
+    
+    @Override public boolean remove(L vertex) {
+    	long now = clock.getAsLong();
+    	Node<L> node = nodes.get(vertex);
+    	if (node == null) {
+    		return false;
+    	}
+    	boolean result = isVertex(node, now);
+    	for (L target : Set.copyOf(node.targets.keySet())) {
+    		removeEdge(vertex, target);
+    	}
+    	for (L source : Set.copyOf(node.sources.keySet())) {
+    		removeEdge(source, vertex);
+    	}
+    	nodes.remove(vertex);
+    	checkRepAfterMutation(null);
+    	return result;
+    }
+    
+    @Override public Set<L> vertices() {
+    	long now = clock.getAsLong();
+    	Set<L> result = new HashSet<>();
+    	for (Map.Entry<L, Node<L>> entry : nodes.entrySet()) {
+    		if (isVertex(entry.getValue(), now)) {
+    			result.add(entry.getKey());
+    		}
+    	}
+    	return result;
+    }
+    
+    @Override public Map<L, Integer> sources(L target) {
+    	Map<L, Integer> result = new HashMap<>();
+    	forEachSource(target, result::put);
+    	return result;
+    }
+    
+    @Override public Map<L, Integer> targets(L source) {
+    	Map<L, Integer> result = new HashMap<>();
+    	forEachTarget(source, result::put);
+    	return result;
+    }
+    
+    @Override public int weight(L source, L target) {
+    	return weight(source, target, clock.getAsLong());
+    }
+    
+    @Override public boolean contains(L vertex) {
+    	Node<L> node = nodes.get(vertex);
+    	return node != null && isVertex(node, clock.getAsLong());
+    }
+    
+    @Override public int outDegree(L source) {
+    	Node<L> node = nodes.get(source);
+    	return node == null ? 0 : countLive(node.targets, clock.getAsLong());
+    }
+    
+    @Override public int inDegree(L target) {
+    	Node<L> node = nodes.get(target);
+    	return node == null ? 0 : countLive(node.sources, clock.getAsLong());
+    }
+    
+    private int countLive(Map<L, Weight> weights, long now) {
+    	int count = 0;
+    	for (Weight w : weights.values()) {
+    		if (isLive(w, now)) {
+    			count++;
+    		}
+    	}
+    	return count;
+    }
+    
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+    	Node<L> node = nodes.get(source);
+    	if (node != null) {
+    		forEachLive(node.targets, clock.getAsLong(), action);
+    	}
+    }
+    
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+    	Node<L> node = nodes.get(target);
+    	if (node != null) {
+    		forEachLive(node.sources, clock.getAsLong(), action);
+    	}
+    }
+    
+    private void forEachLive(Map<L, Weight> weights, long now, ObjIntConsumer<? super L> action) {
+    	for (Map.Entry<L, Weight> edge : weights.entrySet()) {
+    		double value = decayed(edge.getValue(), now);
+    		if (value >= threshold) {
+    			action.accept(edge.getKey(), reported(value));
+    		}
+    	}
+    }
+    
+    @Override public void forEachEdge(EdgeConsumer<? super L> action) {
+    	long now = clock.getAsLong();
+    	for (Map.Entry<L, Node<L>> source : nodes.entrySet()) {
+    		forEachLive(source.getValue().targets, now,
+    				(target, weight) -> action.accept(source.getKey(), target, weight));
+    	}
+    }
+    
+    /**
+     * Returns a String represent this graph at the current time, in the
+     * format of ConcreteVerticesGraph: one line per edge,
+     * 	"1" ---> "2" 1
+     * then one line per vertex with no edge, and a blank line for an empty
+     * graph.
+     */
+    @Override public String toString() {
+    	StringBuilder edgeLines = new StringBuilder();
+    	StringBuilder vertexLines = new StringBuilder();
+    	forEachEdge((source, target, weight) -> edgeLines.append('"').append(source)
+    			.append("\" ---> \"").append(target).append("\" ").append(weight).append('\n'));
+    	for (L vertex : vertices()) {
+    		if (outDegree(vertex) == 0 && inDegree(vertex) == 0) {
+    			vertexLines.append(vertex).append('\n');
+    		}
+    	}
+    	String result = edgeLines.append(vertexLines).toString();
+    	return result.isEmpty() ? "\n" : result;
+    }
+}
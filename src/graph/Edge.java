@@ -0,0 +1,81 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * Represent a edge in a Graph from source 
+ * to target with weight.
+ * Immutable.
+ * This class is part of the rep of ConcreteEdgesGraph, and is also how
+ * edges of any Graph are handed out by {@link Graph#edgeSpliterator()}.
+ * 
+ * <p>PS2 instructions: the specification and implementation of this class is
+ * up to you.
+ */
+public class Edge<L> {
+    
+	private final L source;
+	private final L target;
+	private final int weight;
+    
+    // Abstraction function:
+    //   represent a edge from source to target with weight
+    // Representation invariant:
+    //   weight > 0
+    // Safety from rep exposure:
+    //   all fields are private, final and immutable
+	//	 setWeight return a new Edge
+    
+	/**
+	 * Create a Edge from source to target with weight
+	 * @param source vertex edge goes from
+	 * @param target vertex edge goes to
+	 * @param weight Edge weight
+	 */
+	public Edge(L source, L target, int weight) {
+		this.source = source;
+		this.target = target;
+		this.weight = weight;
+	}
+    
+	public void checkRep() {
+        assert weight > 0;
+	}
+    
+	/**
+	 * @return Edge source vertex
+	 */
+	public L getSource() {
+        return source;
+	}
+	
+	/**
+	 * @return Edge target vertex
+	 */
+	public L getTarget() {
+        return target;
+	}
+	
+	/**
+	 * Check whether source and target vertex are connected
+	 * @param source vertex edge goes from
+	 * @param target vertex edge goes to
+	 * @return true if source and target are connected otherwise return false
+	 */
+	public boolean connected(L source, L target) {
+        return this.source.equals(source) && this.target.equals(target);
+	}
+	
+	/**
+	 * @return Edge weight
+	 */
+	public int getWeight() {
+        return weight;
+	}
+    
+	@Override public String toString() {
+        return "\"%s\" ---> \"%s\" %d".formatted(
+        		source, target, weight);
+    }
+}
@@ -0,0 +1,24 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * An operation on one weighted directed edge of a Graph, given as its source
+ * label, target label and weight so that no Edge object has to be created.
+ * 
+ * @param <L> type of vertex labels
+ */
+@FunctionalInterface
+public interface EdgeConsumer<L> {
+    
+    /**
+     * Perform this operation on an edge.
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param weight (positive) weight of the edge
+     */
+    public void accept(L source, L target, int weight);
+    
+}
@@ -0,0 +1,101 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * Hashes of the vertices and edges of a graph whose sum, modulo 2^64, is the
+ * graph's {@link Graph#fingerprint()}: a graph adds the hash of a vertex or
+ * edge when it adds it and subtracts it when it removes it, so the sum does
+ * not depend on the order of mutations.
+ *
+ * <p>A String label is hashed from its chars with 64 bits, so that distinct
+ * words rarely collide, as their 32-bit hashCode()s easily do ("Aa" and
+ * "BB"); any other label is hashed from its hashCode(). Either way the hash
+ * of a vertex or edge is mixed so that sums of distinct sets rarely agree.
+ * This class is internal to the Graph implementations.
+ */
+final class Fingerprint {
+    
+    private static final long VERTEX_SEED = 0x9E3779B97F4A7C15L;
+    private static final long EDGE_SEED = 0xC2B2AE3D27D4EB4FL;
+    
+    private Fingerprint() {
+    	// not instantiable
+    }
+    
+    /**
+     * @param label label of a vertex
+     * @return hash of the vertex
+     */
+    static long vertex(Object label) {
+    	return vertexOfHash(label(label));
+    }
+    
+    /**
+     * @param source label of the source of an edge
+     * @param target label of its target
+     * @param weight its weight, nonzero
+     * @return hash of the edge
+     */
+    static long edge(Object source, Object target, int weight) {
+    	return edgeOfHashes(label(source), label(target), weight);
+    }
+    
+    /**
+     * @param labelHash {@link #label(Object)} of the label of a vertex
+     * @return hash of the vertex
+     */
+    static long vertexOfHash(long labelHash) {
+    	return mix(labelHash + VERTEX_SEED);
+    }
+    
+    /**
+     * @param sourceHash {@link #label(Object)} of the source of an edge
+     * @param targetHash {@link #label(Object)} of its target
+     * @param weight its weight, nonzero
+     * @return hash of the edge
+     */
+    static long edgeOfHashes(long sourceHash, long targetHash, int weight) {
+    	long pair = mix(sourceHash + EDGE_SEED) ^ Long.rotateLeft(targetHash, 31);
+    	return mix(mix(pair) + weight);
+    }
+    
+    /**
+     * Compute a fingerprint from scratch, walking every vertex and edge.
+     * @param graph graph to fingerprint
+     * @return the sum of the hashes of graph's vertices and edges
+     */
+    static <L> long of(Graph<L> graph) {
+    	long[] sum = {0};
+    	for (L vertex : graph.vertices()) {
+    		sum[0] += vertex(vertex);
+    	}
+    	graph.forEachEdge((source, target, weight) -> sum[0] += edge(source, target, weight));
+    	return sum[0];
+    }
+    
+    /**
+     * @param label label of a vertex
+     * @return hash of the label, which a graph may keep with the vertex
+     *         rather than hash the label again on every mutation
+     */
+    static long label(Object label) {
+    	if (label instanceof String) {
+    		String s = (String) label;
+    		long h = 0xCBF29CE484222325L;
+    		for (int i = 0; i < s.length(); i++) {
+    			h = (h ^ s.charAt(i)) * 0x100000001B3L;
+    		}
+    		return h;
+    	}
+    	return label.hashCode();
+    }
+    
+    /** The finalizer of SplitMix64, a bijection mixing every bit into every other. */
+    private static long mix(long z) {
+    	z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    	z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    	return z ^ (z >>> 31);
+    }
+}
@@ -3,8 +3,12 @@
  */
 package graph;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.ObjIntConsumer;
 
 /**
  * A mutable weighted directed graph with labeled vertices.
@@ -95,4 +99,138 @@ public interface Graph<L> {
      */
     public Map<L, Integer> targets(L source);
     
+    /**
+     * Test whether this graph includes a vertex.
+     * 
+     * <p>The default implementation looks vertex up in {@link #vertices()};
+     * implementations override it to avoid the copy.
+     * 
+     * @param vertex a label
+     * @return true if this graph includes a vertex with the given label;
+     *         otherwise false
+     */
+    public default boolean contains(L vertex) {
+        return vertices().contains(vertex);
+    }
+    
+    /**
+     * Get the weight of an edge.
+     * 
+     * <p>The default implementation looks source up in
+     * {@link #targets(Object)}; implementations override it to avoid the
+     * copy.
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @return the weight of the edge from source to target, or zero if this
+     *         graph includes no such edge
+     */
+    public default int weight(L source, L target) {
+        return targets(source).getOrDefault(target, 0);
+    }
+    
+    /**
+     * @param source label of a vertex
+     * @return the number of edges from source, zero if this graph does not
+     *         include source
+     */
+    public default int outDegree(L source) {
+        return targets(source).size();
+    }
+    
+    /**
+     * @param target label of a vertex
+     * @return the number of edges to target, zero if this graph does not
+     *         include target
+     */
+    public default int inDegree(L target) {
+        return sources(target).size();
+    }
+    
+    /**
+     * Perform an operation on every edge from a source vertex, in no
+     * particular order. This graph must not be modified until the traversal
+     * finishes.
+     * 
+     * @param source label of the source vertex
+     * @param action operation given the target and the weight of each edge
+     */
+    public default void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        for (Map.Entry<L, Integer> entry : targets(source).entrySet()) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Perform an operation on every edge to a target vertex, in no
+     * particular order. This graph must not be modified until the traversal
+     * finishes.
+     * 
+     * @param target label of the target vertex
+     * @param action operation given the source and the weight of each edge
+     */
+    public default void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        for (Map.Entry<L, Integer> entry : sources(target).entrySet()) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Perform an operation on every edge in this graph, in no particular
+     * order. This graph must not be modified until the traversal finishes.
+     * 
+     * <p>The default implementation walks {@link #vertices()} and
+     * {@link #targets(Object)}; implementations override it to walk their
+     * rep without making copies.
+     * 
+     * @param action operation to perform on each edge
+     */
+    public default void forEachEdge(EdgeConsumer<? super L> action) {
+        for (L source : vertices()) {
+            for (Map.Entry<L, Integer> entry : targets(source).entrySet()) {
+                action.accept(source, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Get a spliterator over the edges in this graph, e.g. to build a
+     * parallel stream with
+     * {@code StreamSupport.stream(graph.edgeSpliterator(), true)}.
+     * This graph must not be modified until the traversal finishes.
+     * 
+     * <p>The default implementation copies the edges into a list;
+     * implementations override it to split their rep directly.
+     * 
+     * @return a spliterator over every edge in this graph, in no particular
+     *         order
+     */
+    public default Spliterator<Edge<L>> edgeSpliterator() {
+        List<Edge<L>> edges = new ArrayList<>();
+        forEachEdge((source, target, weight) ->
+                edges.add(new Edge<>(source, target, weight)));
+        return edges.spliterator();
+    }
+    
+    /**
+     * Get a fingerprint of this graph: a hash of its vertices and of the
+     * source, target and weight of each of its edges, which does not depend
+     * on the order they were added in or on the implementation. Equal graphs
+     * have equal fingerprints; different graphs have equal fingerprints only
+     * by a chance of about one in 2^64 for String labels, or if their labels
+     * collide under {@link Object#hashCode()} otherwise. The fingerprint of a
+     * graph with String labels is the same in every run of the program, so
+     * it can be saved to tell whether a saved graph is still current without
+     * comparing every edge.
+     * 
+     * <p>The default implementation walks every vertex and edge;
+     * implementations override it to keep the fingerprint up to date as they
+     * are modified, at constant cost per vertex or edge changed.
+     * 
+     * @return fingerprint of this graph, 0 if it is empty
+     */
+    public default long fingerprint() {
+        return Fingerprint.of(this);
+    }
+    
 }
@@ -0,0 +1,85 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Locale;
+
+/**
+ * How often a graph checks its representation invariant after a mutation.
+ *
+ * <p>The mode can be given to a graph when it is created, or selected for all
+ * graphs created without one by the system property {@code graph.checkRep}
+ * (one of {@code off}, {@code sampled}, {@code incremental}, {@code full}).
+ * In {@link #SAMPLED} mode the full check runs once every
+ * {@code graph.checkRep.interval} mutations (default
+ * {@value #DEFAULT_INTERVAL}).
+ *
+ * <p>Checks are made with {@code assert}, so no mode does anything unless
+ * assertions are enabled with VM argument: -ea; graphs test {@link #ASSERTS}
+ * before walking their rep, so that a check costs nothing otherwise.
+ */
+public enum RepCheck {
+
+    /** Never check the rep after a mutation. */
+    OFF,
+
+    /** Check the whole rep once every N mutations. */
+    SAMPLED,
+
+    /** Check only the part of the rep touched by each mutation. */
+    INCREMENTAL,
+
+    /** Check the whole rep after every mutation. */
+    FULL;
+
+    /** System property selecting the default mode. */
+    public static final String PROPERTY = "graph.checkRep";
+
+    /** System property selecting the default interval for SAMPLED mode. */
+    public static final String INTERVAL_PROPERTY = "graph.checkRep.interval";
+
+    /** Interval used by SAMPLED mode when none is configured. */
+    public static final int DEFAULT_INTERVAL = 1024;
+
+    /** True iff assertions are enabled for this package, and so rep checks. */
+    static final boolean ASSERTS = assertsEnabled();
+
+    private static boolean assertsEnabled() {
+        boolean enabled = false;
+        assert enabled = true;
+        return enabled;
+    }
+
+    /**
+     * @return the mode named by system property {@value #PROPERTY}, or
+     *         FULL if the property is not set
+     * @throws IllegalArgumentException if the property names no mode
+     */
+    public static RepCheck fromSystemProperty() {
+        String name = System.getProperty(PROPERTY);
+        if (name == null || name.isBlank()) {
+        	return FULL;
+        }
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the sampling interval named by system property
+     *         {@value #INTERVAL_PROPERTY}, or {@value #DEFAULT_INTERVAL} if
+     *         the property is not set
+     * @throws IllegalArgumentException if the property is not a positive int
+     */
+    public static int intervalFromSystemProperty() {
+        String value = System.getProperty(INTERVAL_PROPERTY);
+        if (value == null || value.isBlank()) {
+        	return DEFAULT_INTERVAL;
+        }
+        int interval = Integer.parseInt(value.trim());
+        if (interval <= 0) {
+        	throw new IllegalArgumentException(
+        			INTERVAL_PROPERTY + " must be positive: " + interval);
+        }
+        return interval;
+    }
+}
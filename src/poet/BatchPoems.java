@@ -0,0 +1,132 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns every line of an input into a poem on a line of an output, in the
+ * same order, with many threads.
+ *
+ * <p>The calling thread reads lines in chunks and hands each chunk to a pool
+ * of threads generating poems; one more thread writes the poems of each chunk
+ * in input order. At most a few chunks per thread are read ahead of the
+ * writer, so memory stays bounded however long the input is.
+ */
+public class BatchPoems {
+    
+    /** Number of lines generated by one task. */
+    static final int CHUNK_LINES = 256;
+    
+    private BatchPoems() {
+    	// not instantiable
+    }
+    
+    /**
+     * Write the poem of every line of input to output, one poem per line, in
+     * input order.
+     *
+     * @param poet poet to generate poems with
+     * @param input lines to create poems from, read to the end but not closed
+     * @param output stream to write the poems to, flushed but not closed
+     * @param threads number of threads generating poems, must be positive
+     * @return number of lines turned into poems
+     * @throws IOException if input cannot be read or output cannot be written
+     */
+    public static long run(GraphPoet poet, BufferedReader input, Writer output, int threads)
+    		throws IOException {
+    	if (threads <= 0) {
+    		throw new IllegalArgumentException("threads must be positive: " + threads);
+    	}
+    	ExecutorService workers = Executors.newFixedThreadPool(threads);
+    	ExecutorService writer = Executors.newSingleThreadExecutor();
+    	// chunks in input order, a completed null chunk after the last
+    	BlockingQueue<Future<List<String>>> pending = new ArrayBlockingQueue<>(2 * threads);
+    	Future<Long> written = writer.submit(() -> write(pending, output));
+    	try {
+    		List<String> chunk = new ArrayList<>(CHUNK_LINES);
+    		for (String line = input.readLine(); line != null; line = input.readLine()) {
+    			chunk.add(line);
+    			if (chunk.size() == CHUNK_LINES) {
+    				List<String> lines = chunk;
+    				enqueue(pending, workers.submit(() -> poems(poet, lines)), written);
+    				chunk = new ArrayList<>(CHUNK_LINES);
+    			}
+    		}
+    		if (!chunk.isEmpty()) {
+    			List<String> lines = chunk;
+    			enqueue(pending, workers.submit(() -> poems(poet, lines)), written);
+    		}
+    		enqueue(pending, CompletableFuture.completedFuture(null), written);
+    		return written.get();
+    	} catch (ExecutionException e) {
+    		Throwable cause = e.getCause();
+    		while (cause instanceof ExecutionException) {
+    			// a chunk failed, and so did the writer waiting for it
+    			cause = cause.getCause();
+    		}
+    		if (cause instanceof IOException) {
+    			throw (IOException) cause;
+    		}
+    		if (cause instanceof RuntimeException) {
+    			throw (RuntimeException) cause;
+    		}
+    		throw new IOException(cause);
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new IOException("interrupted", e);
+    	} finally {
+    		workers.shutdownNow();
+    		writer.shutdownNow();
+    	}
+    }
+    
+    /**
+     * Wait for room in pending and add chunk, unless the writer has failed.
+     * @throws ExecutionException with the writer's failure
+     */
+    private static void enqueue(BlockingQueue<Future<List<String>>> pending,
+    		Future<List<String>> chunk, Future<Long> written)
+    		throws InterruptedException, ExecutionException {
+    	while (!pending.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+    		if (written.isDone()) {
+    			written.get();
+    		}
+    	}
+    }
+    
+    private static List<String> poems(GraphPoet poet, List<String> lines) {
+    	List<String> poems = new ArrayList<>(lines.size());
+    	for (String line : lines) {
+    		poems.add(poet.poem(line));
+    	}
+    	return poems;
+    }
+    
+    private static long write(BlockingQueue<Future<List<String>>> pending, Writer output)
+    		throws IOException, InterruptedException, ExecutionException {
+    	long lines = 0;
+    	for (List<String> poems = pending.take().get(); poems != null; poems = pending.take().get()) {
+    		for (String poem : poems) {
+    			output.write(poem);
+    			output.write('\n');
+    		}
+    		lines += poems.size();
+    	}
+    	output.flush();
+    	return lines;
+    }
+}
@@ -0,0 +1,76 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.Comparator;
+
+/**
+ * A candidate bridge word between two words of a poem, with the weight of
+ * its two-edge-long path.
+ * Immutable.
+ */
+public class Bridge {
+    
+    /**
+     * Orders bridges as GraphPoet prefers them: greater weight first, then
+     * alphabetical order.
+     */
+    public static final Comparator<Bridge> PREFERRED =
+    		Comparator.comparingInt(Bridge::getWeight).reversed().thenComparing(Bridge::getWord);
+    
+    private final String word;
+    private final int weight;
+    
+    // Abstraction function:
+    //   the bridge word word on a path w1 -> word -> w2 whose two edges
+    //   weigh weight together
+    // Representation invariant:
+    //   word is nonempty, weight > 0
+    // Safety from rep exposure:
+    //   all fields are private, final and immutable
+    
+    /**
+     * Create a bridge.
+     * @param word bridge word, nonempty
+     * @param weight sum of the weights of the edges into and out of word,
+     *        positive
+     */
+    public Bridge(String word, int weight) {
+    	this.word = word;
+    	this.weight = weight;
+    	checkRep();
+    }
+    
+    private void checkRep() {
+    	assert !word.isEmpty();
+    	assert weight > 0;
+    }
+    
+    /**
+     * @return the bridge word
+     */
+    public String getWord() {
+    	return word;
+    }
+    
+    /**
+     * @return sum of the weights of the edges into and out of the bridge word
+     */
+    public int getWeight() {
+    	return weight;
+    }
+    
+    @Override public boolean equals(Object that) {
+    	return that instanceof Bridge && ((Bridge) that).word.equals(word)
+    			&& ((Bridge) that).weight == weight;
+    }
+    
+    @Override public int hashCode() {
+    	return 31 * word.hashCode() + weight;
+    }
+    
+    @Override public String toString() {
+    	return word + " (" + weight + ")";
+    }
+}
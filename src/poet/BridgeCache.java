@@ -0,0 +1,153 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache from an adjacent pair of lower-case words to the bridge
+ * word GraphPoet chose for them, "" if there is none.
+ * 
+ * <p>Entries are spread over segments by hash, and each segment evicts its
+ * least recently used entry when it is full, so concurrent lookups only
+ * contend when they hit the same segment.
+ * Safe for use by multiple threads.
+ * This class is internal to GraphPoet.
+ */
+class BridgeCache {
+    
+    private static final int SEGMENTS = 16;
+    
+    private final Segment[] segments;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    
+    // Abstraction function:
+    //   maps "w1 w2" to the bridge chosen for w1, w2 for the entries of
+    //   every segment, and counts the lookups and evictions so far
+    // Representation invariant:
+    //   every key is two words joined by a single space; words contain no
+    //   whitespace, so no two pairs share a key
+    //   the segment of a key is segments[index(key)]
+    //   the total size of the segments is <= capacity
+    // Safety from rep exposure:
+    //   all fields are private; keys and values are immutable Strings;
+    //   counters are only shared with caches made by emptied()
+    // Thread safety argument:
+    //   each segment is only accessed while holding its own lock, counters
+    //   are thread-safe LongAdders, other fields are final
+    
+    /**
+     * Create an empty cache.
+     * @param capacity most entries to hold, must be positive
+     */
+    public BridgeCache(int capacity) {
+    	this(capacity, new LongAdder(), new LongAdder(), new LongAdder());
+    }
+    
+    private BridgeCache(int capacity, LongAdder hits, LongAdder misses, LongAdder evictions) {
+    	if (capacity <= 0) {
+    		throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    	}
+    	this.capacity = capacity;
+    	this.hits = hits;
+    	this.misses = misses;
+    	this.evictions = evictions;
+    	int count = Math.min(SEGMENTS, capacity);
+    	segments = new Segment[count];
+    	for (int i = 0; i < count; i++) {
+    		// spread capacity so the segments add up to exactly capacity
+    		segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+    	}
+    }
+    
+    /**
+     * @param w1 lower-case word
+     * @param w2 lower-case word
+     * @return cached bridge from w1 to w2 ("" if there is none), or null if
+     *         the pair is not cached
+     */
+    public String get(String w1, String w2) {
+    	String key = key(w1, w2);
+    	Segment segment = segment(key);
+    	String bridge;
+    	synchronized (segment) {
+    		bridge = segment.get(key);
+    	}
+    	(bridge == null ? misses : hits).increment();
+    	return bridge;
+    }
+    
+    /**
+     * Cache the bridge from w1 to w2, evicting the least recently used entry
+     * of its segment if the segment is full.
+     * @param w1 lower-case word
+     * @param w2 lower-case word
+     * @param bridge bridge word, "" if there is none
+     */
+    public void put(String w1, String w2, String bridge) {
+    	String key = key(w1, w2);
+    	Segment segment = segment(key);
+    	synchronized (segment) {
+    		segment.put(key, bridge);
+    	}
+    }
+    
+    /**
+     * @return a new empty cache with the same capacity, whose counters go on
+     *         from the counters of this cache (and are shared with it)
+     */
+    public BridgeCache emptied() {
+    	return new BridgeCache(capacity, hits, misses, evictions);
+    }
+    
+    /**
+     * @return counters of this cache
+     */
+    public CacheStats stats() {
+    	int size = 0;
+    	for (Segment segment : segments) {
+    		synchronized (segment) {
+    			size += segment.size();
+    		}
+    	}
+    	return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size, capacity);
+    }
+    
+    private static String key(String w1, String w2) {
+    	return w1 + ' ' + w2;
+    }
+    
+    private Segment segment(String key) {
+    	int h = key.hashCode() * 0x9E3779B9;
+    	return segments[((h ^ (h >>> 16)) & 0x7FFFFFFF) % segments.length];
+    }
+    
+    /**
+     * One segment of the cache, in least recently used order.
+     */
+    private class Segment extends LinkedHashMap<String, String> {
+    
+    	private static final long serialVersionUID = 1L;
+    
+    	private final int capacity;
+    
+    	Segment(int capacity) {
+    		super(16, 0.75f, true);
+    		this.capacity = capacity;
+    	}
+    
+    	@Override protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+    		if (size() > capacity) {
+    			evictions.increment();
+    			return true;
+    		}
+    		return false;
+    	}
+    }
+}
@@ -0,0 +1,138 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import graph.Graph;
+
+/**
+ * Finds bridge words in a word affinity graph.
+ *
+ * <p>The bridges from w1 to w2 are the words that are both targets of w1 and
+ * sources of w2. Instead of expanding every source of w2, the search walks
+ * whichever of the two adjacency sets is smaller and probes the other side
+ * with {@link Graph#weight(Object, Object)}, so a pair involving a very common
+ * word costs about the degree of the rarer word. Candidates are offered one
+ * at a time as they are walked, and only the best one, or the best k in a
+ * bounded heap, are kept.
+ * This class is internal to GraphPoet and StreamingPoet.
+ */
+class BridgeSearch {
+    
+    private String best = "";
+    private int bestWeight = 0;
+    
+    // Abstraction function:
+    //   a search whose best bridge so far is best with weight
+    //   bestWeight along its two-edge-long path, or none if bestWeight == 0
+    // Representation invariant:
+    //   bestWeight >= 0, best is "" iff bestWeight == 0
+    // Safety from rep exposure:
+    //   all fields are private, strings are immutable
+    
+    /**
+     * Choose the bridge word between w1 and w2: the word b on the two-edge-long
+     * path w1 -> b -> w2 with maximum weight, or the one that is minimum in
+     * alphabetical order if several paths have that weight.
+     *
+     * @param graph word affinity graph, not modified during the search
+     * @param w1 source word, lower case
+     * @param w2 target word, lower case
+     * @return the bridge word, "" if there is no two-edge-long path from w1
+     *         to w2
+     */
+    static String best(Graph<String> graph, String w1, String w2) {
+    	BridgeSearch search = new BridgeSearch();
+    	walk(graph, w1, w2, search::offer);
+    	return search.best;
+    }
+    
+    /**
+     * Rank the bridge words between w1 and w2: the words b on two-edge-long
+     * paths w1 -> b -> w2, in the order of {@link Bridge#PREFERRED}, so that
+     * the first is the one chosen by {@link #best(Graph, String, String)}.
+     * Only k candidates are held while the paths are walked.
+     *
+     * @param graph word affinity graph, not modified during the search
+     * @param w1 source word, lower case
+     * @param w2 target word, lower case
+     * @param k most bridges to return, nonnegative
+     * @return the best k bridges, or all of them if there are fewer,
+     *         preferred first
+     */
+    static List<Bridge> top(Graph<String> graph, String w1, String w2, int k) {
+    	if (k == 0) {
+    		return List.of();
+    	}
+    	// least preferred at the head, so it is the one to drop
+    	PriorityQueue<Bridge> heap = new PriorityQueue<>(Bridge.PREFERRED.reversed());
+    	walk(graph, w1, w2, (bridge, in, out) -> {
+    		if (in == 0 || out == 0) {
+    			return;
+    		}
+    		Bridge candidate = new Bridge(bridge, in + out);
+    		if (heap.size() < k) {
+    			heap.add(candidate);
+    		} else if (Bridge.PREFERRED.compare(candidate, heap.peek()) < 0) {
+    			heap.poll();
+    			heap.add(candidate);
+    		}
+    	});
+    	List<Bridge> top = new ArrayList<>(heap);
+    	top.sort(Bridge.PREFERRED);
+    	return Collections.unmodifiableList(top);
+    }
+    
+    /** Receives each candidate bridge word of a walk. */
+    interface Candidates {
+    	/**
+    	 * @param bridge candidate
+    	 * @param in weight of the edge into bridge, 0 if none
+    	 * @param out weight of the edge out of bridge, 0 if none
+    	 */
+    	void offer(String bridge, int in, int out);
+    }
+    
+    /**
+     * Offer every target of w1 or every source of w2, whichever are fewer,
+     * to candidates.
+     */
+    static void walk(Graph<String> graph, String w1, String w2, Candidates candidates) {
+    	int out = graph.outDegree(w1);
+    	int in = out == 0 ? 0 : graph.inDegree(w2);
+    	if (in == 0) {
+    		return;
+    	}
+    	if (out <= in) {
+    		graph.forEachTarget(w1, (bridge, weight) -> {
+    			candidates.offer(bridge, weight, graph.weight(bridge, w2));
+    		});
+    	} else {
+    		graph.forEachSource(w2, (bridge, weight) -> {
+    			candidates.offer(bridge, graph.weight(w1, bridge), weight);
+    		});
+    	}
+    }
+    
+    /**
+     * Consider a candidate bridge word.
+     * @param bridge candidate
+     * @param in weight of the edge into bridge, 0 if none
+     * @param out weight of the edge out of bridge, 0 if none
+     */
+    private void offer(String bridge, int in, int out) {
+    	if (in == 0 || out == 0) {
+    		return;
+    	}
+    	int weight = in + out;
+    	if (weight > bestWeight || weight == bestWeight && bridge.compareTo(best) < 0) {
+    		best = bridge;
+    		bestWeight = weight;
+    	}
+    }
+}
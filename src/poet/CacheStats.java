@@ -0,0 +1,89 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+/**
+ * Counters of a GraphPoet cache at one moment.
+ * Immutable.
+ */
+public class CacheStats {
+    
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final int capacity;
+    
+    // Abstraction function:
+    //   a cache holding size of at most capacity entries, which has answered
+    //   hits lookups, failed misses lookups and evicted evictions entries
+    // Representation invariant:
+    //   all fields >= 0
+    // Safety from rep exposure:
+    //   all fields are private, final and immutable
+    
+    /**
+     * Create cache counters.
+     * @param hits lookups answered by the cache
+     * @param misses lookups not answered by the cache
+     * @param evictions entries evicted to stay within capacity
+     * @param size entries held now
+     * @param capacity most entries the cache holds, 0 if it is disabled
+     */
+    public CacheStats(long hits, long misses, long evictions, int size, int capacity) {
+    	this.hits = hits;
+    	this.misses = misses;
+    	this.evictions = evictions;
+    	this.size = size;
+    	this.capacity = capacity;
+    }
+    
+    /**
+     * @return lookups answered by the cache
+     */
+    public long getHits() {
+    	return hits;
+    }
+    
+    /**
+     * @return lookups not answered by the cache
+     */
+    public long getMisses() {
+    	return misses;
+    }
+    
+    /**
+     * @return entries evicted to stay within capacity
+     */
+    public long getEvictions() {
+    	return evictions;
+    }
+    
+    /**
+     * @return entries held now
+     */
+    public int getSize() {
+    	return size;
+    }
+    
+    /**
+     * @return most entries the cache holds, 0 if it is disabled
+     */
+    public int getCapacity() {
+    	return capacity;
+    }
+    
+    /**
+     * @return fraction of lookups answered by the cache, 0 if there were none
+     */
+    public double hitRate() {
+    	long lookups = hits + misses;
+    	return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+    
+    @Override public String toString() {
+    	return "%d hits, %d misses (%.1f%%), %d evictions, %d/%d entries".formatted(
+    			hits, misses, 100 * hitRate(), evictions, size, capacity);
+    }
+}
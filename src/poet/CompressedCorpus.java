@@ -0,0 +1,326 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads corpora that may be compressed with gzip or zlib (deflate), telling
+ * them apart from plain text by their first bytes.
+ *
+ * <p>A compressed corpus is decompressed on a thread of its own, which fills
+ * buffers from a small fixed pool and queues them for the thread counting
+ * words, so decompression and tokenization overlap and at most the pool's
+ * bytes are held in between. A gzip stream is recognized by its magic
+ * number. A zlib stream is recognized by a valid header, of the deflate
+ * method with a window of at most 32 KB and a multiple of 31, and by its
+ * first {@value #PROBE_BYTES} bytes inflating without error: text that
+ * happens to start with such a header is not valid deflate data for long.
+ * A zlib stream that needs a preset dictionary cannot be read, and is taken
+ * for text.
+ * This class is internal to GraphPoet's corpus ingestion.
+ */
+class CompressedCorpus {
+    
+    /** Bytes in each buffer passed from the decompressing thread. */
+    static final int CHUNK_BYTES = 1 << 16;
+    
+    /** Buffers in the pool shared by the two threads. */
+    static final int CHUNKS = 4;
+    
+    /** Bytes of a stream inflated to tell whether it is zlib. */
+    static final int PROBE_BYTES = 1 << 12;
+    
+    private static final int GZIP_MAGIC = 0x1f8b;
+    
+    private CompressedCorpus() {
+    	// not instantiable
+    }
+    
+    /**
+     * @param start first bytes of a stream, all of them if it is shorter
+     *        than {@value #PROBE_BYTES} bytes
+     * @return true iff start starts a gzip stream
+     */
+    private static boolean isGzip(byte[] start) {
+    	return start.length >= 2 && ((start[0] & 0xFF) << 8 | (start[1] & 0xFF)) == GZIP_MAGIC;
+    }
+    
+    /**
+     * @param start first bytes of a stream, all of them if it is shorter
+     *        than {@value #PROBE_BYTES} bytes
+     * @return true iff start starts a gzip stream, or a zlib stream that
+     *         inflates without error as far as start goes
+     */
+    private static boolean isCompressed(byte[] start) {
+    	if (isGzip(start)) {
+    		return true;
+    	}
+    	if (start.length < 2) {
+    		return false;
+    	}
+    	int header = (start[0] & 0xFF) << 8 | (start[1] & 0xFF);
+    	int method = header >> 8;
+    	if ((method & 0x0F) != 8 || method >> 4 > 7 || header % 31 != 0) {
+    		return false;
+    	}
+    	Inflater inflater = new Inflater();
+    	try {
+    		inflater.setInput(start);
+    		byte[] plain = new byte[CHUNK_BYTES];
+    		while (!inflater.finished() && !inflater.needsInput() && !inflater.needsDictionary()) {
+    			inflater.inflate(plain);
+    		}
+    		return !inflater.needsDictionary();
+    	} catch (DataFormatException e) {
+    		return false;
+    	} finally {
+    		inflater.end();
+    	}
+    }
+    
+    /**
+     * @param corpus file to test
+     * @return true iff corpus exists and starts like a gzip or zlib stream
+     */
+    static boolean isCompressed(File corpus) {
+    	try (InputStream in = new FileInputStream(corpus)) {
+    		return isCompressed(in.readNBytes(PROBE_BYTES));
+    	} catch (IOException e) {
+    		return false;
+    	}
+    }
+    
+    /**
+     * Open a corpus for reading, decompressed if it is compressed.
+     *
+     * @param corpus stream of a corpus, plain or compressed; owned by the
+     *        result, which closes it
+     * @return stream of the corpus's plain bytes; if corpus is compressed,
+     *         they are decompressed on another thread until the result is
+     *         read to the end or closed, which the caller must do
+     * @throws IOException if corpus cannot be read
+     */
+    static InputStream open(InputStream corpus) throws IOException {
+    	InputStream in = new BufferedInputStream(corpus, CHUNK_BYTES);
+    	in.mark(PROBE_BYTES);
+    	byte[] start = in.readNBytes(PROBE_BYTES);
+    	in.reset();
+    	if (!isCompressed(start)) {
+    		return in;
+    	}
+    	return pipe(isGzip(start) ? new GZIPInputStream(in, CHUNK_BYTES)
+    			: new InflaterInputStream(in));
+    }
+    
+    /**
+     * Read a stream on another thread, as {@link #open(InputStream)} reads a
+     * compressed corpus.
+     *
+     * @param source stream to read, owned by the result, which closes it
+     * @return stream of the bytes of source, read on another thread until
+     *         the result is read to the end or closed, which the caller must
+     *         do; anything source throws is thrown by the result as the
+     *         cause of an IOException
+     */
+    static InputStream pipe(InputStream source) {
+    	return new Pipe(source);
+    }
+    
+    /**
+     * Count the words and adjacencies of a corpus, plain or compressed.
+     *
+     * @param corpus stream of the corpus, read to the end but not closed
+     * @return counts of the corpus and the number of bytes read from corpus
+     * @throws IOException if the corpus cannot be read or decompressed
+     */
+    static Counted count(InputStream corpus) throws IOException {
+    	long[] bytes = {0};
+    	InputStream counting = new FilterInputStream(corpus) {
+    		@Override public int read() throws IOException {
+    			int b = super.read();
+    			bytes[0] += b < 0 ? 0 : 1;
+    			return b;
+    		}
+    		@Override public int read(byte[] buffer, int offset, int length) throws IOException {
+    			int n = super.read(buffer, offset, length);
+    			bytes[0] += Math.max(n, 0);
+    			return n;
+    		}
+    		@Override public void close() {
+    			// leave corpus open for the caller
+    		}
+    	};
+    	try (InputStream in = open(counting)) {
+    		CorpusCounts counts = Tokenizer.count(in);
+    		return new Counted(counts, bytes[0]);
+    	}
+    }
+    
+    /**
+     * Counts of a corpus stream, and its size.
+     * Immutable reference to mutable counts.
+     */
+    static class Counted {
+    
+    	private final CorpusCounts counts;
+    	private final long bytes;
+    
+    	// Abstraction function:
+    	//   the counts of a stream of bytes bytes
+    	// Representation invariant:
+    	//   bytes >= 0
+    	// Safety from rep exposure:
+    	//   counts is handed to the caller, which takes ownership of it
+    
+    	private Counted(CorpusCounts counts, long bytes) {
+    		this.counts = counts;
+    		this.bytes = bytes;
+    	}
+    
+    	/**
+    	 * @return counts of the corpus
+    	 */
+    	CorpusCounts counts() {
+    		return counts;
+    	}
+    
+    	/**
+    	 * @return bytes read from the stream, compressed if it was compressed
+    	 */
+    	long bytes() {
+    		return bytes;
+    	}
+    }
+    
+    /**
+     * A stream of bytes decompressed by another thread.
+     * Thread-safe between the decompressing thread and one reading thread.
+     */
+    private static class Pipe extends InputStream {
+    
+    	private static final byte[] END = new byte[0];
+    
+    	private final InputStream source;
+    	private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(CHUNKS);
+    	private final BlockingQueue<byte[]> full = new ArrayBlockingQueue<>(CHUNKS + 1);
+    	private final Thread decompressor;
+    	private volatile Throwable failure = null;
+    	private byte[] chunk = null;
+    	private int position = 0;
+    
+    	// Abstraction function:
+    	//   the bytes of source, of which those not read yet are
+    	//   chunk[position..] followed by each buffer in full, in order,
+    	//   followed by the rest of source, then failure if it is not null;
+    	//   buffers not in use are in free
+    	// Representation invariant:
+    	//   0 <= position <= chunk.length if chunk is not null
+    	//   END is last in full if it is there at all
+    	//   at most CHUNKS buffers are in free, full, chunk or being filled;
+    	//   only the last buffer before END may be shorter than CHUNK_BYTES
+    	// Safety from rep exposure:
+    	//   all fields are private; buffers are only handed between the two
+    	//   threads through the queues
+    	// Thread safety argument:
+    	//   the decompressor only takes from free and puts into full, the
+    	//   reader only takes from full and puts into free, and blocking queues
+    	//   publish the buffers' contents; failure is volatile and written
+    	//   before END is queued, which happens however the decompressor ends
+    
+    	Pipe(InputStream source) {
+    		this.source = source;
+    		for (int i = 0; i < CHUNKS; i++) {
+    			free.add(new byte[CHUNK_BYTES]);
+    		}
+    		decompressor = new Thread(this::decompress, "corpus-decompressor");
+    		decompressor.setDaemon(true);
+    		decompressor.start();
+    	}
+    
+    	private void decompress() {
+    		try {
+    			while (true) {
+    				byte[] buffer = free.take();
+    				int n = source.readNBytes(buffer, 0, buffer.length);
+    				if (n < buffer.length) {
+    					if (n > 0) {
+    						full.put(Arrays.copyOf(buffer, n));
+    					}
+    					break;
+    				}
+    				full.put(buffer);
+    			}
+    		} catch (InterruptedException e) {
+    			// closed by the reader
+    		} catch (Throwable e) {
+    			// anything, e.g. an Error from corrupt data, ends the stream
+    			failure = e;
+    		} finally {
+    			// full has room for END after every buffer, so the reader
+    			// never waits for a dead thread
+    			full.add(END);
+    		}
+    	}
+    
+    	@Override public int read() throws IOException {
+    		byte[] one = new byte[1];
+    		return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    	}
+    
+    	@Override public int read(byte[] bytes, int offset, int count) throws IOException {
+    		if (count == 0) {
+    			return 0;
+    		}
+    		if (chunk == null || position == chunk.length) {
+    			if (chunk == END) {
+    				return -1;
+    			}
+    			if (chunk != null) {
+    				free.add(chunk);
+    			}
+    			try {
+    				chunk = full.take();
+    			} catch (InterruptedException e) {
+    				Thread.currentThread().interrupt();
+    				throw new InterruptedIOException("interrupted while decompressing");
+    			}
+    			position = 0;
+    			if (chunk == END) {
+    				if (failure != null) {
+    					throw new IOException("cannot decompress corpus", failure);
+    				}
+    				return -1;
+    			}
+    		}
+    		int n = Math.min(count, chunk.length - position);
+    		System.arraycopy(chunk, position, bytes, offset, n);
+    		position += n;
+    		return n;
+    	}
+    
+    	@Override public void close() throws IOException {
+    		decompressor.interrupt();
+    		try {
+    			decompressor.join();
+    		} catch (InterruptedException e) {
+    			Thread.currentThread().interrupt();
+    		}
+    		source.close();
+    	}
+    }
+}
@@ -0,0 +1,148 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import graph.Graph;
+
+/**
+ * The words and adjacency counts of a contiguous piece of corpus, fed one word
+ * or line break at a time, usually by a Tokenizer.
+ * As in GraphPoet, adjacencies are counted between consecutive words on the
+ * same line.
+ * Counts of consecutive pieces can be joined with {@link #append}, including
+ * the adjacency that straddles the boundary between them, so a corpus can be
+ * counted in independent pieces and give the same result as counting it whole.
+ * Mutable, not safe for use by more than one thread.
+ * This class is internal to GraphPoet's corpus ingestion.
+ */
+class CorpusCounts {
+    
+    private final WordTable words = new WordTable();
+    private final PairCounter pairs;
+    private int first = -1;
+    private boolean breakBeforeFirst = false;
+    private int last = -1;
+    private boolean breakAfterLast = false;
+    private long wordCount = 0;
+    
+    // Abstraction function:
+    //   a piece of corpus of wordCount words, whose distinct words, in order
+    //   of first appearance, are the words of the word table; pairs counts
+    //   how often word id a is followed by word id b on the same line; first
+    //   and last are the ids of the first and last words of the piece (-1 if
+    //   it has none), and breakBeforeFirst, breakAfterLast tell whether a
+    //   line break comes before the first word, after the last word (or
+    //   anywhere, if the piece has no word)
+    // Representation invariant:
+    //   every id in pairs, first and last is -1 or < words.size()
+    //   first == -1 iff last == -1 iff words is empty
+    //   breakAfterLast is false if last == -1
+    // Safety from rep exposure:
+    //   all fields are private; words() shares the word table with the
+    //   Tokenizer that feeds this piece, on purpose
+    
+    /**
+     * Create counts of an empty piece, counting adjacencies exactly.
+     */
+    public CorpusCounts() {
+    	this(new PairCounts());
+    }
+    
+    /**
+     * Create counts of an empty piece, counting adjacencies with pairs.
+     * @param pairs empty counter, owned by the new counts from now on
+     */
+    public CorpusCounts(PairCounter pairs) {
+    	this.pairs = pairs;
+    }
+    
+    /**
+     * @return the table interning the words of this piece, for the Tokenizer
+     *         feeding it
+     */
+    WordTable words() {
+    	return words;
+    }
+    
+    /**
+     * Record the next word of the piece.
+     * @param id id of the word in words()
+     */
+    public void word(int id) {
+    	if (first == -1) {
+    		first = id;
+    	} else if (!breakAfterLast) {
+    		pairs.add(last, id, 1);
+    	}
+    	last = id;
+    	breakAfterLast = false;
+    	wordCount++;
+    }
+    
+    /**
+     * @return number of words in this piece, counting repeats
+     */
+    public long wordCount() {
+    	return wordCount;
+    }
+    
+    /**
+     * Record a line break after the words recorded so far.
+     */
+    public void lineBreak() {
+    	if (last == -1) {
+    		breakBeforeFirst = true;
+    	} else {
+    		breakAfterLast = true;
+    	}
+    }
+    
+    /**
+     * Add the counts of the piece that directly follows this one in the
+     * corpus, as if its words and line breaks had been recorded here.
+     * @param next counts of the following piece, not modified
+     */
+    public void append(CorpusCounts next) {
+    	if (next.first == -1) {
+    		if (next.breakBeforeFirst) {
+    			lineBreak();
+    		}
+    		return;
+    	}
+    	WordTable nextWords = next.words;
+    	int[] remap = new int[nextWords.size()];
+    	for (int i = 0; i < remap.length; i++) {
+    		remap[i] = words.intern(nextWords.bytes(), nextWords.offset(i), nextWords.length(i),
+    				nextWords.hash(i), nextWords.word(i));
+    	}
+    	next.pairs.forEach((a, b, count) -> pairs.add(remap[a], remap[b], count));
+    	
+    	if (first == -1) {
+    		first = remap[next.first];
+    		breakBeforeFirst |= next.breakBeforeFirst;
+    	} else if (!breakAfterLast && !next.breakBeforeFirst) {
+    		pairs.add(last, remap[next.first], 1);
+    	}
+    	last = remap[next.last];
+    	breakAfterLast = next.breakAfterLast;
+    	wordCount += next.wordCount;
+    }
+    
+    /**
+     * Add the words of this piece to a word affinity graph, in order of first
+     * appearance, and add the adjacency counts to its edge weights.
+     * @param graph graph to modify
+     */
+    public void applyTo(Graph<String> graph) {
+    	for (int id = 0; id < words.size(); id++) {
+    		graph.add(words.word(id));
+    	}
+    	pairs.forEach((a, b, count) -> {
+    		int preWeight = graph.set(words.word(a), words.word(b), count);
+    		if (preWeight != 0) {
+    			graph.set(words.word(a), words.word(b), preWeight + count);
+    		}
+    	});
+    }
+}
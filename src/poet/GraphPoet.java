@@ -3,21 +3,27 @@
  */
 package poet;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
-
-import javax.xml.transform.Source;
-
-import org.junit.Test;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
 
 import graph.Graph;
 
@@ -51,6 +57,8 @@ import graph.Graph;
  * In the output poem, input words retain their original case, while bridge
  * words are lower case. The whitespace between every word in the poem is a
  * single space.
+ * {@link #setMaxBridgeHops(int, int)} lets the poet insert bridges of several
+ * words where no one-word bridge exists.
  * 
  * <p>For example, given this corpus:
  * <pre>    This is a test of the Mugar Omni Theater sound system.    </pre>
@@ -67,70 +75,473 @@ import graph.Graph;
  */
 public class GraphPoet {
     
-    private final Graph<String> graph = Graph.empty();
+    private static final int STREAM_BUFFER_CHARS = 8192;
+    
+    /** Partial paths a multi-word bridge search expands unless told otherwise. */
+    public static final int DEFAULT_BRIDGE_VISIT_LIMIT = 2000;
+    
+    private final AtomicReference<Snapshot> current;
+    private final IngestReport ingestReport;
+    private final Lock writeLock = new ReentrantLock();
     
     // Abstraction function:
-    //   graph represent a word affinity graph
+    //   current.get().graph represent a word affinity graph, ingestReport
+    //   tells how its corpus was read, current.get().cache (if not null)
+    //   remembers bridge words already chosen
     // Representation invariant:
-    //   corpus file derive the poet's affinity graph
+    //   corpus file and learned text derive the poet's affinity graph
+    //	 every bridge in a snapshot's cache is the one chosen from its graph
     // Safety from rep exposure:
-    //   graph is private and final
+    //   current is private and final, ingestReport is immutable
     //	 getGraph() make a defensive copy
+    // Thread safety argument:
+    //   a snapshot's graph is never modified once it has been published
+    //   through current, so readers take the current snapshot without
+    //   locking and read it for as long as they need; writers hold writeLock
+    //   while they layer new text over the current graph, sharing but not
+    //   modifying its layers, and publish a new snapshot, so no update is
+    //   lost; caches are thread-safe; ingestReport is final and immutable
+    
+    /**
+     * A version of the affinity graph, not modified once published, with the
+     * bridge words chosen from it so far.
+     * Immutable graph, thread-safe cache.
+     */
+    private static class Snapshot {
+    	
+    	private final Graph<String> graph;
+    	private final BridgeCache cache;
+    	private final int maxHops;
+    	private final int visitLimit;
+    	private volatile ModelStats stats;
+    	private volatile PathSearch.Bounds bounds;
+    	
+    	// Abstraction function:
+    	//   the affinity graph graph, with bridges of up to maxHops - 1 words
+    	//   found expanding at most visitLimit partial paths, chosen from it
+    	//   and cached in cache, or not cached if cache is null; its
+    	//   statistics in stats and its edge weight bounds in bounds once they
+    	//   have been computed
+    	// Representation invariant:
+    	//   maxHops >= 2, visitLimit > 0
+    	//   stats and bounds are null or describe graph
+    	// Safety from rep exposure:
+    	//   fields are only seen by GraphPoet, which never modifies graph
+    	//   once the snapshot is published
+    	
+    	Snapshot(Graph<String> graph, BridgeCache cache) {
+    		this(graph, cache, 2, DEFAULT_BRIDGE_VISIT_LIMIT);
+    	}
+    	
+    	Snapshot(Graph<String> graph, BridgeCache cache, int maxHops, int visitLimit) {
+    		this.graph = graph;
+    		this.cache = cache;
+    		this.maxHops = maxHops;
+    		this.visitLimit = visitLimit;
+    	}
+    	
+    	PathSearch.Bounds bounds() {
+    		PathSearch.Bounds result = bounds;
+    		if (result == null) {
+    			// racing callers compute equal bounds, any of them may stick
+    			result = PathSearch.Bounds.of(graph);
+    			bounds = result;
+    		}
+    		return result;
+    	}
+    }
+    
+    /**
+     * Create a new poet with an empty graph, to be taught with
+     * {@link #learn(String)} or {@link #learn(Reader)}.
+     */
+    public GraphPoet() {
+    	current = new AtomicReference<>(new Snapshot(Graph.empty(), null));
+    	ingestReport = new IngestReport(List.of(), 0);
+    }
     
     /**
      * Create a new poet with the graph from corpus (as described above).
      * 
-     * @param corpus text file from which to derive the poet's affinity graph
-     * @throws IOException if the corpus file cannot be found or read
+     * @param corpus UTF-8 text file from which to derive the poet's affinity
+     *        graph, which may be compressed with gzip or zlib; a compressed
+     *        corpus is decompressed on another thread while its words are
+     *        counted
+     * @throws IOException if the corpus file cannot be found, read or
+     *         decompressed
      */
     public GraphPoet(File corpus) throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(corpus));
-        String line;
-        while((line = reader.readLine()) != null) {
-        	analysis(line);
-        }
-        reader.close();
+    	long start = System.nanoTime();
+    	CorpusCounts counts;
+    	try (InputStream in = CompressedCorpus.open(new FileInputStream(corpus))) {
+    		counts = Tokenizer.count(in);
+    	}
+    	IngestReport read = report(corpus, counts, System.nanoTime() - start);
+    	long built = System.nanoTime();
+    	Graph<String> graph = graph(counts);
+    	ingestReport = read.withBuildNanos(System.nanoTime() - built);
+    	current = new AtomicReference<>(new Snapshot(graph, null));
     }
     
     /**
-     * Analysis text to derive the poet's affinity graph
-     * @param text contain corpus need to analysis
+     * Create a new poet with the graph from corpus (as described above),
+     * reading the corpus in parallel.
+     * 
+     * <p>The corpus is split into pieces at whitespace, the words and
+     * adjacencies of each piece are counted on a fork-join pool, and the
+     * counts are merged in corpus order, so the graph is identical to the one
+     * built by {@link #GraphPoet(File)}. A compressed corpus cannot be split,
+     * so it is read as by {@link #GraphPoet(File)}.
+     * 
+     * @param corpus UTF-8 text file from which to derive the poet's affinity
+     *        graph, which may be compressed with gzip or zlib
+     * @param parallelism number of threads to read the corpus with, must be
+     *        positive
+     * @throws IOException if the corpus file cannot be found, read or
+     *         decompressed
      */
-    private void analysis(String text) {
-    	Scanner scanner = new Scanner(text);
-    	String pre = "", cur = "";
-    	int preWeight = 0;
-    	
-    	while (scanner.hasNext()) {
-    		if (pre.isEmpty()) {
-    			cur = scanner.next().toLowerCase();
-    			graph.add(cur);
-    		} else {
-        		cur = scanner.next().toLowerCase();
-        		if ((preWeight = graph.set(pre, cur, 1)) != 0) {
-        			graph.set(pre, cur, preWeight + 1);
-        		}
+    public GraphPoet(File corpus, int parallelism) throws IOException {
+    	long start = System.nanoTime();
+    	CorpusCounts counts;
+    	if (CompressedCorpus.isCompressed(corpus)) {
+    		try (InputStream in = CompressedCorpus.open(new FileInputStream(corpus))) {
+    			counts = Tokenizer.count(in);
     		}
-			pre = cur;
+    	} else {
+    		counts = ParallelCorpusReader.read(
+    				corpus, parallelism, ParallelCorpusReader.DEFAULT_CHUNK_BYTES);
     	}
-    	scanner.close();
+    	IngestReport read = report(corpus, counts, System.nanoTime() - start);
+    	long built = System.nanoTime();
+    	Graph<String> graph = graph(counts);
+    	ingestReport = read.withBuildNanos(System.nanoTime() - built);
+    	current = new AtomicReference<>(new Snapshot(graph, null));
     }
     
-    // TODO checkRep
+    /**
+     * Create a new poet with the graph from a corpus stream (as described
+     * above), such as a network download or an archive entry. Its
+     * {@link #ingestReport()} has one entry, for source "stream".
+     * 
+     * @param corpus UTF-8 text from which to derive the poet's affinity graph,
+     *        which may be compressed with gzip or zlib; read to the end but
+     *        not closed; a compressed corpus is decompressed on another thread
+     *        while its words are counted
+     * @throws IOException if the corpus cannot be read or decompressed
+     */
+    public GraphPoet(InputStream corpus) throws IOException {
+    	long start = System.nanoTime();
+    	CompressedCorpus.Counted counted = CompressedCorpus.count(corpus);
+    	long nanos = System.nanoTime() - start;
+    	IngestReport read = new IngestReport(List.of(new IngestReport.Entry(
+    			"stream", counted.bytes(), counted.counts().wordCount(), nanos)), nanos);
+    	long built = System.nanoTime();
+    	Graph<String> graph = graph(counted.counts());
+    	ingestReport = read.withBuildNanos(System.nanoTime() - built);
+    	current = new AtomicReference<>(new Snapshot(graph, null));
+    }
+    
+    GraphPoet(CorpusCounts counts, IngestReport ingestReport) {
+    	long built = System.nanoTime();
+    	Graph<String> graph = graph(counts);
+    	this.ingestReport = ingestReport.withBuildNanos(System.nanoTime() - built);
+    	current = new AtomicReference<>(new Snapshot(graph, null));
+    }
     
     /**
-     * Get the graph
+     * Create a new poet with a graph built elsewhere, such as one loaded by
+     * {@link ModelFile}.
+     * 
+     * @param graph affinity graph, which the new poet owns: it must not be used
+     *        by the caller again
+     * @param ingestReport how the graph was read
      */
-    public Graph<String> getGraph() {
+    GraphPoet(Graph<String> graph, IngestReport ingestReport) {
+    	this.ingestReport = ingestReport;
+    	current = new AtomicReference<>(new Snapshot(graph, null));
+    }
+    
+    private static Graph<String> graph(CorpusCounts counts) {
+    	Graph<String> graph = Graph.empty();
+    	counts.applyTo(graph);
+    	return graph;
+    }
+    
+    private static Graph<String> copy(Graph<String> graph) {
     	Graph<String> g = Graph.empty();
     	for (String vertex : graph.vertices()) {
     		g.add(vertex);
-    		for (Map.Entry<String, Integer> entry :
-    			graph.targets(vertex).entrySet()) {
-    			g.set(vertex, entry.getKey(), entry.getValue());
-    		}
     	}
+    	graph.forEachEdge(g::set);
     	return g;
+    }
+    
+    /**
+     * Create a new poet with the graph from a corpus made of many files (as
+     * described above), reading the files concurrently.
+     * 
+     * <p>Each file is read by one of a bounded pool of threads, and the
+     * counts of the files are merged in the given order, so the graph does not
+     * depend on the order the threads finish in. Adjacencies are counted
+     * within each file, never from the last word of one file to the first
+     * word of the next.
+     * 
+     * @param corpora UTF-8 text files from which to derive the poet's
+     *        affinity graph, each of which may be compressed with gzip or zlib
+     * @param threads number of threads to read the files with, must be
+     *        positive
+     * @return a new poet, whose {@link #ingestReport()} has one entry per file
+     * @throws IOException if a corpus file cannot be found or read
+     */
+    public static GraphPoet fromFiles(List<File> corpora, int threads) throws IOException {
+    	MultiFileCorpusReader reader = MultiFileCorpusReader.read(corpora, threads);
+    	return new GraphPoet(reader.counts(), reader.report());
+    }
+    
+    /**
+     * Create a new poet with the graph from every file under a directory whose
+     * path relative to the directory matches a glob, as by
+     * {@link #fromFiles(List, int)} with the files sorted by path.
+     * 
+     * @param directory directory to search, including subdirectories
+     * @param glob pattern as for {@link java.nio.file.FileSystem#getPathMatcher},
+     *        e.g. {@code "*.txt"} for the directory itself or
+     *        {@code "**.txt"} for every subdirectory too
+     * @param threads number of threads to read the files with, must be
+     *        positive
+     * @return a new poet, whose {@link #ingestReport()} has one entry per file
+     * @throws IOException if the directory or a corpus file cannot be read
+     */
+    public static GraphPoet fromDirectory(File directory, String glob, int threads)
+    		throws IOException {
+    	return fromFiles(MultiFileCorpusReader.list(directory, glob), threads);
+    }
+    
+    /**
+     * Create a new poet with an approximate graph from a corpus too large for
+     * its adjacencies to be counted exactly, in memory bounded by the
+     * arguments besides the vocabulary, which is still kept whole.
+     *
+     * <p>Adjacencies are counted in a count-min sketch of sketchDepth rows of
+     * sketchWidth counters, and only the maxPairs adjacencies with the
+     * greatest estimated counts become edges, weighted by their estimates.
+     * Let N be the number of adjacencies in the corpus and
+     * eps = e / sketchWidth. With probability at least 1 - e^-sketchDepth for
+     * each edge, its weight exceeds the true count by at most eps * N, and
+     * every adjacency counted more than T = N / maxPairs + eps * N times is
+     * an edge. So between input words w1 and w2, a bridge word whose edges
+     * from w1 and to w2 are each counted more than T times, and whose path
+     * outweighs every other two-edge-long path from w1 to w2 by more than
+     * 2 * eps * N, is chosen exactly as {@link #GraphPoet(File)} would
+     * choose it. Lighter bridges may differ or be missing.
+     *
+     * <p>Memory for the counts is about 4 * sketchWidth * sketchDepth bytes
+     * plus 36 to 60 bytes per pair kept, and the graph holds at most maxPairs
+     * edges.
+     *
+     * @param corpus UTF-8 text file from which to derive the poet's affinity
+     *        graph, which may be compressed with gzip or zlib
+     * @param maxPairs most adjacencies to keep as edges, in [1, 2^29]
+     * @param sketchWidth counters per row of the sketch, in [1, 2^29],
+     *        rounded up to a power of two
+     * @param sketchDepth rows of the sketch, positive
+     * @return a new poet, whose {@link #ingestReport()} has one entry for
+     *         corpus
+     * @throws IOException if the corpus file cannot be found, read or
+     *         decompressed
+     */
+    public static GraphPoet approximate(File corpus, int maxPairs, int sketchWidth,
+    		int sketchDepth) throws IOException {
+    	CorpusCounts counts = new CorpusCounts(
+    			new SketchedPairCounts(maxPairs, sketchWidth, sketchDepth));
+    	long start = System.nanoTime();
+    	try (InputStream in = CompressedCorpus.open(new FileInputStream(corpus))) {
+    		Tokenizer.count(in, counts);
+    	}
+    	return new GraphPoet(counts, report(corpus, counts, System.nanoTime() - start));
+    }
+    
+    static IngestReport report(File corpus, CorpusCounts counts, long nanos) {
+    	return new IngestReport(List.of(new IngestReport.Entry(
+    			corpus.getPath(), corpus.length(), counts.wordCount(), nanos)), nanos);
+    }
+    
+    /**
+     * @return how the corpus this poet was created with was read; text
+     *         learned later is not included
+     */
+    public IngestReport ingestReport() {
+    	return ingestReport;
+    }
+    
+    /**
+     * Add text to the corpus of this poet: the words of text are added to the
+     * affinity graph and its adjacencies are added to the edge weights, as if
+     * text had been part of the corpus, separated from the rest by a line
+     * break.
+     * 
+     * <p>Text is counted into a new layer over the graph, sharing the layers
+     * before it, which replaces the graph at once, so learning costs O(log n)
+     * per word learned rather than a copy of the graph, and concurrent calls
+     * of {@link #poem(String)} never wait for learning and see the graph
+     * either before or after the whole text is learned. Calls of this method
+     * are applied one at a time.
+     * 
+     * @param text text to learn
+     */
+    public void learn(String text) {
+    	try {
+    		apply(Tokenizer.count(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+    	} catch (IOException e) {
+    		throw new AssertionError("reading bytes in memory cannot fail", e);
+    	}
+    }
+    
+    /**
+     * Add text to the corpus of this poet, as by {@link #learn(String)}.
+     * 
+     * @param text text to learn, read to the end but not closed
+     * @throws IOException if text cannot be read, in which case the poet is
+     *         not modified
+     */
+    public void learn(Reader text) throws IOException {
+    	apply(Tokenizer.count(text));
+    }
+    
+    /**
+     * Add counts as a new layer over the graph and publish it atomically,
+     * with an empty bridge cache.
+     */
+    private void apply(CorpusCounts counts) {
+    	Graph<String> layer = Graph.empty();
+    	counts.applyTo(layer);
+    	writeLock.lock();
+    	try {
+    		Snapshot before = current.get();
+    		Graph<String> graph = LayeredGraph.of(before.graph).plus(layer);
+    		current.set(new Snapshot(graph, before.cache == null ? null : before.cache.emptied(),
+    				before.maxHops, before.visitLimit));
+    	} finally {
+    		writeLock.unlock();
+    	}
+    }
+    
+    /**
+     * Cache the bridge words chosen by {@link #poem(String)}, so that a pair of
+     * adjacent input words seen before is not searched again, or stop caching.
+     * At most maxEntries pairs are cached, evicting the least recently used
+     * pairs first; pairs with no bridge are cached too. The cache is emptied
+     * whenever the poet learns text, and replaced by each call of this
+     * method.
+     * 
+     * @param maxEntries most pairs to cache, or 0 to disable the cache
+     */
+    public void setBridgeCacheSize(int maxEntries) {
+    	if (maxEntries < 0) {
+    		throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+    	}
+    	writeLock.lock();
+    	try {
+    		Snapshot before = current.get();
+    		current.set(new Snapshot(before.graph,
+    				maxEntries == 0 ? null : new BridgeCache(maxEntries),
+    				before.maxHops, before.visitLimit));
+    	} finally {
+    		writeLock.unlock();
+    	}
+    }
+    
+    /**
+     * Let {@link #poem(String)} insert bridges of several words. Between
+     * input words w1 and w2 it then inserts the one-word bridge described
+     * above if there is one; otherwise the words b1, ..., bm on a path
+     * w1 -> b1 -> ... -> bm -> w2 of at most maxHops edges with the fewest
+     * words, then the maximum sum of edge weights, then the minimum sequence
+     * of words in alphabetical order. A search for such a path expands at
+     * most visitLimit partial paths; if it reaches the limit, the best
+     * bridge found so far is inserted, or none. The bridge cache, if enabled,
+     * is emptied. {@link #bridges(String, String, int)} still ranks one-word
+     * bridges only.
+     * 
+     * @param maxHops most edges on the path from an input word to the next
+     *        through its bridge, at least 2; 2, the default, inserts one-word
+     *        bridges only
+     * @param visitLimit most partial paths expanded to find one bridge,
+     *        positive; {@link #DEFAULT_BRIDGE_VISIT_LIMIT} by default
+     */
+    public void setMaxBridgeHops(int maxHops, int visitLimit) {
+    	if (maxHops < 2) {
+    		throw new IllegalArgumentException("maxHops must be at least 2: " + maxHops);
+    	}
+    	if (visitLimit <= 0) {
+    		throw new IllegalArgumentException("visitLimit must be positive: " + visitLimit);
+    	}
+    	writeLock.lock();
+    	try {
+    		Snapshot before = current.get();
+    		current.set(new Snapshot(before.graph,
+    				before.cache == null ? null : before.cache.emptied(), maxHops, visitLimit));
+    	} finally {
+    		writeLock.unlock();
+    	}
+    }
+    
+    /**
+     * @return counters of the bridge cache since it was last set by
+     *         {@link #setBridgeCacheSize(int)}, all 0 if it is disabled
+     */
+    public CacheStats bridgeCacheStats() {
+    	BridgeCache cache = current.get().cache;
+    	return cache == null ? new CacheStats(0, 0, 0, 0, 0) : cache.stats();
+    }
+    
+    /**
+     * Statistics of the current affinity graph: its size, degree
+     * distribution, estimated heap and how its corpus was read. They are
+     * computed without copying the graph, once for each graph this poet
+     * learns; until it learns again, later calls return the same statistics,
+     * except for a model opened lazily, whose heap changes as it is read.
+     * 
+     * @return statistics of this poet's affinity graph
+     */
+    public ModelStats stats() {
+    	Snapshot snapshot = current.get();
+    	ModelStats stats = snapshot.stats;
+    	if (stats == null) {
+    		// racing callers compute equal statistics, any of them may stick
+    		stats = ModelStats.of(snapshot.graph, ingestReport);
+    		if (stats.getCacheBudget().isEmpty()) {
+    			snapshot.stats = stats;
+    		}
+    	}
+    	return stats;
+    }
+    
+    /**
+     * @return the current affinity graph itself, which must not be modified;
+     *         it is never modified by this poet either
+     */
+    Graph<String> graph() {
+    	return current.get().graph;
+    }
+    
+    /**
+     * @return the fingerprint of the current affinity graph, equal to that of
+     *         another poet's graph or of a saved one exactly when they are
+     *         the same graph, but for a chance of about one in 2^64; see
+     *         {@link Graph#fingerprint()} and {@link ModelFile#fingerprint(File)}
+     */
+    public long fingerprint() {
+    	return current.get().graph.fingerprint();
+    }
+    
+    // TODO checkRep
+    
+    /**
+     * Get the graph
+     */
+    public Graph<String> getGraph() {
+    	return copy(current.get().graph);
 	}
     
     /**
@@ -140,67 +551,210 @@ public class GraphPoet {
      * @return poem (as described above)
      */
     public String poem(String input) {
-    	Scanner scanner = new Scanner(input);
-    	String pre = "", cur = "", bridge = "";
-    	List<String> result = new ArrayList<>();
-
-    	while (scanner.hasNext()) {
-    		cur = scanner.next();
-    		if (!pre.isEmpty()) {
-    			bridge = choose(twoWayPaths(pre, cur));
-    			if (!bridge.isEmpty()) result.add(bridge);
+    	return compose(current.get(), input, null);
+    }
+    
+    /**
+     * Find the alternatives for the bridge word between two words: the words
+     * b on two-edge-long paths w1 -> b -> w2, each with the weight of its
+     * path, in the order of {@link Bridge#PREFERRED}. The first is the bridge
+     * word {@link #poem(String)} inserts between w1 and w2.
+     *
+     * @param w1 first word, case-insensitive
+     * @param w2 second word, case-insensitive
+     * @param k most bridges to return, nonnegative
+     * @return the best k bridge words in lower case, or all of them if there
+     *         are fewer, preferred first; unmodifiable
+     */
+    public List<Bridge> bridges(String w1, String w2, int k) {
+    	if (k < 0) {
+    		throw new IllegalArgumentException("k must be nonnegative: " + k);
+    	}
+    	return BridgeSearch.top(current.get().graph, w1.toLowerCase(), w2.toLowerCase(), k);
+    }
+    
+    /**
+     * Generate a poem from a stream of input, writing it as the input is
+     * read. Only the word being read and the word before it are held in
+     * memory, so the input may be larger than the heap. The poem written is
+     * exactly the one {@link #poem(String)} would return for the whole input
+     * from the affinity graph when this method is called; text learned while
+     * the poem is written is not used for it.
+     * Neither input nor output is closed or flushed.
+     * 
+     * @param input stream from which to create the poem
+     * @param output stream to write the poem (as described above) to
+     * @throws IOException if input cannot be read or output cannot be written
+     */
+    public void poem(Reader input, Writer output) throws IOException {
+    	char[] buffer = new char[STREAM_BUFFER_CHARS];
+    	Snapshot snapshot = current.get();
+    	Tokenizer.CharScanner scanner = new Tokenizer.CharScanner(new Tokenizer.WordSink() {
+    		private String pre = "";
+    		
+    		@Override public void word(String word) throws IOException {
+    			pre = write(snapshot, pre, word, output);
     		}
-    		result.add(cur);
-    		pre = cur;
+    		
+    		@Override public void lineBreak() {
+    			// a poem's input is one line
+    		}
+    	});
+    	int n;
+    
+    	while ((n = input.read(buffer)) != -1) {
+    		scanner.feed(CharBuffer.wrap(buffer, 0, n));
     	}
-    	scanner.close();
-    	return String.join(" ", result);
+    	scanner.finish();
     }
     
     /**
-     * Get two-edge-long paths between w1 and w2.
-     * @param w1 source word in word affinity graph
-     * @param w2 target word in word affinity graph
-     * @return a Map contain bridge words between input words "w1" and "w2" with weight along
-     * two-edge-long paths from w1 to w2 in the affinity graph
+     * Write a word of a streamed poem, after the bridge word from the word
+     * before it.
+     * 
+     * @param snapshot affinity graph to write the poem from
+     * @param pre the word before, lower case, or "" if word is the first
+     * @param word the word as it appears in the input, not empty
+     * @param output stream to write to
+     * @return word in lower case
+     * @throws IOException if output cannot be written
      */
-    private Map<String, Integer> twoWayPaths(String w1, String w2) {
-    	Map<String, Integer> paths = new HashMap<>();
-    	String bridge = "", twoDis = "";
-    	w1 = w1.toLowerCase();
-    	w2 = w2.toLowerCase();
-    	
-    	for (Map.Entry<String, Integer> immeEntry : graph.sources(w2).entrySet()) {
-    		bridge = immeEntry.getKey();
-    		for (Map.Entry<String, Integer> twoDistanceEntry : graph.sources(bridge).entrySet()) {
-    			twoDis = twoDistanceEntry.getKey();
-    			if (twoDis.equals(w1)) {
-    				paths.put(bridge, immeEntry.getValue() + twoDistanceEntry.getValue());
-    			}
+    private static String write(Snapshot snapshot, String pre, String word, Writer output)
+    		throws IOException {
+    	String cur = word.toLowerCase();
+    	if (!pre.isEmpty()) {
+    		output.write(' ');
+    		String bridge = bridge(snapshot, pre, cur);
+    		if (!bridge.isEmpty()) {
+    			output.write(bridge);
+    			output.write(' ');
+    		}
+    	}
+    	output.write(word);
+    	return cur;
+    }
+    
+    /**
+     * Generate a poem for each of a batch of inputs, in parallel on the common
+     * fork-join pool. See {@link #poems(List, Executor)}.
+     * 
+     * @param inputs strings from which to create the poems
+     * @return poems (as described above), in the order of inputs
+     */
+    public List<String> poems(List<String> inputs) {
+    	return poems(inputs, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Generate a poem for each of a batch of inputs, in parallel on executor.
+     * Every poem is the one poem() would generate for its input from the same
+     * affinity graph, the one when this method is called: text learned while
+     * the batch runs is not used for it. The bridge word of an adjacent pair of words that appears many
+     * times in the batch is chosen only once.
+     * 
+     * @param inputs strings from which to create the poems
+     * @param executor runs the poems, for example a fixed thread pool; it
+     *        must not wait for this poet to learn text
+     * @return poems (as described above), in the order of inputs
+     */
+    public List<String> poems(List<String> inputs, Executor executor) {
+    	Map<String, String> batch = new ConcurrentHashMap<>();
+    	List<CompletableFuture<String>> futures = new ArrayList<>(inputs.size());
+    	Snapshot snapshot = current.get();
+    
+    	for (String input : inputs) {
+    		futures.add(CompletableFuture.supplyAsync(() -> compose(snapshot, input, batch), executor));
+    	}
+    	List<String> poems = new ArrayList<>(inputs.size());
+    	try {
+    		for (CompletableFuture<String> future : futures) {
+    			poems.add(future.join());
+    		}
+    	} catch (CompletionException e) {
+    		if (e.getCause() instanceof RuntimeException) {
+    			throw (RuntimeException) e.getCause();
     		}
+    		throw e;
+    	}
+    	return poems;
+    }
+    
+    /**
+     * Generate a poem.
+     * 
+     * @param snapshot affinity graph to create the poem from
+     * @param input string from which to create the poem
+     * @param batch bridge words already chosen in this batch of poems, keyed
+     *        by the pair of lower case words joined by a space, or null if the
+     *        poem is not part of a batch
+     * @return poem (as described above)
+     */
+    private String compose(Snapshot snapshot, String input, Map<String, String> batch) {
+    	if (batch == null) {
+    		return compose(input, (w1, w2) -> bridge(snapshot, w1, w2));
     	}
-    	return paths;
+    	return compose(input, (w1, w2) ->
+    			batch.computeIfAbsent(w1 + ' ' + w2, pair -> bridge(snapshot, w1, w2)));
     }
     
     /**
-     * Choose a bridge word with maximum-weight or minimum in alphabetical order if
-     * weight is the same
-     * @param candidate bridge words with weight along two-edge-long paths 
-     * from w1 to w2 in the affinity graph
-     * @return a bridge word with maximum-weight or minimum in alphabetical order if
-     * weight is the same
+     * Generate a poem, as described above, with given bridges.
+     * 
+     * @param input string from which to create the poem
+     * @param bridges the bridge between two lower case words, its words
+     *        separated by spaces, "" if there is none
+     * @return poem
      */
-    private String choose(Map<String, Integer> candidate) {
-    	Map.Entry<String, Integer> maximum = null;
-    	for (Map.Entry<String, Integer> entry : candidate.entrySet()) {
-    		if (maximum == null) {
-    			maximum = entry;
-    		} else if (maximum.getValue() < entry.getValue() ||
-    				maximum.getKey().compareTo(entry.getKey()) > 0) {
-				maximum = entry;
+    static String compose(String input, BinaryOperator<String> bridges) {
+    	StringBuilder poem = new StringBuilder();
+    	String pre = "";
+    	int start = Tokenizer.wordStart(input, 0);
+    
+    	while (start < input.length()) {
+    		int end = Tokenizer.wordEnd(input, start);
+    		String cur = input.substring(start, end).toLowerCase();
+    		if (!pre.isEmpty()) {
+    			String bridge = bridges.apply(pre, cur);
+    			if (!bridge.isEmpty()) poem.append(bridge).append(' ');
     		}
+    		poem.append(input, start, end).append(' ');
+    		pre = cur;
+    		start = Tokenizer.wordStart(input, end);
+    	}
+    	return poem.length() == 0 ? "" : poem.substring(0, poem.length() - 1);
+    }
+    
+    /**
+     * Choose the bridge between w1 and w2, using the bridge cache if it is
+     * enabled.
+     * @param snapshot affinity graph to search
+     * @param w1 source word in word affinity graph, lower case
+     * @param w2 target word in word affinity graph, lower case
+     * @return the bridge, its words separated by spaces, "" if there is none
+     */
+    private static String bridge(Snapshot snapshot, String w1, String w2) {
+    	BridgeCache cache = snapshot.cache;
+    	if (cache == null) {
+    		return search(snapshot, w1, w2);
+    	}
+    	String bridge = cache.get(w1, w2);
+    	if (bridge == null) {
+    		bridge = search(snapshot, w1, w2);
+    		cache.put(w1, w2, bridge);
+    	}
+    	return bridge;
+    }
+    
+    /**
+     * @return the bridge between w1 and w2 in snapshot, its words separated
+     *         by spaces, "" if there is none
+     */
+    private static String search(Snapshot snapshot, String w1, String w2) {
+    	if (snapshot.maxHops == 2) {
+    		return BridgeSearch.best(snapshot.graph, w1, w2);
     	}
-    	return maximum == null ? "" : maximum.getKey();
+    	return String.join(" ", PathSearch.bridge(snapshot.graph, snapshot.bounds(), w1, w2,
+    			snapshot.maxHops, snapshot.visitLimit));
     }
     
     /**
@@ -219,6 +773,6 @@ public class GraphPoet {
      */
     @Override
     public String toString() {
-    	return graph.toString();
+    	return current.get().graph.toString();
     }
 }
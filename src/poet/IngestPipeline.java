@@ -0,0 +1,471 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads a corpus into a GraphPoet through a pipeline of stages on their own
+ * threads, connected by bounded queues:
+ * <ul><li>"read": one thread reads the file with NIO into chunks, cut after
+ *         the last ASCII whitespace byte of each so no word or character is
+ *         split;
+ *     <li>"tokenize": worker threads count the words and adjacencies of each
+ *         chunk, as pairs of ids local to the chunk;
+ *     <li>"merge": the thread calling {@link #run()} appends the counts of
+ *         the chunks in corpus order, remapping their ids, and builds the
+ *         graph at the end, as {@link GraphPoet#GraphPoet(File)} does. </ul>
+ *
+ * <p>At most a fixed number of chunks are in flight between reading and
+ * merging, so when tokenizing or merging falls behind, reading waits:
+ * memory stays bounded by that number of chunks plus the counts merged so
+ * far. Each stage counts its chunks, bytes and time spent working and
+ * waiting; {@link #stats()} reports them at any moment, from any thread.
+ *
+ * <p>{@link #cancel()}, or interrupting the thread running the pipeline,
+ * stops every stage: run() then waits for the stage threads to finish,
+ * closes the file and throws. A failure in any stage, exception or error,
+ * cancels the others the same way. A compressed corpus is decompressed as it is read, as by
+ * {@link CompressedCorpus}.
+ * Thread-safe: run() may be called once, cancel() and stats() at any time.
+ */
+public class IngestPipeline {
+    
+    /** Default size in bytes of a chunk read. */
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+    
+    /** Default number of chunks in flight, per tokenizer. */
+    public static final int DEFAULT_CHUNKS_PER_TOKENIZER = 2;
+    
+    private static final String[] STAGE_NAMES = {"read", "tokenize", "merge"};
+    
+    private final File corpus;
+    private final int tokenizers;
+    private final int chunkBytes;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Chunk> chunks;
+    private final BlockingQueue<Batch> batches;
+    private final StageCounters[] counters = new StageCounters[STAGE_NAMES.length];
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean cancelled = false;
+    private volatile long started = 0;
+    private Thread merger = null;
+    private boolean finished = false;
+    
+    // Abstraction function:
+    //   a pipeline reading corpus in chunks of about chunkBytes with
+    //   tokenizers workers and at most inFlight's initial permits chunks
+    //   read but not merged, stopped by cancelled or by failure if either is
+    //   set; counters[i] counts stage STAGE_NAMES[i]
+    // Representation invariant:
+    //   tokenizers > 0, chunkBytes > 0
+    //   chunks read but not merged + inFlight.availablePermits() == the
+    //   number of chunks allowed in flight
+    //   merger is null until run() starts, then the thread running it
+    //   finished implies every stage thread has been interrupted
+    // Safety from rep exposure:
+    //   all fields are private; stats() returns a new immutable snapshot
+    // Thread safety argument:
+    //   stages only share chunks and batches through blocking queues, which
+    //   publish them; counters are LongAdders; failure is atomic, cancelled
+    //   and started are volatile; threads, merger and finished are only
+    //   accessed holding this object's lock
+    
+    /**
+     * A piece of corpus cut after an ASCII whitespace byte, numbered in
+     * corpus order; END tells a tokenizer to stop.
+     * Immutable reference to an array only the next stage uses.
+     */
+    private static class Chunk {
+    
+    	static final Chunk END = new Chunk(-1, new byte[0], 0);
+    
+    	final long sequence;
+    	final byte[] bytes;
+    	final int length;
+    
+    	Chunk(long sequence, byte[] bytes, int length) {
+    		this.sequence = sequence;
+    		this.bytes = bytes;
+    		this.length = length;
+    	}
+    }
+    
+    /**
+     * The counts of a chunk; a batch with null counts tells the merger that
+     * a tokenizer has stopped.
+     * Immutable reference to counts only the merger uses.
+     */
+    private static class Batch {
+    
+    	final long sequence;
+    	final CorpusCounts counts;
+    	final int bytes;
+    
+    	Batch(long sequence, CorpusCounts counts, int bytes) {
+    		this.sequence = sequence;
+    		this.counts = counts;
+    		this.bytes = bytes;
+    	}
+    }
+    
+    /**
+     * Live counters of one stage.
+     * Thread-safe.
+     */
+    private static class StageCounters {
+    
+    	final LongAdder chunks = new LongAdder();
+    	final LongAdder bytes = new LongAdder();
+    	final LongAdder busyNanos = new LongAdder();
+    	final LongAdder waitNanos = new LongAdder();
+    }
+    
+    /**
+     * Create a pipeline with chunks of {@value #DEFAULT_CHUNK_BYTES} bytes and
+     * {@value #DEFAULT_CHUNKS_PER_TOKENIZER} chunks in flight per tokenizer.
+     *
+     * @param corpus UTF-8 text file to read, which may be compressed with gzip
+     *        or zlib
+     * @param tokenizers number of tokenizer threads, positive
+     */
+    public IngestPipeline(File corpus, int tokenizers) {
+    	this(corpus, tokenizers, DEFAULT_CHUNK_BYTES, DEFAULT_CHUNKS_PER_TOKENIZER * tokenizers);
+    }
+    
+    /**
+     * Create a pipeline.
+     *
+     * @param corpus UTF-8 text file to read, which may be compressed with gzip
+     *        or zlib
+     * @param tokenizers number of tokenizer threads, positive
+     * @param chunkBytes size in bytes of a chunk read, positive; a chunk is
+     *        cut shorter at whitespace, or read longer to end a word
+     * @param inFlight most chunks read but not merged yet, positive
+     */
+    public IngestPipeline(File corpus, int tokenizers, int chunkBytes, int inFlight) {
+    	if (tokenizers <= 0 || chunkBytes <= 0 || inFlight <= 0) {
+    		throw new IllegalArgumentException("tokenizers, chunkBytes and inFlight must be "
+    				+ "positive: " + tokenizers + ", " + chunkBytes + ", " + inFlight);
+    	}
+    	this.corpus = corpus;
+    	this.tokenizers = tokenizers;
+    	this.chunkBytes = chunkBytes;
+    	this.inFlight = new Semaphore(inFlight);
+    	this.chunks = new ArrayBlockingQueue<>(inFlight + tokenizers);
+    	this.batches = new ArrayBlockingQueue<>(inFlight + tokenizers);
+    	for (int i = 0; i < counters.length; i++) {
+    		counters[i] = new StageCounters();
+    	}
+    }
+    
+    /**
+     * Read the corpus through the pipeline, on the calling thread and the
+     * stages' own threads.
+     *
+     * @return a new poet with the graph of the corpus, the same as
+     *         {@link GraphPoet#GraphPoet(File)} would build, whose
+     *         {@link GraphPoet#ingestReport()} has one entry for the corpus
+     * @throws IOException if the corpus cannot be found, read or decompressed,
+     *         or if the calling thread is interrupted, in which case its
+     *         interrupt status is set again
+     * @throws CancellationException if {@link #cancel()} was called
+     * @throws IllegalStateException if run() was called before
+     */
+    public GraphPoet run() throws IOException {
+    	synchronized (this) {
+    		if (merger != null) {
+    			throw new IllegalStateException("a pipeline runs once");
+    		}
+    		merger = Thread.currentThread();
+    	}
+    	if (cancelled) {
+    		throw new CancellationException("ingestion of " + corpus + " was cancelled");
+    	}
+    	started = System.nanoTime();
+    	ReadableByteChannel channel;
+    	if (CompressedCorpus.isCompressed(corpus)) {
+    		channel = Channels.newChannel(CompressedCorpus.open(new FileInputStream(corpus)));
+    	} else {
+    		channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ);
+    	}
+    	boolean interrupted = false;
+    	try {
+    		start(new Thread(() -> read(channel), "ingest-read"));
+    		for (int i = 0; i < tokenizers; i++) {
+    			start(new Thread(this::tokenize, "ingest-tokenize-" + i));
+    		}
+    		CorpusCounts counts = merge();
+    		return new GraphPoet(counts,
+    				GraphPoet.report(corpus, counts, System.nanoTime() - started));
+    	} catch (InterruptedException e) {
+    		interrupted = !cancelled && failure.get() == null;
+    		throw stopped(e);
+    	} finally {
+    		finish();
+    		channel.close();
+    		if (interrupted) {
+    			Thread.currentThread().interrupt();
+    		}
+    	}
+    }
+    
+    private synchronized void start(Thread thread) {
+    	thread.setDaemon(true);
+    	threads.add(thread);
+    	if (!cancelled) {
+    		thread.start();
+    	}
+    }
+    
+    /**
+     * Stop every stage because one failed, and interrupt the merger.
+     * @param cause failure of the stage
+     */
+    private synchronized void stop(Throwable cause) {
+    	failure.compareAndSet(null, cause);
+    	for (Thread thread : threads) {
+    		thread.interrupt();
+    	}
+    	if (merger != null && !finished) {
+    		merger.interrupt();
+    	}
+    }
+    
+    /**
+     * Stop the stages if they still run, wait for them to end, and clear the
+     * interrupt status the pipeline may have set on the calling thread.
+     */
+    private void finish() {
+    	List<Thread> stages;
+    	synchronized (this) {
+    		finished = true;
+    		stages = List.copyOf(threads);
+    		for (Thread thread : stages) {
+    			thread.interrupt();
+    		}
+    	}
+    	boolean interrupted = Thread.interrupted();
+    	for (Thread thread : stages) {
+    		while (thread.isAlive()) {
+    			try {
+    				thread.join();
+    			} catch (InterruptedException e) {
+    				interrupted = true;
+    			}
+    		}
+    	}
+    	if (interrupted && !cancelled && failure.get() == null) {
+    		Thread.currentThread().interrupt();
+    	}
+    }
+    
+    /**
+     * @return the exception to throw from run() once the pipeline stopped
+     *         early
+     * @throws CancellationException if the pipeline was cancelled
+     */
+    private IOException stopped(InterruptedException interrupted) {
+    	Throwable cause = failure.get();
+    	if (cause instanceof IOException) {
+    		return new IOException("cannot read " + corpus, cause);
+    	}
+    	if (cause != null) {
+    		return new IOException("ingestion of " + corpus + " failed", cause);
+    	}
+    	if (cancelled) {
+    		throw new CancellationException("ingestion of " + corpus + " was cancelled");
+    	}
+    	InterruptedIOException result = new InterruptedIOException("interrupted reading " + corpus);
+    	result.initCause(interrupted);
+    	return result;
+    }
+    
+    /**
+     * Stop the pipeline: run() throws CancellationException once every stage
+     * has stopped, or at once if it has not started. Does nothing if run()
+     * has returned.
+     */
+    public void cancel() {
+    	cancelled = true;
+    	synchronized (this) {
+    		if (finished) {
+    			return;
+    		}
+    		for (Thread thread : threads) {
+    			thread.interrupt();
+    		}
+    		if (merger != null) {
+    			merger.interrupt();
+    		}
+    	}
+    }
+    
+    /**
+     * @return counters of every stage now, zero before run() starts
+     */
+    public PipelineStats stats() {
+    	List<PipelineStats.Stage> stages = new ArrayList<>();
+    	for (int i = 0; i < counters.length; i++) {
+    		StageCounters stage = counters[i];
+    		stages.add(new PipelineStats.Stage(STAGE_NAMES[i], i == 1 ? tokenizers : 1,
+    				stage.chunks.sum(), stage.bytes.sum(), stage.busyNanos.sum(), stage.waitNanos.sum()));
+    	}
+    	long start = started;
+    	return new PipelineStats(stages, start == 0 ? 0 : System.nanoTime() - start);
+    }
+    
+    /** Reading stage: cut channel into chunks, then tell each tokenizer to stop. */
+    private void read(ReadableByteChannel channel) {
+    	StageCounters stage = counters[0];
+    	byte[] buffer = new byte[chunkBytes];
+    	int filled = 0;
+    	long sequence = 0;
+    	try {
+    		boolean end = false;
+    		while (!end) {
+    			long work = System.nanoTime();
+    			while (filled < buffer.length) {
+    				int n = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+    				if (n < 0) {
+    					end = true;
+    					break;
+    				}
+    				filled += n;
+    			}
+    			int cut = end ? filled : lastWhitespace(buffer, filled) + 1;
+    			if (cut == 0 && !end) {
+    				// no whitespace in a whole chunk: read on to the end of the word
+    				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    				stage.busyNanos.add(System.nanoTime() - work);
+    				continue;
+    			}
+    			byte[] next = new byte[Math.max(chunkBytes, filled - cut)];
+    			System.arraycopy(buffer, cut, next, 0, filled - cut);
+    			stage.busyNanos.add(System.nanoTime() - work);
+    			if (cut > 0) {
+    				long wait = System.nanoTime();
+    				inFlight.acquire();
+    				chunks.put(new Chunk(sequence++, buffer, cut));
+    				stage.waitNanos.add(System.nanoTime() - wait);
+    				stage.chunks.increment();
+    				stage.bytes.add(cut);
+    			}
+    			filled -= cut;
+    			buffer = next;
+    		}
+    		for (int i = 0; i < tokenizers; i++) {
+    			chunks.put(Chunk.END);
+    		}
+    	} catch (ClosedByInterruptException | InterruptedException e) {
+    		// stopped by another stage or cancelled
+    	} catch (Throwable e) {
+    		// anything else, even an Error such as running out of memory for a
+    		// chunk, must stop the merger, which would wait for this stage
+    		stop(e);
+    	}
+    }
+    
+    /** @return index of the last ASCII whitespace byte in buffer[0..length), or -1 */
+    private static int lastWhitespace(byte[] buffer, int length) {
+    	for (int i = length - 1; i >= 0; i--) {
+    		byte b = buffer[i];
+    		if (b >= 0 && Character.isWhitespace(b)) {
+    			return i;
+    		}
+    	}
+    	return -1;
+    }
+    
+    /** Tokenizing stage: count chunks until told to stop. */
+    private void tokenize() {
+    	StageCounters stage = counters[1];
+    	try {
+    		while (true) {
+    			long wait = System.nanoTime();
+    			Chunk chunk = chunks.take();
+    			long work = System.nanoTime();
+    			stage.waitNanos.add(work - wait);
+    			if (chunk == Chunk.END) {
+    				batches.put(new Batch(-1, null, 0));
+    				return;
+    			}
+    			CorpusCounts counts = new CorpusCounts();
+    			Tokenizer tokenizer = new Tokenizer(counts);
+    			tokenizer.feed(chunk.bytes, 0, chunk.length);
+    			tokenizer.finish();
+    			stage.busyNanos.add(System.nanoTime() - work);
+    			// never blocks: no more batches than chunks in flight
+    			batches.put(new Batch(chunk.sequence, counts, chunk.length));
+    			stage.chunks.increment();
+    			stage.bytes.add(chunk.length);
+    		}
+    	} catch (InterruptedException e) {
+    		// stopped by another stage or cancelled
+    	} catch (Throwable e) {
+    		// as in read()
+    		stop(e);
+    	}
+    }
+    
+    /**
+     * Merging stage, on the thread running the pipeline: append the counts
+     * of the chunks in corpus order until every tokenizer has stopped.
+     */
+    private CorpusCounts merge() throws InterruptedException {
+    	StageCounters stage = counters[2];
+    	CorpusCounts counts = new CorpusCounts();
+    	Map<Long, Batch> early = new HashMap<>();
+    	long next = 0;
+    	int stopped = 0;
+    	while (stopped < tokenizers) {
+    		long wait = System.nanoTime();
+    		Batch batch = batches.take();
+    		long work = System.nanoTime();
+    		stage.waitNanos.add(work - wait);
+    		if (cancelled || failure.get() != null) {
+    			throw new InterruptedException("stopped");
+    		}
+    		if (batch.counts == null) {
+    			stopped++;
+    			continue;
+    		}
+    		early.put(batch.sequence, batch);
+    		for (Batch ready = early.remove(next); ready != null; ready = early.remove(next)) {
+    			counts.append(ready.counts);
+    			next++;
+    			inFlight.release();
+    			stage.chunks.increment();
+    			stage.bytes.add(ready.bytes);
+    		}
+    		stage.busyNanos.add(System.nanoTime() - work);
+    	}
+    	if (cancelled || failure.get() != null) {
+    		throw new InterruptedException("stopped");
+    	}
+    	assert early.isEmpty();
+    	return counts;
+    }
+}
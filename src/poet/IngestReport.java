@@ -0,0 +1,173 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.List;
+
+/**
+ * How the corpus of a GraphPoet was read: one entry per corpus source, in
+ * the order the sources were merged into the graph.
+ * Immutable.
+ */
+public class IngestReport {
+    
+    private final List<Entry> entries;
+    private final long wallNanos;
+    private final long buildNanos;
+    
+    // Abstraction function:
+    //   a corpus made of the sources in entries, read in wallNanos of
+    //   elapsed time, whose counts were added to the graph in buildNanos
+    // Representation invariant:
+    //   wallNanos >= 0, buildNanos >= 0
+    // Safety from rep exposure:
+    //   entries is an unmodifiable copy of immutable Entry objects
+    
+    /**
+     * Create a report.
+     * @param entries one entry per corpus source, in merge order
+     * @param wallNanos elapsed time to read the whole corpus, in nanoseconds
+     */
+    public IngestReport(List<Entry> entries, long wallNanos) {
+    	this(entries, wallNanos, 0);
+    }
+    
+    /**
+     * Create a report.
+     * @param entries one entry per corpus source, in merge order
+     * @param wallNanos elapsed time to read the whole corpus, in nanoseconds
+     * @param buildNanos elapsed time to build the graph from what was read,
+     *        in nanoseconds
+     */
+    public IngestReport(List<Entry> entries, long wallNanos, long buildNanos) {
+    	this.entries = List.copyOf(entries);
+    	this.wallNanos = wallNanos;
+    	this.buildNanos = buildNanos;
+    }
+    
+    /**
+     * @param buildNanos elapsed time to build the graph, in nanoseconds
+     * @return this report with buildNanos as the time to build the graph
+     */
+    public IngestReport withBuildNanos(long buildNanos) {
+    	return new IngestReport(entries, wallNanos, buildNanos);
+    }
+    
+    /**
+     * @return one entry per corpus source, in merge order
+     */
+    public List<Entry> getEntries() {
+    	return entries;
+    }
+    
+    /**
+     * @return elapsed time to read the whole corpus, in nanoseconds
+     */
+    public long getWallNanos() {
+    	return wallNanos;
+    }
+    
+    /**
+     * @return elapsed time to build the graph from what was read, in
+     *         nanoseconds, 0 if not measured
+     */
+    public long getBuildNanos() {
+    	return buildNanos;
+    }
+    
+    /**
+     * @return total bytes of every source
+     */
+    public long getBytes() {
+    	return entries.stream().mapToLong(Entry::getBytes).sum();
+    }
+    
+    /**
+     * @return total words of every source, counting repeats
+     */
+    public long getWords() {
+    	return entries.stream().mapToLong(Entry::getWords).sum();
+    }
+    
+    /**
+     * @return a table with one line per source giving its bytes, words and
+     *         time to read in milliseconds, followed by a line of totals and
+     *         the time to build the graph
+     */
+    @Override public String toString() {
+    	StringBuilder result = new StringBuilder();
+    	for (Entry entry : entries) {
+    		result.append(entry).append('\n');
+    	}
+    	result.append("%d sources, %d bytes, %d words in %.1f ms, graph built in %.1f ms".formatted(
+    			entries.size(), getBytes(), getWords(), wallNanos / 1e6, buildNanos / 1e6));
+    	return result.toString();
+    }
+    
+    /**
+     * How one corpus source was read.
+     * Immutable.
+     */
+    public static class Entry {
+    	
+    	private final String source;
+    	private final long bytes;
+    	private final long words;
+    	private final long nanos;
+    	
+    	// Abstraction function:
+    	//   source of bytes bytes and words words, read in nanos
+    	// Representation invariant:
+    	//   bytes, words, nanos >= 0
+    	// Safety from rep exposure:
+    	//   all fields are private, final and immutable
+    	
+    	/**
+    	 * Create an entry.
+    	 * @param source name of the source, such as a file path
+    	 * @param bytes size of the source in bytes
+    	 * @param words number of words in the source, counting repeats
+    	 * @param nanos time to read and count the source, in nanoseconds
+    	 */
+    	public Entry(String source, long bytes, long words, long nanos) {
+    		this.source = source;
+    		this.bytes = bytes;
+    		this.words = words;
+    		this.nanos = nanos;
+    	}
+    	
+    	/**
+    	 * @return name of the source, such as a file path
+    	 */
+    	public String getSource() {
+    		return source;
+    	}
+    	
+    	/**
+    	 * @return size of the source in bytes
+    	 */
+    	public long getBytes() {
+    		return bytes;
+    	}
+    	
+    	/**
+    	 * @return number of words in the source, counting repeats
+    	 */
+    	public long getWords() {
+    		return words;
+    	}
+    	
+    	/**
+    	 * @return time to read and count the source, in nanoseconds
+    	 */
+    	public long getNanos() {
+    		return nanos;
+    	}
+    	
+    	@Override public String toString() {
+    		return "%s: %d bytes, %d words in %.1f ms".formatted(
+    				source, bytes, words, nanos / 1e6);
+    	}
+    }
+}
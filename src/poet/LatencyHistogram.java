@@ -0,0 +1,123 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * A histogram of latencies in nanoseconds, for reporting percentiles.
+ *
+ * <p>Each power of two is split into 8 buckets, so a percentile is reported
+ * at most 12.5% above the true latency, and recording costs one atomic
+ * increment with no allocation.
+ * Safe for use by multiple threads; a percentile read while latencies are
+ * recorded may miss the latest ones.
+ */
+public class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+    
+    // Abstraction function:
+    //   the multiset of recorded latencies, where counts[i] latencies fall in
+    //   [lowest(i), highest(i)] and the largest is max
+    // Representation invariant:
+    //   counts[i] >= 0, max >= every recorded latency
+    // Safety from rep exposure:
+    //   all fields are private, and only primitives are handed out
+    // Thread safety argument:
+    //   counts and max are atomic, other fields are final
+    
+    /**
+     * Record a latency.
+     * @param nanos latency in nanoseconds, must not be negative
+     */
+    public void record(long nanos) {
+    	if (nanos < 0) {
+    		throw new IllegalArgumentException("latency must not be negative: " + nanos);
+    	}
+    	counts.incrementAndGet(index(nanos));
+    	max.accumulate(nanos);
+    }
+    
+    /**
+     * @return number of latencies recorded
+     */
+    public long count() {
+    	long count = 0;
+    	for (int i = 0; i < BUCKETS; i++) {
+    		count += counts.get(i);
+    	}
+    	return count;
+    }
+    
+    /**
+     * @return largest latency recorded in nanoseconds, 0 if none
+     */
+    public long max() {
+    	return max.get();
+    }
+    
+    /**
+     * @param percent percentage of latencies, 0 <= percent <= 100
+     * @return a latency in nanoseconds no less than percent of the latencies
+     *         recorded, rounded up to its bucket, 0 if none were recorded
+     */
+    public long percentile(double percent) {
+    	if (!(percent >= 0 && percent <= 100)) {
+    		throw new IllegalArgumentException("percent must be in [0, 100]: " + percent);
+    	}
+    	long count = count();
+    	long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+    	long seen = 0;
+    	for (int i = 0; i < BUCKETS; i++) {
+    		seen += counts.get(i);
+    		if (seen >= rank) {
+    			return Math.min(highest(i), max());
+    		}
+    	}
+    	return count == 0 ? 0 : max();
+    }
+    
+    /**
+     * @return index of the bucket holding nanos >= 0
+     */
+    static int index(long nanos) {
+    	if (nanos < SUB_BUCKETS) {
+    		return (int) nanos;
+    	}
+    	int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    	int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    	return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+    
+    /**
+     * @return largest latency held by bucket i
+     */
+    static long highest(int i) {
+    	int power = i / SUB_BUCKETS;
+    	int sub = i % SUB_BUCKETS;
+    	if (power == 0) {
+    		return sub;
+    	}
+    	int shift = power - 1;
+    	long lowest = (long) (SUB_BUCKETS + sub) << shift;
+    	return lowest + (1L << shift) - 1;
+    }
+    
+    /**
+     * @return the count and main percentiles in microseconds, e.g.
+     *         "n=1000 p50=12.0us p90=20.1us p99=80.0us p99.9=300.5us max=1.2ms"
+     */
+    @Override public String toString() {
+    	return String.format("n=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fms",
+    			count(), percentile(50) / 1e3, percentile(90) / 1e3, percentile(99) / 1e3,
+    			percentile(99.9) / 1e3, max() / 1e6);
+    }
+}
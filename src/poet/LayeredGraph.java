@@ -0,0 +1,474 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+import graph.EdgeConsumer;
+import graph.Graph;
+
+/**
+ * A read-only affinity graph made of a base graph and layers of text learned
+ * since, each holding the words and adjacency counts of some text: the
+ * graph's vertices are the vertices of every layer, and the weight of an
+ * edge is the sum of its weights in every layer.
+ *
+ * <p>Learning text adds a new layer holding only that text, so it costs
+ * O(text) rather than a copy of the graph, and the layers of graphs
+ * published before are shared, never modified. To keep lookups fast, a
+ * layer at least a quarter as large as the one below it is merged into it,
+ * into a new layer: the layers then more than quadruple in size going
+ * down, so a graph that has learned n words and edges has at most
+ * 2 + log_4 n layers, and each word is copied O(log n) times. A
+ * PartitionedGraph base, which is read lazily, is never merged. Merging
+ * more eagerly would not make lookups faster: a lookup pays for the learned
+ * edges of its vertex, not for the number of layers they are spread over.
+ *
+ * <p>An operation on a vertex first gathers its edges in the learned
+ * layers, then walks its edges in the base once, so it costs what it costs
+ * on the base plus O(log n) lookups per learned edge of the vertex. The
+ * learned edges of the last source and target asked for are remembered, so
+ * the weights a search asks for to or from one vertex cost one lookup more
+ * than on the base. A graph of one layer answers every operation as its
+ * base does. The fingerprint and the numbers of vertices, edges and
+ * adjacencies are computed as each layer is added, from the vertices and
+ * edges the layer changes, so they cost O(1) to read. The mutators throw
+ * UnsupportedOperationException: GraphPoet never modifies a graph it has
+ * published.
+ * Immutable, as long as no layer is modified; safe for concurrent readers.
+ * This class is internal to GraphPoet.
+ */
+final class LayeredGraph<L> implements Graph<L> {
+    
+    private static final int MERGE_RATIO = 4;
+    
+    private final List<Graph<L>> layers;
+    private final long[] sizes;
+    private final long fingerprint;
+    private final int vertexCount;
+    private final long edgeCount;
+    private final long totalWeight;
+    private volatile Learned<L> lastTargets = null;
+    private volatile Learned<L> lastSources = null;
+    
+    // Abstraction function:
+    //   the graph whose vertices are those of every graph in layers, and
+    //   where the weight of an edge is the sum of its weights in every
+    //   graph in layers; layers.get(0) is the base, and sizes[i] bounds the
+    //   vertices plus edges of layer i, or is Long.MAX_VALUE for a base
+    //   that is never merged; fingerprint is the graph's fingerprint, and
+    //   it has vertexCount vertices and edgeCount edges whose weights sum
+    //   to totalWeight;
+    //   lastTargets and lastSources, if not null, are the learned edges of
+    //   some vertex, kept only to save work
+    // Representation invariant:
+    //   layers is not empty; sizes.length == layers.size()
+    //   sizes[i] > MERGE_RATIO * sizes[i + 1] > 0 for 0 <= i < layers.size() - 1
+    //   fingerprint == Graph.super.fingerprint(), and vertexCount,
+    //     edgeCount and totalWeight count the graph, not checked as it
+    //     costs a walk of the graph; 0 <= edgeCount <= totalWeight
+    //   lastTargets and lastSources are null, or hold the learned edges
+    //     from and to their vertex in layers
+    // Safety from rep exposure:
+    //   layers is unmodifiable and no layer is modified or handed out but
+    //   the base, which base() hands out read-only within this package;
+    //   observers return new collections
+    // Thread safety argument:
+    //   no field but lastTargets and lastSources is modified after
+    //   construction; lastTargets and lastSources are volatile references
+    //   to immutable Learned objects, so a reader sees either one that is
+    //   correct for its vertex or another, which it replaces; racing
+    //   readers just compute it twice
+    
+    /**
+     * @param base the base layer, not modified afterwards
+     */
+    LayeredGraph(Graph<L> base) {
+    	this(base, counts(base));
+    }
+    
+    private LayeredGraph(Graph<L> base, long[] counts) {
+    	this(List.of(base),
+    			new long[] {base instanceof PartitionedGraph ? Long.MAX_VALUE : counts[0] + counts[1]},
+    			base.fingerprint(), (int) counts[0], counts[1], counts[2]);
+    }
+    
+    private LayeredGraph(List<Graph<L>> layers, long[] sizes, long fingerprint,
+    		int vertexCount, long edgeCount, long totalWeight) {
+    	this.layers = layers;
+    	this.sizes = sizes;
+    	this.fingerprint = fingerprint;
+    	this.vertexCount = vertexCount;
+    	this.edgeCount = edgeCount;
+    	this.totalWeight = totalWeight;
+    	checkRep();
+    }
+    
+    private void checkRep() {
+    	assert !layers.isEmpty() && sizes.length == layers.size();
+    	assert vertexCount >= 0 && 0 <= edgeCount && edgeCount <= totalWeight;
+    	for (int i = 0; i < sizes.length - 1; i++) {
+    		assert sizes[i] > MERGE_RATIO * sizes[i + 1] && sizes[i + 1] > 0;
+    	}
+    }
+    
+    /**
+     * @param graph a graph
+     * @return graph if it is layered, else a layered graph with graph as
+     *         its base
+     */
+    static <L> LayeredGraph<L> of(Graph<L> graph) {
+    	return graph instanceof LayeredGraph ? (LayeredGraph<L>) graph : new LayeredGraph<>(graph);
+    }
+    
+    /**
+     * Add a layer on top of this graph.
+     *
+     * @param layer words and adjacency counts to add, not modified afterwards
+     * @return this graph with layer added, merging learned layers as
+     *         described above; this graph is not modified
+     */
+    LayeredGraph<L> plus(Graph<L> layer) {
+    	long size = size(layer);
+    	if (size == 0) {
+    		return this;
+    	}
+    	// the vertices and edges layer changes, as they are before and after
+    	Graph<L> before = Graph.empty();
+    	Graph<L> after = Graph.empty();
+    	long[] added = {0, 0, 0}; // vertices, edges, weight
+    	for (L vertex : layer.vertices()) {
+    		if (contains(vertex)) {
+    			before.add(vertex);
+    		} else {
+    			added[0]++;
+    		}
+    		after.add(vertex);
+    	}
+    	layer.forEachEdge((source, target, weight) -> {
+    		int old = weight(source, target);
+    		if (old > 0) {
+    			before.set(source, target, old);
+    		} else {
+    			added[1]++;
+    		}
+    		after.set(source, target, old + weight);
+    		added[2] += weight;
+    	});
+    	long resultFingerprint = fingerprint - before.fingerprint() + after.fingerprint();
+    	List<Graph<L>> result = new ArrayList<>(layers);
+    	long[] resultSizes = Arrays.copyOf(sizes, sizes.length + 1);
+    	result.add(layer);
+    	resultSizes[resultSizes.length - 1] = size;
+    	int n = result.size();
+    	while (n > 1 && resultSizes[n - 2] <= MERGE_RATIO * resultSizes[n - 1]) {
+    		Graph<L> merged = Graph.empty();
+    		addTo(result.get(n - 2), merged);
+    		addTo(result.get(n - 1), merged);
+    		result.remove(--n);
+    		result.set(n - 1, merged);
+    		resultSizes[n - 1] += resultSizes[n];
+    	}
+    	return new LayeredGraph<>(List.copyOf(result), Arrays.copyOf(resultSizes, n), resultFingerprint,
+    			vertexCount + (int) added[0], edgeCount + added[1], totalWeight + added[2]);
+    }
+    
+    /**
+     * @return the number of vertices of graph, of its edges and the sum of
+     *         their weights, from its summary if it is a PartitionedGraph
+     */
+    private static <L> long[] counts(Graph<L> graph) {
+    	if (graph instanceof PartitionedGraph) {
+    		PartitionedGraph.Summary summary = ((PartitionedGraph) graph).summary();
+    		return new long[] {summary.vertices(), summary.edges(), summary.totalWeight()};
+    	}
+    	long[] counts = {graph.vertices().size(), 0, 0};
+    	graph.forEachEdge((source, target, weight) -> {
+    		counts[1]++;
+    		counts[2] += weight;
+    	});
+    	return counts;
+    }
+    
+    /** @return vertices plus edges of graph */
+    private static <L> long size(Graph<L> graph) {
+    	long[] size = {graph.vertices().size()};
+    	graph.forEachEdge((source, target, weight) -> size[0]++);
+    	return size[0];
+    }
+    
+    /** Add the vertices of from to graph, and the weights of its edges to graph's. */
+    private static <L> void addTo(Graph<L> from, Graph<L> graph) {
+    	for (L vertex : from.vertices()) {
+    		graph.add(vertex);
+    	}
+    	from.forEachEdge((source, target, weight) ->
+    			graph.set(source, target, graph.weight(source, target) + weight));
+    }
+    
+    /**
+     * @return number of layers, the base included
+     */
+    int layerCount() {
+    	return layers.size();
+    }
+    
+    /**
+     * @return the base layer, which holds the whole graph if
+     *         {@code layerCount() == 1}
+     */
+    Graph<L> base() {
+    	return layers.get(0);
+    }
+    
+    /**
+     * @return number of vertices, kept as layers are added
+     */
+    int vertexCount() {
+    	return vertexCount;
+    }
+    
+    /**
+     * @return number of edges, kept as layers are added
+     */
+    long edgeCount() {
+    	return edgeCount;
+    }
+    
+    /**
+     * @return sum of the weights of the edges, kept as layers are added
+     */
+    long totalWeight() {
+    	return totalWeight;
+    }
+    
+    /**
+     * The edges of a vertex in the learned layers, with their weights summed.
+     */
+    private static final class Learned<L> {
+    	
+    	private final L vertex;
+    	private final Map<L, Integer> weights;
+    	private final int added;
+    	
+    	// Abstraction function:
+    	//   the edges of vertex in the learned layers, each to or from a key of
+    	//   weights with its summed weight as value; added of them are not in
+    	//   the base
+    	// Representation invariant:
+    	//   values of weights are positive; 0 <= added <= weights.size()
+    	// Safety from rep exposure:
+    	//   weights is unmodifiable
+    	
+    	private Learned(L vertex, Map<L, Integer> weights, int added) {
+    		this.vertex = vertex;
+    		this.weights = Collections.unmodifiableMap(weights);
+    		this.added = added;
+    	}
+    }
+    
+    /**
+     * @return the edges from source in the learned layers, remembered until
+     *         the learned edges of another source are asked for
+     */
+    private Learned<L> learnedTargets(L source) {
+    	Learned<L> last = lastTargets;
+    	if (last != null && last.vertex.equals(source)) {
+    		return last;
+    	}
+    	Map<L, Integer> targets = new HashMap<>();
+    	for (int i = 1; i < layers.size(); i++) {
+    		layers.get(i).forEachTarget(source, (target, weight) ->
+    				targets.merge(target, weight, Integer::sum));
+    	}
+    	int added = 0;
+    	for (L target : targets.keySet()) {
+    		if (layers.get(0).weight(source, target) == 0) {
+    			added++;
+    		}
+    	}
+    	last = new Learned<>(source, targets, added);
+    	lastTargets = last;
+    	return last;
+    }
+    
+    /**
+     * @return the edges to target in the learned layers, remembered until
+     *         the learned edges of another target are asked for
+     */
+    private Learned<L> learnedSources(L target) {
+    	Learned<L> last = lastSources;
+    	if (last != null && last.vertex.equals(target)) {
+    		return last;
+    	}
+    	Map<L, Integer> sources = new HashMap<>();
+    	for (int i = 1; i < layers.size(); i++) {
+    		layers.get(i).forEachSource(target, (source, weight) ->
+    				sources.merge(source, weight, Integer::sum));
+    	}
+    	int added = 0;
+    	for (L source : sources.keySet()) {
+    		if (layers.get(0).weight(source, target) == 0) {
+    			added++;
+    		}
+    	}
+    	last = new Learned<>(target, sources, added);
+    	lastSources = last;
+    	return last;
+    }
+    
+    @Override public boolean add(L vertex) {
+    	throw new UnsupportedOperationException("a published graph is read-only");
+    }
+    
+    @Override public int set(L source, L target, int weight) {
+    	throw new UnsupportedOperationException("a published graph is read-only");
+    }
+    
+    @Override public boolean remove(L vertex) {
+    	throw new UnsupportedOperationException("a published graph is read-only");
+    }
+    
+    @Override public Set<L> vertices() {
+    	if (layers.size() == 1) {
+    		return layers.get(0).vertices();
+    	}
+    	Set<L> vertices = new HashSet<>();
+    	for (Graph<L> layer : layers) {
+    		vertices.addAll(layer.vertices());
+    	}
+    	return vertices;
+    }
+    
+    @Override public boolean contains(L vertex) {
+    	for (Graph<L> layer : layers) {
+    		if (layer.contains(vertex)) {
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+    
+    @Override public Map<L, Integer> sources(L target) {
+    	Map<L, Integer> sources = new HashMap<>();
+    	forEachSource(target, sources::put);
+    	return sources;
+    }
+    
+    @Override public Map<L, Integer> targets(L source) {
+    	Map<L, Integer> targets = new HashMap<>();
+    	forEachTarget(source, targets::put);
+    	return targets;
+    }
+    
+    @Override public int weight(L source, L target) {
+    	Graph<L> base = layers.get(0);
+    	if (layers.size() == 1) {
+    		return base.weight(source, target);
+    	}
+    	// a search asks for many weights to or from the same vertex
+    	Learned<L> last = lastSources;
+    	if (last != null && last.vertex.equals(target)) {
+    		return base.weight(source, target) + last.weights.getOrDefault(source, 0);
+    	}
+    	last = lastTargets;
+    	if (last != null && last.vertex.equals(source)) {
+    		return base.weight(source, target) + last.weights.getOrDefault(target, 0);
+    	}
+    	int weight = 0;
+    	for (Graph<L> layer : layers) {
+    		weight += layer.weight(source, target);
+    	}
+    	return weight;
+    }
+    
+    @Override public int outDegree(L source) {
+    	int degree = layers.get(0).outDegree(source);
+    	return layers.size() == 1 ? degree : degree + learnedTargets(source).added;
+    }
+    
+    @Override public int inDegree(L target) {
+    	int degree = layers.get(0).inDegree(target);
+    	return layers.size() == 1 ? degree : degree + learnedSources(target).added;
+    }
+    
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+    	Graph<L> base = layers.get(0);
+    	Map<L, Integer> learned = layers.size() == 1 ? Map.of() : learnedTargets(source).weights;
+    	if (learned.isEmpty()) {
+    		base.forEachTarget(source, action);
+    		return;
+    	}
+    	// edges of the base, with their learned weights, then learned edges
+    	base.forEachTarget(source, (target, weight) ->
+    			action.accept(target, weight + learned.getOrDefault(target, 0)));
+    	learned.forEach((target, weight) -> {
+    		if (base.weight(source, target) == 0) {
+    			action.accept(target, weight);
+    		}
+    	});
+    }
+    
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+    	Graph<L> base = layers.get(0);
+    	Map<L, Integer> learned = layers.size() == 1 ? Map.of() : learnedSources(target).weights;
+    	if (learned.isEmpty()) {
+    		base.forEachSource(target, action);
+    		return;
+    	}
+    	base.forEachSource(target, (source, weight) ->
+    			action.accept(source, weight + learned.getOrDefault(source, 0)));
+    	learned.forEach((source, weight) -> {
+    		if (base.weight(source, target) == 0) {
+    			action.accept(source, weight);
+    		}
+    	});
+    }
+    
+    @Override public void forEachEdge(EdgeConsumer<? super L> action) {
+    	Graph<L> base = layers.get(0);
+    	if (layers.size() == 1) {
+    		base.forEachEdge(action);
+    		return;
+    	}
+    	Graph<L> learned = Graph.empty();
+    	for (int i = 1; i < layers.size(); i++) {
+    		addTo(layers.get(i), learned);
+    	}
+    	base.forEachEdge((source, target, weight) ->
+    			action.accept(source, target, weight + learned.weight(source, target)));
+    	learned.forEachEdge((source, target, weight) -> {
+    		if (base.weight(source, target) == 0) {
+    			action.accept(source, target, weight);
+    		}
+    	});
+    }
+    
+    @Override public long fingerprint() {
+    	return fingerprint;
+    }
+    
+    /**
+     * Returns a String represent this graph in the format of its base, or of
+     * ConcreteVerticesGraph if it has learned layers.
+     */
+    @Override public String toString() {
+    	if (layers.size() == 1) {
+    		return layers.get(0).toString();
+    	}
+    	Graph<L> merged = Graph.empty();
+    	for (Graph<L> layer : layers) {
+    		addTo(layer, merged);
+    	}
+    	return merged.toString();
+    }
+}
@@ -3,26 +3,190 @@
  */
 package poet;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 /**
  * Example program using GraphPoet.
- * 
+ *
+ * <p>Run with no arguments to print an example poem, or with a command:
+ * <ul><li>{@code compile corpus model} saves the poet of a corpus to a
+ *         partitioned model file, which later commands open at once and read
+ *         as poems need it, see {@link ModelFile}
+ *     <li>{@code batch model input output [threads]} writes the poem of every
+ *         line of input to a line of output, see {@link BatchPoems}
+ *     <li>{@code serve model [port]} loads the poet once and serves poems on
+ *         the loopback interface until the program is killed, see
+ *         {@link PoemServer}; {@link PoemLoadClient} generates load on such
+ *         a server
+ *     <li>{@code stats model} prints the statistics of a model, see
+ *         {@link ModelStats} </ul>
+ * <p>Wherever a model is expected, a corpus text file may be given instead.
+ * With the flag {@code --stats} anywhere among the arguments, every command
+ * also prints the statistics of the model it loads to standard error.
+ *
  * <p>PS2 instructions: you are free to change this example class.
  */
 public class Main {
     
+    private static final String USAGE = String.join("\n",
+            "usage: Main                                   print an example poem",
+            "       Main compile corpus model              save a corpus as a model file",
+            "       Main batch model input output [threads]  write a poem per input line",
+            "       Main serve model [port]                serve poems on localhost (default port 4949)",
+            "       Main stats model                       print the statistics of a model",
+            "A model may be a model file or a corpus text file.",
+            "--stats anywhere prints the statistics of every model loaded to standard error.");
+    
+    private static final String STATS_FLAG = "--stats";
+    
+    private static final int DEFAULT_PORT = 4949;
+    private static final long REPORT_INTERVAL_MILLIS = 10_000;
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    
+    private static boolean printStats = false;
+    
     /**
-     * Generate example poetry.
-     * 
-     * @param args unused
-     * @throws IOException if a poet corpus file cannot be found or read
+     * Generate example poetry, or serve poems.
+     *
+     * @param args see {@link Main}
+     * @throws IOException if a corpus, model or input file cannot be found or
+     *         read, an output file cannot be written, or the server port
+     *         cannot be opened
      */
     public static void main(String[] args) throws IOException {
-        final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
-        final String input = "Test the system.";
-        System.out.println(input + "\n>>>\n" + nimoy.poem(input));
+        if (Arrays.asList(args).contains(STATS_FLAG)) {
+            printStats = true;
+            args = Arrays.stream(args).filter(arg -> !arg.equals(STATS_FLAG)).toArray(String[]::new);
+        }
+        if (args.length == 0) {
+            final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+            if (printStats) {
+                System.err.println(nimoy.stats());
+            }
+            final String input = "Test the system.";
+            System.out.println(input + "\n>>>\n" + nimoy.poem(input));
+            return;
+        }
+        switch (args[0]) {
+        case "compile":
+            if (args.length != 3) {
+                usage();
+            }
+            compile(new File(args[1]), new File(args[2]));
+            break;
+        case "batch":
+            if (args.length < 4 || args.length > 5) {
+                usage();
+            }
+            batch(new File(args[1]), new File(args[2]), new File(args[3]),
+                    args.length == 5 ? Integer.parseInt(args[4]) : CORES);
+            break;
+        case "serve":
+            if (args.length < 2 || args.length > 3) {
+                usage();
+            }
+            serve(new File(args[1]), args.length == 3 ? Integer.parseInt(args[2]) : DEFAULT_PORT);
+            break;
+        case "stats":
+            if (args.length != 2) {
+                usage();
+            }
+            System.out.println(load(new File(args[1])).stats());
+            break;
+        default:
+            usage();
+        }
+    }
+    
+    private static void usage() {
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+    
+    /**
+     * Load a poet from a model file, or read it from a corpus with every core,
+     * and print its statistics if asked to.
+     */
+    private static GraphPoet load(File model) throws IOException {
+        long start = System.nanoTime();
+        GraphPoet poet = ModelFile.isModel(model) ? ModelFile.load(model) : new GraphPoet(model, CORES);
+        System.err.printf("loaded %s in %.1fs%n", model, (System.nanoTime() - start) / 1e9);
+        if (printStats) {
+            System.err.println(poet.stats());
+        }
+        return poet;
+    }
+    
+    /**
+     * Save the poet of a corpus to a model file, unless the file already
+     * holds the same graph.
+     */
+    private static void compile(File corpus, File model) throws IOException {
+        GraphPoet poet = load(corpus);
+        if (ModelFile.isModel(model) && ModelFile.fingerprint(model) == poet.fingerprint()) {
+            System.err.printf("%s is up to date%n", model);
+            return;
+        }
+        long start = System.nanoTime();
+        ModelFile.savePartitioned(poet, model, ModelFile.DEFAULT_PARTITION_VERTICES);
+        System.err.printf("saved %s (%d bytes) in %.1fs%n",
+                model, model.length(), (System.nanoTime() - start) / 1e9);
+    }
+    
+    /**
+     * Write the poem of every line of input to output, and report the rate.
+     */
+    private static void batch(File model, File input, File output, int threads) throws IOException {
+        GraphPoet poet = load(model);
+        long start = System.nanoTime();
+        long lines;
+        try (BufferedReader in = Files.newBufferedReader(input.toPath(), StandardCharsets.UTF_8);
+                BufferedWriter out = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+            lines = BatchPoems.run(poet, in, out, threads);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d lines in %.2fs, %.0f lines/s on %d threads%n",
+                lines, seconds, lines / seconds, threads);
+    }
+    
+    /**
+     * Load a poet and serve it until the program is killed, reporting the
+     * rate and latency of poems every 10 seconds and at exit.
+     */
+    private static void serve(File model, int port) throws IOException {
+        GraphPoet poet = load(model);
+    
+        PoemServer server = new PoemServer(poet, InetAddress.getLoopbackAddress(), port);
+        System.err.println("serving poems on localhost port " + server.getPort());
+    
+        Thread reporter = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(REPORT_INTERVAL_MILLIS);
+                    System.err.println(server.report());
+                }
+            } catch (InterruptedException e) {
+                // exiting
+            }
+        }, "poem-server-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+    
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("poem server: " + e);
+            }
+            System.err.println(server.report());
+        }));
     }
     
 }
@@ -0,0 +1,498 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import graph.Graph;
+
+/**
+ * A GraphPoet's affinity graph saved in a binary file, so that a poet can be
+ * loaded without reading its corpus again.
+ *
+ * <p>The file holds, as big-endian ints: the magic number {@value #MAGIC},
+ * the format version, the graph's {@link Graph#fingerprint() fingerprint} as
+ * a long, the number of vertices, each vertex as the length of its UTF-8
+ * bytes followed by the bytes, the number of edges, and each edge as the
+ * indices of its source and target vertices and its weight. The
+ * fingerprint tells whether a saved graph is the same as another without
+ * reading it, see {@link #fingerprint(File)}.
+ *
+ * <p>A partitioned model file, format version {@value #VERSION_PARTITIONED},
+ * can be opened without reading its graph, which is then read a range of
+ * vertices at a time as poems need them. Its vertices are numbered in
+ * alphabetical order and split into partitions of consecutive ids. After the
+ * magic number, version and fingerprint it holds the number of vertices,
+ * the vertices per partition and the number of partitions, then an index
+ * with the offset in the file of the two blocks of each partition as longs
+ * and the label of its first vertex, then the offset of the end of the file,
+ * then a summary of the graph, then the partitions. The summary holds the
+ * number of edges and the sum of their weights as longs, then the
+ * out-degrees of the vertices as the number of distinct out-degrees
+ * followed by each of them, in increasing order, and the number of vertices
+ * that have it, then the in-degrees likewise; so the statistics of the graph
+ * are known without reading its partitions.
+ * A partition holds a block of each of its labels, then a block of edges:
+ * the out-edges of each vertex, as the start of each vertex's edges in the
+ * partition's edges, then their targets in increasing order and their
+ * weights; and the in-edges, likewise.
+ */
+public class ModelFile {
+    
+    /** First int of every model file, "GPM1" in ASCII. */
+    public static final int MAGIC = 0x47504D31;
+    
+    /** Version of the format written by {@link #save(GraphPoet, File)}. */
+    public static final int VERSION = 3;
+    
+    /** Version of the format written by {@link #savePartitioned(GraphPoet, File, int)}. */
+    public static final int VERSION_PARTITIONED = 5;
+    
+    /** Vertices per partition written unless told otherwise. */
+    public static final int DEFAULT_PARTITION_VERTICES = 256;
+    
+    /** Bytes of partitions cached by a poet opened unless told otherwise. */
+    public static final long DEFAULT_CACHE_BYTES = 64L << 20;
+    
+    private static final int BUFFER_BYTES = 1 << 16;
+    
+    private ModelFile() {
+    	// not instantiable
+    }
+    
+    /**
+     * Save the affinity graph of a poet.
+     *
+     * @param poet poet to save
+     * @param model file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(GraphPoet poet, File model) throws IOException {
+    	Graph<String> graph = poet.graph();
+    	try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+    			new FileOutputStream(model), BUFFER_BYTES))) {
+    		out.writeInt(MAGIC);
+    		out.writeInt(VERSION);
+    		out.writeLong(graph.fingerprint());
+    
+    		Map<String, Integer> ids = new LinkedHashMap<>();
+    		Set<String> vertices = graph.vertices();
+    		out.writeInt(vertices.size());
+    		for (String vertex : vertices) {
+    			ids.put(vertex, ids.size());
+    			byte[] bytes = vertex.getBytes(StandardCharsets.UTF_8);
+    			out.writeInt(bytes.length);
+    			out.write(bytes);
+    		}
+    
+    		int edges = 0;
+    		for (String vertex : ids.keySet()) {
+    			edges += graph.outDegree(vertex);
+    		}
+    		out.writeInt(edges);
+    		for (String source : ids.keySet()) {
+    			for (Map.Entry<String, Integer> edge : graph.targets(source).entrySet()) {
+    				out.writeInt(ids.get(source));
+    				out.writeInt(ids.get(edge.getKey()));
+    				out.writeInt(edge.getValue());
+    			}
+    		}
+    	}
+    }
+    
+    /**
+     * Save the affinity graph of a poet in a partitioned model file, which
+     * {@link #open(File, long)} opens without reading the graph.
+     *
+     * @param poet poet to save
+     * @param model file to write, replaced if it exists
+     * @param partitionVertices vertices per partition, positive; a smaller
+     *        partition is quicker to read on first use, a larger one makes
+     *        fewer reads
+     * @throws IOException if the file cannot be written
+     */
+    public static void savePartitioned(GraphPoet poet, File model, int partitionVertices)
+    		throws IOException {
+    	if (partitionVertices <= 0) {
+    		throw new IllegalArgumentException(
+    				"partitionVertices must be positive: " + partitionVertices);
+    	}
+    	Graph<String> graph = poet.graph();
+    	String[] labels = graph.vertices().toArray(new String[0]);
+    	Arrays.sort(labels);
+    	Map<String, Integer> ids = new HashMap<>();
+    	for (String label : labels) {
+    		ids.put(label, ids.size());
+    	}
+    	int partitions = (labels.length + partitionVertices - 1) / partitionVertices;
+    
+    	// the size of each block, to write the index before them
+    	long[] offsets = new long[2 * partitions + 1];
+    	long header = 4 * 5 + 8 + 8;
+    	long[] totals = {0, 0}; // edges, total weight
+    	SortedMap<Integer, Integer> outDegrees = new TreeMap<>();
+    	SortedMap<Integer, Integer> inDegrees = new TreeMap<>();
+    	for (int p = 0; p < partitions; p++) {
+    		int first = p * partitionVertices;
+    		int n = Math.min(partitionVertices, labels.length - first);
+    		header += 2 * 8 + 4 + labels[first].getBytes(StandardCharsets.UTF_8).length;
+    		long labelBytes = 0;
+    		long edgeBytes = 4L * 2 * (n + 1);
+    		for (int i = first; i < first + n; i++) {
+    			int out = graph.outDegree(labels[i]);
+    			int in = graph.inDegree(labels[i]);
+    			labelBytes += 4 + labels[i].getBytes(StandardCharsets.UTF_8).length;
+    			edgeBytes += 8L * (out + in);
+    			outDegrees.merge(out, 1, Integer::sum);
+    			inDegrees.merge(in, 1, Integer::sum);
+    			graph.forEachTarget(labels[i], (target, weight) -> {
+    				totals[0]++;
+    				totals[1] += weight;
+    			});
+    		}
+    		offsets[2 * p + 1] = offsets[2 * p] + labelBytes;
+    		offsets[2 * p + 2] = offsets[2 * p + 1] + edgeBytes;
+    	}
+    	header += 8 + 8 + 4 + 8 * outDegrees.size() + 4 + 8 * inDegrees.size();
+    
+    	try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+    			new FileOutputStream(model), BUFFER_BYTES))) {
+    		out.writeInt(MAGIC);
+    		out.writeInt(VERSION_PARTITIONED);
+    		out.writeLong(graph.fingerprint());
+    		out.writeInt(labels.length);
+    		out.writeInt(partitionVertices);
+    		out.writeInt(partitions);
+    		for (int p = 0; p < partitions; p++) {
+    			out.writeLong(header + offsets[2 * p]);
+    			out.writeLong(header + offsets[2 * p + 1]);
+    			writeLabel(out, labels[p * partitionVertices]);
+    		}
+    		out.writeLong(header + offsets[2 * partitions]);
+    		out.writeLong(totals[0]);
+    		out.writeLong(totals[1]);
+    		writeDegrees(out, outDegrees);
+    		writeDegrees(out, inDegrees);
+    		for (int p = 0; p < partitions; p++) {
+    			int first = p * partitionVertices;
+    			int n = Math.min(partitionVertices, labels.length - first);
+    			for (int i = first; i < first + n; i++) {
+    				writeLabel(out, labels[i]);
+    			}
+    			writeEdges(out, labels, first, n, ids, true, graph);
+    			writeEdges(out, labels, first, n, ids, false, graph);
+    		}
+    	}
+    }
+    
+    /** Write the number of vertices of each degree, as in the summary. */
+    private static void writeDegrees(DataOutputStream out, SortedMap<Integer, Integer> degrees)
+    		throws IOException {
+    	out.writeInt(degrees.size());
+    	for (Map.Entry<Integer, Integer> entry : degrees.entrySet()) {
+    		out.writeInt(entry.getKey());
+    		out.writeInt(entry.getValue());
+    	}
+    }
+    
+    private static void writeLabel(DataOutputStream out, String label) throws IOException {
+    	byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+    	out.writeInt(bytes.length);
+    	out.write(bytes);
+    }
+    
+    /**
+     * Write the out-edges or in-edges of the vertices labels[first..first + n)
+     * of a partition.
+     */
+    private static void writeEdges(DataOutputStream out, String[] labels, int first, int n,
+    		Map<String, Integer> ids, boolean outEdges, Graph<String> graph) throws IOException {
+    	List<int[]> edges = new ArrayList<>(n);
+    	int start = 0;
+    	out.writeInt(start);
+    	for (int i = first; i < first + n; i++) {
+    		Map<String, Integer> adjacent = outEdges ? graph.targets(labels[i]) : graph.sources(labels[i]);
+    		int[] sorted = new int[adjacent.size()];
+    		int k = 0;
+    		for (String label : adjacent.keySet()) {
+    			sorted[k++] = ids.get(label);
+    		}
+    		Arrays.sort(sorted);
+    		int[] weights = new int[sorted.length];
+    		for (k = 0; k < sorted.length; k++) {
+    			weights[k] = adjacent.get(labels[sorted[k]]);
+    		}
+    		edges.add(sorted);
+    		edges.add(weights);
+    		start += sorted.length;
+    		out.writeInt(start);
+    	}
+    	for (int k = 0; k < edges.size(); k += 2) {
+    		for (int id : edges.get(k)) {
+    			out.writeInt(id);
+    		}
+    	}
+    	for (int k = 1; k < edges.size(); k += 2) {
+    		for (int weight : edges.get(k)) {
+    			out.writeInt(weight);
+    		}
+    	}
+    }
+    
+    /**
+     * Load a poet saved by {@link #save(GraphPoet, File)}, or open one saved
+     * by {@link #savePartitioned(GraphPoet, File, int)} as by
+     * {@link #open(File, long)} with a cache of {@link #DEFAULT_CACHE_BYTES}.
+     *
+     * @param model file to read
+     * @return a new poet with the saved affinity graph, whose
+     *         {@link GraphPoet#ingestReport()} has one entry for the file
+     * @throws IOException if the file cannot be read or is not a model file,
+     *         or if the graph read does not match the saved fingerprint
+     */
+    public static GraphPoet load(File model) throws IOException {
+    	long start = System.nanoTime();
+    	Graph<String> graph = Graph.empty();
+    	try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+    			new FileInputStream(model), BUFFER_BYTES))) {
+    		if (in.readInt() != MAGIC) {
+    			throw new IOException(model + " is not a model file");
+    		}
+    		int version = in.readInt();
+    		if (version == VERSION_PARTITIONED) {
+    			return open(model, in, DEFAULT_CACHE_BYTES, start);
+    		}
+    		if (version != VERSION) {
+    			throw new IOException(model + " has unsupported model version " + version);
+    		}
+    		long fingerprint = in.readLong();
+    
+    		String[] vertices = new String[count(in, model)];
+    		for (int i = 0; i < vertices.length; i++) {
+    			byte[] bytes = new byte[count(in, model)];
+    			in.readFully(bytes);
+    			vertices[i] = new String(bytes, StandardCharsets.UTF_8);
+    			graph.add(vertices[i]);
+    		}
+    		int edges = count(in, model);
+    		for (int i = 0; i < edges; i++) {
+    			int source = in.readInt();
+    			int target = in.readInt();
+    			int weight = in.readInt();
+    			if (source < 0 || source >= vertices.length || target < 0
+    					|| target >= vertices.length || weight <= 0) {
+    				throw new IOException(model + " is corrupt at edge " + i);
+    			}
+    			graph.set(vertices[source], vertices[target], weight);
+    		}
+    		if (fingerprint != graph.fingerprint()) {
+    			throw new IOException(model + " is corrupt: its graph does not match its fingerprint");
+    		}
+    	} catch (EOFException e) {
+    		throw new IOException(model + " is truncated", e);
+    	}
+    	long nanos = System.nanoTime() - start;
+    	return new GraphPoet(graph, new IngestReport(List.of(
+    			new IngestReport.Entry(model.getPath(), model.length(), 0, nanos)), nanos));
+    }
+    
+    /**
+     * Open a poet saved by {@link #savePartitioned(GraphPoet, File, int)},
+     * reading only the index of its partitions. Each partition of the graph
+     * is read when a poem, or any other use of the graph, first needs one of
+     * its vertices, and is cached; once the cache holds more than cacheBytes,
+     * the partitions used least recently are dropped, to be read again if
+     * they are needed. Using the whole graph, for example to copy it, reads
+     * every partition; its statistics are read from the index.
+     *
+     * @param model file to read, which must not be modified while the poet
+     *        is in use
+     * @param cacheBytes most bytes of partitions to keep cached, as estimated
+     *        for the heap, nonnegative
+     * @return a new poet with the saved affinity graph, whose
+     *         {@link GraphPoet#ingestReport()} has one entry for the file
+     * @throws IOException if the file cannot be read or is not a partitioned
+     *         model file; a partition found corrupt once it is read throws
+     *         UncheckedIOException from the operation that reads it
+     */
+    public static GraphPoet open(File model, long cacheBytes) throws IOException {
+    	if (cacheBytes < 0) {
+    		throw new IllegalArgumentException("cacheBytes must be nonnegative: " + cacheBytes);
+    	}
+    	long start = System.nanoTime();
+    	try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+    			new FileInputStream(model), BUFFER_BYTES))) {
+    		if (in.readInt() != MAGIC) {
+    			throw new IOException(model + " is not a model file");
+    		}
+    		int version = in.readInt();
+    		if (version != VERSION_PARTITIONED) {
+    			throw new IOException(model + " is not a partitioned model file: version " + version);
+    		}
+    		return open(model, in, cacheBytes, start);
+    	}
+    }
+    
+    /**
+     * Read the index of a partitioned model file.
+     * @param in stream of model, just after its version
+     */
+    private static GraphPoet open(File model, DataInputStream in, long cacheBytes, long start)
+    		throws IOException {
+    	try {
+    		long fingerprint = in.readLong();
+    		int vertices = count(in, model);
+    		int partitionVertices = in.readInt();
+    		int partitions = count(in, model);
+    		if (partitionVertices <= 0
+    				|| partitions != (vertices + (long) partitionVertices - 1) / partitionVertices) {
+    			throw new IOException(model + " is corrupt: " + partitions + " partitions of "
+    					+ partitionVertices + " for " + vertices + " vertices");
+    		}
+    		long[] offsets = new long[2 * partitions + 1];
+    		String[] firstLabels = new String[partitions];
+    		for (int p = 0; p < partitions; p++) {
+    			offsets[2 * p] = in.readLong();
+    			offsets[2 * p + 1] = in.readLong();
+    			byte[] bytes = new byte[count(in, model)];
+    			in.readFully(bytes);
+    			firstLabels[p] = new String(bytes, StandardCharsets.UTF_8);
+    		}
+    		offsets[2 * partitions] = in.readLong();
+    		for (int i = 0; i < 2 * partitions; i++) {
+    			if (offsets[i] >= offsets[i + 1] || offsets[i + 1] - offsets[i] > Integer.MAX_VALUE
+    					|| i % 2 == 0 && i > 0 && firstLabels[i / 2 - 1].compareTo(firstLabels[i / 2]) >= 0) {
+    				throw new IOException(model + " is corrupt in the index of partition " + i / 2);
+    			}
+    		}
+    		PartitionedGraph.Summary summary = summary(in, model, vertices);
+    		if (offsets[2 * partitions] != model.length()) {
+    			throw new IOException(model + " is truncated");
+    		}
+    		Graph<String> graph = new PartitionedGraph(model, vertices, partitionVertices,
+    				offsets, firstLabels, cacheBytes, fingerprint, summary);
+    		long nanos = System.nanoTime() - start;
+    		return new GraphPoet(graph, new IngestReport(List.of(
+    				new IngestReport.Entry(model.getPath(), model.length(), 0, nanos)), nanos));
+    	} catch (EOFException e) {
+    		throw new IOException(model + " is truncated", e);
+    	}
+    }
+    
+    /**
+     * Read the summary of a partitioned model file.
+     * @param in stream of model, just after the offset of its end
+     * @param vertices number of vertices of its graph
+     */
+    private static PartitionedGraph.Summary summary(DataInputStream in, File model, int vertices)
+    		throws IOException {
+    	long edges = in.readLong();
+    	long totalWeight = in.readLong();
+    	int[] outDegrees = degrees(in, model, vertices, edges);
+    	int[] inDegrees = degrees(in, model, vertices, edges);
+    	if (edges < 0 || totalWeight < edges) {
+    		throw new IOException(model + " is corrupt in its summary");
+    	}
+    	return new PartitionedGraph.Summary(edges, totalWeight, outDegrees, inDegrees);
+    }
+    
+    /**
+     * Read the number of vertices of each degree, as in the summary.
+     * @return the degree of each vertex, in increasing order
+     */
+    private static int[] degrees(DataInputStream in, File model, int vertices, long edges)
+    		throws IOException {
+    	int distinct = count(in, model);
+    	if (distinct > vertices) {
+    		throw new IOException(model + " is corrupt in its summary");
+    	}
+    	int[] degrees = new int[vertices];
+    	int filled = 0;
+    	long sum = 0;
+    	int previous = -1;
+    	for (int k = 0; k < distinct; k++) {
+    		int degree = in.readInt();
+    		int count = in.readInt();
+    		if (degree <= previous || count <= 0 || count > vertices - filled) {
+    			throw new IOException(model + " is corrupt in its summary");
+    		}
+    		Arrays.fill(degrees, filled, filled + count, degree);
+    		filled += count;
+    		sum += (long) degree * count;
+    		previous = degree;
+    	}
+    	if (filled != vertices || sum != edges) {
+    		throw new IOException(model + " is corrupt in its summary");
+    	}
+    	return degrees;
+    }
+    
+    /**
+     * Read the fingerprint of the graph saved in a model file, without
+     * reading the graph, to tell whether the file holds the same graph as a
+     * poet: if {@code ModelFile.fingerprint(model) == poet.fingerprint()},
+     * saving poet to model again would save the same graph.
+     *
+     * @param model file to read
+     * @return fingerprint of the graph saved in model, see
+     *         {@link Graph#fingerprint()}
+     * @throws IOException if the file cannot be read or is not a model file
+     *         of a supported version
+     */
+    public static long fingerprint(File model) throws IOException {
+    	try (DataInputStream in = new DataInputStream(new FileInputStream(model))) {
+    		if (in.readInt() != MAGIC) {
+    			throw new IOException(model + " is not a model file");
+    		}
+    		int version = in.readInt();
+    		if (version != VERSION && version != VERSION_PARTITIONED) {
+    			throw new IOException(model + " has unsupported model version " + version);
+    		}
+    		return in.readLong();
+    	} catch (EOFException e) {
+    		throw new IOException(model + " is truncated", e);
+    	}
+    }
+    
+    private static int count(DataInputStream in, File model) throws IOException {
+    	int count = in.readInt();
+    	if (count < 0) {
+    		throw new IOException(model + " is corrupt: negative count " + count);
+    	}
+    	return count;
+    }
+    
+    /**
+     * @param file file to test
+     * @return true iff file exists and starts like a model file
+     */
+    public static boolean isModel(File file) {
+    	try (InputStream in = new FileInputStream(file)) {
+    		byte[] magic = in.readNBytes(4);
+    		return magic.length == 4 && ((magic[0] & 0xFF) << 24 | (magic[1] & 0xFF) << 16
+    				| (magic[2] & 0xFF) << 8 | (magic[3] & 0xFF)) == MAGIC;
+    	} catch (IOException e) {
+    		return false;
+    	}
+    }
+}
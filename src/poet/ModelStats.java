@@ -0,0 +1,317 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import graph.ConcreteVerticesGraph;
+import graph.Graph;
+
+/**
+ * Size and shape of a GraphPoet's affinity graph, with an estimate of the
+ * heap it retains and how its corpus was read.
+ *
+ * <p>Heap sizes are estimated only for a graph made by {@link Graph#empty()},
+ * from its layout on a 64-bit JVM with compressed references: objects have
+ * 12-byte headers and are aligned to 8 bytes, each vertex has a map of
+ * targets and a map of sources, and weights above 127 are boxed twice.
+ * They are estimates, not measurements. A graph of another layout, such as
+ * one that has learned text in layers since it was built, reports none.
+ *
+ * <p>The counts of a graph that has learned text in layers are those it
+ * keeps as each layer is added; its degrees still take one pass over its
+ * vertices, but its edges are not walked.
+ *
+ * <p>The statistics of a model opened lazily, a {@link PartitionedGraph},
+ * are read from the summary saved in its index, without reading its
+ * partitions, and its heap is what it retains at the time: its index, the
+ * labels read and the edges cached, which are bounded by its cache budget.
+ * Immutable.
+ */
+public class ModelStats {
+    
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int STRING = 24;
+    private static final int HASH_MAP = 48;
+    private static final int HASH_MAP_NODE = 32;
+    private static final int INTEGER = 16;
+    private static final int VERTEX = align(HEADER + 3 * REFERENCE);
+    private static final int ARRAY_LIST = 24;
+    
+    private final int vertices;
+    private final long edges;
+    private final long totalWeight;
+    private final int[] outDegrees;
+    private final int[] inDegrees;
+    private final Map<String, Long> estimatedBytes;
+    private final OptionalLong cacheBudget;
+    private final IngestReport ingestReport;
+    
+    // Abstraction function:
+    //   a graph of vertices vertices and edges edges whose weights sum to
+    //   totalWeight, whose vertices have the out-degrees in outDegrees and
+    //   the in-degrees in inDegrees, retaining estimatedBytes.get(s) bytes
+    //   in each structure s, built from a corpus read as ingestReport tells;
+    //   its edges cached within cacheBudget bytes, if it is read lazily
+    // Representation invariant:
+    //   outDegrees and inDegrees are sorted, of length vertices, and each
+    //   sums to edges
+    //   estimatedBytes is unmodifiable, its values >= 0
+    //   cacheBudget, if present, is >= 0
+    // Safety from rep exposure:
+    //   all fields are private and final; the degree arrays are never handed
+    //   out, estimatedBytes is unmodifiable, ingestReport is immutable
+    
+    private ModelStats(int vertices, long edges, long totalWeight, int[] outDegrees,
+    		int[] inDegrees, Map<String, Long> estimatedBytes, OptionalLong cacheBudget,
+    		IngestReport ingestReport) {
+    	this.vertices = vertices;
+    	this.edges = edges;
+    	this.totalWeight = totalWeight;
+    	this.outDegrees = outDegrees;
+    	this.inDegrees = inDegrees;
+    	this.estimatedBytes = Collections.unmodifiableMap(estimatedBytes);
+    	this.cacheBudget = cacheBudget;
+    	this.ingestReport = ingestReport;
+    }
+    
+    /**
+     * Compute the statistics of a graph without copying it: one pass over its
+     * vertices and, unless it keeps counts of them, one over its edges; or
+     * none if it is a PartitionedGraph.
+     *
+     * @param graph affinity graph, not modified while this runs
+     * @param ingestReport how the corpus of graph was read
+     * @return statistics of graph
+     */
+    static ModelStats of(Graph<String> graph, IngestReport ingestReport) {
+    	if (graph instanceof LayeredGraph) {
+    		LayeredGraph<String> layered = (LayeredGraph<String>) graph;
+    		if (layered.layerCount() == 1) {
+    			return of(layered.base(), ingestReport);
+    		}
+    		Set<String> vertices = layered.vertices();
+    		return new ModelStats(layered.vertexCount(), layered.edgeCount(), layered.totalWeight(),
+    				sortedDegrees(vertices, layered::outDegree),
+    				sortedDegrees(vertices, layered::inDegree),
+    				new LinkedHashMap<>(), OptionalLong.empty(), ingestReport);
+    	}
+    	if (graph instanceof PartitionedGraph) {
+    		PartitionedGraph partitioned = (PartitionedGraph) graph;
+    		return of(partitioned, partitioned.summary(), ingestReport);
+    	}
+    	Set<String> vertices = graph.vertices();
+    	int[] outDegrees = sortedDegrees(vertices, graph::outDegree);
+    	int[] inDegrees = sortedDegrees(vertices, graph::inDegree);
+    
+    	long[] edges = {0, 0, 0}; // edges, total weight, boxed weights
+    	graph.forEachEdge((source, target, weight) -> {
+    		edges[0]++;
+    		edges[1] += weight;
+    		if (weight > 127) {
+    			edges[2]++;
+    		}
+    	});
+    
+    	Map<String, Long> bytes = new LinkedHashMap<>();
+    	if (graph instanceof ConcreteVerticesGraph) {
+    		long words = 0;
+    		for (String vertex : vertices) {
+    			words += stringBytes(vertex);
+    		}
+    		long maps = 0;
+    		for (int i = 0; i < vertices.size(); i++) {
+    			maps += hashMapBytes(outDegrees[i]) + hashMapBytes(inDegrees[i]);
+    		}
+    		bytes.put("words", words);
+    		bytes.put("vertices", (long) VERTEX * vertices.size() + ARRAY_LIST
+    				+ align(ARRAY_HEADER + (long) REFERENCE * vertices.size())
+    				+ hashMapBytes(vertices.size()));
+    		bytes.put("edges", maps + 2L * INTEGER * edges[2]);
+    	}
+    	return new ModelStats(vertices.size(), edges[0], edges[1], outDegrees, inDegrees,
+    			bytes, OptionalLong.empty(), ingestReport);
+    }
+    
+    /** @return degree of each of vertices, sorted */
+    private static int[] sortedDegrees(Set<String> vertices, ToIntFunction<String> degree) {
+    	int[] degrees = new int[vertices.size()];
+    	int i = 0;
+    	for (String vertex : vertices) {
+    		degrees[i++] = degree.applyAsInt(vertex);
+    	}
+    	Arrays.sort(degrees);
+    	return degrees;
+    }
+    
+    /**
+     * @return statistics of a partitioned graph from its summary, with the
+     *         heap it retains now
+     */
+    private static ModelStats of(PartitionedGraph graph, PartitionedGraph.Summary summary,
+    		IngestReport ingestReport) {
+    	int[] outDegrees = summary.outDegrees();
+    	Map<String, Long> bytes = new LinkedHashMap<>();
+    	bytes.put("index", graph.indexBytes());
+    	bytes.put("labels", graph.labelBytes());
+    	bytes.put("edges cached", graph.cachedBytes());
+    	return new ModelStats(outDegrees.length, summary.edges(), summary.totalWeight(),
+    			outDegrees, summary.inDegrees(), bytes, OptionalLong.of(graph.budget()),
+    			ingestReport);
+    }
+    
+    private static int align(int bytes) {
+    	return (bytes + 7) & ~7;
+    }
+    
+    private static long align(long bytes) {
+    	return (bytes + 7) & ~7L;
+    }
+    
+    private static long stringBytes(String word) {
+    	boolean latin1 = true;
+    	for (int i = 0; i < word.length() && latin1; i++) {
+    		latin1 = word.charAt(i) < 256;
+    	}
+    	return STRING + align(ARRAY_HEADER + (long) word.length() * (latin1 ? 1 : 2));
+    }
+    
+    private static long hashMapBytes(int size) {
+    	if (size == 0) {
+    		return HASH_MAP;
+    	}
+    	long capacity = 16;
+    	while (size > capacity * 3 / 4) {
+    		capacity *= 2;
+    	}
+    	return HASH_MAP + align(ARRAY_HEADER + REFERENCE * capacity) + (long) HASH_MAP_NODE * size;
+    }
+    
+    /**
+     * @return number of vertices (distinct words)
+     */
+    public int getVertices() {
+    	return vertices;
+    }
+    
+    /**
+     * @return number of edges (distinct adjacent pairs of words)
+     */
+    public long getEdges() {
+    	return edges;
+    }
+    
+    /**
+     * @return sum of the weights of every edge (adjacencies counted)
+     */
+    public long getTotalWeight() {
+    	return totalWeight;
+    }
+    
+    /**
+     * @param percent percentage of vertices, 0 <= percent <= 100
+     * @return the least out-degree no less than the out-degree of percent of
+     *         the vertices, 0 if there are none
+     */
+    public int outDegreePercentile(double percent) {
+    	return percentile(outDegrees, percent);
+    }
+    
+    /**
+     * @param percent percentage of vertices, 0 <= percent <= 100
+     * @return the least in-degree no less than the in-degree of percent of
+     *         the vertices, 0 if there are none
+     */
+    public int inDegreePercentile(double percent) {
+    	return percentile(inDegrees, percent);
+    }
+    
+    private static int percentile(int[] sorted, double percent) {
+    	if (!(percent >= 0 && percent <= 100)) {
+    		throw new IllegalArgumentException("percent must be in [0, 100]: " + percent);
+    	}
+    	if (sorted.length == 0) {
+    		return 0;
+    	}
+    	int rank = (int) Math.max(1, Math.ceil(percent / 100 * sorted.length));
+    	return sorted[rank - 1];
+    }
+    
+    /**
+     * @return estimated bytes retained by each structure of the graph:
+     *         "words" for the vertex labels, "vertices" for the vertex
+     *         objects and their indexes, "edges" for the maps of targets and
+     *         sources; or for a graph read lazily, "index" for its index,
+     *         "labels" for the labels read and "edges cached" for the edges
+     *         in its cache; empty if the graph is of another layout, such
+     *         as one that has learned text in layers; unmodifiable
+     */
+    public Map<String, Long> getEstimatedBytes() {
+    	return estimatedBytes;
+    }
+    
+    /**
+     * @return total estimated bytes retained by the graph, 0 if it is not
+     *         estimated
+     */
+    public long getEstimatedTotalBytes() {
+    	return estimatedBytes.values().stream().mapToLong(Long::longValue).sum();
+    }
+    
+    /**
+     * @return most bytes of edges the graph caches, as estimated, if it is
+     *         read lazily from a model file, else empty
+     */
+    public OptionalLong getCacheBudget() {
+    	return cacheBudget;
+    }
+    
+    /**
+     * @return how the corpus was read
+     */
+    public IngestReport getIngestReport() {
+    	return ingestReport;
+    }
+    
+    /**
+     * @return a report of several lines: counts, degree percentiles,
+     *         estimated heap per structure and the cache budget if any, and
+     *         the ingest report
+     */
+    @Override public String toString() {
+    	StringBuilder result = new StringBuilder();
+    	result.append("%d vertices, %d edges, total weight %d%n".formatted(
+    			vertices, edges, totalWeight));
+    	result.append(degrees("out-degree", outDegrees)).append('\n');
+    	result.append(degrees("in-degree ", inDegrees)).append('\n');
+    	result.append("estimated heap:");
+    	for (Map.Entry<String, Long> entry : estimatedBytes.entrySet()) {
+    		result.append(" %s %.1f MB,".formatted(entry.getKey(), entry.getValue() / 1e6));
+    	}
+    	if (estimatedBytes.isEmpty()) {
+    		result.append(" not estimated for this graph");
+    	} else {
+    		result.append(" total %.1f MB".formatted(getEstimatedTotalBytes() / 1e6));
+    	}
+    	if (cacheBudget.isPresent()) {
+    		result.append(" (edge cache budget %.1f MB)".formatted(cacheBudget.getAsLong() / 1e6));
+    	}
+    	result.append('\n');
+    	result.append(ingestReport);
+    	return result.toString();
+    }
+    
+    private static String degrees(String name, int[] sorted) {
+    	return "%s p50 %d, p90 %d, p99 %d, max %d".formatted(name, percentile(sorted, 50),
+    			percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+    }
+}
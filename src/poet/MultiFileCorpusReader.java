@@ -0,0 +1,172 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Counts the words and adjacencies of a corpus made of many UTF-8 files on a
+ * bounded pool of worker threads.
+ * 
+ * <p>Each file is counted by one worker. The counts are merged in the order
+ * the files are given, whatever order the workers finish in, so the result
+ * is deterministic; adjacencies are never counted across two files. At most
+ * a few files per worker are counted ahead of the merge, which bounds the
+ * memory held by finished but unmerged counts.
+ * This class is internal to GraphPoet's corpus ingestion.
+ */
+class MultiFileCorpusReader {
+    
+    private static final int FILES_IN_FLIGHT_PER_THREAD = 2;
+    
+    private final CorpusCounts counts;
+    private final IngestReport report;
+    
+    // Abstraction function:
+    //   the merged counts of a list of files, and how they were read
+    // Representation invariant:
+    //   true
+    // Safety from rep exposure:
+    //   the reader is only used by GraphPoet, which takes ownership of counts
+    
+    private MultiFileCorpusReader(CorpusCounts counts, IngestReport report) {
+    	this.counts = counts;
+    	this.report = report;
+    }
+    
+    /**
+     * @return merged counts of every file
+     */
+    CorpusCounts counts() {
+    	return counts;
+    }
+    
+    /**
+     * @return one entry per file, in merge order
+     */
+    IngestReport report() {
+    	return report;
+    }
+    
+    /**
+     * List the regular files under a directory whose path relative to the
+     * directory matches a glob.
+     * 
+     * @param directory directory to search, including subdirectories
+     * @param glob pattern as for {@link java.nio.file.FileSystem#getPathMatcher},
+     *        e.g. {@code "*.txt"} for the directory itself or
+     *        {@code "**.txt"} for every subdirectory too
+     * @return matching files sorted by path
+     * @throws IOException if the directory cannot be read
+     */
+    static List<File> list(File directory, String glob) throws IOException {
+    	Path root = directory.toPath();
+    	PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    	try (Stream<Path> paths = Files.walk(root)) {
+    		return paths.filter(Files::isRegularFile)
+    				.filter(path -> matcher.matches(root.relativize(path)))
+    				.sorted()
+    				.map(Path::toFile)
+    				.collect(Collectors.toList());
+    	}
+    }
+    
+    /**
+     * Count a corpus made of files.
+     * 
+     * @param corpora UTF-8 text files, plain or compressed as
+     *        {@link CompressedCorpus} reads them, in the order to merge them
+     * @param threads number of worker threads, must be positive
+     * @return reader holding the merged counts and a report of every file
+     * @throws IOException if a file cannot be found or read
+     */
+    static MultiFileCorpusReader read(List<File> corpora, int threads) throws IOException {
+    	long start = System.nanoTime();
+    	ExecutorService workers = Executors.newFixedThreadPool(threads);
+    	try {
+    		CorpusCounts merged = new CorpusCounts();
+    		List<IngestReport.Entry> entries = new ArrayList<>();
+    		Deque<Future<Counted>> inFlight = new ArrayDeque<>();
+    		
+    		for (File corpus : corpora) {
+    			if (inFlight.size() == threads * FILES_IN_FLIGHT_PER_THREAD) {
+    				merge(inFlight.removeFirst(), merged, entries);
+    			}
+    			inFlight.addLast(workers.submit(() -> count(corpus)));
+    		}
+    		while (!inFlight.isEmpty()) {
+    			merge(inFlight.removeFirst(), merged, entries);
+    		}
+    		return new MultiFileCorpusReader(merged,
+    				new IngestReport(entries, System.nanoTime() - start));
+    	} finally {
+    		workers.shutdownNow();
+    	}
+    }
+    
+    /**
+     * Wait for a file to be counted and append its counts to merged.
+     */
+    private static void merge(Future<Counted> future, CorpusCounts merged,
+    		List<IngestReport.Entry> entries) throws IOException {
+    	Counted counted;
+    	try {
+    		counted = future.get();
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new IOException("interrupted while reading corpus", e);
+    	} catch (ExecutionException e) {
+    		if (e.getCause() instanceof IOException) {
+    			throw (IOException) e.getCause();
+    		}
+    		throw new IllegalStateException(e.getCause());
+    	}
+    	merged.lineBreak();
+    	merged.append(counted.counts);
+    	entries.add(counted.entry);
+    }
+    
+    /**
+     * Count one file on a worker thread.
+     */
+    private static Counted count(File corpus) throws IOException {
+    	long start = System.nanoTime();
+    	CorpusCounts counts;
+    	try (InputStream in = CompressedCorpus.open(new FileInputStream(corpus))) {
+    		counts = Tokenizer.count(in);
+    	}
+    	return new Counted(counts, new IngestReport.Entry(corpus.getPath(),
+    			corpus.length(), counts.wordCount(), System.nanoTime() - start));
+    }
+    
+    /**
+     * Counts of one file and how it was read.
+     */
+    private static class Counted {
+    	private final CorpusCounts counts;
+    	private final IngestReport.Entry entry;
+    	
+    	Counted(CorpusCounts counts, IngestReport.Entry entry) {
+    		this.counts = counts;
+    		this.entry = entry;
+    	}
+    }
+}
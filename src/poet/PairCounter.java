@@ -0,0 +1,34 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+/**
+ * Counts of ordered pairs of word ids, fed one adjacency at a time.
+ * Mutable, not safe for use by more than one thread.
+ * This interface is internal to GraphPoet's corpus ingestion.
+ */
+interface PairCounter {
+    
+    /**
+     * Operation on one pair and its count.
+     */
+    @FunctionalInterface
+    interface PairConsumer {
+    	void accept(int first, int second, int count);
+    }
+    
+    /**
+     * Add to the count of a pair.
+     * @param first non-negative id of the first word
+     * @param second non-negative id of the second word
+     * @param count positive amount to add
+     */
+    void add(int first, int second, int count);
+    
+    /**
+     * Perform an operation on every pair counted, in no particular order.
+     * @param action operation to perform
+     */
+    void forEach(PairConsumer action);
+}
@@ -0,0 +1,118 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.Arrays;
+
+/**
+ * Exact counts of ordered pairs of word ids, kept in primitive arrays so that
+ * counting an adjacency allocates nothing.
+ * Mutable, not safe for use by more than one thread.
+ * This class is internal to GraphPoet's corpus ingestion.
+ */
+class PairCounts implements PairCounter {
+    
+    private static final long EMPTY = -1L;
+    private static final int INITIAL_CAPACITY = 64;
+    
+    private long[] keys = newKeys(INITIAL_CAPACITY);
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size = 0;
+    
+    // Abstraction function:
+    //   the pair (first, second) has count counts[i] if
+    //   keys[i] == key(first, second), and count 0 if no such i exists
+    // Representation invariant:
+    //   keys.length == counts.length is a power of two
+    //   size is the number of i with keys[i] != EMPTY, size <= keys.length / 2
+    //   counts[i] > 0 where keys[i] != EMPTY
+    //   keys is an open-addressing table with linear probing
+    // Safety from rep exposure:
+    //   all fields are private, and only primitives are handed out
+    
+    private static long[] newKeys(int capacity) {
+    	long[] keys = new long[capacity];
+    	Arrays.fill(keys, EMPTY);
+    	return keys;
+    }
+    
+    private static long key(int first, int second) {
+    	return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+    
+    private static int slot(long key, int mask) {
+    	long h = key * 0x9E3779B97F4A7C15L;
+    	return (int) (h ^ (h >>> 32)) & mask;
+    }
+    
+    @Override public void add(int first, int second, int count) {
+    	long key = key(first, second);
+    	int mask = keys.length - 1;
+    	int i = slot(key, mask);
+    	while (keys[i] != EMPTY) {
+    		if (keys[i] == key) {
+    			counts[i] += count;
+    			return;
+    		}
+    		i = (i + 1) & mask;
+    	}
+    	keys[i] = key;
+    	counts[i] = count;
+    	if (++size > keys.length / 2) {
+    		grow();
+    	}
+    }
+    
+    /**
+     * @return count of the pair (first, second), 0 if it was never added
+     */
+    public int get(int first, int second) {
+    	long key = key(first, second);
+    	int mask = keys.length - 1;
+    	for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+    		if (keys[i] == key) {
+    			return counts[i];
+    		}
+    	}
+    	return 0;
+    }
+    
+    /**
+     * @return number of distinct pairs with a positive count
+     */
+    public int size() {
+    	return size;
+    }
+    
+    /**
+     * Perform an operation on every pair with a positive count, in no
+     * particular order.
+     * @param action operation to perform
+     */
+    @Override public void forEach(PairConsumer action) {
+    	for (int i = 0; i < keys.length; i++) {
+    		if (keys[i] != EMPTY) {
+    			action.accept((int) (keys[i] >>> 32), (int) keys[i], counts[i]);
+    		}
+    	}
+    }
+    
+    private void grow() {
+    	long[] oldKeys = keys;
+    	int[] oldCounts = counts;
+    	keys = newKeys(oldKeys.length * 2);
+    	counts = new int[oldKeys.length * 2];
+    	int mask = keys.length - 1;
+    	for (int j = 0; j < oldKeys.length; j++) {
+    		if (oldKeys[j] != EMPTY) {
+    			int i = slot(oldKeys[j], mask);
+    			while (keys[i] != EMPTY) {
+    				i = (i + 1) & mask;
+    			}
+    			keys[i] = oldKeys[j];
+    			counts[i] = oldCounts[j];
+    		}
+    	}
+    }
+}
@@ -0,0 +1,135 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the words and adjacencies of a UTF-8 corpus file on a fork-join pool.
+ * 
+ * <p>The file is split in halves at ASCII whitespace bytes until the pieces
+ * are small enough, each piece is counted on its own, and the counts are
+ * appended back together in file order, so the result is the same as
+ * counting the file from start to end. ASCII bytes never occur inside a
+ * multi-byte UTF-8 character, so splitting never cuts a character or a word.
+ * This class is internal to GraphPoet's corpus ingestion.
+ */
+class ParallelCorpusReader {
+    
+    /** Default size in bytes of a piece counted by one task. */
+    static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+    
+    private static final int SCAN_BYTES = 4096;
+    
+    private ParallelCorpusReader() {}
+    
+    /**
+     * Count a corpus file.
+     * 
+     * @param corpus UTF-8 text file
+     * @param parallelism number of worker threads, must be positive
+     * @param chunkBytes size in bytes below which a piece is not split, must
+     *        be positive
+     * @return counts of the whole corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    static CorpusCounts read(File corpus, int parallelism, int chunkBytes) throws IOException {
+    	if (chunkBytes <= 0) {
+    		throw new IllegalArgumentException("chunkBytes must be positive: " + chunkBytes);
+    	}
+    	ForkJoinPool pool = new ForkJoinPool(parallelism);
+    	try (FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)) {
+    		return pool.invoke(new CountTask(channel, 0, channel.size(), chunkBytes));
+    	} catch (UncheckedIOException e) {
+    		throw e.getCause();
+    	} finally {
+    		pool.shutdown();
+    	}
+    }
+    
+    /**
+     * Counts the bytes [start, end) of a file.
+     */
+    private static class CountTask extends RecursiveTask<CorpusCounts> {
+    	
+    	private static final long serialVersionUID = 1L;
+    	
+    	private final FileChannel channel;
+    	private final long start;
+    	private final long end;
+    	private final int chunkBytes;
+    	
+    	CountTask(FileChannel channel, long start, long end, int chunkBytes) {
+    		this.channel = channel;
+    		this.start = start;
+    		this.end = end;
+    		this.chunkBytes = chunkBytes;
+    	}
+    	
+    	@Override protected CorpusCounts compute() {
+    		try {
+    			if (end - start > chunkBytes) {
+    				long cut = whitespaceAtOrAfter(start + (end - start) / 2);
+    				if (cut < end) {
+    					CountTask left = new CountTask(channel, start, cut, chunkBytes);
+    					CountTask right = new CountTask(channel, cut, end, chunkBytes);
+    					left.fork();
+    					CorpusCounts counts = right.compute();
+    					CorpusCounts result = left.join();
+    					result.append(counts);
+    					return result;
+    				}
+    			}
+    			return count();
+    		} catch (IOException e) {
+    			throw new UncheckedIOException(e);
+    		}
+    	}
+    	
+    	/**
+    	 * @return position of the first ASCII whitespace byte at or after
+    	 *         from and before end, or end if there is none
+    	 */
+    	private long whitespaceAtOrAfter(long from) throws IOException {
+    		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BYTES);
+    		long position = from;
+    		while (position < end) {
+    			buffer.clear().limit((int) Math.min(SCAN_BYTES, end - position));
+    			int n = channel.read(buffer, position);
+    			if (n <= 0) {
+    				break;
+    			}
+    			for (int i = 0; i < n; i++) {
+    				byte b = buffer.get(i);
+    				if (b >= 0 && Character.isWhitespace(b)) {
+    					return position + i;
+    				}
+    			}
+    			position += n;
+    		}
+    		return end;
+    	}
+    	
+    	private CorpusCounts count() throws IOException {
+    		ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+    		while (buffer.hasRemaining()) {
+    			if (channel.read(buffer, start + buffer.position()) < 0) {
+    				break;
+    			}
+    		}
+    		CorpusCounts counts = new CorpusCounts();
+    		Tokenizer tokenizer = new Tokenizer(counts);
+    		tokenizer.feed(buffer.array(), 0, buffer.position());
+    		tokenizer.finish();
+    		return counts;
+    	}
+    }
+}
@@ -0,0 +1,586 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjIntConsumer;
+
+import graph.EdgeConsumer;
+import graph.Graph;
+
+/**
+ * A read-only affinity graph in a partitioned model file, whose partitions
+ * are read from the file when they are first needed.
+ *
+ * <p>Vertex ids are the ranks of the labels in alphabetical order, and
+ * partition p holds the vertices with ids in [p * partitionVertices,
+ * (p + 1) * partitionVertices) as two blocks: their labels, and the edges
+ * from and to each of them. Only the first label of each partition is read
+ * when the graph is opened; a label is found by a binary search over those
+ * first labels, then over the labels of its partition. Blocks of labels are
+ * small and kept once read. Blocks of edges are cached, evicting the least
+ * recently used ones once the cache holds more than its budget of bytes;
+ * the blocks in use by an operation are never evicted before it finishes,
+ * so the cache may exceed the budget by those. The weight of an edge is
+ * looked up among the edges from its source if they are cached, and among
+ * the edges to its target otherwise, so finding the bridges between two
+ * words reads the edges of those two words only.
+ *
+ * <p>Operations that need every vertex, such as {@link #vertices()} or
+ * {@link #forEachEdge(EdgeConsumer)}, read every partition; counts of the
+ * whole graph are read from the summary saved in the index. The mutators
+ * throw UnsupportedOperationException: GraphPoet never modifies a graph it
+ * has published, and learns text in layers over it.
+ * Thread-safe.
+ * This class is internal to ModelFile.
+ */
+class PartitionedGraph implements Graph<String> {
+    
+    private final File file;
+    private final int vertexCount;
+    private final int partitionVertices;
+    private final long[] offsets;
+    private final String[] firstLabels;
+    private final AtomicReferenceArray<String[]> labels;
+    private final long budget;
+    private final long fingerprint;
+    private final Summary summary;
+    private final LinkedHashMap<Integer, Edges> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    
+    // Abstraction function:
+    //   the graph saved in file, whose vertex with id i is label
+    //   i % partitionVertices of partition i / partitionVertices; labels
+    //   holds the blocks of labels read, and cache the blocks of edges read,
+    //   least recently used first; the counters count lookups of blocks of
+    //   edges and the blocks evicted; fingerprint and summary are the saved
+    //   graph's
+    // Representation invariant:
+    //   firstLabels.length == labels.length() ==
+    //     ceil(vertexCount / partitionVertices)
+    //   offsets.length == 2 * firstLabels.length + 1 and offsets are
+    //     increasing; the labels of partition p are the bytes
+    //     [offsets[2p], offsets[2p + 1]) of file, and its edges the bytes
+    //     [offsets[2p + 1], offsets[2p + 2])
+    //   firstLabels are in increasing order; labels.get(p), if not null,
+    //     holds the labels of partition p, starting with firstLabels[p]
+    //   cachedBytes is the sum of the bytes of the blocks in cache
+    //   cachedBytes <= budget, or cache holds one block
+    // Safety from rep exposure:
+    //   all fields are private; blocks are never modified once read and
+    //   never handed out; observers return new collections
+    // Thread safety argument:
+    //   cache and the counters are only accessed holding cache's lock;
+    //   blocks are immutable and published through that lock or through
+    //   labels, which is thread-safe; other fields are final and their
+    //   arrays are not modified after construction
+    
+    /**
+     * Counts of a whole graph, saved in the index of its model file.
+     * Immutable.
+     */
+    static class Summary {
+    	
+    	private final long edges;
+    	private final long totalWeight;
+    	private final int[] outDegrees;
+    	private final int[] inDegrees;
+    	
+    	// Abstraction function:
+    	//   a graph of outDegrees.length vertices and edges edges, whose
+    	//   weights sum to totalWeight and whose vertices have the out-degrees
+    	//   in outDegrees and the in-degrees in inDegrees
+    	// Representation invariant:
+    	//   outDegrees and inDegrees are sorted, of the same length, and each
+    	//   sums to edges; totalWeight >= edges
+    	// Safety from rep exposure:
+    	//   the degree arrays are copied when handed out
+    	
+    	/**
+    	 * @param edges number of edges
+    	 * @param totalWeight sum of their weights
+    	 * @param outDegrees out-degree of each vertex, sorted; not modified
+    	 *        afterwards
+    	 * @param inDegrees in-degree of each vertex, sorted; not modified
+    	 *        afterwards
+    	 */
+    	Summary(long edges, long totalWeight, int[] outDegrees, int[] inDegrees) {
+    		this.edges = edges;
+    		this.totalWeight = totalWeight;
+    		this.outDegrees = outDegrees;
+    		this.inDegrees = inDegrees;
+    	}
+    	
+    	/** @return number of vertices */
+    	int vertices() {
+    		return outDegrees.length;
+    	}
+    	
+    	/** @return number of edges */
+    	long edges() {
+    		return edges;
+    	}
+    	
+    	/** @return sum of the weights of the edges */
+    	long totalWeight() {
+    		return totalWeight;
+    	}
+    	
+    	/** @return out-degree of each vertex, sorted, in a new array */
+    	int[] outDegrees() {
+    		return outDegrees.clone();
+    	}
+    	
+    	/** @return in-degree of each vertex, sorted, in a new array */
+    	int[] inDegrees() {
+    		return inDegrees.clone();
+    	}
+    }
+    
+    /**
+     * The edges from and to a range of vertices.
+     * Immutable.
+     */
+    private static class Edges {
+    	
+    	private final int[] outStart;
+    	private final int[] targets;
+    	private final int[] outWeights;
+    	private final int[] inStart;
+    	private final int[] sources;
+    	private final int[] inWeights;
+    	
+    	// Abstraction function:
+    	//   vertex i of the partition has edges to
+    	//   targets[outStart[i]..outStart[i + 1]) weighing the same indices of
+    	//   outWeights, and edges from sources[inStart[i]..inStart[i + 1])
+    	//   weighing the same indices of inWeights
+    	// Representation invariant:
+    	//   outStart and inStart have one more element than the partition has
+    	//   vertices, nondecreasing from 0 to the lengths of targets and
+    	//   sources; the targets and the sources of each vertex are increasing
+    	//   ids; weights are positive
+    	// Safety from rep exposure:
+    	//   only PartitionedGraph sees the fields, and never modifies them
+    	
+    	Edges(int[] outStart, int[] targets, int[] outWeights,
+    			int[] inStart, int[] sources, int[] inWeights) {
+    		this.outStart = outStart;
+    		this.targets = targets;
+    		this.outWeights = outWeights;
+    		this.inStart = inStart;
+    		this.sources = sources;
+    		this.inWeights = inWeights;
+    	}
+    	
+    	/** @return estimated bytes of heap */
+    	long bytes() {
+    		return 6 * 16 + 4L * (outStart.length + targets.length + outWeights.length
+    				+ inStart.length + sources.length + inWeights.length);
+    	}
+    	
+    	/** @return weight of the edge from vertex i to id, or 0 if none */
+    	int out(int i, int id) {
+    		int k = Arrays.binarySearch(targets, outStart[i], outStart[i + 1], id);
+    		return k < 0 ? 0 : outWeights[k];
+    	}
+    	
+    	/** @return weight of the edge from id to vertex i, or 0 if none */
+    	int in(int i, int id) {
+    		int k = Arrays.binarySearch(sources, inStart[i], inStart[i + 1], id);
+    		return k < 0 ? 0 : inWeights[k];
+    	}
+    }
+    
+    /**
+     * Open a partitioned graph.
+     *
+     * @param file model file the graph was saved in
+     * @param vertexCount number of vertices
+     * @param partitionVertices vertices per partition, positive
+     * @param offsets offsets in file of the labels then the edges of each
+     *        partition, then of the end of the last one
+     * @param firstLabels label of the first vertex of each partition
+     * @param budget most bytes of edges to cache, as estimated
+     * @param fingerprint fingerprint of the graph saved in file
+     * @param summary summary of the graph saved in file, of vertexCount
+     *        vertices
+     */
+    PartitionedGraph(File file, int vertexCount, int partitionVertices, long[] offsets,
+    		String[] firstLabels, long budget, long fingerprint, Summary summary) {
+    	this.file = file;
+    	this.vertexCount = vertexCount;
+    	this.partitionVertices = partitionVertices;
+    	this.offsets = offsets;
+    	this.firstLabels = firstLabels;
+    	this.labels = new AtomicReferenceArray<>(firstLabels.length);
+    	this.budget = budget;
+    	this.fingerprint = fingerprint;
+    	this.summary = summary;
+    }
+    
+    /**
+     * @return counters of the cache of edges: lookups of a partition's edges
+     *         answered by it or read from the file, partitions evicted, and
+     *         partitions cached out of all partitions
+     */
+    CacheStats cacheStats() {
+    	synchronized (cache) {
+    		return new CacheStats(hits, misses, evictions, cache.size(), firstLabels.length);
+    	}
+    }
+    
+    /**
+     * @return estimated bytes of the edges cached
+     */
+    long cachedBytes() {
+    	synchronized (cache) {
+    		return cachedBytes;
+    	}
+    }
+    
+    /**
+     * @return most bytes of edges to cache, as estimated
+     */
+    long budget() {
+    	return budget;
+    }
+    
+    /**
+     * @return summary of the graph saved in the file
+     */
+    Summary summary() {
+    	return summary;
+    }
+    
+    /**
+     * @return estimated bytes of heap retained by the index: the offsets,
+     *         the first labels and the references to blocks of labels
+     */
+    long indexBytes() {
+    	long bytes = 16 + 8L * offsets.length + 2 * (16 + 4L * firstLabels.length);
+    	for (String label : firstLabels) {
+    		bytes += stringBytes(label);
+    	}
+    	return bytes;
+    }
+    
+    /**
+     * @return estimated bytes of heap retained by the blocks of labels read
+     */
+    long labelBytes() {
+    	long bytes = 0;
+    	for (int p = 0; p < labels.length(); p++) {
+    		String[] block = labels.get(p);
+    		if (block != null) {
+    			bytes += 16 + 4L * block.length;
+    			for (String label : block) {
+    				bytes += stringBytes(label);
+    			}
+    		}
+    	}
+    	return bytes;
+    }
+    
+    /** @return estimated bytes of a String and its array of Latin-1 bytes */
+    private static long stringBytes(String label) {
+    	return 24 + ((16 + label.length() + 7) & ~7);
+    }
+    
+    /** @return the edges of partition p if they are cached, else null */
+    private Edges cachedEdges(int p) {
+    	synchronized (cache) {
+    		return cache.get(p);
+    	}
+    }
+    
+    /** @return the edges of partition p, read from the file if not cached */
+    private Edges edges(int p) {
+    	synchronized (cache) {
+    		Edges cached = cache.get(p);
+    		if (cached != null) {
+    			hits++;
+    			return cached;
+    		}
+    		misses++;
+    	}
+    	// read without holding the lock; a racing reader of p wastes a read
+    	Edges read = readEdges(p);
+    	synchronized (cache) {
+    		Edges cached = cache.putIfAbsent(p, read);
+    		if (cached != null) {
+    			return cached;
+    		}
+    		cachedBytes += read.bytes();
+    		Iterator<Edges> eldest = cache.values().iterator();
+    		while (cachedBytes > budget && cache.size() > 1) {
+    			cachedBytes -= eldest.next().bytes();
+    			eldest.remove();
+    			evictions++;
+    		}
+    		return read;
+    	}
+    }
+    
+    /** @return the labels of partition p, read from the file if not yet read */
+    private String[] labels(int p) {
+    	String[] result = labels.get(p);
+    	if (result == null) {
+    		// racing readers read equal labels, any of them may stick
+    		ByteBuffer bytes = read(p, offsets[2 * p], offsets[2 * p + 1]);
+    		try {
+    			result = new String[Math.min(partitionVertices, vertexCount - p * partitionVertices)];
+    			for (int i = 0; i < result.length; i++) {
+    				byte[] label = new byte[bytes.getInt()];
+    				bytes.get(label);
+    				result[i] = new String(label, StandardCharsets.UTF_8);
+    			}
+    		} catch (RuntimeException e) {
+    			// a negative length, or one past the end of the block
+    			throw corrupt(p, e);
+    		}
+    		if (bytes.hasRemaining() || !result[0].equals(firstLabels[p])) {
+    			throw corrupt(p, null);
+    		}
+    		labels.set(p, result);
+    	}
+    	return result;
+    }
+    
+    private Edges readEdges(int p) {
+    	ByteBuffer bytes = read(p, offsets[2 * p + 1], offsets[2 * p + 2]);
+    	int n = Math.min(partitionVertices, vertexCount - p * partitionVertices);
+    	Edges edges;
+    	try {
+    		int[] outStart = ints(bytes, n + 1);
+    		int[] targets = ints(bytes, outStart[n]);
+    		int[] outWeights = ints(bytes, outStart[n]);
+    		int[] inStart = ints(bytes, n + 1);
+    		int[] sources = ints(bytes, inStart[n]);
+    		int[] inWeights = ints(bytes, inStart[n]);
+    		edges = new Edges(outStart, targets, outWeights, inStart, sources, inWeights);
+    	} catch (RuntimeException e) {
+    		// a negative count, or one past the end of the block
+    		throw corrupt(p, e);
+    	}
+    	if (bytes.hasRemaining() || !ids(edges.targets) || !ids(edges.sources)
+    			|| !positive(edges.outWeights) || !positive(edges.inWeights)) {
+    		throw corrupt(p, null);
+    	}
+    	return edges;
+    }
+    
+    /** @return bytes [start, end) of file */
+    private ByteBuffer read(int p, long start, long end) {
+    	ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(end - start));
+    	try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+    		while (bytes.hasRemaining()) {
+    			if (channel.read(bytes, start + bytes.position()) < 0) {
+    				throw new IOException(file + " is truncated in partition " + p);
+    			}
+    		}
+    	} catch (IOException e) {
+    		throw new UncheckedIOException(e);
+    	}
+    	return bytes.flip();
+    }
+    
+    private UncheckedIOException corrupt(int p, Exception cause) {
+    	return new UncheckedIOException(new IOException(file + " is corrupt in partition " + p, cause));
+    }
+    
+    private static int[] ints(ByteBuffer bytes, int count) {
+    	int[] ints = new int[count];
+    	bytes.asIntBuffer().get(ints);
+    	bytes.position(bytes.position() + 4 * count);
+    	return ints;
+    }
+    
+    private boolean ids(int[] ids) {
+    	for (int id : ids) {
+    		if (id < 0 || id >= vertexCount) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    private static boolean positive(int[] weights) {
+    	for (int weight : weights) {
+    		if (weight <= 0) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    /** @return id of the vertex labeled label, or -1 if there is none */
+    private int id(String label) {
+    	int p = Arrays.binarySearch(firstLabels, label);
+    	if (p >= 0) {
+    		return p * partitionVertices;
+    	}
+    	p = -p - 2;
+    	if (p < 0) {
+    		return -1;
+    	}
+    	int i = Arrays.binarySearch(labels(p), label);
+    	return i < 0 ? -1 : p * partitionVertices + i;
+    }
+    
+    private String label(int id) {
+    	return labels(id / partitionVertices)[id % partitionVertices];
+    }
+    
+    @Override public boolean add(String vertex) {
+    	throw new UnsupportedOperationException("a model graph is read-only");
+    }
+    
+    @Override public int set(String source, String target, int weight) {
+    	throw new UnsupportedOperationException("a model graph is read-only");
+    }
+    
+    @Override public boolean remove(String vertex) {
+    	throw new UnsupportedOperationException("a model graph is read-only");
+    }
+    
+    @Override public Set<String> vertices() {
+    	Set<String> vertices = new HashSet<>();
+    	for (int p = 0; p < firstLabels.length; p++) {
+    		vertices.addAll(Arrays.asList(labels(p)));
+    	}
+    	return vertices;
+    }
+    
+    @Override public Map<String, Integer> sources(String target) {
+    	Map<String, Integer> sources = new HashMap<>();
+    	forEachSource(target, sources::put);
+    	return sources;
+    }
+    
+    @Override public Map<String, Integer> targets(String source) {
+    	Map<String, Integer> targets = new HashMap<>();
+    	forEachTarget(source, targets::put);
+    	return targets;
+    }
+    
+    @Override public int weight(String source, String target) {
+    	int s = id(source);
+    	int t = s < 0 ? -1 : id(target);
+    	if (t < 0) {
+    		return 0;
+    	}
+    	Edges from = cachedEdges(s / partitionVertices);
+    	if (from != null) {
+    		return from.out(s % partitionVertices, t);
+    	}
+    	return edges(t / partitionVertices).in(t % partitionVertices, s);
+    }
+    
+    @Override public boolean contains(String vertex) {
+    	return id(vertex) >= 0;
+    }
+    
+    @Override public int outDegree(String source) {
+    	int s = id(source);
+    	if (s < 0) {
+    		return 0;
+    	}
+    	Edges edges = edges(s / partitionVertices);
+    	int i = s % partitionVertices;
+    	return edges.outStart[i + 1] - edges.outStart[i];
+    }
+    
+    @Override public int inDegree(String target) {
+    	int t = id(target);
+    	if (t < 0) {
+    		return 0;
+    	}
+    	Edges edges = edges(t / partitionVertices);
+    	int i = t % partitionVertices;
+    	return edges.inStart[i + 1] - edges.inStart[i];
+    }
+    
+    @Override public void forEachTarget(String source, ObjIntConsumer<? super String> action) {
+    	int s = id(source);
+    	if (s < 0) {
+    		return;
+    	}
+    	Edges edges = edges(s / partitionVertices);
+    	int i = s % partitionVertices;
+    	for (int k = edges.outStart[i]; k < edges.outStart[i + 1]; k++) {
+    		action.accept(label(edges.targets[k]), edges.outWeights[k]);
+    	}
+    }
+    
+    @Override public void forEachSource(String target, ObjIntConsumer<? super String> action) {
+    	int t = id(target);
+    	if (t < 0) {
+    		return;
+    	}
+    	Edges edges = edges(t / partitionVertices);
+    	int i = t % partitionVertices;
+    	for (int k = edges.inStart[i]; k < edges.inStart[i + 1]; k++) {
+    		action.accept(label(edges.sources[k]), edges.inWeights[k]);
+    	}
+    }
+    
+    @Override public void forEachEdge(EdgeConsumer<? super String> action) {
+    	for (int p = 0; p < firstLabels.length; p++) {
+    		String[] sources = labels(p);
+    		Edges edges = edges(p);
+    		for (int i = 0; i < sources.length; i++) {
+    			for (int k = edges.outStart[i]; k < edges.outStart[i + 1]; k++) {
+    				action.accept(sources[i], label(edges.targets[k]), edges.outWeights[k]);
+    			}
+    		}
+    	}
+    }
+    
+    /**
+     * Returns the fingerprint saved in the file without reading any
+     * partition.
+     */
+    @Override public long fingerprint() {
+    	return fingerprint;
+    }
+    
+    /**
+     * Returns a String represent this graph in the format of
+     * ConcreteVerticesGraph, reading every partition: one line per edge,
+     * 	"1" ---> "2" 1
+     * then one line per vertex with no edge, and a blank line for an empty
+     * graph.
+     */
+    @Override public String toString() {
+    	StringBuilder edgeLines = new StringBuilder();
+    	StringBuilder vertexLines = new StringBuilder();
+    	forEachEdge((source, target, weight) -> edgeLines.append('"').append(source)
+    			.append("\" ---> \"").append(target).append("\" ").append(weight).append('\n'));
+    	for (String vertex : vertices()) {
+    		if (outDegree(vertex) == 0 && inDegree(vertex) == 0) {
+    			vertexLines.append(vertex).append('\n');
+    		}
+    	}
+    	String result = edgeLines.append(vertexLines).toString();
+    	return result.isEmpty() ? "\n" : result;
+    }
+}
@@ -0,0 +1,251 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import graph.Graph;
+
+/**
+ * Finds bridges of several words in a word affinity graph: the words
+ * b1, ..., bm on a path w1 -> b1 -> ... -> bm -> w2.
+ *
+ * <p>The bridge chosen has the fewest words, then the greatest sum of edge
+ * weights along its path, then the least sequence of words in alphabetical
+ * order. A one-word bridge is found by {@link BridgeSearch}. Longer ones are
+ * found by a best-first search over partial paths, ordered by an upper bound
+ * on the weight of any path completing them: the weight so far, plus the
+ * heaviest edge out of the last word, plus the heaviest edge of the graph for
+ * each further edge but the last, plus the heaviest edge into w2. Partial paths
+ * whose bound is below the best complete path are pruned, the search stops
+ * when no partial path left can beat it, and the last edge of each path is
+ * found by walking the smaller adjacency side as BridgeSearch does.
+ * Each query expands at most a given number of partial paths, so its cost is
+ * bounded even on a large graph; a query that reaches its limit returns the
+ * best bridge found so far, which may not be the best one.
+ * This class is internal to GraphPoet.
+ */
+class PathSearch {
+    
+    /**
+     * Upper bounds on the edge weights of a graph, computed once per graph.
+     * Immutable.
+     */
+    static class Bounds {
+    
+    	private final Map<String, Integer> maxOut;
+    	private final int maxWeight;
+    
+    	// Abstraction function:
+    	//   the heaviest edge out of each vertex v weighs maxOut.get(v), or
+    	//   there is none if v is not a key; the heaviest edge of the graph
+    	//   weighs maxWeight
+    	// Representation invariant:
+    	//   values of maxOut > 0, maxWeight is the greatest of them or 0
+    	// Safety from rep exposure:
+    	//   fields are private, final, and maxOut is never handed out
+    
+    	private Bounds(Map<String, Integer> maxOut, int maxWeight) {
+    		this.maxOut = maxOut;
+    		this.maxWeight = maxWeight;
+    	}
+    
+    	/**
+    	 * @param graph graph to bound, not modified while this runs
+    	 * @return bounds on the edge weights of graph
+    	 */
+    	static Bounds of(Graph<String> graph) {
+    		Map<String, Integer> maxOut = new HashMap<>();
+    		int[] maxWeight = {0};
+    		graph.forEachEdge((source, target, weight) -> {
+    			maxOut.merge(source, weight, Math::max);
+    			maxWeight[0] = Math.max(maxWeight[0], weight);
+    		});
+    		return new Bounds(maxOut, maxWeight[0]);
+    	}
+    
+    	private int maxOut(String vertex) {
+    		return maxOut.getOrDefault(vertex, 0);
+    	}
+    }
+    
+    /** A path from w1, last word first. Immutable. */
+    private static class Step {
+    
+    	private final Step previous;
+    	private final String word;
+    	private final int depth;
+    	private final long weight;
+    	private final long bound;
+    
+    	// Abstraction function:
+    	//   the path previous -> word, or just word if previous is null, of
+    	//   depth edges weighing weight together, no path completing which
+    	//   weighs more than bound
+    	// Representation invariant:
+    	//   depth == 0 iff previous == null, else depth == previous.depth + 1
+    	//   weight <= bound
+    	// Safety from rep exposure:
+    	//   only seen by PathSearch
+    
+    	Step(Step previous, String word, long weight, long bound) {
+    		this.previous = previous;
+    		this.word = word;
+    		this.depth = previous == null ? 0 : previous.depth + 1;
+    		this.weight = weight;
+    		this.bound = bound;
+    	}
+    }
+    
+    /** Compare paths of equal depth by their words in alphabetical order. */
+    private static int compareWords(Step a, Step b) {
+    	if (a == b || a.previous == null) {
+    		return 0;
+    	}
+    	int previous = compareWords(a.previous, b.previous);
+    	return previous != 0 ? previous : a.word.compareTo(b.word);
+    }
+    
+    /**
+     * Most promising first: greatest bound, then shallowest, then alphabetical.
+     * A path's bound is never below its extensions' bounds, so with the
+     * shallowest first on ties, every path to a word at a depth is queued
+     * before the first of them is expanded.
+     */
+    private static final Comparator<Step> PROMISING = (a, b) -> a.bound != b.bound
+    		? Long.compare(b.bound, a.bound)
+    		: a.depth != b.depth ? Integer.compare(a.depth, b.depth) : compareWords(a, b);
+    
+    private final Graph<String> graph;
+    private final Bounds bounds;
+    private final String w2;
+    private final int maxIn;
+    private int visitsLeft;
+    private PriorityQueue<Step> queue;
+    private Step best = null;
+    
+    // Abstraction function:
+    //   a search for bridges to w2 in graph, bounded by bounds and by maxIn,
+    //   the heaviest edge into w2, which may still expand visitsLeft partial
+    //   paths, with the partial paths of the current length left to expand
+    //   in queue, whose best complete path so far is best, or none if null
+    // Representation invariant:
+    //   maxIn > 0, visitsLeft >= 0
+    //   best is null or a path ending in a source of w2, whose weight
+    //   includes the edge into w2
+    // Safety from rep exposure:
+    //   instances are only seen by the static method that creates them
+    
+    private PathSearch(Graph<String> graph, Bounds bounds, String w2, int maxIn, int visits) {
+    	this.graph = graph;
+    	this.bounds = bounds;
+    	this.w2 = w2;
+    	this.maxIn = maxIn;
+    	this.visitsLeft = visits;
+    }
+    
+    /**
+     * Choose the bridge between w1 and w2 of at most maxHops - 1 words.
+     *
+     * @param graph word affinity graph, not modified during the search
+     * @param bounds bounds of graph
+     * @param w1 source word, lower case
+     * @param w2 target word, lower case
+     * @param maxHops most edges on the path from w1 to w2, at least 2
+     * @param visitLimit most partial paths to expand, positive
+     * @return the words of the bridge in path order, empty if none was found
+     */
+    static List<String> bridge(Graph<String> graph, Bounds bounds, String w1, String w2,
+    		int maxHops, int visitLimit) {
+    	String one = BridgeSearch.best(graph, w1, w2);
+    	if (!one.isEmpty()) {
+    		return List.of(one);
+    	}
+    	int[] maxIn = {0};
+    	if (graph.outDegree(w1) > 0) {
+    		graph.forEachSource(w2, (source, weight) -> maxIn[0] = Math.max(maxIn[0], weight));
+    	}
+    	if (maxIn[0] == 0) {
+    		return List.of();
+    	}
+    	PathSearch search = new PathSearch(graph, bounds, w2, maxIn[0], visitLimit);
+    	for (int hops = 3; hops <= maxHops && search.best == null && search.visitsLeft > 0; hops++) {
+    		search.search(w1, hops);
+    	}
+    	LinkedList<String> words = new LinkedList<>();
+    	for (Step step = search.best; step != null && step.previous != null; step = step.previous) {
+    		words.addFirst(step.word);
+    	}
+    	return Collections.unmodifiableList(new ArrayList<>(words));
+    }
+    
+    /**
+     * Search the paths of exactly hops edges from w1 to w2, until the best
+     * is found or no visits are left.
+     */
+    private void search(String w1, int hops) {
+    	queue = new PriorityQueue<>(PROMISING);
+    	List<Set<String>> expanded = new ArrayList<>();
+    	for (int depth = 0; depth < hops - 1; depth++) {
+    		expanded.add(new HashSet<>());
+    	}
+    	queue.add(new Step(null, w1, 0, Long.MAX_VALUE));
+    	while (!queue.isEmpty() && visitsLeft > 0) {
+    		Step step = queue.poll();
+    		if (best != null && step.bound < best.weight) {
+    			return;
+    		}
+    		// the first expansion of a word at a depth has the heaviest path to it
+    		if (!expanded.get(step.depth).add(step.word)) {
+    			continue;
+    		}
+    		visitsLeft--;
+    		int remaining = hops - step.depth;
+    		if (remaining == 2) {
+    			complete(step);
+    		} else {
+    			extend(step, remaining - 1, expanded.get(step.depth + 1));
+    		}
+    	}
+    }
+    
+    /** Queue every extension of step by one edge that could still beat best. */
+    private void extend(Step step, int remaining, Set<String> expanded) {
+    	graph.forEachTarget(step.word, (target, weight) -> {
+    		int out = bounds.maxOut(target);
+    		if (out == 0 || expanded.contains(target)) {
+    			return;
+    		}
+    		long sofar = step.weight + weight;
+    		long bound = sofar + out + (long) (remaining - 2) * bounds.maxWeight + maxIn;
+    		if (best == null || bound >= best.weight) {
+    			queue.add(new Step(step, target, sofar, bound));
+    		}
+    	});
+    }
+    
+    /** Offer every path completing step with two edges as the best. */
+    private void complete(Step step) {
+    	BridgeSearch.walk(graph, step.word, w2, (bridge, in, out) -> {
+    		if (in == 0 || out == 0) {
+    			return;
+    		}
+    		long weight = step.weight + in + out;
+    		Step path = new Step(step, bridge, weight, weight);
+    		if (best == null || weight > best.weight
+    				|| weight == best.weight && compareWords(path, best) < 0) {
+    			best = path;
+    		}
+    	});
+    }
+}
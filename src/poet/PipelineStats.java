@@ -0,0 +1,181 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.List;
+
+/**
+ * Counters of the stages of an IngestPipeline at one moment, in pipeline
+ * order: reading, tokenizing and merging.
+ * Immutable.
+ */
+public class PipelineStats {
+    
+    private final List<Stage> stages;
+    private final long wallNanos;
+    
+    // Abstraction function:
+    //   a pipeline whose stages, in order, are stages, running for wallNanos
+    //   so far
+    // Representation invariant:
+    //   wallNanos >= 0
+    // Safety from rep exposure:
+    //   stages is an unmodifiable copy of immutable Stage objects
+    
+    /**
+     * Create pipeline counters.
+     * @param stages counters of each stage, in pipeline order
+     * @param wallNanos elapsed time since the pipeline started, in nanoseconds
+     */
+    public PipelineStats(List<Stage> stages, long wallNanos) {
+    	this.stages = List.copyOf(stages);
+    	this.wallNanos = wallNanos;
+    }
+    
+    /**
+     * @return counters of each stage, in pipeline order
+     */
+    public List<Stage> getStages() {
+    	return stages;
+    }
+    
+    /**
+     * @param name name of a stage
+     * @return counters of the stage with that name
+     * @throws IllegalArgumentException if there is no such stage
+     */
+    public Stage getStage(String name) {
+    	for (Stage stage : stages) {
+    		if (stage.getName().equals(name)) {
+    			return stage;
+    		}
+    	}
+    	throw new IllegalArgumentException("no stage " + name);
+    }
+    
+    /**
+     * @return elapsed time since the pipeline started, in nanoseconds
+     */
+    public long getWallNanos() {
+    	return wallNanos;
+    }
+    
+    /**
+     * @return one line per stage, then the elapsed time
+     */
+    @Override public String toString() {
+    	StringBuilder result = new StringBuilder();
+    	for (Stage stage : stages) {
+    		result.append(stage).append('\n');
+    	}
+    	result.append("%.1f ms elapsed".formatted(wallNanos / 1e6));
+    	return result.toString();
+    }
+    
+    /**
+     * Counters of one stage: the chunks of corpus it has passed on, their
+     * bytes, and the time its threads spent working and waiting, for input
+     * or for room downstream.
+     * Immutable.
+     */
+    public static class Stage {
+    
+    	private final String name;
+    	private final int threads;
+    	private final long chunks;
+    	private final long bytes;
+    	private final long busyNanos;
+    	private final long waitNanos;
+    
+    	// Abstraction function:
+    	//   stage name run by threads threads, which passed on chunks chunks
+    	//   of bytes bytes, working for busyNanos and waiting for waitNanos in
+    	//   all
+    	// Representation invariant:
+    	//   threads > 0; chunks, bytes, busyNanos, waitNanos >= 0
+    	// Safety from rep exposure:
+    	//   all fields are private, final and immutable
+    
+    	/**
+    	 * Create stage counters.
+    	 * @param name name of the stage
+    	 * @param threads threads running the stage, positive
+    	 * @param chunks chunks of corpus passed on
+    	 * @param bytes bytes of corpus in those chunks
+    	 * @param busyNanos time the stage's threads spent working, in all
+    	 * @param waitNanos time the stage's threads spent waiting, in all
+    	 */
+    	public Stage(String name, int threads, long chunks, long bytes, long busyNanos, long waitNanos) {
+    		this.name = name;
+    		this.threads = threads;
+    		this.chunks = chunks;
+    		this.bytes = bytes;
+    		this.busyNanos = busyNanos;
+    		this.waitNanos = waitNanos;
+    	}
+    
+    	/**
+    	 * @return name of the stage
+    	 */
+    	public String getName() {
+    		return name;
+    	}
+    
+    	/**
+    	 * @return threads running the stage
+    	 */
+    	public int getThreads() {
+    		return threads;
+    	}
+    
+    	/**
+    	 * @return chunks of corpus passed on
+    	 */
+    	public long getChunks() {
+    		return chunks;
+    	}
+    
+    	/**
+    	 * @return bytes of corpus in the chunks passed on
+    	 */
+    	public long getBytes() {
+    		return bytes;
+    	}
+    
+    	/**
+    	 * @return time the stage's threads spent working, in nanoseconds, in
+    	 *         all
+    	 */
+    	public long getBusyNanos() {
+    		return busyNanos;
+    	}
+    
+    	/**
+    	 * @return time the stage's threads spent waiting for input or for
+    	 *         room downstream, in nanoseconds, in all
+    	 */
+    	public long getWaitNanos() {
+    		return waitNanos;
+    	}
+    
+    	/**
+    	 * @return bytes processed per second of work by one thread, 0 if the
+    	 *         stage has not worked yet
+    	 */
+    	public double getBytesPerSecond() {
+    		return busyNanos == 0 ? 0 : bytes * 1e9 / busyNanos;
+    	}
+    
+    	/**
+    	 * @return the stage's name, threads, chunks, bytes, throughput in MB/s
+    	 *         and the share of its time spent waiting
+    	 */
+    	@Override public String toString() {
+    		long total = busyNanos + waitNanos;
+    		return "%-8s %2d threads %6d chunks %12d bytes %8.1f MB/s %5.1f%% waiting".formatted(
+    				name, threads, chunks, bytes, getBytesPerSecond() / 1e6,
+    				total == 0 ? 0 : 100.0 * waitNanos / total);
+    	}
+    }
+}
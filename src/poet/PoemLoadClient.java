@@ -0,0 +1,149 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A load generator for {@link PoemServer}, measuring the latency seen by
+ * clients sending requests over several connections, each keeping a number of
+ * requests in flight.
+ */
+public class PoemLoadClient {
+    
+    private PoemLoadClient() {
+    	// not instantiable
+    }
+    
+    /**
+     * Send requests to a poem server and wait for every answer.
+     *
+     * @param address address of the server
+     * @param port port of the server
+     * @param connections number of connections to open at once, must be
+     *        positive
+     * @param requests number of requests to send on each connection
+     * @param depth most requests in flight on a connection, must be positive;
+     *        1 waits for each answer before sending the next request
+     * @param inputs inputs to send, in turn, must not be empty or contain
+     *        line breaks
+     * @return the latency of every request, from just before it is sent to
+     *         just after its answer is read
+     * @throws IOException if a connection fails, or an answer is missing
+     */
+    public static LatencyHistogram run(InetAddress address, int port, int connections,
+    		int requests, int depth, List<String> inputs) throws IOException {
+    	if (connections <= 0 || depth <= 0 || inputs.isEmpty()) {
+    		throw new IllegalArgumentException("need a connection, a depth and an input");
+    	}
+    	LatencyHistogram latency = new LatencyHistogram();
+    	// two threads per connection: one sends, one reads the answers
+    	ExecutorService threads = Executors.newFixedThreadPool(2 * connections);
+    	List<Socket> sockets = new ArrayList<>();
+    	try {
+    		CompletionService<Void> clients = new ExecutorCompletionService<>(threads);
+    		for (int c = 0; c < connections; c++) {
+    			Socket socket = new Socket(address, port);
+    			sockets.add(socket);
+    			socket.setTcpNoDelay(true);
+    			BlockingQueue<Long> sent = new ArrayBlockingQueue<>(depth);
+    			int first = c;
+    			clients.submit(() -> send(socket, requests, sent, inputs, first));
+    			clients.submit(() -> receive(socket, requests, sent, latency));
+    		}
+    		// in the order they finish, so that the first failure closes the
+    		// sockets and stops the other side of its connection, which may be
+    		// waiting for it
+    		for (int i = 0; i < 2 * connections; i++) {
+    			clients.take().get();
+    		}
+    	} catch (ExecutionException e) {
+    		if (e.getCause() instanceof IOException) {
+    			throw (IOException) e.getCause();
+    		}
+    		throw new IOException(e.getCause());
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new IOException("interrupted", e);
+    	} finally {
+    		for (Socket socket : sockets) {
+    			socket.close();
+    		}
+    		threads.shutdownNow();
+    	}
+    	return latency;
+    }
+    
+    private static Void send(Socket socket, int requests, BlockingQueue<Long> sent,
+    		List<String> inputs, int first) throws IOException, InterruptedException {
+    	BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+    			socket.getOutputStream(), StandardCharsets.UTF_8));
+    	for (int i = 0; i < requests; i++) {
+    		sent.put(System.nanoTime());
+    		out.write(inputs.get((first + i) % inputs.size()));
+    		out.write('\n');
+    		out.flush();
+    	}
+    	return null;
+    }
+    
+    private static Void receive(Socket socket, int requests, BlockingQueue<Long> sent,
+    		LatencyHistogram latency) throws IOException, InterruptedException {
+    	BufferedReader in = new BufferedReader(new InputStreamReader(
+    			socket.getInputStream(), StandardCharsets.UTF_8));
+    	for (int i = 0; i < requests; i++) {
+    		if (in.readLine() == null) {
+    			throw new IOException("server closed the connection after "
+    					+ i + " of " + requests + " answers");
+    		}
+    		latency.record(System.nanoTime() - sent.take());
+    	}
+    	return null;
+    }
+    
+    /**
+     * Generate load on a poem server on this machine, and print the rate and
+     * latency percentiles seen.
+     *
+     * @param args port [connections [requests per connection [depth
+     *        [input...]]]], by default 4 connections of 10000 requests each
+     *        with 16 in flight, sending "Test the system."
+     * @throws IOException if the server cannot be reached
+     */
+    public static void main(String[] args) throws IOException {
+    	if (args.length == 0) {
+    		System.err.println("usage: PoemLoadClient port [connections [requests [depth [input...]]]]");
+    		System.exit(2);
+    	}
+    	int port = Integer.parseInt(args[0]);
+    	int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    	int requests = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+    	int depth = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+    	List<String> inputs = args.length > 4
+    			? List.of(args).subList(4, args.length) : List.of("Test the system.");
+    
+    	long start = System.nanoTime();
+    	LatencyHistogram latency = run(InetAddress.getLoopbackAddress(), port,
+    			connections, requests, depth, inputs);
+    	double seconds = (System.nanoTime() - start) / 1e9;
+    	System.out.printf("%d connections, depth %d: %.0f requests/s over %.1fs, %s%n",
+    			connections, depth, latency.count() / seconds, seconds, latency);
+    }
+}
@@ -0,0 +1,199 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A server generating poems from one GraphPoet for clients on a socket.
+ *
+ * <p>The protocol is line based, in UTF-8: every line a client sends is an
+ * input, and the server answers each with one line holding its poem, in the
+ * order the inputs were sent. A connection stays open for any number of
+ * requests until the client closes it, and a client may send many inputs
+ * before reading their poems; answers are flushed whenever the server has
+ * read every input sent so far.
+ *
+ * <p>Each connection is served by its own thread: a virtual thread where the
+ * runtime has them (Java 21 and later), else a pooled platform thread.
+ * Poems are generated without locking, see {@link GraphPoet#learn(String)}.
+ */
+public class PoemServer implements Closeable {
+    
+    /** Pause after a first failure to accept, doubled for each in a row. */
+    static final long MIN_BACKOFF_MILLIS = 1;
+    /** Longest pause after failures to accept. */
+    static final long MAX_BACKOFF_MILLIS = 1000;
+    
+    private final GraphPoet poet;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = threadPerConnection();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final long startNanos = System.nanoTime();
+    private final Thread acceptor;
+    
+    // Abstraction function:
+    //   a server answering on serverSocket with poems of poet to the clients
+    //   connected by open, the time to generate each poem so far recorded in
+    //   latency
+    // Representation invariant:
+    //   open holds the accepted sockets not yet closed
+    // Safety from rep exposure:
+    //   all fields are private; latency is handed out on purpose, and can
+    //   only be added to
+    // Thread safety argument:
+    //   poet and latency are thread-safe, open is a concurrent set, other
+    //   fields are final and only used by their own thread-safe methods
+    
+    /**
+     * Start serving poems.
+     *
+     * @param poet poet to generate poems with
+     * @param address local address to listen on, e.g.
+     *        {@link InetAddress#getLoopbackAddress()}
+     * @param port port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public PoemServer(GraphPoet poet, InetAddress address, int port) throws IOException {
+    	this.poet = poet;
+    	this.serverSocket = new ServerSocket(port, 0, address);
+    	this.acceptor = new Thread(this::accept, "poem-server-acceptor");
+    	acceptor.start();
+    }
+    
+    /**
+     * @return an executor starting a thread per task, virtual if the runtime
+     *         supports virtual threads
+     */
+    static ExecutorService threadPerConnection() {
+    	try {
+    		return (ExecutorService) Executors.class
+    				.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    	} catch (ReflectiveOperationException e) {
+    		return Executors.newCachedThreadPool();
+    	}
+    }
+    
+    /**
+     * @return the port this server listens on
+     */
+    public int getPort() {
+    	return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * @return the time taken to generate each poem served so far, from
+     *         reading its input to buffering its answer
+     */
+    public LatencyHistogram latency() {
+    	return latency;
+    }
+    
+    /**
+     * @return poems served so far, poems per second since the server started,
+     *         and percentiles of the time to generate them
+     */
+    public String report() {
+    	double seconds = (System.nanoTime() - startNanos) / 1e9;
+    	return String.format("%.0f poems/s over %.1fs, %s",
+    			latency.count() / seconds, seconds, latency);
+    }
+    
+    /**
+     * @param failures failures to accept in a row, at least 1
+     * @return milliseconds to pause before accepting again
+     */
+    static long backoffMillis(int failures) {
+    	int shift = Math.min(failures - 1, Long.SIZE - 2);
+    	return Math.min(MIN_BACKOFF_MILLIS << shift, MAX_BACKOFF_MILLIS);
+    }
+    
+    private void accept() {
+    	int failures = 0;
+    	while (!serverSocket.isClosed()) {
+    		try {
+    			Socket socket = serverSocket.accept();
+    			failures = 0;
+    			open.add(socket);
+    			connections.execute(() -> serve(socket));
+    		} catch (IOException e) {
+    			if (serverSocket.isClosed()) {
+    				// closed by close()
+    				return;
+    			}
+    			// e.g. out of file descriptors: accepting again at once would
+    			// only fail again at once
+    			System.err.println("poem server: " + e);
+    			try {
+    				Thread.sleep(backoffMillis(++failures));
+    			} catch (InterruptedException stop) {
+    				return;
+    			}
+    		}
+    	}
+    }
+    
+    private void serve(Socket socket) {
+    	try (socket;
+    			BufferedReader in = new BufferedReader(new InputStreamReader(
+    					socket.getInputStream(), StandardCharsets.UTF_8));
+    			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+    					socket.getOutputStream(), StandardCharsets.UTF_8))) {
+    		socket.setTcpNoDelay(true);
+    		for (String input = in.readLine(); input != null; input = in.readLine()) {
+    			long start = System.nanoTime();
+    			out.write(poet.poem(input));
+    			out.write('\n');
+    			latency.record(System.nanoTime() - start);
+    			if (!in.ready()) {
+    				out.flush();
+    			}
+    		}
+    	} catch (SocketException e) {
+    		// closed by the client or by close()
+    	} catch (IOException e) {
+    		System.err.println("poem server: " + e);
+    	} finally {
+    		open.remove(socket);
+    	}
+    }
+    
+    /**
+     * Stop accepting connections, close every open connection, and wait for
+     * their threads to finish.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override public void close() throws IOException {
+    	serverSocket.close();
+    	// wake the acceptor if it is pausing after a failure
+    	acceptor.interrupt();
+    	try {
+    		acceptor.join();
+    		for (Socket socket : open) {
+    			socket.close();
+    		}
+    		connections.shutdown();
+    		connections.awaitTermination(10, TimeUnit.SECONDS);
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    	}
+    }
+}
@@ -0,0 +1,279 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.Arrays;
+
+/**
+ * Approximate counts of ordered pairs of word ids in bounded memory: a
+ * count-min sketch estimates the count of every pair, and only the pairs
+ * with the greatest estimates are kept.
+ *
+ * <p>The sketch has depth rows of width counters; each pair is hashed to one
+ * counter per row, and adding to the pair raises only those of its counters
+ * below the new estimate, their minimum plus the amount (conservative
+ * update). An estimate is never below the true count, and with probability
+ * at least 1 - e^-depth it exceeds it by at most (e / width) * N, where N is
+ * the sum of all amounts added.
+ *
+ * <p>The kept pairs are a min-heap by estimate, indexed by an open-addressing
+ * table. A pair not kept enters when its estimate exceeds the least kept
+ * estimate, which it evicts. That least estimate never decreases, so every
+ * pair whose true count exceeds it at the end is kept; since the kept
+ * estimates sum to at most N + maxPairs * (e / width) * N, that includes,
+ * with the probability above, every pair counted more than
+ * N / maxPairs + (e / width) * N times.
+ *
+ * <p>Memory is fixed at construction: 4 * width * depth bytes for the
+ * sketch, and 36 to 60 bytes per kept pair for the heap and its index.
+ * Counting an adjacency allocates nothing.
+ * Mutable, not safe for use by more than one thread.
+ * This class is internal to GraphPoet's corpus ingestion.
+ */
+class SketchedPairCounts implements PairCounter {
+    
+    private static final long EMPTY = -1L;
+    private static final int MAX_SIZE = 1 << 29;
+    
+    private final int[] sketch;
+    private final int depth;
+    private final int mask;
+    private final int shift;
+    private final long[] seeds;
+    private final long[] heapKeys;
+    private final int[] heapCounts;
+    private int size = 0;
+    private final long[] indexKeys;
+    private final int[] indexPositions;
+    
+    // Abstraction function:
+    //   counts of pairs whose estimated count is the least of the counters
+    //   sketch[row * (mask + 1) + column(key, row)] over every row < depth,
+    //   of which the pairs key heapKeys[0..size) are kept, where
+    //   key(first, second) packs a pair into a long
+    // Representation invariant:
+    //   sketch.length == depth * (mask + 1), mask + 1 is a power of two,
+    //   shift == 64 - log2(mask + 1), seeds.length == depth, seeds are odd
+    //   heapKeys[0..size) are distinct, heapCounts[i] is the estimate of
+    //   heapKeys[i] when it was last added, and heapCounts[(i - 1) / 2] <=
+    //   heapCounts[i] for 0 < i < size
+    //   indexKeys is an open-addressing table with linear probing holding
+    //   exactly heapKeys[0..size), with indexPositions[j] the heap position
+    //   of indexKeys[j]; indexKeys.length is a power of two >= 2 * heapKeys.length
+    // Safety from rep exposure:
+    //   all fields are private, and only primitives are handed out
+    
+    /**
+     * Create empty counts.
+     * @param maxPairs most pairs to keep, in [1, 2^29]
+     * @param width counters per row of the sketch, in [1, 2^29], rounded up
+     *        to a power of two
+     * @param depth rows of the sketch, positive
+     */
+    SketchedPairCounts(int maxPairs, int width, int depth) {
+    	if (maxPairs <= 0 || maxPairs > MAX_SIZE || width <= 0 || width > MAX_SIZE || depth <= 0) {
+    		throw new IllegalArgumentException("maxPairs and width must be in [1, 2^29], depth "
+    				+ "positive: " + maxPairs + ", " + width + ", " + depth);
+    	}
+    	int columns = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+    	this.sketch = new int[Math.multiplyExact(columns, depth)];
+    	this.depth = depth;
+    	this.mask = columns - 1;
+    	this.shift = 64 - Integer.numberOfTrailingZeros(columns);
+    	this.seeds = new long[depth];
+    	for (int row = 0; row < depth; row++) {
+    		seeds[row] = mix(row + 1) | 1;
+    	}
+    	this.heapKeys = new long[maxPairs];
+    	this.heapCounts = new int[maxPairs];
+    	int capacity = indexCapacity(maxPairs);
+    	this.indexKeys = new long[capacity];
+    	Arrays.fill(indexKeys, EMPTY);
+    	this.indexPositions = new int[capacity];
+    }
+    
+    /**
+     * @param maxPairs most pairs to keep, in [1, 2^29]
+     * @return slots of the index of the kept pairs: a power of two, at least
+     *         twice maxPairs so that probes stay short, and at most 2^30
+     */
+    static int indexCapacity(int maxPairs) {
+    	// highestOneBit(2^29) << 2 would overflow to a negative int
+    	return Math.min(Integer.highestOneBit(maxPairs), MAX_SIZE >> 1) << 2;
+    }
+    
+    private static long key(int first, int second) {
+    	return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+    
+    private static long mix(long key) {
+    	long h = key;
+    	h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+    	h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    	return h ^ (h >>> 33);
+    }
+    
+    /**
+     * Index in sketch of the counter of a pair with mixed key h in a row.
+     * Each row multiplies by a seed of its own and takes the high bits, so
+     * two pairs sharing a counter in one row are no likelier to share one in
+     * another; deriving the rows from one hash would correlate them.
+     */
+    private int counter(long h, int row) {
+    	int column = (int) ((h * seeds[row]) >>> shift) & mask;
+    	return row * (mask + 1) + column;
+    }
+    
+    /**
+     * @return estimated count of the pair (first, second), never below the
+     *         amounts added to it
+     */
+    int estimate(int first, int second) {
+    	return estimate(mix(key(first, second)));
+    }
+    
+    private int estimate(long h) {
+    	int min = Integer.MAX_VALUE;
+    	for (int row = 0; row < depth; row++) {
+    		min = Math.min(min, sketch[counter(h, row)]);
+    	}
+    	return min;
+    }
+    
+    @Override public void add(int first, int second, int count) {
+    	long key = key(first, second);
+    	long h = mix(key);
+    	int min = estimate(h);
+    	int estimate = min > Integer.MAX_VALUE - count ? Integer.MAX_VALUE : min + count;
+    	for (int row = 0; row < depth; row++) {
+    		int i = counter(h, row);
+    		if (sketch[i] < estimate) {
+    			sketch[i] = estimate;
+    		}
+    	}
+    
+    	int position = find(key);
+    	if (position >= 0) {
+    		heapCounts[position] = estimate;
+    		siftDown(position);
+    	} else if (size < heapKeys.length) {
+    		heapKeys[size] = key;
+    		heapCounts[size] = estimate;
+    		put(key, size);
+    		siftUp(size++);
+    	} else if (estimate > heapCounts[0]) {
+    		remove(heapKeys[0]);
+    		heapKeys[0] = key;
+    		heapCounts[0] = estimate;
+    		put(key, 0);
+    		siftDown(0);
+    	}
+    }
+    
+    /**
+     * Perform an operation on every kept pair with its current estimated
+     * count, in no particular order.
+     * @param action operation to perform
+     */
+    @Override public void forEach(PairConsumer action) {
+    	for (int i = 0; i < size; i++) {
+    		long key = heapKeys[i];
+    		action.accept((int) (key >>> 32), (int) key, estimate(mix(key)));
+    	}
+    }
+    
+    /**
+     * @return number of pairs kept, at most maxPairs
+     */
+    int size() {
+    	return size;
+    }
+    
+    private void siftUp(int position) {
+    	while (position > 0) {
+    		int parent = (position - 1) / 2;
+    		if (heapCounts[parent] <= heapCounts[position]) {
+    			return;
+    		}
+    		swap(parent, position);
+    		position = parent;
+    	}
+    }
+    
+    private void siftDown(int position) {
+    	while (true) {
+    		int least = position;
+    		int left = 2 * position + 1;
+    		if (left < size && heapCounts[left] < heapCounts[least]) {
+    			least = left;
+    		}
+    		if (left + 1 < size && heapCounts[left + 1] < heapCounts[least]) {
+    			least = left + 1;
+    		}
+    		if (least == position) {
+    			return;
+    		}
+    		swap(position, least);
+    		position = least;
+    	}
+    }
+    
+    private void swap(int i, int j) {
+    	long key = heapKeys[i];
+    	heapKeys[i] = heapKeys[j];
+    	heapKeys[j] = key;
+    	int count = heapCounts[i];
+    	heapCounts[i] = heapCounts[j];
+    	heapCounts[j] = count;
+    	put(heapKeys[i], i);
+    	put(heapKeys[j], j);
+    }
+    
+    private int slot(long key) {
+    	return (int) mix(key) & (indexKeys.length - 1);
+    }
+    
+    /** @return heap position of key, or -1 if it is not kept */
+    private int find(long key) {
+    	int indexMask = indexKeys.length - 1;
+    	for (int j = slot(key); indexKeys[j] != EMPTY; j = (j + 1) & indexMask) {
+    		if (indexKeys[j] == key) {
+    			return indexPositions[j];
+    		}
+    	}
+    	return -1;
+    }
+    
+    /** Set the heap position of key, adding it to the index if needed. */
+    private void put(long key, int position) {
+    	int indexMask = indexKeys.length - 1;
+    	int j = slot(key);
+    	while (indexKeys[j] != EMPTY && indexKeys[j] != key) {
+    		j = (j + 1) & indexMask;
+    	}
+    	indexKeys[j] = key;
+    	indexPositions[j] = position;
+    }
+    
+    /** Remove key, which is in the index, shifting back the keys after it. */
+    private void remove(long key) {
+    	int indexMask = indexKeys.length - 1;
+    	int hole = slot(key);
+    	while (indexKeys[hole] != key) {
+    		hole = (hole + 1) & indexMask;
+    	}
+    	indexKeys[hole] = EMPTY;
+    	for (int j = (hole + 1) & indexMask; indexKeys[j] != EMPTY; j = (j + 1) & indexMask) {
+    		int home = slot(indexKeys[j]);
+    		// keep j where it is if its home lies cyclically in (hole, j]
+    		boolean stays = hole <= j ? hole < home && home <= j : hole < home || home <= j;
+    		if (!stays) {
+    			indexKeys[hole] = indexKeys[j];
+    			indexPositions[hole] = indexPositions[j];
+    			indexKeys[j] = EMPTY;
+    			hole = j;
+    		}
+    	}
+    }
+}
@@ -0,0 +1,262 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+import graph.DecayingGraph;
+import graph.Graph;
+
+/**
+ * A graph-based poetry generator for live text, whose affinity graph reflects
+ * recent usage.
+ *
+ * <p>Words, adjacencies and poems are as described by {@link GraphPoet},
+ * except that the weight of every edge decays: it halves every half-life,
+ * measured either in words learned or in wall-clock time, and an edge whose
+ * decayed weight falls below a threshold is dropped, as is a word with no
+ * edges that has not been seen for as long. Weights are rounded to the
+ * nearest int, but never below 1. So weights never grow without bound, and
+ * memory stays bounded while text keeps being learned: with a half-life of H
+ * words and a threshold of t, the poet holds at most about 2 * H / (0.69 * t)
+ * edges. See {@link DecayingGraph}.
+ *
+ * <p>Unlike a GraphPoet, a StreamingPoet learns in place, without copying
+ * its graph: poems wait while text is being learned, and learning waits for
+ * the poems being generated.
+ * Thread-safe.
+ */
+public class StreamingPoet {
+    
+    private static final int STREAM_BUFFER_CHARS = 8192;
+    
+    private final DecayingGraph<String> graph;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long words = 0;
+    
+    // Abstraction function:
+    //   a poet whose affinity graph is graph, after learning words words
+    // Representation invariant:
+    //   words >= 0
+    // Safety from rep exposure:
+    //   graph is private and final, getGraph() makes a copy
+    // Thread safety argument:
+    //   graph and words are only read holding lock's read lock and only
+    //   modified holding its write lock; observers of graph do not modify it,
+    //   so readers may share it
+    
+    private StreamingPoet(double halfLife, double threshold, LongSupplier clock) {
+    	this.graph = new DecayingGraph<>(halfLife, threshold, clock == null ? () -> words : clock);
+    }
+    
+    /**
+     * Create a poet whose weights decay with the words it learns.
+     *
+     * @param halfLife words learned for every weight to halve, positive
+     * @param threshold least decayed weight of an edge kept, in (0, 1]
+     * @return a new poet with an empty graph
+     */
+    public static StreamingPoet byWords(double halfLife, double threshold) {
+    	return new StreamingPoet(halfLife, threshold, null);
+    }
+    
+    /**
+     * Create a poet whose weights decay with wall-clock time.
+     *
+     * @param halfLife time for every weight to halve, positive
+     * @param threshold least decayed weight of an edge kept, in (0, 1]
+     * @return a new poet with an empty graph
+     */
+    public static StreamingPoet byTime(Duration halfLife, double threshold) {
+    	return byClock(halfLife.toNanos(), threshold, System::nanoTime);
+    }
+    
+    /**
+     * Create a poet whose weights decay with the time on a clock.
+     *
+     * @param halfLife time for every weight to halve, in the clock's units,
+     *        positive
+     * @param threshold least decayed weight of an edge kept, in (0, 1]
+     * @param clock current time, never decreasing
+     * @return a new poet with an empty graph
+     */
+    static StreamingPoet byClock(double halfLife, double threshold, LongSupplier clock) {
+    	return new StreamingPoet(halfLife, threshold, clock);
+    }
+    
+    /**
+     * Add text to the stream this poet learns from: each word's adjacency to
+     * the word after it on the same line adds 1 to the weight of its edge,
+     * which then decays. Adjacencies are not counted across calls, as if each
+     * text were separated from the rest by a line break.
+     *
+     * @param text text to learn
+     */
+    public void learn(String text) {
+    	lock.writeLock().lock();
+    	try {
+    		Tokenizer.CharScanner scanner = new Tokenizer.CharScanner(new Learner());
+    		scanner.feed(text);
+    		scanner.finish();
+    	} catch (IOException e) {
+    		throw new AssertionError("a Learner does not throw", e);
+    	} finally {
+    		lock.writeLock().unlock();
+    	}
+    }
+    
+    /**
+     * Add text to the stream this poet learns from, as by
+     * {@link #learn(String)}, as it is read: poems generated meanwhile see the
+     * text read so far. The last word of text is learned at its end.
+     *
+     * @param text text to learn, read to the end but not closed
+     * @throws IOException if text cannot be read, in which case the text read
+     *         before has been learned
+     */
+    public void learn(Reader text) throws IOException {
+    	char[] buffer = new char[STREAM_BUFFER_CHARS];
+    	Tokenizer.CharScanner scanner = new Tokenizer.CharScanner(new Learner());
+    	int n;
+    
+    	while ((n = text.read(buffer)) != -1) {
+    		lock.writeLock().lock();
+    		try {
+    			scanner.feed(CharBuffer.wrap(buffer, 0, n));
+    		} finally {
+    			lock.writeLock().unlock();
+    		}
+    	}
+    	lock.writeLock().lock();
+    	try {
+    		scanner.finish();
+    	} finally {
+    		lock.writeLock().unlock();
+    	}
+    }
+    
+    /**
+     * Learns the words of one text as they are scanned; called holding the
+     * write lock.
+     */
+    private class Learner implements Tokenizer.WordSink {
+    	
+    	private String pre = "";
+    	
+    	// Abstraction function:
+    	//   a text being learned, whose last word on the current line is pre,
+    	//   lower case, or none if pre is ""
+    	
+    	@Override public void word(String word) {
+    		String cur = word.toLowerCase();
+    		words++;
+    		if (pre.isEmpty()) {
+    			graph.add(cur);
+    		} else {
+    			graph.increment(pre, cur, 1);
+    		}
+    		pre = cur;
+    	}
+    	
+    	@Override public void lineBreak() {
+    		pre = "";
+    	}
+    }
+    
+    /**
+     * Generate a poem from the affinity graph as it is now.
+     *
+     * @param input string from which to create the poem
+     * @return poem (as described by {@link GraphPoet#poem(String)})
+     */
+    public String poem(String input) {
+    	lock.readLock().lock();
+    	try {
+    		return GraphPoet.compose(input, (w1, w2) -> BridgeSearch.best(graph, w1, w2));
+    	} finally {
+    		lock.readLock().unlock();
+    	}
+    }
+    
+    /**
+     * Find the alternatives for the bridge word between two words, as by
+     * {@link GraphPoet#bridges(String, String, int)}, from the affinity graph
+     * as it is now.
+     *
+     * @param w1 first word, case-insensitive
+     * @param w2 second word, case-insensitive
+     * @param k most bridges to return, nonnegative
+     * @return the best k bridge words in lower case, or all of them if there
+     *         are fewer, preferred first; unmodifiable
+     */
+    public List<Bridge> bridges(String w1, String w2, int k) {
+    	if (k < 0) {
+    		throw new IllegalArgumentException("k must be nonnegative: " + k);
+    	}
+    	lock.readLock().lock();
+    	try {
+    		return BridgeSearch.top(graph, w1.toLowerCase(), w2.toLowerCase(), k);
+    	} finally {
+    		lock.readLock().unlock();
+    	}
+    }
+    
+    /**
+     * @return number of words learned so far
+     */
+    public long wordsLearned() {
+    	lock.readLock().lock();
+    	try {
+    		return words;
+    	} finally {
+    		lock.readLock().unlock();
+    	}
+    }
+    
+    /**
+     * @return words and edges held in memory, including those that have
+     *         decayed away but are not evicted yet
+     */
+    int storedSize() {
+    	lock.readLock().lock();
+    	try {
+    		return graph.storedSize();
+    	} finally {
+    		lock.readLock().unlock();
+    	}
+    }
+    
+    /**
+     * @return a copy of the affinity graph with its weights as they are now
+     */
+    public Graph<String> getGraph() {
+    	lock.readLock().lock();
+    	try {
+    		Graph<String> copy = Graph.empty();
+    		for (String vertex : graph.vertices()) {
+    			copy.add(vertex);
+    		}
+    		graph.forEachEdge(copy::set);
+    		return copy;
+    	} finally {
+    		lock.readLock().unlock();
+    	}
+    }
+    
+    @Override public String toString() {
+    	lock.readLock().lock();
+    	try {
+    		return graph.toString();
+    	} finally {
+    		lock.readLock().unlock();
+    	}
+    }
+}
@@ -0,0 +1,338 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits text into words as GraphPoet defines them: non-empty strings of
+ * non-whitespace characters, where whitespace is as defined by
+ * {@link Character#isWhitespace(int)}.
+ * 
+ * <p>An instance scans a corpus given as UTF-8 bytes, possibly in many
+ * buffers, folds each word to lower case as it scans, and records the words
+ * and line breaks in a CorpusCounts. A word that has been seen before is
+ * found by its bytes, so no String is created for it. Words containing
+ * non-ASCII characters are folded with {@link String#toLowerCase()} instead.
+ * 
+ * <p>The static methods scan text given as chars, such as poem input, and a
+ * {@link CharScanner} scans a stream of chars for its words and line breaks.
+ * 
+ * <p>Mutable, not safe for use by more than one thread.
+ * This class is internal to GraphPoet.
+ */
+class Tokenizer {
+    
+    private static final int BUFFER_BYTES = 1 << 16;
+    
+    private static final boolean[] ASCII_WHITESPACE = new boolean[128];
+    static {
+    	for (int c = 0; c < ASCII_WHITESPACE.length; c++) {
+    		ASCII_WHITESPACE[c] = Character.isWhitespace(c);
+    	}
+    }
+    
+    private final CorpusCounts counts;
+    private byte[] token = new byte[64];
+    private int length = 0;
+    private int hash = 0;
+    private boolean ascii = true;
+    private int charStart = 0;
+    private int pending = 0;
+    
+    // Abstraction function:
+    //   a scan of a corpus whose completed words and line breaks have been
+    //   recorded in counts, and whose current word, if length > 0, starts
+    //   with token[0..length) (lower case where ascii)
+    // Representation invariant:
+    //   0 <= length <= token.length
+    //   hash == WordTable.hash(token, 0, length) if ascii
+    //   ascii is true iff every byte in token[0..length) is < 0x80
+    //   if pending > 0, token[charStart..length) is an incomplete multi-byte
+    //   character lacking pending bytes
+    // Safety from rep exposure:
+    //   all fields are private; counts is shared with the creator on purpose
+    
+    /**
+     * Count the words and adjacencies of a whole corpus.
+     * @param corpus UTF-8 bytes of the corpus, read to the end but not closed
+     * @return counts of the corpus
+     * @throws IOException if the corpus cannot be read
+     */
+    public static CorpusCounts count(InputStream corpus) throws IOException {
+    	return count(corpus, new CorpusCounts());
+    }
+    
+    /**
+     * Count the words and adjacencies of a whole corpus into given counts.
+     * @param corpus UTF-8 bytes of the corpus, read to the end but not closed
+     * @param counts counts of an empty piece, to record the corpus in
+     * @return counts
+     * @throws IOException if the corpus cannot be read
+     */
+    public static CorpusCounts count(InputStream corpus, CorpusCounts counts) throws IOException {
+    	Tokenizer tokenizer = new Tokenizer(counts);
+    	byte[] buffer = new byte[BUFFER_BYTES];
+    	int n;
+    	while ((n = corpus.read(buffer)) >= 0) {
+    		tokenizer.feed(buffer, 0, n);
+    	}
+    	tokenizer.finish();
+    	return counts;
+    }
+    
+    /**
+     * Count the words and adjacencies of a whole corpus given as chars.
+     * @param corpus the corpus, read to the end but not closed
+     * @return counts of the corpus
+     * @throws IOException if the corpus cannot be read
+     */
+    public static CorpusCounts count(Reader corpus) throws IOException {
+    	CorpusCounts counts = new CorpusCounts();
+    	Tokenizer tokenizer = new Tokenizer(counts);
+    	CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+    			.onMalformedInput(CodingErrorAction.REPLACE)
+    			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+    	CharBuffer chars = CharBuffer.allocate(BUFFER_BYTES / 4);
+    	ByteBuffer bytes = ByteBuffer.allocate(BUFFER_BYTES);
+    	boolean done = false;
+    	while (!done) {
+    		done = corpus.read(chars) < 0;
+    		chars.flip();
+    		// at most 3 bytes per char, so bytes never overflows
+    		encoder.encode(chars, bytes, done);
+    		if (done) {
+    			encoder.flush(bytes);
+    		}
+    		tokenizer.feed(bytes.array(), 0, bytes.position());
+    		bytes.clear();
+    		chars.compact();
+    	}
+    	tokenizer.finish();
+    	return counts;
+    }
+    
+    /**
+     * Create a tokenizer recording into counts.
+     * @param counts where words and line breaks are recorded
+     */
+    public Tokenizer(CorpusCounts counts) {
+    	this.counts = counts;
+    }
+    
+    /**
+     * Scan the next bytes of the corpus.
+     * @param buffer array holding UTF-8 bytes
+     * @param off index of the first byte to scan
+     * @param len number of bytes to scan
+     */
+    public void feed(byte[] buffer, int off, int len) {
+    	for (int i = off; i < off + len; i++) {
+    		int b = buffer[i] & 0xFF;
+    		if (pending > 0) {
+    			if ((b & 0xC0) == 0x80) {
+    				append(b);
+    				if (--pending == 0 && Character.isWhitespace(codePoint())) {
+    					length = charStart;
+    					endWord();
+    				}
+    				continue;
+    			}
+    			pending = 0;
+    		}
+    		if (b < 0x80) {
+    			if (ASCII_WHITESPACE[b]) {
+    				endWord();
+    				if (b == '\n' || b == '\r') {
+    					counts.lineBreak();
+    				}
+    			} else {
+    				if (b >= 'A' && b <= 'Z') {
+    					b += 'a' - 'A';
+    				}
+    				append(b);
+    				hash = 31 * hash + b;
+    			}
+    		} else {
+    			ascii = false;
+    			if (b >= 0xC0) {
+    				charStart = length;
+    				pending = b >= 0xF0 ? 3 : b >= 0xE0 ? 2 : 1;
+    			}
+    			append(b);
+    		}
+    	}
+    }
+    
+    /**
+     * Finish the scan at the end of the corpus.
+     */
+    public void finish() {
+    	pending = 0;
+    	endWord();
+    }
+    
+    private void append(int b) {
+    	if (length == token.length) {
+    		token = Arrays.copyOf(token, length * 2);
+    	}
+    	token[length++] = (byte) b;
+    }
+    
+    /**
+     * @return code point encoded in the complete character token[charStart..length)
+     */
+    private int codePoint() {
+    	int lead = token[charStart] & 0xFF;
+    	int cp = lead >= 0xF0 ? lead & 0x07 : lead >= 0xE0 ? lead & 0x0F : lead & 0x1F;
+    	for (int i = charStart + 1; i < length; i++) {
+    		cp = (cp << 6) | (token[i] & 0x3F);
+    	}
+    	return cp;
+    }
+    
+    private void endWord() {
+    	if (length > 0) {
+    		WordTable words = counts.words();
+    		int id;
+    		if (ascii) {
+    			id = words.intern(token, 0, length, hash);
+    		} else {
+    			String word = new String(token, 0, length, StandardCharsets.UTF_8).toLowerCase();
+    			byte[] folded = word.getBytes(StandardCharsets.UTF_8);
+    			id = words.intern(folded, 0, folded.length,
+    					WordTable.hash(folded, 0, folded.length), word);
+    		}
+    		counts.word(id);
+    	}
+    	length = 0;
+    	hash = 0;
+    	ascii = true;
+    	pending = 0;
+    }
+    
+    /**
+     * Receives the words and line breaks of text scanned by a CharScanner.
+     */
+    interface WordSink {
+    	
+    	/**
+    	 * Receive the next word.
+    	 * @param word the word as it appears in the text, not empty
+    	 * @throws IOException if the word cannot be handled
+    	 */
+    	void word(String word) throws IOException;
+    	
+    	/**
+    	 * Receive a line break after the words received so far.
+    	 */
+    	void lineBreak();
+    }
+    
+    /**
+     * Splits text given as chars, possibly in many pieces, into words as
+     * GraphPoet defines them, and passes each word and each line break ('\n'
+     * or '\r') to a sink as soon as it is scanned.
+     * Mutable, not safe for use by more than one thread.
+     */
+    static class CharScanner {
+    	
+    	private final WordSink sink;
+    	private final StringBuilder word = new StringBuilder();
+    	
+    	// Abstraction function:
+    	//   a scan of text whose completed words and line breaks have been
+    	//   passed to sink, and whose current word, if word is not empty,
+    	//   starts with word
+    	// Representation invariant:
+    	//   word holds no whitespace
+    	// Safety from rep exposure:
+    	//   all fields are private; sink is shared with the creator on purpose
+    	
+    	/**
+    	 * Create a scanner passing words and line breaks to sink.
+    	 * @param sink receives the words and line breaks scanned
+    	 */
+    	CharScanner(WordSink sink) {
+    		this.sink = sink;
+    	}
+    	
+    	/**
+    	 * Scan the next piece of the text.
+    	 * @param text next chars of the text
+    	 * @throws IOException if the sink throws it
+    	 */
+    	void feed(CharSequence text) throws IOException {
+    		int i = 0;
+    		while (i < text.length()) {
+    			int start = wordStart(text, i);
+    			if (start > i) {
+    				endWord();
+    				for (int k = i; k < start; k++) {
+    					if (text.charAt(k) == '\n' || text.charAt(k) == '\r') {
+    						sink.lineBreak();
+    					}
+    				}
+    			}
+    			if (start == text.length()) {
+    				break;
+    			}
+    			int end = wordEnd(text, start);
+    			word.append(text, start, end);
+    			i = end;
+    		}
+    	}
+    	
+    	/**
+    	 * Finish the scan at the end of the text.
+    	 * @throws IOException if the sink throws it
+    	 */
+    	void finish() throws IOException {
+    		endWord();
+    	}
+    	
+    	private void endWord() throws IOException {
+    		if (word.length() > 0) {
+    			String complete = word.toString();
+    			word.setLength(0);
+    			sink.word(complete);
+    		}
+    	}
+    }
+    
+    /**
+     * @param text text to scan
+     * @param from index to start scanning at
+     * @return index of the first char of the first word starting at or after
+     *         from, or text.length() if there is none
+     */
+    public static int wordStart(CharSequence text, int from) {
+    	int i = from;
+    	while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+    		i++;
+    	}
+    	return i;
+    }
+    
+    /**
+     * @param text text to scan
+     * @param from index of a char of a word
+     * @return index just after the last char of that word
+     */
+    public static int wordEnd(CharSequence text, int from) {
+    	int i = from;
+    	while (i < text.length() && !Character.isWhitespace(text.charAt(i))) {
+    		i++;
+    	}
+    	return i;
+    }
+}
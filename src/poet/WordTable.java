@@ -0,0 +1,189 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns words given as lower-case UTF-8 bytes, giving each distinct word a
+ * dense int id in order of first appearance.
+ * A word is looked up by its bytes, so a String is only created the first
+ * time a word is interned.
+ * Mutable, not safe for use by more than one thread.
+ * This class is internal to GraphPoet's corpus ingestion.
+ */
+class WordTable {
+    
+    private static final int INITIAL_CAPACITY = 64;
+    
+    private byte[] bytes = new byte[INITIAL_CAPACITY * 8];
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private String[] words = new String[INITIAL_CAPACITY];
+    private int size = 0;
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+    
+    // Abstraction function:
+    //   word id i (0 <= i < size) is words[i], whose UTF-8 bytes are
+    //   bytes[offsets[i]..offsets[i+1]) and whose hash is hashes[i]
+    // Representation invariant:
+    //   offsets[0] == 0, offsets is nondecreasing over [0, size]
+    //   hashes[i] == hash(bytes, offsets[i], offsets[i+1] - offsets[i])
+    //   no two ids have the same bytes
+    //   table.length is a power of two >= 2 * size; it is an open-addressing
+    //   table with linear probing holding id + 1 for every id, 0 elsewhere
+    // Safety from rep exposure:
+    //   all fields are private; words are immutable; bytes() hands out the
+    //   arena only to be read by the caller
+    
+    /**
+     * Hash the bytes of a word, the same way the tokenizer does as it scans.
+     * @return hash of bytes[off..off+len)
+     */
+    static int hash(byte[] bytes, int off, int len) {
+    	int h = 0;
+    	for (int i = off; i < off + len; i++) {
+    		h = 31 * h + (bytes[i] & 0xFF);
+    	}
+    	return h;
+    }
+    
+    private static int slot(int hash, int mask) {
+    	int h = hash * 0x9E3779B9;
+    	return (h ^ (h >>> 16)) & mask;
+    }
+    
+    /**
+     * @return number of distinct words
+     */
+    public int size() {
+    	return size;
+    }
+    
+    /**
+     * @param id word id, 0 <= id < size()
+     * @return the word
+     */
+    public String word(int id) {
+    	return words[id];
+    }
+    
+    /**
+     * @return the array holding the bytes of every word, to be read only
+     */
+    byte[] bytes() {
+    	return bytes;
+    }
+    
+    /**
+     * @param id word id, 0 <= id < size()
+     * @return index in bytes() of the first byte of the word
+     */
+    int offset(int id) {
+    	return offsets[id];
+    }
+    
+    /**
+     * @param id word id, 0 <= id < size()
+     * @return number of bytes of the word
+     */
+    int length(int id) {
+    	return offsets[id + 1] - offsets[id];
+    }
+    
+    /**
+     * @param id word id, 0 <= id < size()
+     * @return hash of the bytes of the word
+     */
+    int hash(int id) {
+    	return hashes[id];
+    }
+    
+    /**
+     * Find a word by its bytes.
+     * @param key array holding the lower-case UTF-8 bytes of the word
+     * @param off index of the first byte in key
+     * @param len number of bytes
+     * @param hash hash(key, off, len)
+     * @return id of the word, or -1 if it was never interned
+     */
+    public int find(byte[] key, int off, int len, int hash) {
+    	int mask = table.length - 1;
+    	for (int i = slot(hash, mask); table[i] != 0; i = (i + 1) & mask) {
+    		int id = table[i] - 1;
+    		if (hashes[id] == hash && Arrays.equals(
+    				bytes, offsets[id], offsets[id + 1], key, off, off + len)) {
+    			return id;
+    		}
+    	}
+    	return -1;
+    }
+    
+    /**
+     * Intern a word given by its bytes, decoding it only if it is new.
+     * @param key array holding the lower-case UTF-8 bytes of the word
+     * @param off index of the first byte in key
+     * @param len number of bytes
+     * @param hash hash(key, off, len)
+     * @return id of the word
+     */
+    public int intern(byte[] key, int off, int len, int hash) {
+    	return intern(key, off, len, hash, null);
+    }
+    
+    /**
+     * Intern a word given by its bytes.
+     * @param key array holding the lower-case UTF-8 bytes of the word
+     * @param off index of the first byte in key
+     * @param len number of bytes
+     * @param hash hash(key, off, len)
+     * @param word the word decoded from its bytes, or null to decode it here
+     *        if it is new
+     * @return id of the word
+     */
+    public int intern(byte[] key, int off, int len, int hash, String word) {
+    	int mask = table.length - 1;
+    	int i = slot(hash, mask);
+    	for (; table[i] != 0; i = (i + 1) & mask) {
+    		int id = table[i] - 1;
+    		if (hashes[id] == hash && Arrays.equals(
+    				bytes, offsets[id], offsets[id + 1], key, off, off + len)) {
+    			return id;
+    		}
+    	}
+    	
+    	int id = size++;
+    	if (id == words.length) {
+    		words = Arrays.copyOf(words, id * 2);
+    		hashes = Arrays.copyOf(hashes, id * 2);
+    		offsets = Arrays.copyOf(offsets, id * 2 + 1);
+    	}
+    	int start = offsets[id];
+    	if (start + len > bytes.length) {
+    		bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + len));
+    	}
+    	System.arraycopy(key, off, bytes, start, len);
+    	offsets[id + 1] = start + len;
+    	hashes[id] = hash;
+    	words[id] = word != null ? word : new String(key, off, len, StandardCharsets.UTF_8);
+    	table[i] = id + 1;
+    	if (size * 2 > table.length) {
+    		rehash();
+    	}
+    	return id;
+    }
+    
+    private void rehash() {
+    	table = new int[table.length * 2];
+    	int mask = table.length - 1;
+    	for (int id = 0; id < size; id++) {
+    		int i = slot(hashes[id], mask);
+    		while (table[i] != 0) {
+    			i = (i + 1) & mask;
+    		}
+    		table[i] = id + 1;
+    	}
+    }
+}
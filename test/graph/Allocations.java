@@ -0,0 +1,87 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Measures the bytes allocated on the heap by an operation, with the
+ * allocation counter of the current thread, for tests of allocation budgets.
+ *
+ * <p>An operation is called until the compiler has optimized it, as it is in
+ * a long-running program, and then measured in several rounds of many calls,
+ * keeping the least allocating round; so one-off allocations, e.g. of a
+ * lazily created field or of the interpreter while the compiled code is
+ * replaced, are spread over many calls or ignored. Only the current thread
+ * is counted, so other threads of the test runner do not disturb it.
+ */
+public final class Allocations {
+    
+    private static final int WARMUP_CALLS = 50_000;
+    private static final int CALLS = 10_000;
+    private static final int ROUNDS = 5;
+    
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+    
+    private static int sink = 0;
+    
+    private Allocations() {
+    	// not instantiable
+    }
+    
+    private static com.sun.management.ThreadMXBean threads() {
+    	if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+    		return null;
+    	}
+    	com.sun.management.ThreadMXBean threads =
+    			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    	if (!threads.isThreadAllocatedMemorySupported()) {
+    		return null;
+    	}
+    	threads.setThreadAllocatedMemoryEnabled(true);
+    	return threads;
+    }
+    
+    /**
+     * @return true iff this virtual machine counts the bytes each thread
+     *         allocates, so that {@link #perCall(IntUnaryOperator)} can be
+     *         used
+     */
+    public static boolean supported() {
+    	return THREADS != null;
+    }
+    
+    /**
+     * Measure the bytes an operation allocates.
+     *
+     * @param operation operation given the number of the call, from 0, which
+     *        must allocate the same for every call in the long run; its
+     *        result is kept from being optimized away
+     * @return bytes allocated per call, averaged over a round of calls and
+     *         less the cost of measuring, at least 0
+     * @throws IllegalStateException if not {@link #supported()}
+     */
+    public static double perCall(IntUnaryOperator operation) {
+    	if (!supported()) {
+    		throw new IllegalStateException("thread allocation counters are not supported");
+    	}
+    	long overhead = Long.MAX_VALUE;
+    	long best = Long.MAX_VALUE;
+    	for (int i = 0; i < WARMUP_CALLS; i++) {
+    		sink += operation.applyAsInt(i);
+    	}
+    	for (int round = 0; round < ROUNDS; round++) {
+    		long start = THREADS.getCurrentThreadAllocatedBytes();
+    		overhead = Math.min(overhead, THREADS.getCurrentThreadAllocatedBytes() - start);
+    
+    		start = THREADS.getCurrentThreadAllocatedBytes();
+    		for (int i = 0; i < CALLS; i++) {
+    			sink += operation.applyAsInt(i);
+    		}
+    		best = Math.min(best, THREADS.getCurrentThreadAllocatedBytes() - start);
+    	}
+    	return Math.max(0, (double) (best - overhead) / CALLS);
+    }
+}
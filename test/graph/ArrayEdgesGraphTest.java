@@ -0,0 +1,195 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Tests for ArrayEdgesGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against ArrayEdgesGraph, as
+ * well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class ArrayEdgesGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a ArrayEdgesGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new ArrayEdgesGraph<String>();
+    }
+    
+    /*
+     * Testing ArrayEdgesGraph...
+     */
+    
+    // Testing strategy for ArrayEdgesGraph.toString()
+    //   partition on graph:
+    //		empty graph
+    //		one vertex has self loop
+    //		more than one vertex, one vertex has no edge
+    //
+    // Testing strategy for edge and vertex storage
+    //   partition on removed edge: last edge, not last edge
+    //   partition on removed vertex id: reused, not reused
+    //   partition on edge table: grown, edges probed past a removed edge
+    //   partition on heap: compared with ConcreteEdgesGraph
+    
+    @Test
+    public void testToStringEmptyGraph() {
+    	Graph<String> graph = emptyInstance();
+    	assertEquals("expected empty graph", "\n", graph.toString());
+    }
+    
+    @Test
+    public void testToStringSelfLoop() {
+    	Graph<String> graph = emptyInstance();
+    	graph.set("1", "1", 1);
+    	assertEquals("expected graph", "\"1\" ---> \"1\" 1\n", graph.toString());
+    }
+    
+    @Test
+    public void testToStringIsolate() {
+    	Graph<String> graph = emptyInstance();
+    	graph.set("1", "1", 1);
+    	graph.set("2", "3", 1);
+    	graph.add("5");
+    	graph.add("4");
+    	String expected = "\"1\" ---> \"1\" 1\n" + 
+    			"\"2\" ---> \"3\" 1\n" + 
+    			"\"4\"\n" +
+    			"\"5\"\n";
+    	assertEquals("expected graph", expected, graph.toString());
+    }
+    
+    /**
+     * cover removed edge not last edge, last edge
+     */
+    @Test
+    public void testRemoveEdgeMovesLastEdge() {
+    	Graph<String> graph = emptyInstance();
+    	graph.set("1", "2", 1);
+    	graph.set("2", "3", 2);
+    	graph.set("3", "1", 3);
+    	assertEquals("expected previous weight", 1, graph.set("1", "2", 0));
+    	assertEquals("expected previous weight", 3, graph.set("3", "1", 4));
+    	assertEquals("expected targets", Map.of("1", 4), graph.targets("3"));
+    	assertEquals("expected previous weight", 4, graph.set("3", "1", 0));
+    	assertEquals("expected previous weight", 2, graph.set("2", "3", 5));
+    	assertEquals("expected graph", "\"2\" ---> \"3\" 5\n\"1\"\n", graph.toString());
+    }
+    
+    /**
+     * cover removed vertex id reused
+     */
+    @Test
+    public void testRemoveVertexReusesId() {
+    	Graph<String> graph = emptyInstance();
+    	graph.set("1", "2", 1);
+    	graph.set("2", "3", 2);
+    	graph.set("3", "3", 3);
+    	assertTrue("expected vertex removed", graph.remove("2"));
+    	assertEquals("expected no such edge", 0, graph.set("4", "3", 4));
+    	assertEquals("expected graph vertices", Set.of("1", "3", "4"), graph.vertices());
+    	assertEquals("expected sources", Map.of("3", 3, "4", 4), graph.sources("3"));
+    	assertEquals("expected no targets", Map.of(), graph.targets("1"));
+    	assertEquals("expected no sources", Map.of(), graph.sources("2"));
+    }
+    
+    /**
+     * cover edge table grown, edges probed past a removed edge
+     */
+    @Test
+    public void testEdgeTableMatchesModel() {
+    	// the rep, including the edge table, is checked after every mutation
+    	Graph<String> graph = new ArrayEdgesGraph<>(RepCheck.FULL, 1);
+    	Map<String, Integer> model = new HashMap<>();
+    	Random random = new Random(6005);
+    	for (int step = 0; step < 2000; step++) {
+    		int s = random.nextInt(12);
+    		int t = random.nextInt(12);
+    		int weight = random.nextInt(3);
+    		String pair = s + " " + t;
+    		int previous = model.getOrDefault(pair, 0);
+    		if (weight == 0) {
+    			model.remove(pair);
+    		} else {
+    			model.put(pair, weight);
+    		}
+    		assertEquals("expected previous weight of " + pair, previous,
+    				graph.set("v" + s, "v" + t, weight));
+    		if (step % 500 == 499) {
+    			int v = random.nextInt(12);
+    			graph.remove("v" + v);
+    			model.keySet().removeIf(key -> key.startsWith(v + " ") || key.endsWith(" " + v));
+    		}
+    	}
+    	for (int s = 0; s < 12; s++) {
+    		for (int t = 0; t < 12; t++) {
+    			assertEquals("expected weight", (int) model.getOrDefault(s + " " + t, 0),
+    					graph.weight("v" + s, "v" + t));
+    		}
+    	}
+    }
+    
+    /**
+     * @return bytes of heap retained by the result of build, measured after
+     *         full collections before and after building it
+     */
+    private static long retainedBytes(Supplier<Object> build) {
+    	long before = usedHeap();
+    	Object built = build.get();
+    	long after = usedHeap();
+    	Reference.reachabilityFence(built);
+    	return after - before;
+    }
+    
+    private static long usedHeap() {
+    	for (int i = 0; i < 3; i++) {
+    		System.gc();
+    	}
+    	return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    
+    /**
+     * cover heap compared with ConcreteEdgesGraph
+     */
+    @Test
+    public void testHeapPerEdge() {
+    	int vertices = 1000;
+    	int degree = 100;
+    	String[] labels = new String[vertices];
+    	for (int v = 0; v < vertices; v++) {
+    		labels[v] = "v" + v;
+    	}
+    	Supplier<Object> array = () -> build(new ArrayEdgesGraph<>(RepCheck.OFF, 1), labels, degree);
+    	Supplier<Object> edges = () -> build(new ConcreteEdgesGraph<>(RepCheck.OFF, 1), labels, degree);
+    	double arrayBytes = (double) retainedBytes(array) / (vertices * degree);
+    	double edgesBytes = (double) retainedBytes(edges) / (vertices * degree);
+    	assertTrue(String.format("expected less than half the heap per edge, %.1f against %.1f bytes",
+    			arrayBytes, edgesBytes), arrayBytes < edgesBytes / 2);
+    }
+    
+    /** @return graph with an edge from each label to the next degree labels */
+    private static Graph<String> build(Graph<String> graph, String[] labels, int degree) {
+    	for (int v = 0; v < labels.length; v++) {
+    		for (int k = 1; k <= degree; k++) {
+    			graph.set(labels[v], labels[(v + k) % labels.length], 1 + k % 3);
+    		}
+    	}
+    	return graph;
+    }
+}
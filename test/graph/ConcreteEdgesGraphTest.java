@@ -5,6 +5,13 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Test;
 
 /**
@@ -88,6 +95,151 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
     	assertEquals("expected empty graph", expected, graph.toString());
     }
     
+    // Testing strategy for ConcreteEdgesGraph(RepCheck, int)
+    //   partition on mode: OFF, SAMPLED, INCREMENTAL, FULL, default
+    //   partition on assertions: enabled, disabled
+    //   partition on interval: positive, not positive
+    //   partition on mutation: add(), set() of a new edge, set() of an edge
+    //     included, set() to 0 of an edge not last and last, remove()
+    //   partition on system property: unset, a mode in any locale, no mode
+    
+    @Test
+    public void testRepCheckModes() {
+    	for (RepCheck mode : RepCheck.values()) {
+    		Graph<String> graph = new ConcreteEdgesGraph<>(mode, 2);
+    		assertTrue("expected add succeed", graph.add("1"));
+    		assertEquals("expected no such edge", 0, graph.set("1", "2", 1));
+    		assertEquals("expected previous weight", 1, graph.set("1", "2", 3));
+    		assertEquals("expected no such edge", 0, graph.set("2", "3", 1));
+    		assertEquals("expected previous weight", 1, graph.set("2", "3", 0));
+    		assertEquals("expected graph vertices", Set.of("1", "2", "3"), graph.vertices());
+    		assertEquals("expected targets", Map.of("2", 3), graph.targets("1"));
+    	}
+    }
+    
+    /**
+     * Make mutations of every kind to a graph.
+     * @return number of mutations made
+     */
+    private static int mutate(Graph<String> graph) {
+    	graph.add("1");
+    	graph.set("1", "2", 1);
+    	graph.set("2", "3", 1);
+    	graph.set("3", "1", 1);
+    	graph.set("1", "2", 2);
+    	graph.set("1", "2", 0);
+    	graph.set("3", "1", 0);
+    	graph.remove("2");
+    	return 8;
+    }
+    
+    /** cover mode OFF */
+    @Test
+    public void testRepCheckOff() {
+    	ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>(RepCheck.OFF, 1);
+    	mutate(graph);
+    	assertEquals("expected no full check", 0, graph.fullChecks());
+    	assertEquals("expected no edge check", 0, graph.edgeChecks());
+    }
+    
+    /** cover mode SAMPLED */
+    @Test
+    public void testRepCheckSampled() {
+    	ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>(RepCheck.SAMPLED, 3);
+    	int mutations = mutate(graph) + mutate(graph);
+    	assertEquals("expected a full check every 3 mutations", mutations / 3,
+    			graph.fullChecks());
+    }
+    
+    /** cover mode INCREMENTAL, every kind of mutation */
+    @Test
+    public void testRepCheckIncremental() {
+    	ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>(RepCheck.INCREMENTAL, 1);
+    	graph.add("1");
+    	assertEquals("expected no edge touched", 0, graph.edgeChecks());
+    	graph.set("1", "2", 1);
+    	graph.set("2", "3", 1);
+    	graph.set("3", "4", 1);
+    	assertEquals("expected the new edges checked", 3, graph.edgeChecks());
+    	graph.set("2", "3", 5);
+    	assertEquals("expected the edge set checked", 4, graph.edgeChecks());
+    	graph.set("1", "2", 0);
+    	assertEquals("expected the edge moved checked", 5, graph.edgeChecks());
+    	graph.set("2", "3", 0);
+    	assertEquals("expected no edge moved", 5, graph.edgeChecks());
+    	graph.set("4", "1", 1);
+    	graph.set("1", "5", 1);
+    	graph.set("5", "4", 1);
+    	graph.remove("1");
+    	assertEquals("expected the edges from the first position freed checked", 9,
+    			graph.edgeChecks());
+    	assertEquals("expected no full check", 0, graph.fullChecks());
+    	assertEquals("expected graph", "\"3\" ---> \"4\" 1\n\"5\" ---> \"4\" 1\n\"2\"\n",
+    			graph.toString());
+    }
+    
+    /** cover mode FULL */
+    @Test
+    public void testRepCheckFull() {
+    	ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>(RepCheck.FULL, 1);
+    	assertEquals("expected a full check every mutation", mutate(graph),
+    			graph.fullChecks());
+    }
+    
+    /** cover mode default, assertions disabled */
+    @Test
+    public void testRepCheckAssertionsDisabled() throws Exception {
+    	// a copy of the graph classes, loaded with assertions disabled
+    	URL classes = ConcreteEdgesGraph.class.getProtectionDomain().getCodeSource().getLocation();
+    	try (URLClassLoader loader = new URLClassLoader(new URL[] {classes},
+    			ClassLoader.getPlatformClassLoader())) {
+    		loader.setPackageAssertionStatus("graph", false);
+    		Class<?> type = loader.loadClass(ConcreteEdgesGraph.class.getName());
+    		Object graph = type.getConstructor().newInstance();
+    		Method set = type.getMethod("set", Object.class, Object.class, int.class);
+    		Method fullChecks = type.getDeclaredMethod("fullChecks");
+    		Method edgeChecks = type.getDeclaredMethod("edgeChecks");
+    		fullChecks.setAccessible(true);
+    		edgeChecks.setAccessible(true);
+    		for (int i = 0; i < 1000; i++) {
+    			set.invoke(graph, "v" + i, "v" + (i + 1), 1);
+    		}
+    		assertEquals("expected no full check", 0, fullChecks.invoke(graph));
+    		assertEquals("expected no edge check", 0, edgeChecks.invoke(graph));
+    	}
+    }
+    
+    @Test
+    public void testRepCheckIntervalNotPositive() {
+    	assertThrows(IllegalArgumentException.class,
+    			() -> new ConcreteEdgesGraph<String>(RepCheck.SAMPLED, 0));
+    }
+    
+    @Test
+    public void testRepCheckFromSystemProperty() {
+    	String previous = System.getProperty(RepCheck.PROPERTY);
+    	Locale locale = Locale.getDefault();
+    	try {
+    		System.clearProperty(RepCheck.PROPERTY);
+    		assertEquals("expected default mode", RepCheck.FULL, RepCheck.fromSystemProperty());
+    		System.setProperty(RepCheck.PROPERTY, "sampled");
+    		assertEquals("expected mode", RepCheck.SAMPLED, RepCheck.fromSystemProperty());
+    		// a dotted capital I in Turkish
+    		Locale.setDefault(Locale.forLanguageTag("tr"));
+    		System.setProperty(RepCheck.PROPERTY, "incremental");
+    		assertEquals("expected mode", RepCheck.INCREMENTAL, RepCheck.fromSystemProperty());
+    		System.setProperty(RepCheck.PROPERTY, "sometimes");
+    		assertThrows(IllegalArgumentException.class, () -> RepCheck.fromSystemProperty());
+    	} finally {
+    		Locale.setDefault(locale);
+    		if (previous == null) {
+    			System.clearProperty(RepCheck.PROPERTY);
+    		} else {
+    			System.setProperty(RepCheck.PROPERTY, previous);
+    		}
+    	}
+    }
+    
     /*
      * Testing Edge...
      */
@@ -0,0 +1,124 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for DecayingGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against DecayingGraph with a
+ * clock that never moves, as well as tests for decay and eviction.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class DecayingGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a DecayingGraph whose time never passes for tests in
+     * GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new DecayingGraph<String>(10, 0.5, () -> 0);
+    }
+    
+    /*
+     * Testing DecayingGraph...
+     */
+    
+    // Testing strategy for decay
+    //   partition on time passed since the weight was set: none, one
+    //     half-life, several, enough to fall below the threshold
+    //   partition on operation: set(), increment(), add()
+    //   partition on vertex: has a live edge, has none
+    //
+    // Testing strategy for eviction
+    //   partition on stream: few words repeated, unbounded vocabulary
+    
+    /** A clock moved by the test. */
+    private static class Clock {
+        long now = 0;
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testThresholdAboveOne() {
+        new DecayingGraph<String>(10, 1.5, () -> 0);
+    }
+    
+    /**
+     * cover time passed none, one half-life, several, below the threshold
+     * 	operation set(), increment()
+     * 	vertex has a live edge, has none
+     */
+    @Test
+    public void testWeightsHalve() {
+        Clock clock = new Clock();
+        DecayingGraph<String> graph = new DecayingGraph<>(10, 0.5, () -> clock.now);
+        assertEquals("expected no previous weight", 0, graph.set("a", "b", 8));
+        assertEquals("expected new weight", 9, graph.increment("a", "c", 9));
+        clock.now = 10;
+        assertEquals("expected weight halved", 4, graph.weight("a", "b"));
+        assertEquals("expected weight halved and rounded", Map.of("b", 4, "c", 5), graph.targets("a"));
+        assertEquals("expected added to decayed weight", 6, graph.increment("a", "b", 2));
+        clock.now = 30;
+        assertEquals("expected weight quartered", 2, graph.weight("a", "b"));
+        assertEquals("expected weight never below 1", 1, graph.weight("a", "c"));
+        clock.now = 60;
+        assertEquals("expected edges decayed away", Map.of(), graph.targets("a"));
+        assertEquals("expected no sources", Map.of(), graph.sources("b"));
+        assertEquals("expected vertices decayed away", Set.of(), graph.vertices());
+        assertEquals("expected nothing evicted yet", 5, graph.storedSize());
+        assertTrue("expected vertex added again", graph.add("a"));
+        assertEquals("expected vertex", Set.of("a"), graph.vertices());
+    }
+    
+    /**
+     * cover operation add()
+     * 	vertex has a live edge, has none
+     */
+    @Test
+    public void testVertexOutlivesItsEdgesOnlyBriefly() {
+        Clock clock = new Clock();
+        DecayingGraph<String> graph = new DecayingGraph<>(10, 0.25, () -> clock.now);
+        graph.add("x");
+        graph.increment("a", "b", 64);
+        clock.now = 19;
+        assertEquals("expected vertices within two half-lives", Set.of("x", "a", "b"), graph.vertices());
+        clock.now = 21;
+        assertEquals("expected only vertices with edges", Set.of("a", "b"), graph.vertices());
+        assertFalse("expected vertex with an edge kept", graph.add("a"));
+        assertEquals("expected degrees", 1, graph.outDegree("a") + graph.inDegree("a"));
+    }
+    
+    /**
+     * cover stream few words repeated, unbounded vocabulary
+     */
+    @Test
+    public void testMemoryBounded() {
+        Clock clock = new Clock();
+        double halfLife = 100;
+        double threshold = 0.5;
+        DecayingGraph<Integer> graph = new DecayingGraph<>(halfLife, threshold, () -> clock.now,
+                RepCheck.SAMPLED, 997);
+        int bound = (int) (2 * 3 * (halfLife / (Math.log(2) * threshold) + halfLife));
+        int previous = 0;
+        for (int i = 0; i < 100_000; i++) {
+            clock.now = i;
+            // a new word every other step, among a few common ones
+            int word = i % 2 == 0 ? i : -(i % 7);
+            graph.increment(previous, word, 1);
+            previous = word;
+            assertTrue("expected bounded storage at " + i + ": " + graph.storedSize(),
+                    graph.storedSize() <= bound);
+        }
+        assertTrue("expected common words kept", graph.vertices().containsAll(Set.of(-1, -3, -5)));
+        assertTrue("expected old words evicted", !graph.vertices().contains(2));
+        graph.checkRep();
+    }
+}
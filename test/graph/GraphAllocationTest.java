@@ -0,0 +1,208 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests for the bytes Graph operations allocate per call, against every
+ * implementation, measured by {@link Allocations}.
+ *
+ * <p>Lookups of a weight allocate nothing; degrees and traversals allocate
+ * at most {@value #SMALL_BYTES} bytes, enough for an iterator over the rep
+ * but not for a copy of the edges; changes to a weight or an included
+ * vertex allocate at most that too; and copies returned by sources(),
+ * targets() and vertices() allocate at most {@value #COPY_BYTES} bytes plus
+ * {@value #ENTRY_BYTES} bytes per element. An operation that copies the rep
+ * to compute a small result fails.
+ */
+@RunWith(Parameterized.class)
+public class GraphAllocationTest {
+    
+    /*
+     * Testing strategy
+     *
+     * partition on implementation: ConcreteVerticesGraph, ConcreteEdgesGraph,
+     *     ArrayEdgesGraph, DecayingGraph
+     * partition on operation: weight() of an edge included and not,
+     *     outDegree(), inDegree(), forEachTarget(), forEachSource(), set() of
+     *     an edge included, add() of a vertex included, sources(), targets(),
+     *     vertices(), fingerprint()
+     * partition on budget: none, small, proportional to the result
+     */
+    
+    private static final int SMALL_BYTES = 64;
+    private static final int COPY_BYTES = 256;
+    private static final int ENTRY_BYTES = 64;
+    
+    private static final int VERTICES = 64;
+    private static final int OFFSETS[] = {1, 7, 31};
+    
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> implementations() {
+    	Supplier<Graph<String>> vertices = ConcreteVerticesGraph::new;
+    	Supplier<Graph<String>> edges = () -> new ConcreteEdgesGraph<>(RepCheck.OFF, 1);
+    	Supplier<Graph<String>> array = () -> new ArrayEdgesGraph<>(RepCheck.OFF, 1);
+    	Supplier<Graph<String>> decaying = () -> new DecayingGraph<>(1e9, 0.5, () -> 0,
+    			RepCheck.OFF, 1);
+    	return List.of(
+    			new Object[] {"ConcreteVerticesGraph", vertices, Set.of()},
+    			new Object[] {"ConcreteEdgesGraph", edges, Set.of()},
+    			new Object[] {"ArrayEdgesGraph", array, Set.of()},
+    			// weights decay with time, so the fingerprint is computed
+    			new Object[] {"DecayingGraph", decaying, Set.of("fingerprint")});
+    }
+    
+    @Parameter(0)
+    public String name;
+    
+    @Parameter(1)
+    public Supplier<Graph<String>> factory;
+    
+    /** Operations expected to copy every vertex and edge. */
+    @Parameter(2)
+    public Set<String> copying;
+    
+    private Graph<String> graph;
+    private final String[] labels = new String[VERTICES];
+    
+    @Before
+    public void setUp() {
+    	Assume.assumeTrue("thread allocation counters are not supported",
+    			Allocations.supported());
+    	graph = factory.get();
+    	for (int id = 0; id < VERTICES; id++) {
+    		labels[id] = "v" + id;
+    	}
+    	for (int id = 0; id < VERTICES; id++) {
+    		for (int offset : OFFSETS) {
+    			graph.set(labels[id], labels[(id + offset) % VERTICES], 1 + id % 3);
+    		}
+    	}
+    }
+    
+    /** @return a vertex of graph, taking turns with i */
+    private String vertex(int i) {
+    	return labels[i % VERTICES];
+    }
+    
+    /** @return the target of vertex(i) at the first offset */
+    private String next(int i) {
+    	return labels[(i + OFFSETS[0]) % VERTICES];
+    }
+    
+    /**
+     * Measure the bytes an operation allocates and check them against a
+     * budget, or against the budget of a copy of the graph if this
+     * implementation is expected to make one.
+     *
+     * @param op name of the operation
+     * @param budget most bytes allowed per call
+     * @param operation operation, which must leave graph as it was
+     */
+    private void assertAllocates(String op, long budget, IntUnaryOperator operation) {
+    	if (copying.contains(op)) {
+    		budget = COPY_BYTES
+    				+ ENTRY_BYTES * (long) VERTICES * (1 + OFFSETS.length);
+    	}
+    	double bytes = Allocations.perCall(operation);
+    	String message = String.format("%s.%s allocates %.1f bytes per call, budget %d",
+    			name, op, bytes, budget);
+    	if (budget == 0) {
+    		// a real allocation is at least an object header
+    		assertTrue("expected no allocation: " + message, bytes < 1);
+    	} else {
+    		assertTrue(message, bytes <= budget);
+    	}
+    }
+    
+    @Test
+    public void testWeightIncluded() {
+    	assertAllocates("weight", 0, i -> graph.weight(vertex(i), next(i)));
+    }
+    
+    @Test
+    public void testWeightNotIncluded() {
+    	assertAllocates("weight", 0, i -> graph.weight(vertex(i), vertex(i)));
+    }
+    
+    @Test
+    public void testOutDegree() {
+    	assertAllocates("outDegree", SMALL_BYTES, i -> graph.outDegree(vertex(i)));
+    }
+    
+    @Test
+    public void testInDegree() {
+    	assertAllocates("inDegree", SMALL_BYTES, i -> graph.inDegree(vertex(i)));
+    }
+    
+    @Test
+    public void testForEachTarget() {
+    	int[] sum = {0};
+    	ObjIntConsumer<String> action = (target, weight) -> sum[0] += weight;
+    	assertAllocates("forEachTarget", SMALL_BYTES, i -> {
+    		graph.forEachTarget(vertex(i), action);
+    		return sum[0];
+    	});
+    }
+    
+    @Test
+    public void testForEachSource() {
+    	int[] sum = {0};
+    	ObjIntConsumer<String> action = (source, weight) -> sum[0] += weight;
+    	assertAllocates("forEachSource", SMALL_BYTES, i -> {
+    		graph.forEachSource(vertex(i), action);
+    		return sum[0];
+    	});
+    }
+    
+    @Test
+    public void testSetIncluded() {
+    	// alternate the weight of an edge included
+    	assertAllocates("set", SMALL_BYTES, i -> graph.set(vertex(i), next(i), 1 + i % 2));
+    }
+    
+    @Test
+    public void testAddIncluded() {
+    	assertAllocates("add", SMALL_BYTES, i -> graph.add(vertex(i)) ? 1 : 0);
+    }
+    
+    @Test
+    public void testTargets() {
+    	assertAllocates("targets", COPY_BYTES + ENTRY_BYTES * OFFSETS.length,
+    			i -> graph.targets(vertex(i)).size());
+    }
+    
+    @Test
+    public void testSources() {
+    	assertAllocates("sources", COPY_BYTES + ENTRY_BYTES * OFFSETS.length,
+    			i -> graph.sources(vertex(i)).size());
+    }
+    
+    @Test
+    public void testVertices() {
+    	assertAllocates("vertices", COPY_BYTES + ENTRY_BYTES * VERTICES,
+    			i -> graph.vertices().size());
+    }
+    
+    @Test
+    public void testFingerprint() {
+    	assertAllocates("fingerprint", 0, i -> (int) graph.fingerprint());
+    }
+}
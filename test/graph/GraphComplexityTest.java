@@ -0,0 +1,364 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests for the growth of the cost of Graph operations with the size of the
+ * graph, against every implementation.
+ *
+ * <p>Each operation is timed on graphs of doubling sizes whose vertices all
+ * have the same degree, and the exponent k of its cost ~ size^k is fitted on
+ * a log-log scale. An operation expected to cost O(1) or O(degree) fails if
+ * k exceeds {@value #SUBLINEAR_MAX_EXPONENT}, which a linear scan (k near 1)
+ * does; one expected to cost O(V + E) fails if k exceeds
+ * {@value #LINEAR_MAX_EXPONENT}, which a quadratic one (k near 2) does.
+ *
+ * <p>To be robust on a shared machine, every measurement is the fastest of
+ * several batches of at least {@value #BATCH_MILLIS} ms, taken in rounds
+ * over the sizes, so that other processes, garbage collection and the
+ * compiler only slow down batches that are then ignored; operations are
+ * repeated on the same few vertices, so that cache misses do not grow with
+ * the graph; the fit is the median of the slopes between every two sizes,
+ * so one size measured slow cannot fail the test; and the thresholds lie
+ * halfway between the exponents to tell apart. A fit that fails anyway is
+ * measured once more before the test fails. The sizes are small enough for
+ * the whole suite to take seconds, and for the largest edge lists to fit in
+ * the processor's caches: past them, every scan slows down at once, which
+ * looks like superlinear growth.
+ */
+@RunWith(Parameterized.class)
+public class GraphComplexityTest {
+    
+    /*
+     * Testing strategy
+     *
+     * partition on implementation: ConcreteVerticesGraph, ConcreteEdgesGraph,
+     *     ArrayEdgesGraph, DecayingGraph
+     * partition on rep check: OFF, default without assertions
+     * partition on operation: add(), set() of an edge included and not,
+     *     remove(), vertices(), sources(), targets(), weight(), outDegree(),
+     *     inDegree(), forEachTarget(), fingerprint(), checkRep()
+     * partition on expected growth: O(1) or O(degree), O(V + E)
+     */
+    
+    private static final double SUBLINEAR_MAX_EXPONENT = 0.5;
+    private static final double LINEAR_MAX_EXPONENT = 1.5;
+    private static final double LINEAR_MIN_EXPONENT = 0.5;
+    
+    private static final int SIZES = 5;
+    private static final int OFFSETS[] = {1, 7, 31, 127};
+    private static final int SAMPLE = 64;
+    private static final int ROUNDS = 8;
+    private static final long BATCH_MILLIS = 2;
+    
+    /** An operation on a graph, repeated on sampled vertices. */
+    @FunctionalInterface
+    private interface Operation {
+    	/**
+    	 * @param graph graph to operate on, left as it was
+    	 * @param vertex a vertex of graph
+    	 * @param next a target of vertex
+    	 * @param i number of the repetition
+    	 * @return any result, to keep the operation from being optimized away
+    	 */
+    	int apply(Graph<String> graph, String vertex, String next, int i);
+    }
+    
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> implementations() {
+    	Supplier<Graph<String>> vertices = ConcreteVerticesGraph::new;
+    	Supplier<Graph<String>> edges = () -> new ConcreteEdgesGraph<>(RepCheck.OFF, 1);
+    	// in the default rep check mode, as run without -ea
+    	Supplier<Graph<String>> defaultEdges = WithoutAssertions.graphs(ConcreteEdgesGraph.class);
+    	Supplier<Graph<String>> array = () -> new ArrayEdgesGraph<>(RepCheck.OFF, 1);
+    	Supplier<Graph<String>> decaying = () -> new DecayingGraph<>(1e9, 0.5, () -> 0,
+    			RepCheck.OFF, 1);
+    	Consumer<Graph<String>> edgesCheck = graph -> ((ConcreteEdgesGraph<String>) graph).checkRep();
+    	Consumer<Graph<String>> arrayCheck = graph -> ((ArrayEdgesGraph<String>) graph).checkRep();
+    	return List.of(
+    			// remove() finds the vertex in a list
+    			new Object[] {"ConcreteVerticesGraph", vertices, 256, Set.of("remove"), null},
+    			// an edge and a vertex's edges are found in indices
+    			new Object[] {"ConcreteEdgesGraph", edges, 32, Set.of("checkRep"), edgesCheck},
+    			new Object[] {"ConcreteEdgesGraph default", defaultEdges, 32, Set.of(), null},
+    			// the edge arrays are scanned to find a vertex's edges; an edge
+    			// is found in a table
+    			new Object[] {"ArrayEdgesGraph", array, 32,
+    					Set.of("remove", "sources", "targets", "outDegree", "inDegree",
+    							"forEachTarget", "checkRep"),
+    					arrayCheck},
+    			// weights decay with time, so the fingerprint is computed
+    			new Object[] {"DecayingGraph", decaying, 256, Set.of("fingerprint"), null});
+    }
+    
+    @Parameter(0)
+    public String name;
+    
+    @Parameter(1)
+    public Supplier<Graph<String>> factory;
+    
+    /** Vertices of the smallest graph. */
+    @Parameter(2)
+    public int smallest;
+    
+    /** Operations other than vertices() that are expected to cost O(V + E). */
+    @Parameter(3)
+    public Set<String> linear;
+    
+    /**
+     * Full check of the rep of a graph from factory, or null if it is not
+     * tested: the edge-list graphs must check for duplicate edges without
+     * comparing every pair.
+     */
+    @Parameter(4)
+    public Consumer<Graph<String>> checkRep;
+    
+    private int sink = 0;
+    
+    private static String label(int id) {
+    	return "v" + id;
+    }
+    
+    /**
+     * @return a graph of n vertices, each with an edge to the vertices at
+     *         OFFSETS after it, modulo n
+     */
+    private Graph<String> graph(int n) {
+    	Graph<String> graph = factory.get();
+    	for (int id = 0; id < n; id++) {
+    		for (int offset : OFFSETS) {
+    			graph.set(label(id), label((id + offset) % n), 1 + id % 3);
+    		}
+    	}
+    	return graph;
+    }
+    
+    /** @return nanoseconds to apply operation ops times */
+    private long run(Graph<String> graph, String[][] sample, Operation operation, int ops) {
+    	long start = System.nanoTime();
+    	for (int i = 0; i < ops; i++) {
+    		String[] pair = sample[i % sample.length];
+    		sink += operation.apply(graph, pair[0], pair[1], i);
+    	}
+    	return System.nanoTime() - start;
+    }
+    
+    /**
+     * Fit the exponent of the cost of an operation and check it against the
+     * growth expected of this implementation, measuring again once if it
+     * fails.
+     *
+     * @param op name of the operation
+     * @param operation operation, which must leave the graph as it was
+     */
+    private void assertGrowth(String op, Operation operation) {
+    	List<Graph<String>> graphs = new ArrayList<>();
+    	String[][][] samples = new String[SIZES][SAMPLE][];
+    	for (int s = 0; s < SIZES; s++) {
+    		int n = smallest << s;
+    		graphs.add(graph(n));
+    		for (int k = 0; k < SAMPLE; k++) {
+    			int id = (int) ((long) k * n / SAMPLE);
+    			samples[s][k] = new String[] {label(id), label((id + OFFSETS[0]) % n)};
+    		}
+    	}
+    	String failure = growthFailure(op, measure(graphs, samples, operation));
+    	if (failure != null) {
+    		// a slow spell may outlast every round of one measurement
+    		failure = growthFailure(op, measure(graphs, samples, operation));
+    	}
+    	if (failure != null) {
+    		fail(failure);
+    	}
+    }
+    
+    /**
+     * @return the fastest nanoseconds per call of operation on each graph,
+     *         on samples of its vertices
+     */
+    private double[] measure(List<Graph<String>> graphs, String[][][] samples,
+    		Operation operation) {
+    	// the first round warms up the compiler and sizes the batches; the
+    	// sizes take turns in later rounds so a slow spell slows them all
+    	int[] ops = new int[SIZES];
+    	double[] best = new double[SIZES];
+    	Arrays.fill(best, Double.MAX_VALUE);
+    	for (int s = 0; s < SIZES; s++) {
+    		ops[s] = 1;
+    		while (run(graphs.get(s), samples[s], operation, ops[s]) < BATCH_MILLIS * 1_000_000) {
+    			ops[s] *= 2;
+    		}
+    	}
+    	for (int round = 0; round < ROUNDS; round++) {
+    		for (int s = 0; s < SIZES; s++) {
+    			double nanos = (double) run(graphs.get(s), samples[s], operation, ops[s]) / ops[s];
+    			best[s] = Math.min(best[s], nanos);
+    		}
+    	}
+    	return best;
+    }
+    
+    /**
+     * @param op name of the operation
+     * @param best nanoseconds per call of op on each graph size
+     * @return why the growth fitted to best is not the growth expected of op
+     *         in this implementation, or null if it is
+     */
+    private String growthFailure(String op, double[] best) {
+    	double[] logSizes = new double[SIZES];
+    	double[] logNanos = new double[SIZES];
+    	StringBuilder timings = new StringBuilder();
+    	for (int s = 0; s < SIZES; s++) {
+    		logSizes[s] = Math.log(smallest << s);
+    		logNanos[s] = Math.log(best[s]);
+    		timings.append(String.format(" %d: %.0f ns", smallest << s, best[s]));
+    	}
+    	double exponent = slope(logSizes, logNanos);
+    	String message = String.format("%s.%s grows as size^%.2f;%s",
+    			name, op, exponent, timings);
+    	if (op.equals("vertices") && exponent <= LINEAR_MIN_EXPONENT) {
+    		// every implementation copies the vertices: the fit must see it
+    		return "expected linear: " + message;
+    	}
+    	if (op.equals("vertices") || linear.contains(op)) {
+    		return exponent < LINEAR_MAX_EXPONENT ? null : "expected at most linear: " + message;
+    	}
+    	return exponent < SUBLINEAR_MAX_EXPONENT ? null : "expected O(1) or O(degree): " + message;
+    }
+    
+    /**
+     * @return Theil-Sen slope of ys against xs: the median of the slopes
+     *         between every two points, which one outlier cannot move much
+     */
+    private static double slope(double[] xs, double[] ys) {
+    	List<Double> slopes = new ArrayList<>();
+    	for (int i = 0; i < xs.length; i++) {
+    		for (int j = i + 1; j < xs.length; j++) {
+    			slopes.add((ys[j] - ys[i]) / (xs[j] - xs[i]));
+    		}
+    	}
+    	Collections.sort(slopes);
+    	int mid = slopes.size() / 2;
+    	return slopes.size() % 2 == 1 ? slopes.get(mid) : (slopes.get(mid - 1) + slopes.get(mid)) / 2;
+    }
+    
+    @Test
+    public void testSlopeFit() {
+    	double[] xs = {Math.log(1), Math.log(2), Math.log(4), Math.log(8), Math.log(16)};
+    	assertEquals(0, slope(xs, new double[] {3, 3, 3, 3, 3}), 1e-9);
+    	assertEquals(1, slope(xs, xs), 1e-9);
+    	double[] squares = new double[xs.length];
+    	for (int i = 0; i < xs.length; i++) {
+    		squares[i] = 2 * xs[i];
+    	}
+    	assertEquals(2, slope(xs, squares), 1e-9);
+    	// one slow measurement at the largest size
+    	assertEquals(0, slope(xs, new double[] {3, 3, 3, 3, 3 + Math.log(10)}), 1e-9);
+    }
+    
+    @Test
+    public void testAddIncluded() {
+    	assertGrowth("add", (graph, vertex, next, i) -> graph.add(vertex) ? 1 : 0);
+    }
+    
+    @Test
+    public void testSetIncluded() {
+    	// alternate the weight of an edge included
+    	assertGrowth("set", (graph, vertex, next, i) ->
+    			graph.set(vertex, next, 1 + i % 2));
+    }
+    
+    @Test
+    public void testSetNotIncluded() {
+    	// add an edge not included between vertices included, then remove it
+    	assertGrowth("setNew", (graph, vertex, next, i) ->
+    			graph.set(vertex, vertex, 1) + graph.set(vertex, vertex, 0));
+    }
+    
+    @Test
+    public void testRemove() {
+    	// remove a vertex and its edges, then add them again
+    	assertGrowth("remove", (graph, vertex, next, i) -> {
+    		Map<String, Integer> targets = graph.targets(vertex);
+    		Map<String, Integer> sources = graph.sources(vertex);
+    		graph.remove(vertex);
+    		targets.forEach((target, weight) -> graph.set(vertex, target, weight));
+    		sources.forEach((source, weight) -> graph.set(source, vertex, weight));
+    		return targets.size();
+    	});
+    }
+    
+    @Test
+    public void testVertices() {
+    	assertGrowth("vertices", (graph, vertex, next, i) -> graph.vertices().size());
+    }
+    
+    @Test
+    public void testSources() {
+    	assertGrowth("sources", (graph, vertex, next, i) -> graph.sources(vertex).size());
+    }
+    
+    @Test
+    public void testTargets() {
+    	assertGrowth("targets", (graph, vertex, next, i) -> graph.targets(vertex).size());
+    }
+    
+    @Test
+    public void testWeight() {
+    	assertGrowth("weight", (graph, vertex, next, i) ->
+    			graph.weight(vertex, next));
+    }
+    
+    @Test
+    public void testOutDegree() {
+    	assertGrowth("outDegree", (graph, vertex, next, i) -> graph.outDegree(vertex));
+    }
+    
+    @Test
+    public void testInDegree() {
+    	assertGrowth("inDegree", (graph, vertex, next, i) -> graph.inDegree(vertex));
+    }
+    
+    @Test
+    public void testForEachTarget() {
+    	int[] sum = {0};
+    	assertGrowth("forEachTarget", (graph, vertex, next, i) -> {
+    		graph.forEachTarget(vertex, (target, weight) -> sum[0] += weight);
+    		return sum[0];
+    	});
+    }
+    
+    @Test
+    public void testCheckRep() {
+    	Assume.assumeTrue("no checkRep()", checkRep != null);
+    	assertGrowth("checkRep", (graph, vertex, next, i) -> {
+    		checkRep.accept(graph);
+    		return i;
+    	});
+    }
+    
+    @Test
+    public void testFingerprint() {
+    	assertGrowth("fingerprint", (graph, vertex, next, i) -> (int) graph.fingerprint());
+    }
+}
@@ -5,9 +5,15 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.junit.Test;
 
@@ -80,6 +86,16 @@ public abstract class GraphInstanceTest {
      *  
      * add(), set(), vertices(), remove(), sources(), targets()
      *  partition on vertices number: 0, 1, >1
+     * 
+     * forEachEdge(), edgeSpliterator():
+     *  partition on edges: 0, 1, >1
+     *  partition on vertex with no edge: included, not included
+     *  edgeSpliterator(): partition on stream: sequential, parallel
+     * 
+     * contains(), weight(), outDegree(), inDegree(), forEachTarget(),
+     * forEachSource():
+     *  partition on vertex: not included, no edge, edges
+     *  partition on edge: exists, not exists, self loop
      */
     
     /*
@@ -389,4 +405,201 @@ public abstract class GraphInstanceTest {
     	graph.set("5", "4", 4);
     	assertEquals("expected self loop", Map.of("1", 1, "2", 2, "3", 3, "4", 4), graph.targets("5"));
     }
+    
+    /*
+     * cover edges 0
+     * 	vertex with no edge included
+     */
+    @Test
+    public void testForEachEdgeNoEdge() {
+    	Graph<String> graph = emptyInstance();
+    	graph.add("1");
+    	List<String> visited = new ArrayList<>();
+    	graph.forEachEdge((source, target, weight) -> visited.add(source));
+    	assertEquals("expected no edge", List.of(), visited);
+    	assertEquals("expected no edge", 0,
+    			StreamSupport.stream(graph.edgeSpliterator(), false).count());
+    }
+    
+    /*
+     * cover edges >1
+     * 	vertex with no edge included
+     */
+    @Test
+    public void testForEachEdge() {
+    	Graph<String> graph = emptyInstance();
+    	graph.set("1", "2", 1);
+    	graph.set("2", "1", 2);
+    	graph.set("2", "2", 3);
+    	graph.add("3");
+    	Set<String> visited = new HashSet<>();
+    	graph.forEachEdge((source, target, weight) ->
+    		visited.add(source + "->" + target + ":" + weight));
+    	assertEquals("expected edges", Set.of("1->2:1", "2->1:2", "2->2:3"), visited);
+    }
+    
+    /*
+     * cover edges 1
+     * 	vertex with no edge not included
+     * 	sequential stream
+     */
+    @Test
+    public void testEdgeSpliteratorOneEdge() {
+    	Graph<String> graph = emptyInstance();
+    	graph.set("1", "2", 5);
+    	List<Edge<String>> edges = StreamSupport.stream(graph.edgeSpliterator(), false)
+    			.collect(Collectors.toList());
+    	assertEquals("expected one edge", 1, edges.size());
+    	assertTrue("expected edge", edges.get(0).connected("1", "2"));
+    	assertEquals("expected weight", 5, edges.get(0).getWeight());
+    }
+    
+    /*
+     * cover edges >1
+     * 	vertex with no edge included
+     * 	parallel stream
+     */
+    @Test
+    public void testEdgeSpliteratorParallel() {
+    	Graph<String> graph = emptyInstance();
+    	Set<String> expected = new HashSet<>();
+    	for (int i = 0; i < 100; i++) {
+    		graph.set("v" + i, "v" + (i * 7 % 100), i + 1);
+    		graph.set("v" + i, "v" + (i * 3 % 100), i + 1);
+    		expected.add("v" + i + "->v" + (i * 7 % 100));
+    		expected.add("v" + i + "->v" + (i * 3 % 100));
+    	}
+    	graph.add("isolated");
+    	Set<String> edges = StreamSupport.stream(graph.edgeSpliterator(), true)
+    			.map(edge -> edge.getSource() + "->" + edge.getTarget())
+    			.collect(Collectors.toSet());
+    	assertEquals("expected edges", expected, edges);
+    	int total = StreamSupport.stream(graph.edgeSpliterator(), true)
+    			.mapToInt(Edge::getWeight).sum();
+    	int[] sum = {0};
+    	graph.forEachEdge((source, target, weight) -> sum[0] += weight);
+    	assertEquals("expected same total weight", sum[0], total);
+    }
+    
+    /*
+     * cover vertex not included, vertex with no edge
+     */
+    @Test
+    public void testWeightAndDegreesNoEdge() {
+    	Graph<String> graph = emptyInstance();
+    	graph.add("1");
+    	assertTrue("expected vertex", graph.contains("1"));
+    	assertFalse("expected no vertex", graph.contains("3"));
+    	assertEquals("expected no weight", 0, graph.weight("1", "2"));
+    	assertEquals("expected no weight", 0, graph.weight("3", "1"));
+    	assertEquals("expected no out edge", 0, graph.outDegree("1"));
+    	assertEquals("expected no in edge", 0, graph.inDegree("1"));
+    	assertEquals("expected no out edge", 0, graph.outDegree("3"));
+    	assertEquals("expected no in edge", 0, graph.inDegree("3"));
+    	List<String> visited = new ArrayList<>();
+    	graph.forEachTarget("1", (target, weight) -> visited.add(target));
+    	graph.forEachSource("3", (source, weight) -> visited.add(source));
+    	assertEquals("expected no edge", List.of(), visited);
+    }
+    
+    /*
+     * cover vertex with edges, edge exists, not exists, self loop
+     */
+    @Test
+    public void testWeightAndDegreesEdges() {
+    	Graph<String> graph = emptyInstance();
+    	graph.set("1", "2", 4);
+    	graph.set("1", "1", 2);
+    	graph.set("3", "1", 5);
+    	graph.set("1", "3", 1);
+    	graph.set("1", "3", 0);
+    	assertTrue("expected target vertex", graph.contains("2"));
+    	assertTrue("expected vertex of removed edge", graph.contains("3"));
+    	assertEquals("expected weight", 4, graph.weight("1", "2"));
+    	assertEquals("expected self loop", 2, graph.weight("1", "1"));
+    	assertEquals("expected removed edge", 0, graph.weight("1", "3"));
+    	assertEquals("expected no reverse edge", 0, graph.weight("2", "1"));
+    	assertEquals("expected out edges", 2, graph.outDegree("1"));
+    	assertEquals("expected in edges", 2, graph.inDegree("1"));
+    	assertEquals("expected in edges", 1, graph.inDegree("2"));
+    
+    	Map<String, Integer> targets = new HashMap<>();
+    	graph.forEachTarget("1", targets::put);
+    	assertEquals("expected targets", graph.targets("1"), targets);
+    	Map<String, Integer> sources = new HashMap<>();
+    	graph.forEachSource("1", sources::put);
+    	assertEquals("expected sources", graph.sources("1"), sources);
+    }
+    
+    /*
+     * fingerprint():
+     * 	partition on this: empty, produced by add(), set(), remove()
+     * 	partition on order of mutations: same, different
+     * 	partition on weight: same, different
+     */
+    
+    /*
+     * cover this empty, produced by add(), set()
+     * 	order of mutations same, different
+     */
+    @Test
+    public void testFingerprintOrderIndependent() {
+    	Graph<String> empty = emptyInstance();
+    	assertEquals("expected empty fingerprint", 0, empty.fingerprint());
+    
+    	Graph<String> graph = emptyInstance();
+    	graph.add("a");
+    	graph.set("a", "b", 2);
+    	graph.set("b", "c", 1);
+    	graph.set("c", "c", 3);
+    	graph.add("d");
+    	Graph<String> reversed = emptyInstance();
+    	reversed.add("d");
+    	reversed.set("c", "c", 3);
+    	reversed.set("b", "c", 1);
+    	reversed.set("a", "b", 2);
+    	assertEquals("expected same fingerprint", graph.fingerprint(), reversed.fingerprint());
+    	assertEquals("expected fingerprint of vertices and edges",
+    			Fingerprint.of(graph), graph.fingerprint());
+    	assertNotEquals("expected fingerprint of nonempty graph", 0, graph.fingerprint());
+    }
+    
+    /*
+     * cover this produced by set(), remove()
+     * 	weight same, different
+     */
+    @Test
+    public void testFingerprintChanges() {
+    	Graph<String> graph = emptyInstance();
+    	graph.set("a", "b", 2);
+    	graph.set("b", "a", 1);
+    	long before = graph.fingerprint();
+    
+    	graph.set("a", "b", 3);
+    	assertNotEquals("expected weight in fingerprint", before, graph.fingerprint());
+    	graph.set("a", "b", 2);
+    	assertEquals("expected fingerprint restored", before, graph.fingerprint());
+    
+    	Graph<String> swapped = emptyInstance();
+    	swapped.set("a", "b", 1);
+    	swapped.set("b", "a", 2);
+    	assertNotEquals("expected direction in fingerprint", before, swapped.fingerprint());
+    
+    	graph.set("b", "c", 4);
+    	graph.set("c", "c", 1);
+    	graph.set("c", "a", 5);
+    	assertNotEquals("expected new edges in fingerprint", before, graph.fingerprint());
+    	graph.remove("c");
+    	assertEquals("expected fingerprint without c", before, graph.fingerprint());
+    	graph.set("a", "b", 0);
+    	graph.set("b", "a", 0);
+    	Graph<String> vertices = emptyInstance();
+    	vertices.add("b");
+    	vertices.add("a");
+    	assertEquals("expected fingerprint of vertices only", vertices.fingerprint(),
+    			graph.fingerprint());
+    	graph.remove("a");
+    	graph.remove("b");
+    	assertEquals("expected empty fingerprint", 0, graph.fingerprint());
+    }
 }
@@ -23,6 +23,9 @@ public class GraphStaticTest {
     //   empty()
     //     no inputs, only output is empty graph
     //     observe with vertices()
+    //   fingerprint()
+    //     partition on implementation: every one of Graph
+    //     partition on labels: hashCode() distinct, colliding
     
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
@@ -55,4 +58,30 @@ public class GraphStaticTest {
         assertEquals("expected empty() graph to have no vertices",
                 Set.of(1.0, 2.0), graph.vertices());
     }
+    
+    /*
+     * fingerprint() of the same graph in every implementation
+     */
+    @Test
+    public void testFingerprintSameAcrossImplementations() {
+    	List<Graph<String>> graphs = List.of(Graph.empty(),
+    			new ConcreteEdgesGraph<>(), new ArrayEdgesGraph<>());
+    	for (Graph<String> graph : graphs) {
+    		graph.set("hello", "world", 2);
+    		graph.set("world", "hello", 1);
+    		graph.add("Aa");
+    	}
+    	long expected = graphs.get(0).fingerprint();
+    	for (Graph<String> graph : graphs) {
+    		assertEquals("expected same fingerprint in " + graph.getClass().getSimpleName(),
+    				expected, graph.fingerprint());
+    	}
+    	Graph<String> colliding = Graph.empty();
+    	colliding.set("hello", "world", 2);
+    	colliding.set("world", "hello", 1);
+    	colliding.add("BB"); // same hashCode() as "Aa"
+    	assertEquals("Aa".hashCode(), "BB".hashCode());
+    	assertNotEquals("expected labels hashed beyond hashCode()", expected,
+    			colliding.fingerprint());
+    }
 }
@@ -0,0 +1,71 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Loads a copy of the graph implementations with assertions disabled, so that
+ * tests run with -ea can measure a graph as it runs without them, e.g. one
+ * created in the default rep check mode.
+ *
+ * <p>The types of the Graph interface are not copied but shared with the
+ * tests' own loader, so that the graphs loaded can be used as a Graph.
+ */
+public final class WithoutAssertions extends URLClassLoader {
+    
+    private static final Set<String> SHARED = Set.of(
+    		Graph.class.getName(), Edge.class.getName(), EdgeConsumer.class.getName());
+    
+    private WithoutAssertions() {
+    	super(new URL[] {Graph.class.getProtectionDomain().getCodeSource().getLocation()},
+    			WithoutAssertions.class.getClassLoader());
+    	setPackageAssertionStatus(Graph.class.getPackageName(), false);
+    }
+    
+    @Override protected Class<?> loadClass(String name, boolean resolve)
+    		throws ClassNotFoundException {
+    	if (!name.startsWith(Graph.class.getPackageName() + ".") || SHARED.contains(name)) {
+    		return super.loadClass(name, resolve);
+    	}
+    	synchronized (getClassLoadingLock(name)) {
+    		Class<?> type = findLoadedClass(name);
+    		if (type == null) {
+    			type = findClass(name);
+    		}
+    		if (resolve) {
+    			resolveClass(type);
+    		}
+    		return type;
+    	}
+    }
+    
+    /**
+     * @param type a Graph implementation with a public constructor taking no
+     *        arguments
+     * @return a supplier of new graphs of a copy of type loaded with
+     *         assertions disabled, created with that constructor
+     */
+    @SuppressWarnings("unchecked")
+    public static Supplier<Graph<String>> graphs(Class<?> type) {
+    	try {
+    		Class<?> copy = new WithoutAssertions().loadClass(type.getName());
+    		if (copy.desiredAssertionStatus()) {
+    			throw new IllegalStateException("assertions are still enabled for " + copy);
+    		}
+    		return () -> {
+    			try {
+    				return (Graph<String>) copy.getConstructor().newInstance();
+    			} catch (ReflectiveOperationException e) {
+    				throw new IllegalStateException(e);
+    			}
+    		};
+    	} catch (ClassNotFoundException e) {
+    		throw new IllegalStateException(e);
+    	}
+    }
+}
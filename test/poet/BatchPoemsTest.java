@@ -0,0 +1,100 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.junit.Test;
+
+/**
+ * Tests for BatchPoems.
+ */
+public class BatchPoemsTest {
+    
+    /**
+     * Testing strategy
+     * 
+     * run():
+     * 	partition on lines: 0, 1, many chunks
+     * 	partition on last chunk: full, partial
+     * 	partition on threads: 1, >1
+     * 	partition on output: writable, fails
+     */
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    /**
+     * cover lines 0, 1
+     * 	threads 1
+     */
+    @Test
+    public void testRunFewLines() throws IOException {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a b c");
+    	StringWriter none = new StringWriter();
+    	assertEquals("expected no line", 0,
+    			BatchPoems.run(poet, new BufferedReader(new StringReader("")), none, 1));
+    	assertEquals("expected no poem", "", none.toString());
+    
+    	StringWriter one = new StringWriter();
+    	assertEquals("expected one line", 1,
+    			BatchPoems.run(poet, new BufferedReader(new StringReader("A c")), one, 1));
+    	assertEquals("expected poem", "A b c\n", one.toString());
+    }
+    
+    /**
+     * cover lines many chunks
+     * 	last chunk full, partial
+     * 	threads >1
+     */
+    @Test
+    public void testRunInOrder() throws IOException {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a b c\nc d a");
+    	for (int lines : new int[] { 10 * BatchPoems.CHUNK_LINES, 10 * BatchPoems.CHUNK_LINES + 7 }) {
+    		StringBuilder input = new StringBuilder();
+    		StringBuilder expected = new StringBuilder();
+    		for (int i = 0; i < lines; i++) {
+    			String line = i % 2 == 0 ? "a c " + i : "c a " + i;
+    			input.append(line).append('\n');
+    			expected.append(poet.poem(line)).append('\n');
+    		}
+    		StringWriter output = new StringWriter();
+    		assertEquals("expected every line", lines, BatchPoems.run(poet,
+    				new BufferedReader(new StringReader(input.toString())), output, 4));
+    		assertEquals("expected poems in order", expected.toString(), output.toString());
+    	}
+    }
+    
+    /**
+     * cover output fails
+     */
+    @Test
+    public void testRunOutputFails() {
+    	GraphPoet poet = new GraphPoet();
+    	StringBuilder input = new StringBuilder();
+    	for (int i = 0; i < 20 * BatchPoems.CHUNK_LINES; i++) {
+    		input.append("a b\n");
+    	}
+    	Writer broken = new Writer() {
+    		@Override public void write(char[] cbuf, int off, int len) throws IOException {
+    			throw new IOException("disk full");
+    		}
+    		@Override public void flush() {}
+    		@Override public void close() {}
+    	};
+    	IOException e = assertThrows(IOException.class, () -> BatchPoems.run(poet,
+    			new BufferedReader(new StringReader(input.toString())), broken, 2));
+    	assertEquals("expected writer failure", "disk full", e.getMessage());
+    }
+}
@@ -0,0 +1,246 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for CompressedCorpus and the GraphPoet constructors reading
+ * compressed corpora.
+ */
+public class CompressedCorpusTest {
+    
+    /**
+     * Testing strategy
+     *
+     * GraphPoet(File), GraphPoet(File, int), GraphPoet(InputStream),
+     * fromFiles():
+     * 	partition on format: plain, gzip, concatenated gzip members, zlib
+     * 	partition on size: empty, less than a chunk, several chunks
+     * 	partition on stream: whole, truncated
+     * 	partition on plain text: starts with "x", does not, starts with a
+     * 		valid zlib header
+     * 	partition on zlib level: fastest, 2-5, default, best
+     * 	partition on zlib window: 32 KB, smaller
+     *
+     * open():
+     * 	partition on closed: after the end, before the end
+     *
+     * pipe():
+     * 	partition on source: ends, throws an exception, throws an error
+     */
+    
+    private static final String TEXT = "This is a test of the Mugar Omni Theater sound system.\n"
+    		+ "x\u00e9 hello hello goodbye";
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static byte[] gzip(String text) throws IOException {
+    	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    	try (OutputStream out = new GZIPOutputStream(bytes)) {
+    		out.write(text.getBytes(StandardCharsets.UTF_8));
+    	}
+    	return bytes.toByteArray();
+    }
+    
+    private static byte[] zlib(String text) throws IOException {
+    	return zlib(text, Deflater.DEFAULT_COMPRESSION);
+    }
+    
+    private static byte[] zlib(String text, int level) throws IOException {
+    	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    	try (OutputStream out = new DeflaterOutputStream(bytes, new Deflater(level))) {
+    		out.write(text.getBytes(StandardCharsets.UTF_8));
+    	}
+    	return bytes.toByteArray();
+    }
+    
+    private static File file(byte[] bytes, String suffix) throws IOException {
+    	File file = File.createTempFile("corpus", suffix);
+    	file.deleteOnExit();
+    	Files.write(file.toPath(), bytes);
+    	return file;
+    }
+    
+    private static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+    	assertEquals("expected vertices", expected.vertices(), actual.vertices());
+    	for (String vertex : expected.vertices()) {
+    		assertEquals("expected targets of " + vertex, expected.targets(vertex),
+    				actual.targets(vertex));
+    	}
+    }
+    
+    /**
+     * cover format plain, gzip, zlib
+     * 	size less than a chunk
+     * 	stream whole
+     */
+    @Test
+    public void testFiles() throws IOException {
+    	Graph<String> expected = new GraphPoet(file(
+    			TEXT.getBytes(StandardCharsets.UTF_8), ".txt")).getGraph();
+    	File gzip = file(gzip(TEXT), ".txt.gz");
+    	File zlib = file(zlib(TEXT), ".txt.zz");
+    	assertTrue("expected gzip detected", CompressedCorpus.isCompressed(gzip));
+    	assertTrue("expected zlib detected", CompressedCorpus.isCompressed(zlib));
+    	assertSameGraph(expected, new GraphPoet(gzip).getGraph());
+    	assertSameGraph(expected, new GraphPoet(zlib).getGraph());
+    	assertSameGraph(expected, new GraphPoet(gzip, 4).getGraph());
+    	GraphPoet all = GraphPoet.fromFiles(List.of(gzip, zlib), 2);
+    	assertEquals("expected words of both", 2 * 15, all.ingestReport().getWords());
+    	assertEquals("expected compressed size", gzip.length(),
+    			all.ingestReport().getEntries().get(0).getBytes());
+    }
+    
+    /**
+     * cover format zlib
+     * 	zlib level fastest, 2-5, default, best
+     * 	zlib window 32 KB, smaller
+     * 	plain text starts with a valid zlib header
+     */
+    @Test
+    public void testZlibHeaders() throws IOException {
+    	Graph<String> expected = new GraphPoet(new ByteArrayInputStream(
+    			TEXT.getBytes(StandardCharsets.UTF_8))).getGraph();
+    	for (int level : new int[] {Deflater.BEST_SPEED, 4, Deflater.DEFAULT_COMPRESSION,
+    			Deflater.BEST_COMPRESSION}) {
+    		byte[] zlib = zlib(TEXT, level);
+    		assertTrue("expected zlib detected at level " + level,
+    				CompressedCorpus.isCompressed(file(zlib, ".zz")));
+    		assertSameGraph(expected, new GraphPoet(new ByteArrayInputStream(zlib)).getGraph());
+    	}
+    	assertEquals("expected header of levels 2-5", 0x5E, zlib(TEXT, 4)[1] & 0xFF);
+    
+    	// a 1 KB window, enough for TEXT: CINFO 2, and a check making 0x2815
+    	byte[] small = zlib(TEXT);
+    	small[0] = 0x28;
+    	small[1] = 0x15;
+    	assertTrue("expected small window detected", CompressedCorpus.isCompressed(file(small, ".zz")));
+    	assertSameGraph(expected, new GraphPoet(new ByteArrayInputStream(small)).getGraph());
+    
+    	for (String plain : List.of("x^2 is a square", "x} is not code", "x? is a question")) {
+    		byte[] bytes = plain.getBytes(StandardCharsets.UTF_8);
+    		assertEquals("expected valid zlib header", 0, ((bytes[0] << 8) | bytes[1]) % 31);
+    		assertFalse("expected text: " + plain, CompressedCorpus.isCompressed(file(bytes, ".txt")));
+    		assertEquals("expected words read as text", 4,
+    				new GraphPoet(new ByteArrayInputStream(bytes)).ingestReport().getWords());
+    	}
+    }
+    
+    /**
+     * cover format plain, concatenated gzip members
+     * 	size empty, several chunks
+     * 	plain text starts with "x", does not
+     */
+    @Test
+    public void testStreams() throws IOException {
+    	assertEquals("expected empty graph", 0,
+    			new GraphPoet(new ByteArrayInputStream(new byte[0])).getGraph().vertices().size());
+    	assertEquals("expected empty gzip graph", 0,
+    			new GraphPoet(new ByteArrayInputStream(gzip(""))).getGraph().vertices().size());
+    
+    	String plain = "x^ is text, and so is x\u00ff";
+    	assertFalse("expected text", CompressedCorpus.isCompressed(file(
+    			plain.getBytes(StandardCharsets.UTF_8), ".txt")));
+    	GraphPoet text = new GraphPoet(new ByteArrayInputStream(plain.getBytes(StandardCharsets.UTF_8)));
+    	assertEquals("expected words read as text", 7, text.ingestReport().getWords());
+    
+    	StringBuilder large = new StringBuilder();
+    	for (int i = 0; large.length() < 5 * CompressedCorpus.CHUNK_BYTES * CompressedCorpus.CHUNKS; i++) {
+    		large.append("word").append(i % 1000).append(i % 7 == 0 ? '\n' : ' ');
+    	}
+    	String half = large.substring(0, large.indexOf(" ", large.length() / 2) + 1);
+    	byte[] members = new byte[0];
+    	for (byte[] member : List.of(gzip(half), gzip(large.substring(half.length())))) {
+    		members = Arrays.copyOf(members, members.length + member.length);
+    		System.arraycopy(member, 0, members, members.length - member.length, member.length);
+    	}
+    	GraphPoet poet = new GraphPoet(new ByteArrayInputStream(members));
+    	GraphPoet expected = new GraphPoet(new ByteArrayInputStream(
+    			large.toString().getBytes(StandardCharsets.UTF_8)));
+    	assertSameGraph(expected.getGraph(), poet.getGraph());
+    	assertEquals("expected stream source", "stream", poet.ingestReport().getEntries().get(0).getSource());
+    	assertEquals("expected compressed size", members.length, poet.ingestReport().getBytes());
+    }
+    
+    /**
+     * cover format gzip, zlib
+     * 	stream truncated
+     */
+    @Test
+    public void testTruncated() throws IOException {
+    	byte[] gzip = gzip(TEXT);
+    	assertThrows(IOException.class, () -> new GraphPoet(
+    			new ByteArrayInputStream(Arrays.copyOf(gzip, gzip.length / 2))));
+    	byte[] zlib = zlib(TEXT);
+    	File truncated = file(Arrays.copyOf(zlib, zlib.length / 2), ".zz");
+    	assertThrows(IOException.class, () -> new GraphPoet(truncated));
+    }
+    
+    /**
+     * cover closed after the end, before the end
+     */
+    @Test
+    public void testClose() throws IOException {
+    	byte[] large = gzip("word ".repeat(CompressedCorpus.CHUNK_BYTES * CompressedCorpus.CHUNKS));
+    	InputStream early = CompressedCorpus.open(new ByteArrayInputStream(large));
+    	assertEquals("expected first byte", 'w', early.read());
+    	early.close();
+    	InputStream whole = CompressedCorpus.open(new ByteArrayInputStream(gzip("a b")));
+    	assertEquals("expected every byte", "a b", new String(whole.readAllBytes(), StandardCharsets.UTF_8));
+    	assertEquals("expected end", -1, whole.read());
+    	whole.close();
+    }
+    
+    /**
+     * cover source throws an exception, throws an error
+     */
+    @Test(timeout = 10_000)
+    public void testPipeFails() throws IOException {
+    	for (Throwable thrown : List.of(new IllegalStateException("corrupt"), new OutOfMemoryError("large"))) {
+    		InputStream failing = CompressedCorpus.pipe(new InputStream() {
+    			@Override public int read() {
+    				if (thrown instanceof Error) {
+    					throw (Error) thrown;
+    				}
+    				throw (RuntimeException) thrown;
+    			}
+    		});
+    		IOException e = assertThrows(IOException.class, () -> failing.read());
+    		assertSame("expected cause", thrown, e.getCause());
+    		failing.close();
+    	}
+    }
+    
+    /**
+     * cover source ends
+     */
+    @Test(timeout = 10_000)
+    public void testPipe() throws IOException {
+    	InputStream pipe = CompressedCorpus.pipe(new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)));
+    	assertEquals("expected every byte", TEXT, new String(pipe.readAllBytes(), StandardCharsets.UTF_8));
+    	pipe.close();
+    }
+}
@@ -0,0 +1,103 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.function.IntUnaryOperator;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import graph.Allocations;
+
+/**
+ * Tests for the bytes GraphPoet operations allocate per call, measured by
+ * {@link Allocations}.
+ *
+ * <p>A poem allocates at most {@value #WORD_BYTES} bytes per input word,
+ * enough for the word, its lower case and its share of the poem, but not
+ * for a copy of the graph's edges or a new tokenizer per word; the string
+ * of the graph allocates at most {@value #CHAR_BYTES} bytes per char, enough
+ * for the builder to grow and be copied once.
+ */
+public class GraphPoetAllocationTest {
+    
+    /*
+     * Testing strategy
+     *
+     * partition on operation: poem(String), poem(Reader, Writer), toString()
+     * partition on words: lower case, capitalized
+     */
+    
+    private static final int WORD_BYTES = 192;
+    private static final int CHAR_BYTES = 8;
+    
+    private static final File CORPUS = new File("test/poet/where-no-man-has-gone-before.txt");
+    private static final int WORDS = 1000;
+    
+    private GraphPoet poet;
+    private String input;
+    
+    @Before
+    public void setUp() throws IOException {
+    	Assume.assumeTrue("thread allocation counters are not supported",
+    			Allocations.supported());
+    	poet = new GraphPoet(CORPUS);
+    	// the corpus' own words, so that most pairs have a bridge
+    	String[] words = "to explore strange new worlds To seek out new life and new civilizations"
+    			.split(" ");
+    	StringBuilder input = new StringBuilder();
+    	for (int i = 0; i < WORDS; i++) {
+    		input.append(words[i % words.length]).append(' ');
+    	}
+    	this.input = input.toString();
+    }
+    
+    private static void assertAllocates(String op, double budget, double units, String unit,
+    		IntUnaryOperator operation) {
+    	double bytes = Allocations.perCall(operation) / units;
+    	assertTrue(String.format("%s allocates %.1f bytes per %s, budget %.0f", op, bytes, unit,
+    			budget), bytes <= budget);
+    }
+    
+    @Test
+    public void testPoem() {
+    	assertAllocates("poem(String)", WORD_BYTES, WORDS, "word",
+    			i -> poet.poem(input).length());
+    }
+    
+    @Test
+    public void testPoemLowerCase() {
+    	String lower = input.toLowerCase();
+    	assertAllocates("poem(String)", WORD_BYTES, WORDS, "word",
+    			i -> poet.poem(lower).length());
+    }
+    
+    @Test
+    public void testPoemStream() {
+    	StringWriter output = new StringWriter(2 * input.length());
+    	assertAllocates("poem(Reader, Writer)", WORD_BYTES, WORDS, "word", i -> {
+    		output.getBuffer().setLength(0);
+    		try {
+    			poet.poem(new StringReader(input), output);
+    		} catch (IOException e) {
+    			throw new UncheckedIOException(e);
+    		}
+    		return output.getBuffer().length();
+    	});
+    }
+    
+    @Test
+    public void testToString() {
+    	int chars = poet.toString().length();
+    	assertAllocates("toString()", CHAR_BYTES, chars, "char", i -> poet.toString().length());
+    }
+}
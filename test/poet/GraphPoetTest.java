@@ -6,8 +6,18 @@ package poet;
 import static org.junit.Assert.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Test;
 import graph.Graph;
 
@@ -33,6 +43,30 @@ public class GraphPoetTest {
      *	partition on file found
      *	partition on case: input contain upper-case word
      *
+     * GraphPoet(File corpus, int parallelism):
+     * 	partition on parallelism: 1, >1
+     * 	partition on file found
+     *
+     * fromFiles(), fromDirectory():
+     * 	partition on files: 0, 1, >1
+     * 	partition on threads: 1, >1, fewer than files
+     * 	partition on all files found
+     * 	fromDirectory(): partition on glob: matches some files, subdirectory
+     *
+     * learn(String), learn(Reader):
+     * 	partition on poet: empty, created from corpus
+     * 	partition on text: no word, words already in graph, new words
+     * 	partition on calls: 1, many
+     * 	partition on concurrent readers: none, some
+     *
+     * ingestReport():
+     * 	partition on constructed by: GraphPoet(File), fromFiles()
+     *
+     * stats():
+     * 	partition on graph: empty, has edges
+     * 	partition on weights: all <= 127, some > 127
+     * 	partition on learned since last call: yes, no
+     *
      * poem():
      * 	partition on bridge word insert: 0, >0
      * 	partition on two-edge-long path: 
@@ -42,6 +76,20 @@ public class GraphPoetTest {
      * 		more than two but equal weight
      * 	partition on outcome: input contain upper-case word and 
      * 		bridge word insert is lower case
+     *
+     * bridges():
+     * 	partition on bridges: 0, fewer than k, more than k
+     * 	partition on k: 0, 1, >1
+     * 	partition on ties: none, equal weights
+     * 	partition on words: lower case, upper case
+     *
+     * setMaxBridgeHops():
+     * 	partition on maxHops: 2, 3, >3
+     * 	partition on shortest bridge: one word, several words, longer than
+     * 		maxHops allows, none
+     * 	partition on several bridges of fewest words: different weights,
+     * 		equal weights
+     * 	partition on visit limit: reached, not reached
      */
     
     @Test(expected=AssertionError.class)
@@ -169,6 +217,475 @@ public class GraphPoetTest {
     	assertEquals("expected poem", "meet ours requirement", poet.poem("meet requirement"));
     }
     
+    /**
+     * cover parallelism 1, >1
+     * 	words >1
+     */
+    @Test
+    public void testConstructorParallel() throws IOException {
+    	for (String name : new String[] {"hello", "turn", "where-no-man-has-gone-before"}) {
+    		final File file = new File("test/poet/" + name + ".txt");
+    		Graph<String> expected = new GraphPoet(file).getGraph();
+    		for (int parallelism : new int[] {1, 4}) {
+    			Graph<String> graph = new GraphPoet(file, parallelism).getGraph();
+    			assertEquals("expected vertices", expected.vertices(), graph.vertices());
+    			for (String vertex : expected.vertices()) {
+    				assertEquals("expected targets", expected.targets(vertex), graph.targets(vertex));
+    			}
+    		}
+    	}
+    }
+    
+    /**
+     * cover parallelism >1
+     * 	file not found
+     */
+    @Test
+    public void testConstructorParallelNotFound() {
+    	final File file = new File("test/poet/not-exist.txt");
+    	assertThrows(IOException.class, () -> new GraphPoet(file, 4));
+    }
+    
+    /**
+     * cover files >1
+     * 	threads 1, >1, fewer than files
+     * 	all files found
+     */
+    @Test
+    public void testFromFiles() throws IOException {
+    	List<File> files = List.of(new File("test/poet/turn.txt"),
+    			new File("test/poet/hello.txt"),
+    			new File("test/poet/where-no-man-has-gone-before.txt"),
+    			new File("test/poet/no-repeated.txt"));
+    	StringBuilder text = new StringBuilder();
+    	for (File file : files) {
+    		text.append(Files.readString(file.toPath())).append('\n');
+    	}
+    	File joined = File.createTempFile("corpus", ".txt");
+    	joined.deleteOnExit();
+    	Files.writeString(joined.toPath(), text);
+    	String expected = new GraphPoet(joined).toString();
+    
+    	for (int threads : new int[] {1, 2, 8}) {
+    		GraphPoet poet = GraphPoet.fromFiles(files, threads);
+    		assertEquals("expected same graph as joined files", expected, poet.toString());
+    		IngestReport report = poet.ingestReport();
+    		assertEquals("expected one entry per file", files.size(), report.getEntries().size());
+    		assertEquals("expected entries in file order", files.get(1).getPath(),
+    				report.getEntries().get(1).getSource());
+    		assertEquals("expected words of file", 4, report.getEntries().get(1).getWords());
+    	}
+    }
+    
+    /**
+     * cover files 0, 1
+     * 	glob matches some files, subdirectory
+     */
+    @Test
+    public void testFromDirectory() throws IOException {
+    	Path directory = Files.createTempDirectory("corpus");
+    	Files.createDirectory(directory.resolve("sub"));
+    	Files.writeString(directory.resolve("a.txt"), "Hello, HELLO, hello, goodbye!");
+    	Files.writeString(directory.resolve("b.md"), "goodbye! hello,");
+    	Files.writeString(directory.resolve("sub/c.txt"), "goodbye! hello,");
+    	try {
+    		GraphPoet top = GraphPoet.fromDirectory(directory.toFile(), "*.txt", 2);
+    		assertEquals("expected target", Map.of("hello,", 2, "goodbye!", 1),
+    				top.getGraph().targets("hello,"));
+    		assertEquals("expected target", Map.of(), top.getGraph().targets("goodbye!"));
+    
+    		GraphPoet all = GraphPoet.fromDirectory(directory.toFile(), "**.txt", 2);
+    		assertEquals("expected target", Map.of("hello,", 1), all.getGraph().targets("goodbye!"));
+    		assertEquals("expected entries", 2, all.ingestReport().getEntries().size());
+    
+    		GraphPoet none = GraphPoet.fromDirectory(directory.toFile(), "*.csv", 2);
+    		assertEquals("expected empty graph", Set.of(), none.getGraph().vertices());
+    	} finally {
+    		for (String name : new String[] {"sub/c.txt", "sub", "a.txt", "b.md", ""}) {
+    			Files.delete(directory.resolve(name));
+    		}
+    	}
+    }
+    
+    /**
+     * cover files >1
+     * 	not all files found
+     */
+    @Test
+    public void testFromFilesNotFound() {
+    	List<File> files = List.of(new File("test/poet/turn.txt"),
+    			new File("test/poet/not-exist.txt"));
+    	assertThrows(IOException.class, () -> GraphPoet.fromFiles(files, 2));
+    }
+    
+    /**
+     * cover constructed by GraphPoet(File)
+     */
+    @Test
+    public void testIngestReport() throws IOException {
+    	final File file = new File("test/poet/hello.txt");
+    	IngestReport report = new GraphPoet(file).ingestReport();
+    	assertEquals("expected one entry", 1, report.getEntries().size());
+    	assertEquals("expected bytes", file.length(), report.getBytes());
+    	assertEquals("expected words", 4, report.getWords());
+    	assertTrue("expected build time", report.getBuildNanos() > 0);
+    }
+    
+    /**
+     * cover graph empty
+     */
+    @Test
+    public void testStatsEmpty() {
+    	ModelStats stats = new GraphPoet().stats();
+    	assertEquals("expected no vertices", 0, stats.getVertices());
+    	assertEquals("expected no edges", 0, stats.getEdges());
+    	assertEquals("expected no weight", 0, stats.getTotalWeight());
+    	assertEquals("expected no degree", 0, stats.outDegreePercentile(99));
+    	assertEquals("expected no words", 0, (long) stats.getEstimatedBytes().get("words"));
+    }
+    
+    /**
+     * cover graph has edges
+     * 	weights all <= 127, some > 127
+     * 	learned since last call yes, no
+     */
+    @Test
+    public void testStats() {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a b c a d");
+    	ModelStats stats = poet.stats();
+    	assertEquals("expected vertices", 4, stats.getVertices());
+    	assertEquals("expected edges", 4, stats.getEdges());
+    	assertEquals("expected total weight", 4, stats.getTotalWeight());
+    	assertEquals("expected max out-degree", 2, stats.outDegreePercentile(100));
+    	assertEquals("expected median out-degree", 1, stats.outDegreePercentile(50));
+    	assertEquals("expected min in-degree", 1, stats.inDegreePercentile(0));
+    	assertEquals("expected structures", List.of("words", "vertices", "edges"),
+    			List.copyOf(stats.getEstimatedBytes().keySet()));
+    	assertEquals("expected total of structures",
+    			stats.getEstimatedBytes().values().stream().mapToLong(Long::longValue).sum(),
+    			stats.getEstimatedTotalBytes());
+    	assertSame("expected statistics reused", stats, poet.stats());
+    
+    	poet.learn("x y ".repeat(200));
+    	ModelStats learned = poet.stats();
+    	assertNotSame("expected new statistics", stats, learned);
+    	assertEquals("expected vertices", 6, learned.getVertices());
+    	assertEquals("expected total weight", 4 + 399, learned.getTotalWeight());
+    	assertTrue("expected boxed weights in estimate",
+    			learned.getEstimatedBytes().get("edges") > stats.getEstimatedBytes().get("edges") + 2 * 16);
+    	assertTrue("expected report lines", learned.toString().contains("6 vertices, 6 edges"));
+    }
+    
+    /**
+     * cover graph has learned layers
+     */
+    @Test
+    public void testStatsLayered() {
+    	StringBuilder text = new StringBuilder();
+    	for (int i = 0; i < 100; i++) {
+    		text.append("w").append(i % 40).append(' ');
+    	}
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn(text.toString());
+    	poet.learn("alone\nw1 w2 again w2 w1");
+    	assertEquals("expected learned layer", 2, ((LayeredGraph<String>) poet.graph()).layerCount());
+    	GraphPoet once = new GraphPoet();
+    	once.learn(text + "\nalone\nw1 w2 again w2 w1");
+    	ModelStats expected = once.stats();
+    
+    	ModelStats stats = poet.stats();
+    	assertEquals("expected vertices", expected.getVertices(), stats.getVertices());
+    	assertEquals("expected edges", expected.getEdges(), stats.getEdges());
+    	assertEquals("expected total weight", expected.getTotalWeight(), stats.getTotalWeight());
+    	for (double percent : new double[] {0, 50, 90, 100}) {
+    		assertEquals("expected out-degree", expected.outDegreePercentile(percent),
+    				stats.outDegreePercentile(percent));
+    		assertEquals("expected in-degree", expected.inDegreePercentile(percent),
+    				stats.inDegreePercentile(percent));
+    	}
+    	assertEquals("expected no heap estimate", Map.of(), stats.getEstimatedBytes());
+    	assertTrue("expected report lines", stats.toString().contains("not estimated"));
+    }
+    
+    /**
+     * cover poet empty
+     * 	text no word, new words
+     */
+    @Test
+    public void testLearnEmptyPoet() {
+    	GraphPoet poet = new GraphPoet();
+    	assertEquals("expected poem", "Test the system.", poet.poem("Test the system."));
+    	poet.learn(" \n ");
+    	assertEquals("expected empty graph", Set.of(), poet.getGraph().vertices());
+    	poet.learn("This is a test of the Mugar Omni Theater sound system.");
+    	assertEquals("expected poem", "Test of the system.", poet.poem("Test the system."));
+    }
+    
+    /**
+     * cover poet created from corpus
+     * 	text words already in graph, new words
+     */
+    @Test
+    public void testLearnAddsWeights() throws IOException {
+    	GraphPoet poet = new GraphPoet(new File("test/poet/turn.txt"));
+    	assertEquals("expected poem", "Turn this around", poet.poem("Turn around"));
+    	poet.learn(new StringReader("turn that around\nTurn THAT around"));
+    	assertEquals("expected target", Map.of("this", 1, "that", 3), poet.getGraph().targets("turn"));
+    	assertEquals("expected poem", "Turn that around", poet.poem("Turn around"));
+    	poet.learn("around the\nworld");
+    	assertEquals("expected no adjacency across line break", Map.of(), poet.getGraph().targets("the"));
+    	assertEquals("expected no adjacency across learned texts", Map.of("is", 1, "the", 1),
+    			poet.getGraph().targets("around"));
+    }
+    
+    /**
+     * cover learn(Reader) with text longer than a buffer
+     */
+    @Test
+    public void testLearnReaderLongText() throws IOException {
+    	StringBuilder text = new StringBuilder();
+    	for (int i = 0; i < 20000; i++) {
+    		text.append(i % 3 == 0 ? "\ud83d\ude00 " : "w").append(i % 7).append(' ');
+    	}
+    	GraphPoet fromReader = new GraphPoet();
+    	fromReader.learn(new StringReader(text.toString()));
+    	GraphPoet fromString = new GraphPoet();
+    	fromString.learn(text.toString());
+    	assertEquals("expected same graph", fromString.toString(), fromReader.toString());
+    }
+    
+    /**
+     * cover learn(String) many times, words already in graph, new words
+     */
+    @Test
+    public void testLearnManyTexts() throws IOException {
+    	File corpus = new File("test/poet/turn.txt");
+    	GraphPoet poet = new GraphPoet(corpus);
+    	StringBuilder all = new StringBuilder(Files.readString(corpus.toPath()));
+    	Random random = new Random(6005);
+    	Graph<String> published = null;
+    	String publishedString = null;
+    	for (int i = 0; i < 300; i++) {
+    		StringBuilder text = new StringBuilder();
+    		for (int w = random.nextInt(12); w > 0; w--) {
+    			text.append(random.nextInt(4) == 0 ? "new" + i : "w" + random.nextInt(20))
+    					.append(random.nextInt(5) == 0 ? '\n' : ' ');
+    		}
+    		poet.learn(text.toString());
+    		all.append('\n').append(text);
+    		if (i == 100) {
+    			published = poet.graph();
+    			publishedString = published.toString();
+    		}
+    	}
+    	GraphPoet once = new GraphPoet();
+    	once.learn(all.toString());
+    	Graph<String> expected = once.getGraph();
+    	Graph<String> actual = poet.getGraph();
+    	assertEquals("expected vertices", expected.vertices(), actual.vertices());
+    	for (String vertex : expected.vertices()) {
+    		assertEquals("expected targets", expected.targets(vertex), actual.targets(vertex));
+    		assertEquals("expected sources", expected.sources(vertex), poet.graph().sources(vertex));
+    	}
+    	assertEquals("expected same poem", once.poem("w1 w2 w3 w4 w5 w6"), poet.poem("w1 w2 w3 w4 w5 w6"));
+    	assertEquals("expected published graph unchanged", publishedString, published.toString());
+    	assertEquals("expected fingerprint", expected.fingerprint(), poet.fingerprint());
+    	// learned layers more than quadruple in size going down
+    	int layers = ((LayeredGraph<String>) poet.graph()).layerCount();
+    	int log4 = (31 - Integer.numberOfLeadingZeros(all.length())) / 2;
+    	assertTrue("expected at most " + (2 + log4) + " layers, got " + layers, layers <= 2 + log4);
+    }
+    
+    /**
+     * cover concurrent readers some
+     */
+    @Test
+    public void testLearnAtomic() throws InterruptedException {
+    	GraphPoet poet = new GraphPoet();
+    	Thread writer = new Thread(() -> {
+    		for (int i = 0; i < 200; i++) {
+    			poet.learn("p q\nq r");
+    		}
+    	});
+    	writer.start();
+    	while (writer.isAlive()) {
+    		Graph<String> graph = poet.getGraph();
+    		assertEquals("expected whole batches", graph.targets("p").getOrDefault("q", 0),
+    				graph.targets("q").getOrDefault("r", 0));
+    	}
+    	writer.join();
+    	assertEquals("expected every batch", Map.of("q", 200), poet.getGraph().targets("p"));
+    }
+    
+    /**
+     * cover bridge cache hits, misses and cached "no bridge"
+     */
+    @Test
+    public void testBridgeCacheHits() {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a b c");
+    	poet.setBridgeCacheSize(8);
+    	assertEquals("expected bridge", "a b c", poet.poem("a c"));
+    	assertEquals("expected bridge", "a b c", poet.poem("a c"));
+    	assertEquals("expected no bridge", "c a", poet.poem("c a"));
+    	assertEquals("expected no bridge", "c a", poet.poem("c a"));
+    	CacheStats stats = poet.bridgeCacheStats();
+    	assertEquals("expected hits", 2, stats.getHits());
+    	assertEquals("expected misses", 2, stats.getMisses());
+    	assertEquals("expected size", 2, stats.getSize());
+    	assertEquals("expected capacity", 8, stats.getCapacity());
+    }
+    
+    /**
+     * cover learn() invalidating cached bridges
+     */
+    @Test
+    public void testBridgeCacheInvalidatedByLearn() {
+    	GraphPoet poet = new GraphPoet();
+    	poet.setBridgeCacheSize(8);
+    	poet.learn("a b c");
+    	assertEquals("expected bridge", "a b c", poet.poem("a c"));
+    	poet.learn("a d c\na d c");
+    	assertEquals("expected new bridge", "a d c", poet.poem("a c"));
+    	assertEquals("expected miss after learn", 2, poet.bridgeCacheStats().getMisses());
+    }
+    
+    /**
+     * cover eviction within capacity, disabled cache
+     */
+    @Test
+    public void testBridgeCacheBounded() {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a b c");
+    	poet.setBridgeCacheSize(2);
+    	StringBuilder input = new StringBuilder();
+    	for (int i = 0; i < 50; i++) {
+    		input.append('w').append(i).append(' ');
+    	}
+    	poet.poem(input.toString());
+    	CacheStats stats = poet.bridgeCacheStats();
+    	assertTrue("expected bounded size", stats.getSize() <= 2);
+    	assertEquals("expected evictions", 49 - stats.getSize(), stats.getEvictions());
+    
+    	poet.setBridgeCacheSize(0);
+    	assertEquals("expected same poem", "a b c", poet.poem("a c"));
+    	assertEquals("expected disabled", 0, poet.bridgeCacheStats().getCapacity());
+    	assertThrows(IllegalArgumentException.class, () -> poet.setBridgeCacheSize(-1));
+    }
+    
+    /**
+     * cover empty batch, order kept, same poems as poem(), pairs deduplicated
+     */
+    @Test
+    public void testPoems() throws InterruptedException {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a b c d e f\nc x e");
+    	assertEquals("expected no poems", List.of(), poet.poems(List.of()));
+    
+    	List<String> inputs = new ArrayList<>();
+    	for (int i = 0; i < 100; i++) {
+    		inputs.add(i % 2 == 0 ? "A c E" : "b d F " + i);
+    	}
+    	List<String> expected = new ArrayList<>();
+    	for (String input : inputs) {
+    		expected.add(poet.poem(input));
+    	}
+    	poet.setBridgeCacheSize(64);
+    	ExecutorService executor = Executors.newFixedThreadPool(4);
+    	try {
+    		assertEquals("expected poems in order", expected, poet.poems(inputs, executor));
+    	} finally {
+    		executor.shutdown();
+    	}
+    	assertEquals("expected each distinct pair once", 4 + 50,
+    			poet.bridgeCacheStats().getMisses());
+    	assertEquals("expected common pool", expected, poet.poems(inputs));
+    }
+    
+    /**
+     * cover empty input, only whitespace, words split across reads,
+     * leading and trailing whitespace, long input
+     */
+    @Test
+    public void testPoemStreaming() throws IOException {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("to be or not to be\nthat is the question");
+    	List<String> inputs = new ArrayList<>();
+    	inputs.add("");
+    	inputs.add(" \n\t ");
+    	inputs.add("To or To that the");
+    	inputs.add("  \tBE not\r\nbe question  ");
+    	StringBuilder longInput = new StringBuilder();
+    	for (int i = 0; i < 5000; i++) {
+    		longInput.append(i % 2 == 0 ? "to " : "Not\n").append("w").append(i % 11).append(' ');
+    	}
+    	inputs.add(longInput.toString());
+    
+    	for (String input : inputs) {
+    		StringWriter whole = new StringWriter();
+    		poet.poem(new StringReader(input), whole);
+    		assertEquals("expected same poem", poet.poem(input), whole.toString());
+    
+    		StringWriter oneCharReads = new StringWriter();
+    		poet.poem(new Reader() {
+    			private final Reader reader = new StringReader(input);
+    			@Override public int read(char[] cbuf, int off, int len) throws IOException {
+    				return reader.read(cbuf, off, Math.min(len, 1));
+    			}
+    			@Override public void close() {}
+    		}, oneCharReads);
+    		assertEquals("expected same poem", poet.poem(input), oneCharReads.toString());
+    	}
+    }
+    
+    /**
+     * cover heavier bridge after a lighter one that is earlier in
+     * alphabetical order, common word with many sources, bridge search
+     * walking either side
+     */
+    @Test
+    public void testPoemBridgeSearch() {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("x a y\nx b y\nx b y");
+    	assertEquals("expected heavier bridge", "x b y", poet.poem("x y"));
+    
+    	StringBuilder corpus = new StringBuilder();
+    	for (int i = 0; i < 300; i++) {
+    		corpus.append("s").append(i).append(" the\n");
+    		corpus.append("the t").append(i % 30).append("\n");
+    	}
+    	corpus.append("rare m the\nrare n the\nrare n the\nthe q rare\n");
+    	poet.learn(corpus.toString());
+    	assertEquals("expected bridge from rare word", "rare n the", poet.poem("rare the"));
+    	assertEquals("expected bridge to rare word", "The q rare", poet.poem("The rare"));
+    	assertEquals("expected bridge through common word", "s1 the t1", poet.poem("s1 t1"));
+    	assertEquals("expected no bridge", "t1 s1", poet.poem("t1 s1"));
+    }
+    
+    /**
+     * cover learning while a poem is being generated: neither waits for the
+     * other, and the poem uses the graph from when it started
+     */
+    @Test
+    public void testLearnDuringPoem() throws IOException {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a b c");
+    	poet.setBridgeCacheSize(8);
+    	Reader input = new Reader() {
+    		private final Reader reader = new StringReader("a c a c");
+    		@Override public int read(char[] cbuf, int off, int len) throws IOException {
+    			poet.learn("a d c\na d c");
+    			return reader.read(cbuf, off, Math.min(len, 2));
+    		}
+    		@Override public void close() {}
+    	};
+    	StringWriter output = new StringWriter();
+    	poet.poem(input, output);
+    	assertEquals("expected poem from old graph", "a b c a b c", output.toString());
+    	assertEquals("expected poem from new graph", "a d c", poet.poem("a c"));
+    }
+    
     private GraphPoet graphPoetNoIOExpection(File file) {
     	try {
         	GraphPoet poet = new GraphPoet(file);
@@ -178,4 +695,145 @@ public class GraphPoetTest {
 			return null;
 		}
     }
+    /**
+     * cover bridges 0, more than k
+     * 	k 0, 1
+     */
+    @Test
+    public void testBridgesNoneAndBest() {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a x b a y b a y b a z b");
+    	assertEquals("expected no bridge", List.of(), poet.bridges("b", "a", 3));
+    	assertEquals("expected nothing for k 0", List.of(), poet.bridges("a", "b", 0));
+    	assertEquals("expected the bridge of poem()", List.of(new Bridge("y", 4)),
+    			poet.bridges("a", "b", 1));
+    	assertEquals("expected poem", "a y b", poet.poem("a b"));
+    	assertThrows(IllegalArgumentException.class, () -> poet.bridges("a", "b", -1));
+    }
+    
+    /**
+     * cover bridges fewer than k, more than k
+     * 	k >1, ties equal weights, words upper case
+     */
+    @Test
+    public void testBridgesTopK() {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a x b a y b a y b a z b a w b");
+    	List<Bridge> all = poet.bridges("A", "B", 10);
+    	assertEquals("expected preferred order, ties alphabetical", List.of(new Bridge("y", 4),
+    			new Bridge("w", 2), new Bridge("x", 2), new Bridge("z", 2)), all);
+    	assertEquals("expected best two", all.subList(0, 2), poet.bridges("a", "b", 2));
+    	assertEquals("expected best three", all.subList(0, 3), poet.bridges("a", "b", 3));
+    	assertThrows(UnsupportedOperationException.class, () -> all.add(new Bridge("v", 1)));
+    }
+    
+    /**
+     * cover maxHops 2, 3
+     * 	shortest bridge one word, several words
+     * 	several bridges different weights, equal weights
+     * 	visit limit not reached
+     */
+    @Test
+    public void testMultiWordBridges() {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a p q b\na r s b\na r s b\nc x d\nc e f d\ng m n h\ng k l h");
+    	assertEquals("expected one-word bridges only", "A b c x d G h", poet.poem("A b c d G h"));
+    	poet.setMaxBridgeHops(3, GraphPoet.DEFAULT_BRIDGE_VISIT_LIMIT);
+    	assertEquals("expected heaviest, one word first, then alphabetical",
+    			"A r s b c x d G k l h", poet.poem("A b c d G h"));
+    	poet.setMaxBridgeHops(2, 1);
+    	assertEquals("expected one-word bridges again", "A b", poet.poem("A b"));
+    	assertThrows(IllegalArgumentException.class, () -> poet.setMaxBridgeHops(1, 10));
+    	assertThrows(IllegalArgumentException.class, () -> poet.setMaxBridgeHops(3, 0));
+    }
+    
+    /**
+     * cover maxHops 3, >3
+     * 	shortest bridge longer than maxHops allows, none
+     * 	visit limit reached, not reached
+     */
+    @Test
+    public void testMultiWordBridgeLimits() {
+    	GraphPoet poet = new GraphPoet();
+    	poet.setBridgeCacheSize(8);
+    	poet.learn("a p q r b");
+    	poet.setMaxBridgeHops(3, 100);
+    	assertEquals("expected path too long", "a b", poet.poem("a b"));
+    	poet.setMaxBridgeHops(4, 100);
+    	assertEquals("expected three-word bridge, cache emptied", "a p q r b", poet.poem("a b"));
+    	assertEquals("expected no path back", "b a", poet.poem("b a"));
+    	poet.setMaxBridgeHops(4, 2);
+    	assertEquals("expected limit reached", "a b", poet.poem("a b"));
+    }
+    
+    /**
+     * cover maxHops >3
+     * 	shortest bridge one word, several words, none
+     * 	several bridges different weights, equal weights
+     * 	visit limit not reached
+     */
+    @Test
+    public void testMultiWordBridgesExhaustive() {
+    	Random random = new Random(42);
+    	StringBuilder corpus = new StringBuilder();
+    	for (int i = 0; i < 120; i++) {
+    		corpus.append((char) ('a' + random.nextInt(26))).append(i % 10 == 9 ? '\n' : ' ');
+    	}
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn(corpus.toString());
+    	poet.setMaxBridgeHops(4, Integer.MAX_VALUE);
+    	Graph<String> graph = poet.getGraph();
+    	for (char w1 = 'a'; w1 <= 'z'; w1++) {
+    		for (char w2 = 'a'; w2 <= 'z'; w2++) {
+    			String expected = longestBridge(graph, "" + w1, "" + w2, 4);
+    			String poem = poet.poem(w1 + " " + w2);
+    			assertEquals("expected bridge of " + w1 + " " + w2, expected.isEmpty()
+    					? w1 + " " + w2 : w1 + " " + expected + " " + w2, poem);
+    		}
+    	}
+    }
+    
+    /**
+     * The bridge of setMaxBridgeHops() found by enumerating every path of at
+     * most maxHops edges.
+     */
+    private static String longestBridge(Graph<String> graph, String w1, String w2, int maxHops) {
+    	for (int hops = 2; hops <= maxHops; hops++) {
+    		List<List<String>> paths = new ArrayList<>();
+    		paths.add(List.of(w1));
+    		for (int depth = 1; depth < hops; depth++) {
+    			List<List<String>> longer = new ArrayList<>();
+    			for (List<String> path : paths) {
+    				for (String next : graph.targets(path.get(path.size() - 1)).keySet()) {
+    					List<String> extended = new ArrayList<>(path);
+    					extended.add(next);
+    					longer.add(extended);
+    				}
+    			}
+    			paths = longer;
+    		}
+    		String best = "";
+    		int bestWeight = 0;
+    		for (List<String> path : paths) {
+    			Integer last = graph.targets(path.get(path.size() - 1)).get(w2);
+    			if (last == null) {
+    				continue;
+    			}
+    			int weight = last;
+    			for (int i = 1; i < path.size(); i++) {
+    				weight += graph.targets(path.get(i - 1)).get(path.get(i));
+    			}
+    			String words = String.join(" ", path.subList(1, path.size()));
+    			if (weight > bestWeight || weight == bestWeight && words.compareTo(best) < 0) {
+    				best = words;
+    				bestWeight = weight;
+    			}
+    		}
+    		if (bestWeight > 0) {
+    			return best;
+    		}
+    	}
+    	return "";
+    }
+    
 }
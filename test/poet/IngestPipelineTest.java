@@ -0,0 +1,225 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for IngestPipeline.
+ */
+public class IngestPipelineTest {
+    
+    /**
+     * Testing strategy
+     *
+     * run():
+     * 	partition on corpus: empty, less than a chunk, many chunks, missing
+     * 	partition on words: shorter than a chunk, longer than a chunk
+     * 	partition on text: ASCII, multi-byte characters
+     * 	partition on format: plain, gzip
+     * 	partition on tokenizers: 1, > 1
+     * 	partition on ending: done, cancelled before, cancelled during,
+     * 	    interrupted
+     *
+     * stats():
+     * 	partition on time: before run(), after run()
+     */
+    
+    private static final String TEXT = "This is a test of the Mugar Omni Theater sound system.\n"
+    		+ "Caf\u00e9 au lait, caf\u00e9  noir\r\n\u00fcber-long-word-\u00e9\u00e9\u00e9\u00e9-longer-than-a-chunk "
+    		+ "hello hello goodbye\n\n  the test of the system";
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static File file(byte[] bytes, String suffix) throws IOException {
+    	File file = File.createTempFile("corpus", suffix);
+    	file.deleteOnExit();
+    	Files.write(file.toPath(), bytes);
+    	return file;
+    }
+    
+    private static File file(String text) throws IOException {
+    	return file(text.getBytes(StandardCharsets.UTF_8), ".txt");
+    }
+    
+    private static String large(int bytes) {
+    	StringBuilder large = new StringBuilder();
+    	for (int i = 0; large.length() < bytes; i++) {
+    		large.append("word").append(i % 1000).append(i % 7 == 0 ? '\n' : ' ');
+    	}
+    	return large.toString();
+    }
+    
+    private static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+    	assertEquals("expected vertices", expected.vertices(), actual.vertices());
+    	for (String vertex : expected.vertices()) {
+    		assertEquals("expected targets of " + vertex, expected.targets(vertex),
+    				actual.targets(vertex));
+    	}
+    }
+    
+    /**
+     * cover corpus many chunks
+     * 	words shorter than a chunk, longer than a chunk
+     * 	text multi-byte characters
+     * 	format plain
+     * 	tokenizers 1, > 1
+     * 	ending done
+     * stats after run()
+     */
+    @Test
+    public void testSmallChunks() throws IOException {
+    	File corpus = file(TEXT);
+    	GraphPoet expected = new GraphPoet(corpus);
+    	for (int tokenizers : new int[] {1, 3}) {
+    		for (int chunkBytes : new int[] {1, 7, 16}) {
+    			IngestPipeline pipeline = new IngestPipeline(corpus, tokenizers, chunkBytes, 2);
+    			GraphPoet poet = pipeline.run();
+    			assertSameGraph(expected.getGraph(), poet.getGraph());
+    			assertEquals("expected words", expected.ingestReport().getWords(),
+    					poet.ingestReport().getWords());
+    			assertEquals("expected source", corpus.getPath(),
+    					poet.ingestReport().getEntries().get(0).getSource());
+    
+    			PipelineStats stats = pipeline.stats();
+    			long bytes = TEXT.getBytes(StandardCharsets.UTF_8).length;
+    			long chunks = stats.getStage("read").getChunks();
+    			assertTrue("expected several chunks", chunks > 1);
+    			for (PipelineStats.Stage stage : stats.getStages()) {
+    				assertEquals("expected bytes of " + stage.getName(), bytes, stage.getBytes());
+    				assertEquals("expected chunks of " + stage.getName(), chunks, stage.getChunks());
+    			}
+    			assertEquals("expected tokenizers", tokenizers,
+    					stats.getStage("tokenize").getThreads());
+    			assertTrue("expected elapsed time", stats.getWallNanos() > 0);
+    		}
+    	}
+    }
+    
+    /**
+     * cover corpus empty, less than a chunk, many chunks
+     * 	format plain, gzip
+     * stats before run()
+     */
+    @Test
+    public void testDefaultChunks() throws IOException {
+    	IngestPipeline empty = new IngestPipeline(file(""), 2);
+    	assertEquals("expected no chunks yet", 0, empty.stats().getStage("merge").getChunks());
+    	assertEquals("expected no time yet", 0, empty.stats().getWallNanos());
+    	assertEquals("expected empty graph", 0, empty.run().getGraph().vertices().size());
+    
+    	String large = large(3 * IngestPipeline.DEFAULT_CHUNK_BYTES);
+    	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    	try (OutputStream out = new GZIPOutputStream(bytes)) {
+    		out.write(large.getBytes(StandardCharsets.UTF_8));
+    	}
+    	File gzip = file(bytes.toByteArray(), ".txt.gz");
+    	GraphPoet expected = new GraphPoet(file(large));
+    	IngestPipeline pipeline = new IngestPipeline(gzip, 2);
+    	assertSameGraph(expected.getGraph(), pipeline.run().getGraph());
+    	assertEquals("expected decompressed bytes", large.length(),
+    			pipeline.stats().getStage("merge").getBytes());
+    
+    	assertSameGraph(new GraphPoet(file(TEXT)).getGraph(),
+    			new IngestPipeline(file(TEXT), 1).run().getGraph());
+    }
+    
+    /**
+     * cover corpus missing
+     */
+    @Test(expected=IOException.class)
+    public void testMissing() throws IOException {
+    	new IngestPipeline(new File("test/poet/no-such-corpus.txt"), 2).run();
+    }
+    
+    /**
+     * cover ending cancelled before
+     */
+    @Test(expected=CancellationException.class)
+    public void testCancelledBefore() throws IOException {
+    	IngestPipeline pipeline = new IngestPipeline(file(TEXT), 2);
+    	pipeline.cancel();
+    	pipeline.run();
+    }
+    
+    /**
+     * cover ending cancelled during
+     */
+    @Test
+    public void testCancelledDuring() throws IOException, InterruptedException {
+    	IngestPipeline pipeline = new IngestPipeline(file(large(1 << 20)), 2, 16, 4);
+    	Thread canceller = new Thread(() -> {
+    		while (pipeline.stats().getStage("merge").getChunks() == 0) {
+    			Thread.onSpinWait();
+    		}
+    		pipeline.cancel();
+    	});
+    	canceller.start();
+    	try {
+    		pipeline.run();
+    		fail("expected cancellation");
+    	} catch (CancellationException e) {
+    		// expected
+    	}
+    	canceller.join();
+    	assertFalse("expected interrupt status clear", Thread.currentThread().isInterrupted());
+    	pipeline.cancel(); // does nothing once run() has returned
+    	assertFalse("expected interrupt status clear", Thread.interrupted());
+    }
+    
+    /**
+     * cover ending interrupted
+     */
+    @Test
+    public void testInterrupted() throws IOException, InterruptedException {
+    	IngestPipeline pipeline = new IngestPipeline(file(large(1 << 20)), 2, 16, 4);
+    	AtomicReference<Throwable> thrown = new AtomicReference<>();
+    	AtomicReference<Boolean> interrupted = new AtomicReference<>();
+    	Thread runner = new Thread(() -> {
+    		try {
+    			pipeline.run();
+    		} catch (Throwable e) {
+    			thrown.set(e);
+    		}
+    		interrupted.set(Thread.currentThread().isInterrupted());
+    	});
+    	runner.start();
+    	while (pipeline.stats().getStage("merge").getChunks() == 0) {
+    		Thread.onSpinWait();
+    	}
+    	runner.interrupt();
+    	runner.join();
+    	assertTrue("expected InterruptedIOException, got " + thrown.get(),
+    			thrown.get() instanceof InterruptedIOException);
+    	assertTrue("expected interrupt status set", interrupted.get());
+    }
+    
+    /**
+     * cover run() called twice
+     */
+    @Test(expected=IllegalStateException.class)
+    public void testRunTwice() throws IOException {
+    	IngestPipeline pipeline = new IngestPipeline(file(TEXT), 1);
+    	pipeline.run();
+    	pipeline.run();
+    }
+}
@@ -0,0 +1,282 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for ModelFile.
+ */
+public class ModelFileTest {
+    
+    /**
+     * Testing strategy
+     * 
+     * save(), load():
+     * 	partition on graph: empty, vertex with no edge, edges, self loop,
+     * 		non-ASCII word
+     * 
+     * load(), isModel():
+     * 	partition on file: model, text, truncated model, missing
+     * 
+     * savePartitioned(), open():
+     * 	partition on graph: empty, one partition, several partitions
+     * 	partition on cache: holds every partition, holds one
+     * 	partition on file: partitioned model, unpartitioned model, truncated,
+     * 		corrupt partition
+     * 	partition on use: poem, whole graph, learn, statistics
+     * 
+     * fingerprint():
+     * 	partition on file: model, partitioned model, unsupported version,
+     * 		graph not matching its fingerprint
+     * 	partition on poet: same graph as saved, learned since
+     */
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    /**
+     * cover graph empty
+     * 	file model
+     */
+    @Test
+    public void testSaveLoadEmpty() throws IOException {
+    	File model = File.createTempFile("empty", ".model");
+    	model.deleteOnExit();
+    	ModelFile.save(new GraphPoet(), model);
+    	assertTrue("expected model", ModelFile.isModel(model));
+    	assertEquals("expected empty graph", Set.of(), ModelFile.load(model).getGraph().vertices());
+    }
+    
+    /**
+     * cover graph vertex with no edge, edges, self loop, non-ASCII word
+     * 	file model
+     */
+    @Test
+    public void testSaveLoad() throws IOException {
+    	GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+    	poet.learn("alone\nhello hello \u00e9t\u00e9 hello");
+    	File model = File.createTempFile("mugar", ".model");
+    	model.deleteOnExit();
+    	ModelFile.save(poet, model);
+    
+    	GraphPoet loaded = ModelFile.load(model);
+    	Graph<String> expected = poet.getGraph();
+    	Graph<String> actual = loaded.getGraph();
+    	assertEquals("expected same vertices", expected.vertices(), actual.vertices());
+    	for (String vertex : expected.vertices()) {
+    		assertEquals("expected same edges", expected.targets(vertex), actual.targets(vertex));
+    	}
+    	assertEquals("expected same poem", poet.poem("Test the system."),
+    			loaded.poem("Test the system."));
+    	assertEquals("expected one report entry", model.getPath(),
+    			loaded.ingestReport().getEntries().get(0).getSource());
+    }
+    
+    /**
+     * cover file text, truncated model, missing
+     */
+    @Test
+    public void testNotModel() throws IOException {
+    	File text = new File("src/poet/mugar-omni-theater.txt");
+    	assertFalse("expected text", ModelFile.isModel(text));
+    	assertThrows(IOException.class, () -> ModelFile.load(text));
+    
+    	File model = File.createTempFile("truncated", ".model");
+    	model.deleteOnExit();
+    	ModelFile.save(new GraphPoet(text), model);
+    	byte[] bytes = Files.readAllBytes(model.toPath());
+    	Files.write(model.toPath(), Arrays.copyOf(bytes, bytes.length - 5));
+    	assertTrue("expected model", ModelFile.isModel(model));
+    	assertThrows(IOException.class, () -> ModelFile.load(model));
+    
+    	File missing = new File(model.getPath() + ".missing");
+    	assertFalse("expected missing", ModelFile.isModel(missing));
+    	assertThrows(IOException.class, () -> ModelFile.load(missing));
+    }
+    
+    private static File partitioned(GraphPoet poet, int partitionVertices) throws IOException {
+    	File model = File.createTempFile("partitioned", ".model");
+    	model.deleteOnExit();
+    	ModelFile.savePartitioned(poet, model, partitionVertices);
+    	return model;
+    }
+    
+    private static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+    	assertEquals("expected same vertices", expected.vertices(), actual.vertices());
+    	for (String vertex : expected.vertices()) {
+    		assertEquals("expected same targets", expected.targets(vertex), actual.targets(vertex));
+    		assertEquals("expected same sources", expected.sources(vertex), actual.sources(vertex));
+    	}
+    }
+    
+    /**
+     * cover graph empty, one partition
+     * 	file partitioned model
+     */
+    @Test
+    public void testPartitionedEmptyAndSmall() throws IOException {
+    	File empty = partitioned(new GraphPoet(), 4);
+    	assertTrue("expected model", ModelFile.isModel(empty));
+    	assertEquals("expected empty graph", Set.of(), ModelFile.open(empty, 0).getGraph().vertices());
+    
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("hello hello \u00e9t\u00e9 hello");
+    	assertSameGraph(poet.getGraph(), ModelFile.load(partitioned(poet, 100)).getGraph());
+    }
+    
+    /**
+     * cover graph several partitions
+     * 	cache holds every partition, holds one
+     * 	use poem, whole graph, learn
+     */
+    @Test
+    public void testPartitionedOpen() throws IOException {
+    	GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+    	poet.learn("alone\nhello hello \u00e9t\u00e9 hello\na test of hello");
+    	File model = partitioned(poet, 3);
+    
+    	for (long cacheBytes : new long[] {0, 1 << 20}) {
+    		GraphPoet opened = ModelFile.open(model, cacheBytes);
+    		PartitionedGraph graph = (PartitionedGraph) opened.graph();
+    		assertEquals("expected nothing read yet", 0, graph.cacheStats().getMisses());
+    		for (String input : List.of("Test the system.", "hello of hello", "alone a system.")) {
+    			assertEquals("expected same poem", poet.poem(input), opened.poem(input));
+    		}
+    		assertEquals("expected same bridges", poet.bridges("test", "the", 3),
+    				opened.bridges("test", "the", 3));
+    		assertEquals("expected same weight", 1, graph.weight("hello", "hello"));
+    		assertEquals("expected no weight", 0, graph.weight("hello", "absent"));
+    		assertSameGraph(poet.getGraph(), opened.getGraph());
+    		CacheStats stats = graph.cacheStats();
+    		assertTrue("expected partitions read", stats.getMisses() > 0 && stats.getHits() > 0);
+    		if (cacheBytes == 0) {
+    			assertEquals("expected one partition cached", 1, stats.getSize());
+    			assertTrue("expected evictions", stats.getEvictions() > 0);
+    		} else {
+    			assertEquals("expected every partition cached", stats.getCapacity(), stats.getSize());
+    			assertEquals("expected no eviction", 0, stats.getEvictions());
+    		}
+    		opened.learn("alone again");
+    		assertEquals("expected learned", "alone again", opened.poem("alone again"));
+    		assertEquals("expected learned edge", 1, opened.getGraph().weight("alone", "again"));
+    	}
+    }
+    
+    /**
+     * cover graph several partitions
+     * 	cache holds one
+     * 	use statistics
+     */
+    @Test
+    public void testPartitionedStats() throws IOException {
+    	GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+    	poet.learn("alone\nhello hello \u00e9t\u00e9 hello\na test of hello");
+    	ModelStats expected = poet.stats();
+    	GraphPoet opened = ModelFile.open(partitioned(poet, 3), 1000);
+    	PartitionedGraph graph = (PartitionedGraph) opened.graph();
+    
+    	ModelStats stats = opened.stats();
+    	assertEquals("expected nothing read", 0, graph.cacheStats().getMisses());
+    	assertEquals("expected vertices", expected.getVertices(), stats.getVertices());
+    	assertEquals("expected edges", expected.getEdges(), stats.getEdges());
+    	assertEquals("expected total weight", expected.getTotalWeight(), stats.getTotalWeight());
+    	for (double percent : new double[] {0, 50, 90, 100}) {
+    		assertEquals("expected out-degree", expected.outDegreePercentile(percent),
+    				stats.outDegreePercentile(percent));
+    		assertEquals("expected in-degree", expected.inDegreePercentile(percent),
+    				stats.inDegreePercentile(percent));
+    	}
+    	assertEquals("expected structures", List.of("index", "labels", "edges cached"),
+    			List.copyOf(stats.getEstimatedBytes().keySet()));
+    	assertEquals("expected nothing cached", 0, (long) stats.getEstimatedBytes().get("edges cached"));
+    	assertEquals("expected budget", 1000, stats.getCacheBudget().getAsLong());
+    	assertTrue("expected budget reported", stats.toString().contains("budget"));
+    
+    	opened.poem("Test the system.");
+    	long cached = opened.stats().getEstimatedBytes().get("edges cached");
+    	assertTrue("expected edges cached", cached > 0);
+    	assertEquals("expected cached bytes", graph.cachedBytes(), cached);
+    	assertTrue("expected labels read", opened.stats().getEstimatedBytes().get("labels") > 0);
+    }
+    
+    /**
+     * cover file unpartitioned model, truncated, corrupt partition
+     */
+    @Test
+    public void testPartitionedNotModel() throws IOException {
+    	GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+    	File unpartitioned = File.createTempFile("unpartitioned", ".model");
+    	unpartitioned.deleteOnExit();
+    	ModelFile.save(poet, unpartitioned);
+    	assertThrows(IOException.class, () -> ModelFile.open(unpartitioned, 0));
+    	assertThrows(IOException.class, () -> ModelFile.open(new File("src/poet/mugar-omni-theater.txt"), 0));
+    
+    	File model = partitioned(poet, 4);
+    	byte[] bytes = Files.readAllBytes(model.toPath());
+    	Files.write(model.toPath(), Arrays.copyOf(bytes, bytes.length - 5));
+    	assertThrows(IOException.class, () -> ModelFile.open(model, 0));
+    
+    	// the last int is the weight of the last in-edge of the last partition
+    	bytes[bytes.length - 1] = 0;
+    	Files.write(model.toPath(), bytes);
+    	GraphPoet corrupt = ModelFile.open(model, 0);
+    	assertThrows(UncheckedIOException.class, () -> corrupt.getGraph());
+    }
+    
+    /**
+     * cover file model, partitioned model, unsupported version, graph
+     * 		not matching its fingerprint
+     * 	poet same graph as saved, learned since
+     */
+    @Test
+    public void testFingerprint() throws IOException {
+    	GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+    	poet.learn("hello hello \u00e9t\u00e9 hello");
+    	File model = File.createTempFile("fingerprint", ".model");
+    	model.deleteOnExit();
+    	ModelFile.save(poet, model);
+    	File partitioned = partitioned(poet, 3);
+    	assertEquals("expected saved fingerprint", poet.fingerprint(), ModelFile.fingerprint(model));
+    	assertEquals("expected saved fingerprint", poet.fingerprint(),
+    			ModelFile.fingerprint(partitioned));
+    	assertEquals("expected loaded fingerprint", poet.fingerprint(),
+    			ModelFile.load(model).fingerprint());
+    	GraphPoet opened = ModelFile.open(partitioned, 0);
+    	assertEquals("expected opened fingerprint", poet.fingerprint(), opened.fingerprint());
+    	assertEquals("expected nothing read", 0,
+    			((PartitionedGraph) opened.graph()).cacheStats().getMisses());
+    	opened.learn("hello again");
+    	assertNotEquals("expected learned fingerprint", poet.fingerprint(), opened.fingerprint());
+    	poet.learn("hello again");
+    	assertEquals("expected learned fingerprint", poet.fingerprint(), opened.fingerprint());
+    
+    	// the same file in another version
+    	byte[] bytes = Files.readAllBytes(model.toPath());
+    	byte[] other = bytes.clone();
+    	other[7] = 1;
+    	Files.write(model.toPath(), other);
+    	assertThrows(IOException.class, () -> ModelFile.fingerprint(model));
+    	assertThrows(IOException.class, () -> ModelFile.load(model));
+    
+    	// the last int is the weight of the last edge
+    	bytes[bytes.length - 1]++;
+    	Files.write(model.toPath(), bytes);
+    	assertThrows(IOException.class, () -> ModelFile.load(model));
+    }
+}
@@ -0,0 +1,100 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for ParallelCorpusReader and CorpusCounts.
+ */
+public class ParallelCorpusReaderTest {
+    
+    /**
+     * Testing strategy
+     * 
+     * read():
+     * 	partition on chunk size: larger than file, smaller than a word,
+     * 		between
+     * 	partition on pieces: 1, >1
+     * 	partition on piece boundary: inside run of spaces, at line break,
+     * 		piece with no word
+     * 	partition on text: ASCII, multi-byte UTF-8
+     */
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    /**
+     * cover chunk size larger than file
+     * 	pieces 1
+     */
+    @Test
+    public void testReadOnePiece() throws IOException {
+    	Graph<String> graph = Graph.empty();
+    	ParallelCorpusReader.read(new File("test/poet/hello.txt"), 2, 1 << 20).applyTo(graph);
+    	assertEquals("expected vertices", Set.of("hello,", "goodbye!"), graph.vertices());
+    	assertEquals("expected target", Map.of("hello,", 2, "goodbye!", 1), graph.targets("hello,"));
+    }
+    
+    /**
+     * cover chunk size smaller than a word
+     * 	pieces >1
+     * 	boundary inside run of spaces, at line break, piece with no word
+     */
+    @Test
+    public void testReadTinyPieces() throws IOException {
+    	String text = "To explore   strange new worlds\n\n\nTo seek out new life\r\nand new  civilizations ";
+    	assertSameGraph(text, 3);
+    }
+    
+    /**
+     * cover chunk size between
+     * 	pieces >1
+     * 	multi-byte UTF-8
+     */
+    @Test
+    public void testReadRandomCorpus() throws IOException {
+    	String[] words = {"the", "The", "of", "a", "na\u00efve", "caf\u00e9", "CAF\u00c9", "\u4e16\u754c", "x"};
+    	String[] spaces = {" ", "  ", "\n", "\t", "\r\n", " \n "};
+    	Random random = new Random(6005);
+    	StringBuilder text = new StringBuilder();
+    	for (int i = 0; i < 5000; i++) {
+    		text.append(words[random.nextInt(words.length)]);
+    		text.append(spaces[random.nextInt(spaces.length)]);
+    	}
+    	assertSameGraph(text.toString(), 97);
+    }
+    
+    /**
+     * Assert that reading text in pieces of chunkBytes builds the same graph
+     * as GraphPoet(File).
+     */
+    private static void assertSameGraph(String text, int chunkBytes) throws IOException {
+    	File file = File.createTempFile("corpus", ".txt");
+    	file.deleteOnExit();
+    	Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    	
+    	Graph<String> expected = new GraphPoet(file).getGraph();
+    	Graph<String> actual = Graph.empty();
+    	ParallelCorpusReader.read(file, 4, chunkBytes).applyTo(actual);
+    	assertEquals("expected vertices", expected.vertices(), actual.vertices());
+    	for (String vertex : expected.vertices()) {
+    		assertEquals("expected targets", expected.targets(vertex), actual.targets(vertex));
+    	}
+    }
+}
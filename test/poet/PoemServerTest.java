@@ -0,0 +1,167 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for PoemServer, PoemLoadClient and LatencyHistogram.
+ */
+public class PoemServerTest {
+    
+    /**
+     * Testing strategy
+     *
+     * PoemServer:
+     * 	partition on requests per connection: 1, >1
+     * 	partition on requests in flight: 1, >1
+     * 	partition on connections: 1, >1
+     * 	partition on input: empty, words, non-ASCII
+     * 	partition on failures to accept in a row: 1, >1, enough to reach the
+     * 	    longest pause
+     *
+     * PoemLoadClient:
+     * 	partition on server: answers every request, closes the connection
+     *
+     * LatencyHistogram:
+     * 	partition on latencies: 0, 1, >1
+     * 	partition on latency: below 8ns, exact bucket, rounded to bucket
+     */
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    /**
+     * cover requests per connection >1
+     * 	requests in flight >1, connections 1
+     * 	input empty, words, non-ASCII
+     */
+    @Test
+    public void testPipelinedRequests() throws IOException {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a b c\nx \u00e9 y");
+    	try (PoemServer server = new PoemServer(poet, InetAddress.getLoopbackAddress(), 0);
+    			Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+    		OutputStream out = socket.getOutputStream();
+    		out.write("A c\n\nx Y\na c c\n".getBytes(StandardCharsets.UTF_8));
+    		out.flush();
+    		BufferedReader in = new BufferedReader(new InputStreamReader(
+    				socket.getInputStream(), StandardCharsets.UTF_8));
+    		assertEquals("expected first poem", "A b c", in.readLine());
+    		assertEquals("expected empty poem", "", in.readLine());
+    		assertEquals("expected non-ASCII bridge", "x \u00e9 Y", in.readLine());
+    		assertEquals("expected last poem", "a b c c", in.readLine());
+    
+    		out.write("a c\n".getBytes(StandardCharsets.UTF_8));
+    		out.flush();
+    		assertEquals("expected poem on kept connection", "a b c", in.readLine());
+    		assertEquals("expected every poem timed", 5, server.latency().count());
+    	}
+    }
+    
+    /**
+     * cover requests per connection 1, >1
+     * 	requests in flight 1, >1, connections >1
+     */
+    @Test
+    public void testLoadClient() throws IOException {
+    	GraphPoet poet = new GraphPoet();
+    	poet.learn("a b c");
+    	try (PoemServer server = new PoemServer(poet, InetAddress.getLoopbackAddress(), 0)) {
+    		LatencyHistogram one = PoemLoadClient.run(InetAddress.getLoopbackAddress(),
+    				server.getPort(), 1, 1, 1, List.of("a c"));
+    		assertEquals("expected one request", 1, one.count());
+    		LatencyHistogram many = PoemLoadClient.run(InetAddress.getLoopbackAddress(),
+    				server.getPort(), 3, 200, 8, List.of("a c", "c a"));
+    		assertEquals("expected every request", 600, many.count());
+    		assertEquals("expected every poem served", 601, server.latency().count());
+    		assertTrue("expected percentiles in order",
+    				many.percentile(50) <= many.percentile(99) && many.percentile(99) <= many.max());
+    	}
+    }
+    
+    /** cover server closes the connection */
+    @Test(timeout = 10_000)
+    public void testLoadClientServerCloses() throws IOException {
+    	try (ServerSocket server = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+    		Thread closer = new Thread(() -> {
+    			try {
+    				server.accept().close();
+    			} catch (IOException e) {
+    				// the test fails on its own
+    			}
+    		});
+    		closer.start();
+    		// the sender waits for an answer before sending the second request
+    		assertThrows(IOException.class, () -> PoemLoadClient.run(
+    				InetAddress.getLoopbackAddress(), server.getLocalPort(), 1, 100, 1,
+    				List.of("a c")));
+    	}
+    }
+    
+    /** cover failures to accept 1, >1, enough to reach the longest pause */
+    @Test
+    public void testBackoff() {
+    	assertEquals("expected shortest pause", PoemServer.MIN_BACKOFF_MILLIS,
+    			PoemServer.backoffMillis(1));
+    	assertEquals("expected pause doubled", 2 * PoemServer.MIN_BACKOFF_MILLIS,
+    			PoemServer.backoffMillis(2));
+    	assertEquals("expected longest pause", PoemServer.MAX_BACKOFF_MILLIS,
+    			PoemServer.backoffMillis(20));
+    	assertEquals("expected longest pause", PoemServer.MAX_BACKOFF_MILLIS,
+    			PoemServer.backoffMillis(Integer.MAX_VALUE));
+    }
+    
+    /**
+     * cover latencies 0, 1
+     * 	latency below 8ns
+     */
+    @Test
+    public void testHistogramEmptyAndOne() {
+    	LatencyHistogram latency = new LatencyHistogram();
+    	assertEquals("expected no latency", 0, latency.count());
+    	assertEquals("expected no percentile", 0, latency.percentile(99));
+    	latency.record(5);
+    	assertEquals("expected one latency", 1, latency.count());
+    	assertEquals("expected exact latency", 5, latency.percentile(50));
+    	assertEquals("expected max", 5, latency.max());
+    }
+    
+    /**
+     * cover latencies >1
+     * 	latency exact bucket, rounded to bucket
+     */
+    @Test
+    public void testHistogramPercentiles() {
+    	LatencyHistogram latency = new LatencyHistogram();
+    	for (long nanos = 1; nanos <= 1000; nanos++) {
+    		latency.record(nanos * 1000);
+    	}
+    	assertEquals("expected count", 1000, latency.count());
+    	long p50 = latency.percentile(50);
+    	assertTrue("expected p50 within a bucket: " + p50, p50 >= 500_000 && p50 <= 500_000 * 1.125);
+    	long p99 = latency.percentile(99);
+    	assertTrue("expected p99 within a bucket: " + p99, p99 >= 990_000 && p99 <= 1_000_000);
+    	assertEquals("expected max", 1_000_000, latency.percentile(100));
+    	for (int i = 0; i < 400; i++) {
+    		assertTrue("expected bucket bounds", LatencyHistogram.highest(i) < LatencyHistogram.highest(i + 1));
+    		assertEquals("expected bucket of highest", i,
+    				LatencyHistogram.index(LatencyHistogram.highest(i)));
+    	}
+    }
+}
@@ -0,0 +1,188 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for SketchedPairCounts and GraphPoet.approximate().
+ */
+public class SketchedPairCountsTest {
+    
+    /**
+     * Testing strategy
+     *
+     * add(), forEach(), estimate():
+     * 	partition on distinct pairs: fewer than maxPairs, more
+     * 	partition on sketch: no collisions, collisions
+     * 	partition on pair: added once, added many times, never added
+     *
+     * GraphPoet.approximate():
+     * 	partition on bridge: above the stated threshold, below it
+     * 	partition on arguments: valid, not positive, too large
+     *
+     * indexCapacity():
+     * 	partition on maxPairs: 1, power of two, not, 2^29
+     */
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static Map<Long, Integer> kept(SketchedPairCounts counts) {
+    	Map<Long, Integer> kept = new HashMap<>();
+    	counts.forEach((first, second, count) -> kept.put((long) first << 32 | second, count));
+    	return kept;
+    }
+    
+    /**
+     * cover distinct pairs fewer than maxPairs
+     * 	sketch no collisions
+     * 	pair added once, added many times, never added
+     */
+    @Test
+    public void testExactWhenSmall() {
+    	SketchedPairCounts counts = new SketchedPairCounts(16, 1 << 16, 4);
+    	counts.add(1, 2, 1);
+    	counts.add(2, 3, 5);
+    	counts.add(1, 2, 2);
+    	assertEquals("expected kept pairs", Map.of(1L << 32 | 2, 3, 2L << 32 | 3, 5), kept(counts));
+    	assertEquals("expected estimate", 3, counts.estimate(1, 2));
+    	assertEquals("expected no estimate", 0, counts.estimate(3, 2));
+    }
+    
+    /**
+     * cover distinct pairs more than maxPairs
+     * 	sketch collisions
+     * 	pair added once, added many times
+     */
+    @Test
+    public void testHeavyPairsKept() {
+    	SketchedPairCounts counts = new SketchedPairCounts(20, 1024, 3);
+    	Random random = new Random(7);
+    	Map<Long, Integer> exact = new HashMap<>();
+    	long total = 0;
+    	for (int i = 0; i < 20000; i++) {
+    		// pairs 0..9 are seen 1500 times each, above the threshold
+    		// N / maxPairs + e / width * N of about 1053; the rest about once
+    		int first = i % 4 != 0 ? i % 10 : 10 + random.nextInt(5000);
+    		int second = first + 1;
+    		counts.add(first, second, 1);
+    		exact.merge((long) first << 32 | second, 1, Integer::sum);
+    		total++;
+    	}
+    	Map<Long, Integer> kept = kept(counts);
+    	assertEquals("expected maxPairs kept", 20, counts.size());
+    	for (int first = 0; first < 10; first++) {
+    		long key = (long) first << 32 | (first + 1);
+    		assertTrue("expected heavy pair " + first + " kept", kept.containsKey(key));
+    		assertTrue("expected no underestimate", kept.get(key) >= exact.get(key));
+    	}
+    	for (Map.Entry<Long, Integer> pair : exact.entrySet()) {
+    		int estimate = counts.estimate((int) (pair.getKey() >>> 32), (int) (long) pair.getKey());
+    		assertTrue("expected no underestimate", estimate >= pair.getValue());
+    		// holds for each pair with probability 1 - e^-3, so allow slack
+    		assertTrue("expected error within a few times the bound",
+    				estimate - pair.getValue() <= 4 * Math.E / 1024 * total);
+    	}
+    }
+    
+    /**
+     * cover arguments not positive, too large
+     */
+    @Test
+    public void testIllegalArguments() {
+    	assertThrows(IllegalArgumentException.class, () -> new SketchedPairCounts(0, 8, 2));
+    	assertThrows(IllegalArgumentException.class, () -> new SketchedPairCounts(8, 0, 2));
+    	assertThrows(IllegalArgumentException.class, () -> new SketchedPairCounts(8, 8, 0));
+    	assertThrows(IllegalArgumentException.class, () -> new SketchedPairCounts((1 << 29) + 1, 8, 2));
+    }
+    
+    /**
+     * cover maxPairs 1, power of two, not, 2^29
+     */
+    @Test
+    public void testIndexCapacity() {
+    	for (int maxPairs : new int[] {1, 2, 3, 1000, (1 << 28) + 1, (1 << 29) - 1, 1 << 29}) {
+    		int capacity = SketchedPairCounts.indexCapacity(maxPairs);
+    		assertEquals("expected a power of two for " + maxPairs, 1, Integer.bitCount(capacity));
+    		assertTrue("expected room for " + maxPairs, capacity >= 2L * maxPairs);
+    	}
+    	assertEquals("expected at most 2^30", 1 << 30, SketchedPairCounts.indexCapacity(1 << 29));
+    }
+    
+    /**
+     * cover bridge above the stated threshold, below it
+     * 	arguments valid
+     */
+    @Test
+    public void testBridgesMatchExactAboveThreshold() throws IOException {
+    	// a reference corpus: each word is mostly followed by a few
+    	// successors, with Zipf-like odds, over 100 words
+    	Random random = new Random(2015);
+    	double[] odds = new double[100];
+    	for (int z = 0; z < odds.length; z++) {
+    		odds[z] = (z == 0 ? 0 : odds[z - 1]) + 1.0 / (z + 1);
+    	}
+    	StringBuilder corpus = new StringBuilder();
+    	int word = 0;
+    	for (int i = 0; i < 300_000; i++) {
+    		corpus.append('w').append(word).append(i % 12 == 11 ? '\n' : ' ');
+    		double pick = random.nextDouble() * odds[odds.length - 1];
+    		int z = 0;
+    		while (odds[z] < pick) {
+    			z++;
+    		}
+    		word = (word * 7 + z) % 100;
+    	}
+    	File file = File.createTempFile("reference", ".txt");
+    	file.deleteOnExit();
+    	Files.write(file.toPath(), corpus.toString().getBytes(StandardCharsets.UTF_8));
+    
+    	int maxPairs = 1000;
+    	int width = 1 << 14;
+    	GraphPoet exact = new GraphPoet(file);
+    	GraphPoet approximate = GraphPoet.approximate(file, maxPairs, width, 4);
+    	Graph<String> exactGraph = exact.getGraph();
+    	assertTrue("expected fewer edges than exact",
+    			approximate.stats().getEdges() <= maxPairs && exact.stats().getEdges() > maxPairs);
+    	assertEquals("expected same words", exactGraph.vertices(), approximate.getGraph().vertices());
+    
+    	long n = exact.stats().getTotalWeight();
+    	double error = Math.E / width * n;
+    	double threshold = (double) n / maxPairs + error;
+    	int checked = 0;
+    	for (String w1 : exactGraph.vertices()) {
+    		for (String w2 : exactGraph.vertices()) {
+    			List<Bridge> best = exact.bridges(w1, w2, 2);
+    			if (best.isEmpty()) {
+    				continue;
+    			}
+    			String bridge = best.get(0).getWord();
+    			int margin = best.get(0).getWeight() - (best.size() > 1 ? best.get(1).getWeight() : 0);
+    			if (exactGraph.weight(w1, bridge) > threshold && exactGraph.weight(bridge, w2) > threshold
+    					&& margin > 2 * error) {
+    				assertEquals("expected same bridge for " + w1 + " " + w2, List.of(bridge),
+    						approximate.bridges(w1, w2, 1).stream().map(Bridge::getWord).toList());
+    				checked++;
+    			}
+    		}
+    	}
+    	assertTrue("expected bridges above the threshold: " + checked, checked >= 50);
+    }
+}
@@ -0,0 +1,137 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for StreamingPoet.
+ */
+public class StreamingPoetTest {
+    
+    /**
+     * Testing strategy
+     * 
+     * learn(String), learn(Reader):
+     * 	partition on text: empty, one word, many words, word across a
+     * 		buffer boundary, line breaks
+     * 	partition on decay: by words, by clock
+     * 
+     * poem(), bridges():
+     * 	partition on bridge: recent, decayed away, overtaken by recent text
+     */
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    /**
+     * cover text empty, one word, many words
+     * 	decay by words
+     * 	bridge recent, overtaken by recent text
+     */
+    @Test
+    public void testRecentUsageWins() {
+        StreamingPoet poet = StreamingPoet.byWords(20, 0.5);
+        poet.learn("");
+        poet.learn("alone");
+        assertEquals("expected one word", 1, poet.wordsLearned());
+        for (int i = 0; i < 5; i++) {
+            poet.learn("test of the system");
+        }
+        assertEquals("expected bridge", "Test of the system.", poet.poem("Test the system."));
+        for (int i = 0; i < 10; i++) {
+            poet.learn("test to the system");
+        }
+        assertEquals("expected recent bridge", "Test to the system.", poet.poem("Test the system."));
+        List<Bridge> bridges = poet.bridges("test", "the", 2);
+        assertEquals("expected both bridges", 2, bridges.size());
+        assertTrue("expected decayed weights", bridges.get(0).getWeight() < 20);
+    }
+    
+    /**
+     * cover decay by clock
+     * 	bridge decayed away
+     */
+    @Test
+    public void testDecaysWithClock() {
+        long[] clock = {0};
+        StreamingPoet poet = StreamingPoet.byClock(Duration.ofSeconds(1).toNanos(), 0.5, () -> clock[0]);
+        poet.learn("a b c");
+        assertEquals("expected bridge", "a b c", poet.poem("a c"));
+        clock[0] = Duration.ofSeconds(1).toNanos();
+        assertEquals("expected weights decayed but kept", Map.of("b", 1), poet.getGraph().targets("a"));
+        clock[0] = Duration.ofSeconds(2).toNanos();
+        assertEquals("expected bridge decayed away", "a c", poet.poem("a c"));
+        assertTrue("expected empty graph", poet.getGraph().vertices().isEmpty());
+        StreamingPoet.byTime(Duration.ofMinutes(1), 1).learn("now then");
+    }
+    
+    /**
+     * cover text word across a buffer boundary
+     */
+    @Test
+    public void testLearnReader() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 20_000) {
+            text.append("hello world ");
+        }
+        StreamingPoet streamed = StreamingPoet.byWords(1000, 0.5);
+        streamed.learn(new StringReader(text.toString()));
+        StreamingPoet whole = StreamingPoet.byWords(1000, 0.5);
+        whole.learn(text.toString());
+        assertEquals("expected same words", whole.wordsLearned(), streamed.wordsLearned());
+        assertEquals("expected same graph", whole.getGraph().targets("hello"),
+                streamed.getGraph().targets("hello"));
+        assertEquals("expected same graph", whole.getGraph().targets("world"),
+                streamed.getGraph().targets("world"));
+    }
+    
+    /**
+     * cover text line breaks
+     */
+    @Test
+    public void testLineBreaks() throws IOException {
+        String text = "x a\nb y\r\nz\n\nw";
+        GraphPoet expected = new GraphPoet();
+        expected.learn(text);
+        StreamingPoet whole = StreamingPoet.byWords(1000, 0.5);
+        whole.learn(text);
+        StreamingPoet streamed = StreamingPoet.byWords(1000, 0.5);
+        streamed.learn(new StringReader(text));
+        for (StreamingPoet poet : List.of(whole, streamed)) {
+            assertEquals("expected every word", 6, poet.wordsLearned());
+            assertEquals("expected no edge across a line", Map.of(), poet.getGraph().targets("a"));
+            assertEquals("expected no edge across a line", Map.of(), poet.getGraph().targets("y"));
+            assertEquals("expected no edge across lines", Map.of(), poet.getGraph().targets("z"));
+            for (String vertex : expected.getGraph().vertices()) {
+                assertEquals("expected edges as GraphPoet", expected.getGraph().targets(vertex),
+                        poet.getGraph().targets(vertex));
+            }
+            assertEquals("expected poem as GraphPoet", expected.poem("x b y"), poet.poem("x b y"));
+        }
+    }
+    
+    /**
+     * cover text many words
+     */
+    @Test
+    public void testMemoryBounded() {
+        StreamingPoet poet = StreamingPoet.byWords(50, 0.5);
+        for (int i = 0; i < 2000; i++) {
+            poet.learn("the word" + i + " and the rest");
+        }
+        assertTrue("expected bounded storage: " + poet.storedSize(), poet.storedSize() < 1000);
+        assertEquals("expected common bridge", "and the rest", poet.poem("and rest"));
+    }
+}
@@ -0,0 +1,166 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for Tokenizer.
+ */
+public class TokenizerTest {
+    
+    /**
+     * Testing strategy
+     * 
+     * feed(), finish():
+     * 	partition on words: 0, 1, >1
+     * 	partition on word: ASCII, multi-byte UTF-8, contains upper case
+     * 	partition on whitespace: ASCII, multi-byte, line break
+     * 	partition on buffer boundary: between words, inside word, inside
+     * 		multi-byte character
+     * 
+     * wordStart(), wordEnd():
+     * 	partition on text: empty, only whitespace, words
+     * 	partition on whitespace: ASCII, multi-byte
+     */
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    /**
+     * cover words 0
+     * 	line break
+     */
+    @Test
+    public void testFeedNoWord() throws IOException {
+    	assertSameAsScanner(" \n\t\r\n ", 16);
+    }
+    
+    /**
+     * cover words 1
+     * 	upper case
+     * 	buffer boundary inside word
+     */
+    @Test
+    public void testFeedOneWord() throws IOException {
+    	CorpusCounts counts = countBytes("HeLLo", 2);
+    	assertEquals("expected one word", 1, counts.words().size());
+    	assertEquals("expected word", "hello", counts.words().word(0));
+    }
+    
+    /**
+     * cover words >1
+     * 	multi-byte UTF-8, upper case, multi-byte whitespace
+     * 	buffer boundary inside multi-byte character
+     */
+    @Test
+    public void testFeedMultiByte() throws IOException {
+    	assertSameAsScanner("CAF\u00c9 caf\u00e9\u3000caf\u00e9\u2003THE\u1680the\u00a0end", 1);
+    }
+    
+    /**
+     * cover words >1
+     * 	every partition of word and whitespace
+     * 	buffer boundary between words and inside word
+     */
+    @Test
+    public void testFeedRandom() throws IOException {
+    	String[] words = {"the", "The", "of", "A", "na\u00efve", "\u00c9T\u00c9", "\u4e16\u754c", "x!"};
+    	String[] spaces = {" ", "  ", "\n", "\t", "\r\n", "\r", "\u2028", "\u3000", "\u001c", "\u000b"};
+    	Random random = new Random(6005);
+    	StringBuilder text = new StringBuilder();
+    	for (int i = 0; i < 3000; i++) {
+    		text.append(words[random.nextInt(words.length)]);
+    		text.append(spaces[random.nextInt(spaces.length)]);
+    	}
+    	for (int bufferBytes : new int[] {1, 7, 4096}) {
+    		assertSameAsScanner(text.toString(), bufferBytes);
+    	}
+    }
+    
+    /**
+     * cover text empty, only whitespace, words
+     * 	ASCII and multi-byte whitespace
+     */
+    @Test
+    public void testWordStartEnd() {
+    	assertEquals("expected no word", 0, Tokenizer.wordStart("", 0));
+    	assertEquals("expected no word", 3, Tokenizer.wordStart(" \n\u3000", 0));
+    	String text = " Test\u2003the  system.";
+    	assertEquals("expected word start", 1, Tokenizer.wordStart(text, 0));
+    	assertEquals("expected word end", 5, Tokenizer.wordEnd(text, 1));
+    	assertEquals("expected word start", 6, Tokenizer.wordStart(text, 5));
+    	assertEquals("expected word end", 9, Tokenizer.wordEnd(text, 6));
+    	assertEquals("expected word start", 11, Tokenizer.wordStart(text, 9));
+    	assertEquals("expected word end", text.length(), Tokenizer.wordEnd(text, 11));
+    }
+    
+    /**
+     * Feed the UTF-8 bytes of text to a Tokenizer bufferBytes at a time.
+     */
+    private static CorpusCounts countBytes(String text, int bufferBytes) {
+    	byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    	CorpusCounts counts = new CorpusCounts();
+    	Tokenizer tokenizer = new Tokenizer(counts);
+    	for (int off = 0; off < bytes.length; off += bufferBytes) {
+    		tokenizer.feed(bytes, off, Math.min(bufferBytes, bytes.length - off));
+    	}
+    	tokenizer.finish();
+    	return counts;
+    }
+    
+    /**
+     * Assert that tokenizing text gives the same graph as scanning it line by
+     * line with a Scanner and folding each word with toLowerCase().
+     */
+    private static void assertSameAsScanner(String text, int bufferBytes) throws IOException {
+    	Graph<String> expected = Graph.empty();
+    	List<String> order = new ArrayList<>();
+    	BufferedReader reader = new BufferedReader(new StringReader(text));
+    	String line;
+    	while ((line = reader.readLine()) != null) {
+    		Scanner scanner = new Scanner(line);
+    		String pre = null;
+    		while (scanner.hasNext()) {
+    			String cur = scanner.next().toLowerCase();
+    			if (expected.add(cur)) {
+    				order.add(cur);
+    			}
+    			if (pre != null) {
+    				expected.set(pre, cur, expected.targets(pre).getOrDefault(cur, 0) + 1);
+    			}
+    			pre = cur;
+    		}
+    		scanner.close();
+    	}
+    	
+    	CorpusCounts counts = countBytes(text, bufferBytes);
+    	List<String> words = new ArrayList<>();
+    	for (int id = 0; id < counts.words().size(); id++) {
+    		words.add(counts.words().word(id));
+    	}
+    	assertEquals("expected words in order of appearance", order, words);
+    	
+    	Graph<String> actual = Graph.empty();
+    	counts.applyTo(actual);
+    	for (String vertex : expected.vertices()) {
+    		assertEquals("expected targets", expected.targets(vertex), actual.targets(vertex));
+    	}
+    }
+}